@@ -0,0 +1,29 @@
+package student.bench;
+
+import student.BoardGame;
+import student.tools.CatalogGenerator;
+
+import java.util.List;
+
+/**
+ * Catalogs of a given size for the benchmarks, from {@link CatalogGenerator} with a fixed
+ * seed, so the same size always gives the same catalog.
+ */
+final class BenchData {
+    /** the seed for every benchmark catalog. */
+    static final long SEED = 38;
+
+    /** private constructor to prevent instantiation. */
+    private BenchData() {
+    }
+
+    /**
+     * Builds a catalog.
+     *
+     * @param size the number of games
+     * @return the games
+     */
+    static List<BoardGame> games(int size) {
+        return new CatalogGenerator(SEED).games(size);
+    }
+}
@@ -0,0 +1,79 @@
+package student.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import student.BoardGame;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BoardGame.hashCode and equals, which every HashSet in the planner and game lists calls.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BoardGameBenchmark {
+    /** a game. */
+    private BoardGame game;
+    /** an equal copy of game. */
+    private BoardGame copy;
+    /** a different game with the same name. */
+    private BoardGame other;
+
+    /**
+     * Picks the games.
+     */
+    @Setup
+    public void setUp() {
+        List<BoardGame> games = BenchData.games(1);
+        game = games.get(0);
+        copy = new BoardGame(game.getName(), game.getId(), game.getMinPlayers(), game.getMaxPlayers(),
+                game.getMinPlayTime(), game.getMaxPlayTime(), game.getDifficulty(), game.getRank(),
+                game.getRating(), game.getYearPublished());
+        other = new BoardGame(game.getName(), game.getId() + 1, game.getMinPlayers(), game.getMaxPlayers(),
+                game.getMinPlayTime(), game.getMaxPlayTime(), game.getDifficulty(), game.getRank(),
+                game.getRating(), game.getYearPublished());
+    }
+
+    /**
+     * Hashes a game.
+     *
+     * @return the hash
+     */
+    @Benchmark
+    public int hashCodeOf() {
+        return game.hashCode();
+    }
+
+    /**
+     * Compares two equal games.
+     *
+     * @return true
+     */
+    @Benchmark
+    public boolean equalsSame() {
+        return game.equals(copy);
+    }
+
+    /**
+     * Compares two games that differ only by id.
+     *
+     * @return false
+     */
+    @Benchmark
+    public boolean equalsDifferent() {
+        return game.equals(other);
+    }
+}
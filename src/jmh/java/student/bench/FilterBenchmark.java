@@ -0,0 +1,64 @@
+package student.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import student.GameData;
+import student.Planner;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full Planner.filter call (parse, predicates, sort) from a reset planner, across catalog
+ * sizes, filters of different selectivity, and sort columns.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterBenchmark {
+    /** games in the catalog. */
+    @Param({"750", "10000", "100000"})
+    public int size;
+
+    /** the filter: nearly everything, about a third, a handful, and two predicates. */
+    @Param({"rating>0", "minplayers>=3", "name~=catan", "rating>7,maxplayers<=2"})
+    public String filter;
+
+    /** the sort column. */
+    @Param({"NAME", "RATING", "YEAR"})
+    public GameData sort;
+
+    /** the planner under test. */
+    private Planner planner;
+
+    /**
+     * Builds the planner.
+     */
+    @Setup
+    public void setUp() {
+        planner = new Planner(new HashSet<>(BenchData.games(size)));
+    }
+
+    /**
+     * Filters and sorts from the full catalog.
+     *
+     * @return the number of games that matched
+     */
+    @Benchmark
+    public long filter() {
+        planner.reset();
+        return planner.filter(filter, sort, false).count();
+    }
+}
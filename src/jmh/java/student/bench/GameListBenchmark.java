@@ -0,0 +1,87 @@
+package student.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import student.FilterResult;
+import student.GameData;
+import student.GameList;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GameList.addToList and removeFromList with numbers, ranges and names. Each call adds
+ * games and removes them again, so the list is the same size for every call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GameListBenchmark {
+    /** games in the catalog. */
+    @Param({"750", "10000", "100000"})
+    public int size;
+
+    /** games already in the list. */
+    @Param({"0", "500"})
+    public int listed;
+
+    /** the list under test. */
+    private GameList list;
+    /** the filter result games are added from. */
+    private FilterResult result;
+    /** a range of games at the end of the result, not already listed. */
+    private String range;
+    /** the name of the last game. */
+    private String name;
+
+    /**
+     * Builds the result and fills the list.
+     */
+    @Setup
+    public void setUp() {
+        result = FilterResult.sorted(BenchData.games(size), GameData.NAME, true);
+        list = new GameList();
+        if (listed > 0) {
+            list.addToList("1-" + listed, result);
+        }
+        range = (size - 99) + "-" + size;
+        name = result.get(size - 1).getName();
+    }
+
+    /**
+     * Adds and removes a range of 100 games.
+     *
+     * @return the list size in between
+     */
+    @Benchmark
+    public int addRemoveRange() {
+        list.addToList(range, result);
+        int count = list.count();
+        list.removeFromList((listed + 1) + "-" + (listed + 100));
+        return count;
+    }
+
+    /**
+     * Adds and removes one game by name.
+     *
+     * @return the list size in between
+     */
+    @Benchmark
+    public int addRemoveName() {
+        list.addToList(name, result);
+        int count = list.count();
+        list.removeFromList(name);
+        return count;
+    }
+}
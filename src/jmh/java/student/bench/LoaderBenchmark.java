@@ -0,0 +1,79 @@
+package student.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import student.BoardGame;
+import student.GamesLoader;
+import student.tools.CatalogGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a games file: the bundled collection, or a generated catalog on disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoaderBenchmark {
+    /** games in the file, 0 for the bundled /collection.csv. */
+    @Param({"0", "10000", "100000"})
+    public int size;
+
+    /** the file to load. */
+    private String file;
+
+    /**
+     * Writes the generated catalog, if one is needed.
+     *
+     * @throws IOException if the temporary file cannot be made
+     */
+    @Setup
+    public void setUp() throws IOException {
+        if (size == 0) {
+            file = "/collection.csv";
+        } else {
+            Path csv = Files.createTempFile("catalog-" + size, ".csv");
+            new CatalogGenerator(BenchData.SEED).write(size, csv);
+            file = csv.toString();
+        }
+    }
+
+    /**
+     * Deletes the generated catalog.
+     *
+     * @throws IOException if it cannot be deleted
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        if (size != 0) {
+            Files.deleteIfExists(Path.of(file));
+        }
+    }
+
+    /**
+     * Reads and parses the file.
+     *
+     * @return the games, so the work is not optimised away
+     */
+    @Benchmark
+    public Set<BoardGame> load() {
+        return GamesLoader.loadGamesFile(file);
+    }
+}
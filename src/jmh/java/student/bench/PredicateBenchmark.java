@@ -0,0 +1,71 @@
+package student.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import student.BoardGame;
+import student.GameData;
+import student.Operations;
+import student.filter.Filter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * The student.filter predicates on their own, tested against every game.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PredicateBenchmark {
+    /** games in the catalog. */
+    @Param({"750", "10000", "100000"})
+    public int size;
+
+    /** column, operator and value: string contains and equals, int and double compares. */
+    @Param({"NAME ~= catan", "NAME == chess", "MIN_PLAYERS >= 3", "YEAR < 2000", "RATING > 7.5"})
+    public String spec;
+
+    /** the games. */
+    private BoardGame[] games;
+    /** the predicate under test. */
+    private Predicate<BoardGame> predicate;
+
+    /**
+     * Builds the catalog and the predicate.
+     */
+    @Setup
+    public void setUp() {
+        games = BenchData.games(size).toArray(new BoardGame[0]);
+        String[] parts = spec.split(" ");
+        predicate = Filter.createFilter(GameData.valueOf(parts[0]),
+                Operations.getOperatorFromStr(parts[1]), parts[2]).createPredicate();
+    }
+
+    /**
+     * Tests every game.
+     *
+     * @return the number of games that matched
+     */
+    @Benchmark
+    public int test() {
+        int matched = 0;
+        for (BoardGame game : games) {
+            if (predicate.test(game)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+}
@@ -0,0 +1,70 @@
+package student.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import student.BoardGame;
+import student.GameComparator;
+import student.GameData;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorting with the GameComparator comparators, from a shuffled order.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SortBenchmark {
+    /** games in the catalog. */
+    @Param({"750", "10000", "100000"})
+    public int size;
+
+    /** the sort column. */
+    @Param({"NAME", "RATING", "DIFFICULTY", "RANK", "YEAR"})
+    public GameData column;
+
+    /** the games, shuffled. */
+    private BoardGame[] shuffled;
+    /** the comparator under test. */
+    private Comparator<BoardGame> comparator;
+
+    /**
+     * Shuffles the catalog and builds the comparator.
+     */
+    @Setup
+    public void setUp() {
+        List<BoardGame> games = BenchData.games(size);
+        Collections.shuffle(games, new Random(38));
+        shuffled = games.toArray(new BoardGame[0]);
+        comparator = GameComparator.createComparator(column, true);
+    }
+
+    /**
+     * Sorts a copy of the shuffled games.
+     *
+     * @return the sorted games
+     */
+    @Benchmark
+    public BoardGame[] sort() {
+        BoardGame[] games = shuffled.clone();
+        Arrays.sort(games, comparator);
+        return games;
+    }
+}
@@ -0,0 +1,253 @@
+package student;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Background writer for game list files.
+ *
+ * Saves are handed to a single writer thread so the caller does not block on file I/O.
+ * If a file is saved again before the writer got to it, the pending save is replaced with
+ * the newer contents and both callers get the same future, so a burst of saves to one file
+ * turns into one write. Every write goes to a temporary file in the same directory which is
+ * then moved over the target, so readers never see a half written list.
+ *
+ * The number of files waiting to be written is bounded. When it is full, {@link #submit}
+ * blocks until the writer catches up. Failures complete the future exceptionally.
+ */
+public final class AsyncListWriter implements Closeable {
+    /** default number of files that can be waiting to be written. */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /** guards pending and closed. */
+    private final ReentrantLock lock = new ReentrantLock();
+    /** signalled when a save is queued or the writer is closed. */
+    private final Condition notEmpty = lock.newCondition();
+    /** signalled when the writer takes a save off the queue. */
+    private final Condition notFull = lock.newCondition();
+    /** saves waiting to be written, oldest first, one per file. */
+    private final Map<Path, PendingSave> pending = new LinkedHashMap<>();
+    /** maximum size of pending. */
+    private final int capacity;
+    /** the writer thread. */
+    private final Thread writer;
+    /** set once close is called. */
+    private boolean closed;
+
+    /**
+     * Creates a writer with the default capacity.
+     */
+    public AsyncListWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a writer and starts its thread.
+     *
+     * @param capacity the number of files that can be waiting before submit blocks
+     */
+    public AsyncListWriter(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        this.writer = new Thread(this::run, "game-list-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Gets the writer shared by every game list in the process.
+     *
+     * @return the shared writer
+     */
+    public static AsyncListWriter getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    /**
+     * Queues the lines to be written to the file.
+     *
+     * @param file  the file to write
+     * @param lines the lines to write, one per line in the file
+     * @return a future completed once the file is on disk
+     * @throws RejectedExecutionException if the writer has been closed
+     */
+    public CompletableFuture<Void> submit(Path file, List<String> lines) {
+        Path key = file.toAbsolutePath().normalize();
+        lock.lock();
+        try {
+            PendingSave save = pending.get(key);
+            if (save != null) {
+                save.lines = lines; // coalesce, the newest contents win
+                return save.future;
+            }
+            while (pending.size() >= capacity && !closed) {
+                notFull.awaitUninterruptibly();
+            }
+            if (closed) {
+                throw new RejectedExecutionException("Game list writer is closed");
+            }
+            save = new PendingSave(lines);
+            pending.put(key, save);
+            notEmpty.signal();
+            return save.future;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the lines to the file through a temporary file and a move. The temporary file
+     * is a sibling created with default attributes, as writing the file directly would,
+     * and takes the permissions of the file it replaces, so a save does not change who can
+     * read the list.
+     *
+     * @param file  the file to write
+     * @param lines the lines to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeAtomically(Path file, List<String> lines) throws IOException {
+        Path target = file.toAbsolutePath().normalize();
+        Path tmp = createSibling(target);
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (String line : lines) {
+                    out.write(line);
+                    out.newLine();
+                }
+            }
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            try {
+                Files.setPosixFilePermissions(tmp, Files.getPosixFilePermissions(target));
+            } catch (NoSuchFileException | UnsupportedOperationException e) {
+                // a new file, or no POSIX permissions: the defaults stand
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Creates an empty file next to a target, with a name no other file has and default
+     * attributes.
+     *
+     * @param target the file it stands in for
+     * @return the new file
+     * @throws IOException if it cannot be created
+     */
+    private static Path createSibling(Path target) throws IOException {
+        while (true) {
+            Path tmp = target.resolveSibling(target.getFileName() + "."
+                    + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+            try {
+                return Files.createFile(tmp);
+            } catch (FileAlreadyExistsException e) {
+                // another save's temporary file, try another name
+            }
+        }
+    }
+
+    /**
+     * Stops taking new saves, writes everything already queued and waits for the thread.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writer loop, takes the oldest pending save and writes it until closed and drained.
+     */
+    private void run() {
+        while (true) {
+            Path file;
+            PendingSave save;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                Iterator<Map.Entry<Path, PendingSave>> it = pending.entrySet().iterator();
+                Map.Entry<Path, PendingSave> next = it.next();
+                it.remove();
+                file = next.getKey();
+                save = next.getValue();
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                writeAtomically(file, save.lines);
+                save.future.complete(null);
+            } catch (IOException | RuntimeException e) {
+                save.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /** A save waiting for the writer. */
+    private static final class PendingSave {
+        /** the lines to write, replaced when the save is coalesced. */
+        private List<String> lines;
+        /** completed when the lines are written. */
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        /**
+         * Creates a pending save.
+         *
+         * @param lines the lines to write
+         */
+        PendingSave(List<String> lines) {
+            this.lines = lines;
+        }
+    }
+
+    /** Lazy holder for the shared writer. */
+    private static final class Holder {
+        /** the shared writer, started on first use. */
+        private static final AsyncListWriter DEFAULT = new AsyncListWriter();
+    }
+}
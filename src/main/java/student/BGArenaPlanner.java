@@ -1,5 +1,24 @@
 package student;
 
+import student.metrics.Metrics;
+import student.server.HttpQueryServer;
+import student.server.LineProtocolServer;
+import student.trace.CommandTrace;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
 
 /**
  * Main entry point for the program.
@@ -7,6 +26,32 @@ package student;
 public final class BGArenaPlanner {
     /** default location of collection - relative to the resources directory. */
     private static final String DEFAULT_COLLECTION = "/collection.csv";
+    /** option to keep the game list in a journal between runs. */
+    private static final String JOURNAL_OPTION = "--journal";
+    /** default games list file, matches the console's default save name. */
+    private static final String DEFAULT_LIST = "games_list.txt";
+    /** option to run a file of commands instead of the interactive console. */
+    private static final String SCRIPT_OPTION = "--script";
+    /** size of the output buffer in script mode. */
+    private static final int SCRIPT_BUFFER = 1 << 16;
+    /** exit code when the script itself cannot be read. */
+    private static final int EXIT_SCRIPT_UNREADABLE = 2;
+    /** exit code when an option's value is not usable. */
+    private static final int EXIT_BAD_OPTION = 2;
+    /** option to serve queries over HTTP instead of running the console. */
+    private static final String HTTP_OPTION = "--http";
+    /** default port for the HTTP server. */
+    private static final int DEFAULT_HTTP_PORT = 8080;
+    /** option to serve console commands over a TCP line protocol. */
+    private static final String TCP_OPTION = "--tcp";
+    /** default port for the line protocol server. */
+    private static final int DEFAULT_TCP_PORT = 4040;
+    /** option to record the commands run in a trace file. */
+    private static final String TRACE_OPTION = "--trace";
+    /** option to load the collection from a file and reload it when it changes. */
+    private static final String WATCH_OPTION = "--watch";
+    /** option to let the line protocol server's list save and list load use a directory. */
+    private static final String FILES_OPTION = "--files";
 
     /** private constructor as static class. */
     private BGArenaPlanner() {
@@ -16,15 +61,232 @@ public final class BGArenaPlanner {
     /**
      * Main entry point for the program.
      * 
-     * @param args command line arguments - not used at this time.
+     * Options:
+     * 
+     * --journal [file] - journal the game list in file (default games_list.txt), so the
+     * list is back when the program is started again.
+     * 
+     * --script file - run the commands in file without prompts, write a timing report to
+     * standard error, and exit with 0 if every command worked, 1 if any failed, or 2 if the
+     * script could not be read.
+     * 
+     * --http [port] - serve JSON queries on localhost (default port 8080) until the process
+     * is stopped, see {@link HttpQueryServer}.
+     * 
+     * --tcp [port] - serve console commands over a line protocol on localhost (default port
+     * 4040) until the process is stopped, see {@link LineProtocolServer}.
+     * 
+     * --files dir - let list save and list load over --tcp use files in dir; without it
+     * they are turned off there.
+     * 
+     * --trace file - record every command run (console, script or either server) in file,
+     * for replaying with {@link student.tools.TraceReplay}.
+     * 
+     * --watch file - load the collection from file instead of the bundled one, and reload it
+     * whenever the file changes. Only the changed games are applied, and every session's
+     * planner moves to the new catalog at its next filter.
+     * 
+     * @param args command line arguments.
      */
     public static void main(String[] args) {
-        IPlanner planner = new Planner(GamesLoader.loadGamesFile(DEFAULT_COLLECTION));
-        IGameList list = new GameList();
-        ConsoleApp app = new ConsoleApp(list, planner);
-        app.start();
+        GameListJournal journal = null;
+        String script = null;
+        int httpPort = -1;
+        int tcpPort = -1;
+        CommandTrace trace = null;
+        String watch = null;
+        Path files = null;
+        for (int i = 0; i < args.length; i++) {
+            if (JOURNAL_OPTION.equals(args[i])) {
+                boolean hasFile = i + 1 < args.length && !args[i + 1].startsWith("--");
+                journal = new GameListJournal(Path.of(hasFile ? args[++i] : DEFAULT_LIST));
+            } else if (SCRIPT_OPTION.equals(args[i]) && i + 1 < args.length) {
+                script = args[++i];
+            } else if (HTTP_OPTION.equals(args[i])) {
+                boolean hasPort = i + 1 < args.length && !args[i + 1].startsWith("--");
+                httpPort = hasPort ? port(HTTP_OPTION, args[++i]) : DEFAULT_HTTP_PORT;
+            } else if (TCP_OPTION.equals(args[i])) {
+                boolean hasPort = i + 1 < args.length && !args[i + 1].startsWith("--");
+                tcpPort = hasPort ? port(TCP_OPTION, args[++i]) : DEFAULT_TCP_PORT;
+            } else if (TRACE_OPTION.equals(args[i]) && i + 1 < args.length) {
+                trace = CommandTrace.create(Path.of(args[++i]));
+            } else if (WATCH_OPTION.equals(args[i]) && i + 1 < args.length) {
+                watch = args[++i];
+            } else if (FILES_OPTION.equals(args[i]) && i + 1 < args.length) {
+                files = Path.of(args[++i]);
+            } else {
+                System.err.println("Ignoring unknown option: " + args[i]);
+            }
+        }
+
+        Metrics.registerMBean();
+        Set<BoardGame> games = GamesLoader.loadGamesFile(watch == null ? DEFAULT_COLLECTION : watch);
+        GameCatalog catalog = new GameCatalog(games);
+        CatalogStore store = new CatalogStore(catalog);
+        IPlanner planner = new Planner(store);
+        if (watch != null) {
+            watchCatalog(store, Path.of(watch));
+        }
+        if (httpPort >= 0 || tcpPort >= 0) {
+            if (trace != null) {
+                CommandTrace serverTrace = trace;
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> closeTrace(serverTrace)));
+            }
+            if (httpPort >= 0) {
+                serveHttp(store, httpPort, trace);
+            }
+            if (tcpPort >= 0) {
+                serveTcp(store, tcpPort, trace, files);
+            }
+            return;
+        }
+        IGameList list = journal == null ? new GameList() : new GameList(journal, catalog);
+        int exitCode = 0;
+        if (script == null) {
+            ConsoleApp app = new ConsoleApp(list, planner, store);
+            if (trace != null) {
+                app.setTrace(trace, trace.newSession());
+            }
+            app.start();
+        } else {
+            exitCode = runScript(Path.of(script), list, planner, store, trace);
+        }
+        if (trace != null) {
+            closeTrace(trace);
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Error closing game list journal: " + e.getMessage());
+            }
+        }
+        if (script != null) {
+            System.exit(exitCode);
+        }
     }
 
+    /**
+     * Parses the port given to an option, exiting with an error if it is not a port.
+     * 
+     * @param option the option
+     * @param value  the value given
+     * @return the port, 0 for any free one
+     */
+    private static int port(String option, String value) {
+        try {
+            int port = Integer.parseInt(value);
+            if (port >= 0 && port <= 0xFFFF) {
+                return port;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        System.err.println("Not a port for " + option + ": " + value);
+        System.exit(EXIT_BAD_OPTION);
+        return -1;
+    }
 
+    /**
+     * Starts reloading the catalog when its file changes, reporting each new version.
+     * 
+     * @param store the catalog
+     * @param file  the collection file
+     */
+    private static void watchCatalog(CatalogStore store, Path file) {
+        store.onPublish(catalog -> System.out.println("Catalog reloaded: version "
+                + catalog.getVersion() + ", " + catalog.size() + " games"));
+        try {
+            store.watch(file);
+        } catch (IOException e) {
+            System.err.println("Error watching " + file + ": " + e.getMessage());
+        }
+    }
 
+    /**
+     * Starts the HTTP server on the loopback address. The server's own thread keeps the
+     * process running until it is stopped.
+     * 
+     * @param store the games to serve
+     * @param port  the port
+     * @param trace where to record requests, or null
+     */
+    private static void serveHttp(CatalogStore store, int port, CommandTrace trace) {
+        try {
+            HttpQueryServer server = new HttpQueryServer(store,
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            server.setTrace(trace);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            server.start();
+            System.out.println("Serving on http://localhost:" + server.getPort() + "/");
+        } catch (IOException e) {
+            System.err.println("Error starting HTTP server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Starts the line protocol server on the loopback address. The server's selector thread
+     * keeps the process running until it is stopped.
+     * 
+     * @param store the games to serve
+     * @param port  the port
+     * @param trace where to record commands, or null
+     * @param files the directory list files may be in, or null
+     */
+    private static void serveTcp(CatalogStore store, int port, CommandTrace trace, Path files) {
+        try {
+            LineProtocolServer server = new LineProtocolServer(store,
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            server.setTrace(trace);
+            server.setFileDirectory(files);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            server.start();
+            System.out.println("Serving commands on localhost:" + server.getPort());
+        } catch (IOException e) {
+            System.err.println("Error starting line protocol server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs a script of console commands with buffered output.
+     * 
+     * @param script  the script file
+     * @param list    the game list
+     * @param planner the planner
+     * @param store   the game catalog
+     * @param trace   where to record commands, or null
+     * @return the exit code for the process
+     */
+    private static int runScript(Path script, IGameList list, IPlanner planner,
+            CatalogStore store, CommandTrace trace) {
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(FileDescriptor.out)), SCRIPT_BUFFER));
+        PrintWriter timing = new PrintWriter(new OutputStreamWriter(System.err), false);
+        try (BufferedReader in = Files.newBufferedReader(script, StandardCharsets.UTF_8)) {
+            ConsoleApp app = new ConsoleApp(list, planner, store, in, out);
+            if (trace != null) {
+                app.setTrace(trace, trace.newSession());
+            }
+            return app.runScript(timing);
+        } catch (IOException | UncheckedIOException e) {
+            out.flush();
+            System.err.println("Error reading script " + script + ": " + e.getMessage());
+            return EXIT_SCRIPT_UNREADABLE;
+        }
+    }
+
+    /**
+     * Closes a command trace, reporting a failure.
+     * 
+     * @param trace the trace
+     */
+    private static void closeTrace(CommandTrace trace) {
+        try {
+            trace.close();
+        } catch (IOException e) {
+            System.err.println("Error closing command trace: " + e.getMessage());
+        }
+    }
 }
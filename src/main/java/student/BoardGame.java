@@ -1,10 +1,6 @@
 package student;
 
 
-import java.util.List;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
-
 /**
  * Data Class for the Board Game Object.
  * 
@@ -12,8 +8,13 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
  * through getters.
  */
 public class BoardGame {
+    /** value of an extra int column where the file has none. */
+    public static final int MISSING = Integer.MIN_VALUE;
+
     /** Name of the board game. */
     private final String name;
+    /** Name in lower case, for case insensitive filters without a copy per test. */
+    private final String lowerName;
     /** Unique identifier of the board game. */
     private final int id;
     /** Minimum number of players. */
@@ -32,6 +33,12 @@ public class BoardGame {
     private final double averageRating;
     /** Year the game was published. */
     private final int yearPublished;
+    /** the columns of the file this game was loaded from, null if it was not. */
+    private ExtraColumns extras;
+    /** the game's row in extras. */
+    private int row;
+    /** hash of the whole csv record, 0 if not loaded from a file. */
+    private final int rowHash;
 
     /**
      * Constructor for the BoardGame object.
@@ -49,7 +56,32 @@ public class BoardGame {
      */
     public BoardGame(String name, int id, int minPlayers, int maxPlayers, int minPlayTime,
             int maxPlayTime, double difficulty, int rank, double averageRating, int yearPublished) {
+        this(name, id, minPlayers, maxPlayers, minPlayTime, maxPlayTime, difficulty, rank,
+                averageRating, yearPublished, null, 0, 0);
+    }
+
+    /**
+     * Constructor for a BoardGame loaded from a row of a file.
+     * 
+     * @param name game name
+     * @param id unique identifier
+     * @param minPlayers minimum number of players
+     * @param maxPlayers maximum number of players
+     * @param minPlayTime minimum play time in minutes
+     * @param maxPlayTime maximum play time in minutes
+     * @param difficulty average difficulty of the game
+     * @param rank rank of the game
+     * @param averageRating average rating of the game
+     * @param yearPublished year the game was published
+     * @param extras the file's extra columns, or null
+     * @param row the game's row in extras
+     * @param rowHash hash of the whole record, or 0
+     */
+    BoardGame(String name, int id, int minPlayers, int maxPlayers, int minPlayTime,
+            int maxPlayTime, double difficulty, int rank, double averageRating, int yearPublished,
+            ExtraColumns extras, int row, int rowHash) {
         this.name = name;
+        this.lowerName = name.toLowerCase();
         this.id = id; // purposefully kept hidden, so not used in filters or sorting
         this.minPlayers = minPlayers;
         this.maxPlayers = maxPlayers;
@@ -59,6 +91,9 @@ public class BoardGame {
         this.rank = rank;
         this.averageRating = averageRating;
         this.yearPublished = yearPublished;
+        this.extras = extras;
+        this.row = row;
+        this.rowHash = rowHash;
     }
 
     /**
@@ -70,6 +105,15 @@ public class BoardGame {
         return name;
     }
 
+    /**
+     * Get the name of the game in lower case.
+     * 
+     * @return name of the game, lower case
+     */
+    public String getLowerName() {
+        return lowerName;
+    }
+
     /**
      * Get the unique identifier of the game.
      * 
@@ -156,6 +200,80 @@ public class BoardGame {
         return yearPublished;
     }
 
+    /**
+     * Get the value of an extra int column, such as {@link GameData#NUM_OWNED}. The first
+     * use of a column reads it for every game of the same file.
+     * 
+     * @param column an extra int column
+     * @return the value, or {@link #MISSING} if the file has none for this game
+     */
+    public int getExtraInt(GameData column) {
+        return extras == null ? MISSING : extras.intValue(column, row);
+    }
+
+    /**
+     * Get the player counts of an extra player count column, {@link GameData#BEST} or
+     * {@link GameData#REC}. The first use of a column reads it for every game of the same file.
+     * 
+     * @param column a player count column
+     * @return the {@link PlayerCounts} mask, bit n set for n players; 0 if the file has none
+     */
+    public int getPlayerMask(GameData column) {
+        return extras == null ? 0 : extras.playerMask(column, row);
+    }
+
+    /**
+     * Get the value of an extra text column, such as {@link GameData#LANGUAGE_DEPENDENCE}.
+     * The first use of a column reads it for every game of the same file.
+     * 
+     * @param column an extra text column
+     * @return the value, empty if the file has none for this game
+     */
+    public String getExtraText(GameData column) {
+        return extras == null ? "" : extras.text(column, row, false);
+    }
+
+    /**
+     * Get the value of an extra text column in lower case, without a copy per call.
+     * 
+     * @param column an extra text column
+     * @return the value in lower case, empty if the file has none for this game
+     */
+    public String getLowerExtraText(GameData column) {
+        return extras == null ? "" : extras.text(column, row, true);
+    }
+
+    /**
+     * Get the hash of the csv record the game was loaded from, so a reload can tell that a
+     * column outside the ten held here changed.
+     * 
+     * @return the hash, 0 if the game was not loaded from a file
+     */
+    int getRowHash() {
+        return rowHash;
+    }
+
+    /**
+     * Get the extra columns of the file the game was loaded from.
+     *
+     * @return the columns, null if the game was not loaded from a file
+     */
+    ExtraColumns getExtras() {
+        return extras;
+    }
+
+    /**
+     * Points the game at another copy of its file's extra columns. Only for a game no other
+     * thread has seen yet, such as one just loaded by a reload that has not published it.
+     *
+     * @param extras the columns
+     * @param row    the game's row in them
+     */
+    void moveExtras(ExtraColumns extras, int row) {
+        this.extras = extras;
+        this.row = row;
+    }
+
     /**
      * Get the Name (value) pair based on the GameData enum.
      * 
@@ -165,28 +283,10 @@ public class BoardGame {
      * @return value of Name (value) pair
      */
     public String toStringWithInfo(GameData col) {
-        switch (col) {
-            case NAME:
-                return name;
-            case RATING:
-                return String.format("%s (%.2f)", name, averageRating);
-            case DIFFICULTY:
-                return String.format("%s (%.2f)", name, difficulty);
-            case RANK:
-                return String.format("%s (%d)", name, rank);
-            case MIN_PLAYERS:
-                return String.format("%s (%d)", name, minPlayers);
-            case MAX_PLAYERS:
-                return String.format("%s (%d)", name, maxPlayers);
-            case MIN_TIME:
-                return String.format("%s (%d)", name, minPlayTime);
-            case MAX_TIME:
-                return String.format("%s (%d)", name, maxPlayTime);
-            case YEAR:
-                return String.format("%s (%d)", name, yearPublished);
-            default:
-                return name;
+        if (col == GameData.NAME) {
+            return name;
         }
+        return ResultRenderer.appendInfo(new StringBuilder(name.length() + 16), this, col).toString();
     }
 
     /**
@@ -205,33 +305,34 @@ public class BoardGame {
     /**
      * Check if two BoardGame objects are equal.
      * 
-     * Two BoardGame objects are considered equal if all fields are equal, except for the following:
-     * - minPlayers - maxPlayers - maxPlayTime - minPlayTime - difficulty - rank - averageRating -
-     * yearPublished
+     * Two BoardGame objects are considered equal if their name and id are equal, the
+     * other fields (players, play time, difficulty, rank, rating and year) are ignored.
      * 
      * @param obj object to compare
      * @return true if the objects are equal, false otherwise
      */
     @Override
     public boolean equals(Object obj) {
-        return EqualsBuilder.reflectionEquals(this, obj, // exclude the following fields
-                List.of("minPlayers", "maxPlayers", "maxPlayTime", "minPlayTime", "difficulty",
-                        "rank", "averageRating", "yearPublished"));
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        BoardGame other = (BoardGame) obj;
+        return id == other.id && name.equals(other.name);
     }
 
     /**
      * Get the hash code of the object.
      * 
-     * The hash code is based on all fields, except for the following: - minPlayers - maxPlayers -
-     * maxPlayTime - minPlayTime - difficulty - rank - averageRating - yearPublished
+     * The hash code is based on the name and id, the same fields as equals.
      * 
      * @return hash code of the object
      */
     @Override
     public int hashCode() {
-        return HashCodeBuilder.reflectionHashCode(this, // exclude the following fields
-                List.of("minPlayers", "maxPlayers", "maxPlayTime", "minPlayTime", "difficulty",
-                        "rank", "averageRating", "yearPublished"));
+        return 31 * name.hashCode() + id;
     }
 
 
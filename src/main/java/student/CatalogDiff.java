@@ -0,0 +1,160 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * What changed between a catalog and a newer copy of its games, keyed by (name, id) as
+ * BoardGame equality is.
+ *
+ * A game whose key is new is added, a game whose key is gone is removed, and a game whose
+ * key is in both but whose other columns changed is updated. Working out the diff reads
+ * every game once, as the new file had to be read anyway; applying it with
+ * {@link GameCatalog#apply(CatalogDiff)} only touches the games in it.
+ */
+public final class CatalogDiff {
+    /** games new in the newer copy. */
+    private final List<BoardGame> added;
+    /** games of the catalog missing from the newer copy. */
+    private final List<BoardGame> removed;
+    /** the newer values of games whose columns changed. */
+    private final List<BoardGame> updated;
+
+    /**
+     * Creates a diff.
+     *
+     * @param added   games new in the newer copy
+     * @param removed games of the catalog missing from the newer copy
+     * @param updated the newer values of games whose columns changed
+     */
+    public CatalogDiff(List<BoardGame> added, List<BoardGame> removed, List<BoardGame> updated) {
+        this.added = Collections.unmodifiableList(added);
+        this.removed = Collections.unmodifiableList(removed);
+        this.updated = Collections.unmodifiableList(updated);
+    }
+
+    /**
+     * Works out what changed between a catalog and a newer copy of its games.
+     *
+     * @param catalog the catalog
+     * @param games   the newer copy of the games
+     * @return the diff, empty if nothing changed
+     */
+    public static CatalogDiff between(GameCatalog catalog, Collection<BoardGame> games) {
+        return between(catalog, games.stream());
+    }
+
+    /**
+     * Works out what changed between a catalog and a stream of the newer games, such as
+     * {@link GamesLoader#stream}. The newer games are not kept: besides the changes, the only
+     * memory used is one bit per catalog row to note which rows were seen.
+     *
+     * @param catalog the catalog
+     * @param games   the newer copy of the games, a game repeated counts once
+     * @return the diff, empty if nothing changed
+     */
+    public static CatalogDiff between(GameCatalog catalog, Stream<BoardGame> games) {
+        Set<BoardGame> added = new LinkedHashSet<>();
+        List<BoardGame> updated = new ArrayList<>();
+        BitSet seen = new BitSet(catalog.size());
+        games.forEach(game -> {
+            int ordinal = catalog.ordinalOf(game);
+            if (ordinal < 0) {
+                added.add(game);
+            } else if (!seen.get(ordinal)) {
+                seen.set(ordinal);
+                if (!sameColumns(catalog.get(ordinal), game)) {
+                    updated.add(game);
+                }
+            }
+        });
+        List<BoardGame> removed = new ArrayList<>();
+        int ordinal = seen.nextClearBit(0);
+        while (ordinal < catalog.size()) {
+            removed.add(catalog.get(ordinal));
+            ordinal = seen.nextClearBit(ordinal + 1);
+        }
+        return new CatalogDiff(new ArrayList<>(added), removed, updated);
+    }
+
+    /**
+     * Checks if two copies of a game have the same value in every column. Copies loaded
+     * from files are also compared by their whole record, so a change to an extra column
+     * makes an update too.
+     *
+     * @param a one copy
+     * @param b the other copy
+     * @return true if nothing differs
+     */
+    private static boolean sameColumns(BoardGame a, BoardGame b) {
+        return a.getName().equals(b.getName()) && a.getId() == b.getId()
+                && a.getMinPlayers() == b.getMinPlayers() && a.getMaxPlayers() == b.getMaxPlayers()
+                && a.getMinPlayTime() == b.getMinPlayTime() && a.getMaxPlayTime() == b.getMaxPlayTime()
+                && Double.compare(a.getDifficulty(), b.getDifficulty()) == 0
+                && a.getRank() == b.getRank()
+                && Double.compare(a.getRating(), b.getRating()) == 0
+                && a.getYearPublished() == b.getYearPublished()
+                && (a.getRowHash() == 0 || b.getRowHash() == 0 || a.getRowHash() == b.getRowHash());
+    }
+
+    /**
+     * Gets the games new in the newer copy.
+     *
+     * @return read only list of the games
+     */
+    public List<BoardGame> getAdded() {
+        return added;
+    }
+
+    /**
+     * Gets the games of the catalog missing from the newer copy.
+     *
+     * @return read only list of the games
+     */
+    public List<BoardGame> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Gets the newer values of the games whose columns changed.
+     *
+     * @return read only list of the games
+     */
+    public List<BoardGame> getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Checks if nothing changed.
+     *
+     * @return true if there are no adds, removes or updates
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && updated.isEmpty();
+    }
+
+    /**
+     * Gets the number of games changed.
+     *
+     * @return adds, removes and updates together
+     */
+    public int size() {
+        return added.size() + removed.size() + updated.size();
+    }
+
+    /**
+     * Summarises the diff.
+     *
+     * @return such as "+3 -1 ~2"
+     */
+    @Override
+    public String toString() {
+        return "+" + added.size() + " -" + removed.size() + " ~" + updated.size();
+    }
+}
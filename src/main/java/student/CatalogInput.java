@@ -0,0 +1,203 @@
+package student;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Opens catalog input that may be compressed.
+ *
+ * gzip (.csv.gz) and zlib deflate input are recognised by their first bytes, not the file
+ * name, and decompressed as they are read; nothing is inflated to a temporary file. The
+ * decompressing runs on its own thread a few chunks ahead of the parser, so the two use two
+ * cores instead of taking turns. Plain input is passed through as it is.
+ */
+final class CatalogInput {
+    /** first byte of a gzip stream. */
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    /** second byte of a gzip stream. */
+    private static final int GZIP_MAGIC_2 = 0x8b;
+    /** deflate method with a 32K window, the first byte of nearly every zlib stream. */
+    private static final int ZLIB_METHOD = 0x78;
+    /** the preset dictionary flag of a zlib header, never set by catalog exports. */
+    private static final int ZLIB_FDICT = 0x20;
+    /** bytes of decompressed input per chunk handed to the parser. */
+    private static final int CHUNK = 1 << 16;
+    /** chunks the decompressing thread may get ahead by. */
+    private static final int DEPTH = 4;
+
+    /** private constructor to prevent instantiation. */
+    private CatalogInput() {
+    }
+
+    /**
+     * Opens input, decompressing it on a separate thread if it is gzip or zlib.
+     *
+     * @param raw the input as stored
+     * @return the plain csv bytes; closing it closes raw
+     * @throws IOException if the start of the input cannot be read, or a gzip header is bad
+     */
+    static InputStream open(InputStream raw) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(raw, CHUNK);
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        if (first == GZIP_MAGIC_1 && second == GZIP_MAGIC_2) {
+            return new Pipelined(new GZIPInputStream(in, CHUNK));
+        }
+        if (first == ZLIB_METHOD && second >= 0 && (second & ZLIB_FDICT) == 0
+                && ((first << 8) | second) % 31 == 0) {
+            return new Pipelined(new InflaterInputStream(in));
+        }
+        return in;
+    }
+
+    /**
+     * Reads a source on a thread of its own, a bounded number of chunks ahead of the reader.
+     */
+    private static final class Pipelined extends InputStream {
+        /** queued after the last chunk. */
+        private static final Chunk END = new Chunk(0);
+
+        /** the decompressing stream, read only by the thread. */
+        private final InputStream source;
+        /** empty chunks for the thread to fill. */
+        private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(DEPTH);
+        /** filled chunks for the reader, with room for END. */
+        private final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(DEPTH + 1);
+        /** the thread reading source. */
+        private final Thread thread;
+        /** what stopped the thread, if not the end of the input. */
+        private volatile IOException failure;
+        /** the chunk being read, null before the first. */
+        private Chunk current;
+        /** next byte of current to hand out. */
+        private int position;
+        /** set once END was taken. */
+        private boolean ended;
+
+        /**
+         * Starts reading a source ahead.
+         *
+         * @param source the decompressing stream
+         */
+        Pipelined(InputStream source) {
+            this.source = source;
+            for (int i = 0; i < DEPTH; i++) {
+                free.add(new Chunk(CHUNK));
+            }
+            this.thread = new Thread(this::fill, "catalog-inflate");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * Fills chunks until the source ends, fails, or the reader closes.
+         */
+        private void fill() {
+            try {
+                boolean more = true;
+                while (more) {
+                    Chunk chunk = free.take();
+                    chunk.length = 0;
+                    while (chunk.length < CHUNK) {
+                        int n = source.read(chunk.data, chunk.length, CHUNK - chunk.length);
+                        if (n < 0) {
+                            more = false;
+                            break;
+                        }
+                        chunk.length += n;
+                    }
+                    if (chunk.length > 0) {
+                        filled.put(chunk);
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                return; // closed
+            }
+            filled.offer(END);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (current == null || position == current.length) {
+                if (ended) {
+                    return -1;
+                }
+                if (current != null) {
+                    free.offer(current);
+                }
+                try {
+                    current = filled.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted waiting for input");
+                }
+                position = 0;
+                if (current == END) {
+                    ended = true;
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    return -1;
+                }
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current.data, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        /**
+         * Stops the thread, then closes the source; the two never use it at the same time.
+         *
+         * @throws IOException if the source fails to close
+         */
+        @Override
+        public void close() throws IOException {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            source.close();
+        }
+    }
+
+    /**
+     * A buffer of decompressed bytes.
+     */
+    private static final class Chunk {
+        /** the bytes. */
+        private final byte[] data;
+        /** how many of them are filled. */
+        private int length;
+
+        /**
+         * Creates an empty chunk.
+         *
+         * @param size bytes it can hold
+         */
+        Chunk(int size) {
+            this.data = new byte[size];
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package student;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Holds the current version of the catalog and moves it forward when the games change.
+ *
+ * A reload diffs the new games against the current version, applies the diff to make the
+ * next version, and publishes it with one reference swap, so a reader gets either the old
+ * version or the new one, never a mix. Reloads are one at a time.
+ *
+ * Each version is an epoch. A query pins the current epoch with {@link #pin()} when it
+ * starts and uses only that version until it closes the pin, however many reloads happen
+ * meanwhile. Pinning is a counter increment and never waits. When a version stops being
+ * current and its last pin is closed, the store drops its hold on that version's catalog,
+ * so the memory can be collected. The diffs between versions are kept, chained from each
+ * epoch to the next. A reader on an old epoch, such as a {@link Planner} between queries,
+ * follows the chain to catch up by the changes alone.
+ *
+ * {@link #watch(Path)} reloads from a csv file whenever it changes on disk.
+ */
+public final class CatalogStore implements Closeable {
+    /** quiet time after the last change to the file before reloading, so a save in progress is not read. */
+    private static final long SETTLE_MILLIS = 200;
+
+    /** the current epoch. */
+    private final AtomicReference<Epoch> current;
+    /** epochs published and not yet reclaimed, the current one included. */
+    private final AtomicInteger retained = new AtomicInteger(1);
+    /** held while reloading, so reloads do not overlap. */
+    private final Object reloading = new Object();
+    /** called with each version published. */
+    private final List<Consumer<GameCatalog>> listeners = new CopyOnWriteArrayList<>();
+    /** the file watcher, null if not watching. */
+    private WatchService watcher;
+    /** the thread waiting on the watcher, null if not watching. */
+    private Thread watchThread;
+    /** the extra columns the last file reloaded is followed by; guarded by reloading. */
+    private ExtraColumns followed;
+
+    /**
+     * Creates a store starting at a catalog.
+     *
+     * @param catalog the first version
+     */
+    public CatalogStore(GameCatalog catalog) {
+        this.current = new AtomicReference<>(new Epoch(catalog, null));
+    }
+
+    /**
+     * Gets the current version. It stays as it is even if a newer one is published, but the
+     * store may stop holding on to it; a query that runs for a while should {@link #pin()}
+     * instead.
+     *
+     * @return the catalog
+     */
+    public GameCatalog current() {
+        while (true) {
+            GameCatalog catalog = current.get().catalog;
+            if (catalog != null) {
+                return catalog;
+            }
+            // reclaimed between reading the epoch and its catalog, so a newer one is current
+        }
+    }
+
+    /**
+     * Pins the current epoch until the pin is closed.
+     *
+     * @return the pin
+     */
+    public Pin pin() {
+        while (true) {
+            Epoch epoch = current.get();
+            epoch.readers.incrementAndGet();
+            GameCatalog catalog = epoch.catalog;
+            if (catalog != null) {
+                return new Pin(this, epoch, catalog);
+            }
+            // reclaimed before the pin landed, so a newer epoch is current
+            epoch.readers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the number of epochs whose catalog the store still holds: the current one, and
+     * any older one that is still pinned.
+     *
+     * @return the count
+     */
+    public int getRetainedVersions() {
+        return retained.get();
+    }
+
+    /**
+     * Drops the store's hold on a retired epoch's catalog if nobody has it pinned. The diff
+     * to the next epoch stays, for readers catching up.
+     *
+     * @param epoch the epoch
+     */
+    private void reclaim(Epoch epoch) {
+        if (epoch.retired && epoch.readers.get() == 0 && epoch.reclaimed.compareAndSet(false, true)) {
+            epoch.catalog = null;
+            retained.decrementAndGet();
+        }
+    }
+
+    /**
+     * Adds a listener called with each new version, on the thread that published it.
+     *
+     * @param listener the listener
+     */
+    public void onPublish(Consumer<GameCatalog> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Moves the catalog to a new copy of the games, publishing a new version if anything
+     * changed.
+     *
+     * @param games the games as they are now
+     * @return what changed
+     */
+    public CatalogDiff reload(Collection<BoardGame> games) {
+        return reload(catalog -> CatalogDiff.between(catalog, games));
+    }
+
+    /**
+     * Moves the catalog to the games in a csv file. The file is streamed against the current
+     * version, so only the changes are held, never a second copy of the collection.
+     *
+     * The games of the file share one copy of its extra columns across versions: the copy
+     * the catalog's games were loaded with is moved to the file as it is now, and the
+     * changed games are pointed at it (see {@link ExtraColumns#follow}).
+     *
+     * A file with no games in it is taken to be unreadable or half written rather than an
+     * empty collection, and nothing is changed.
+     *
+     * @param file the csv file
+     * @return what changed
+     * @throws UncheckedIOException if the file cannot be read or has no games
+     */
+    public CatalogDiff reload(Path file) {
+        long[] read = {0};
+        return reload(catalog -> {
+            CatalogDiff diff;
+            ExtraColumns newer = ExtraColumns.of(file);
+            try (Stream<BoardGame> games = GamesLoader.stream(file,
+                    (count, rejected, bytes, done) -> read[0] = count, newer)) {
+                diff = CatalogDiff.between(catalog, games);
+            }
+            if (read[0] == 0) {
+                throw new UncheckedIOException(new IOException("no games read from " + file));
+            }
+            if (newer != null) {
+                if (followed == null || !followed.isOf(file)) {
+                    followed = extrasOf(catalog, file);
+                }
+                if (followed == null) {
+                    followed = newer;
+                } else {
+                    followed.follow(newer, diff);
+                }
+            }
+            return diff;
+        });
+    }
+
+    /**
+     * Finds the extra columns the games of a catalog were loaded from a file with.
+     *
+     * @param catalog the catalog
+     * @param file    the file
+     * @return the columns, or null if no game came from the file
+     */
+    private static ExtraColumns extrasOf(GameCatalog catalog, Path file) {
+        for (BoardGame game : catalog.games()) {
+            ExtraColumns extras = game.getExtras();
+            if (extras != null && extras.isOf(file)) {
+                return extras;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Works out a diff against the current version and publishes the result, one reload at
+     * a time.
+     *
+     * @param differ works out the diff from the current catalog
+     * @return what changed
+     */
+    private CatalogDiff reload(Function<GameCatalog, CatalogDiff> differ) {
+        GameCatalog next;
+        CatalogDiff diff;
+        synchronized (reloading) {
+            Epoch epoch = current.get();
+            diff = differ.apply(epoch.catalog);
+            if (diff.isEmpty()) {
+                return diff;
+            }
+            next = epoch.catalog.apply(diff);
+            Epoch nextEpoch = new Epoch(next, diff);
+            retained.incrementAndGet();
+            epoch.next = nextEpoch;
+            current.set(nextEpoch);
+            epoch.retired = true;
+            reclaim(epoch);
+        }
+        for (Consumer<GameCatalog> listener : listeners) {
+            listener.accept(next);
+        }
+        return diff;
+    }
+
+    /**
+     * Starts reloading from a csv file whenever it is written or replaced. The watching is
+     * done by a daemon thread until {@link #close()}.
+     *
+     * @param file the csv file
+     * @throws IOException if the file's directory cannot be watched
+     * @throws IllegalStateException if already watching
+     */
+    public synchronized void watch(Path file) throws IOException {
+        if (watcher != null) {
+            throw new IllegalStateException("already watching");
+        }
+        Path absolute = file.toAbsolutePath();
+        WatchService service = absolute.getFileSystem().newWatchService();
+        absolute.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        watcher = service;
+        watchThread = new Thread(() -> watchLoop(service, absolute), "catalog-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /**
+     * Waits for changes to the file and reloads once it has been quiet for a moment.
+     *
+     * @param service the watcher
+     * @param file    the file
+     */
+    private void watchLoop(WatchService service, Path file) {
+        try {
+            while (true) {
+                if (!touches(service.take(), file.getFileName())) {
+                    continue;
+                }
+                WatchKey more;
+                while ((more = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    more.pollEvents();
+                    more.reset();
+                }
+                try {
+                    reload(file);
+                } catch (RuntimeException e) {
+                    System.err.println("Error reloading catalog: " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Checks if a batch of watch events is about the file, and readies the key for more.
+     *
+     * @param key  the signalled key
+     * @param name the file's name
+     * @return true if any event names the file
+     */
+    private static boolean touches(WatchKey key, Path name) {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            touched |= event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context());
+        }
+        key.reset();
+        return touched;
+    }
+
+    /**
+     * Stops watching the file, if watching.
+     */
+    @Override
+    public synchronized void close() {
+        if (watcher == null) {
+            return;
+        }
+        try {
+            watcher.close();
+            watchThread.join();
+        } catch (IOException e) {
+            System.err.println("Error closing catalog watcher: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        watcher = null;
+        watchThread = null;
+    }
+
+    /**
+     * One published version of the catalog, and the way to the next one.
+     */
+    static final class Epoch {
+        /** the catalog, null once reclaimed. */
+        private volatile GameCatalog catalog;
+        /** the epoch number, the catalog's version. */
+        private final long number;
+        /** what changed from the previous epoch, null for the first. */
+        private final CatalogDiff diff;
+        /** the next epoch, null while this one is current. */
+        private volatile Epoch next;
+        /** set once a newer epoch is current. */
+        private volatile boolean retired;
+        /** pins open on this epoch. */
+        private final AtomicInteger readers = new AtomicInteger();
+        /** set by whoever reclaims the epoch, so it is only done once. */
+        private final AtomicBoolean reclaimed = new AtomicBoolean();
+
+        /**
+         * Creates an epoch.
+         *
+         * @param catalog the catalog
+         * @param diff    what changed from the previous epoch, null for the first
+         */
+        private Epoch(GameCatalog catalog, CatalogDiff diff) {
+            this.catalog = catalog;
+            this.number = catalog.getVersion();
+            this.diff = diff;
+        }
+
+        /**
+         * Gets the epoch number.
+         *
+         * @return the catalog version of this epoch
+         */
+        long getNumber() {
+            return number;
+        }
+
+        /**
+         * Gets the changes from this epoch to a later one, oldest first.
+         *
+         * @param later the later epoch
+         * @return one diff per epoch stepped over, empty if later is this epoch
+         */
+        List<CatalogDiff> diffsTo(Epoch later) {
+            List<CatalogDiff> diffs = new ArrayList<>();
+            for (Epoch epoch = this; epoch != later; epoch = epoch.next) {
+                diffs.add(epoch.next.diff);
+            }
+            return diffs;
+        }
+    }
+
+    /**
+     * An epoch held by a reader. Close it when the query is done.
+     */
+    public static final class Pin implements AutoCloseable {
+        /** the store, to reclaim the epoch if this was its last pin. */
+        private final CatalogStore store;
+        /** the pinned epoch. */
+        private final Epoch epoch;
+        /** the pinned epoch's catalog. */
+        private final GameCatalog catalog;
+        /** set once closed, so closing twice does not unpin twice. */
+        private boolean closed;
+
+        /**
+         * Creates a pin on an epoch whose reader count has already been raised.
+         *
+         * @param store   the store
+         * @param epoch   the epoch
+         * @param catalog the epoch's catalog
+         */
+        private Pin(CatalogStore store, Epoch epoch, GameCatalog catalog) {
+            this.store = store;
+            this.epoch = epoch;
+            this.catalog = catalog;
+        }
+
+        /**
+         * Gets the pinned catalog.
+         *
+         * @return the catalog, the same for as long as the pin is open
+         */
+        public GameCatalog catalog() {
+            return catalog;
+        }
+
+        /**
+         * Gets the pinned epoch.
+         *
+         * @return the epoch
+         */
+        Epoch epoch() {
+            return epoch;
+        }
+
+        /**
+         * Releases the epoch. If it is no longer current and this was its last pin, the
+         * store lets go of it.
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                if (epoch.readers.decrementAndGet() == 0) {
+                    store.reclaim(epoch);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package student;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * A game list that many sessions can edit at the same time, such as a group planning a game
+ * night together.
+ *
+ * The contents are an immutable snapshot (games sorted by name, plus the name list that
+ * getGameNames returns) held in an {@link AtomicReference}. Reads just load the current
+ * snapshot, so getGameNames, count and iteration never lock or wait, and iteration sees one
+ * consistent version of the list. Updates build a new snapshot from the one they read and
+ * install it with compare-and-set, retrying if another session got there first. No update
+ * holds a lock, so a slow session cannot stall the others.
+ *
+ * Numbers in removeFromList refer to the snapshot the update is applied to, which is the same
+ * order getGameNames returned if nobody else changed the list in between. *
+ * Neither server shares a list between sessions yet, so this is a library type for now: the
+ * list to hand every session of a shared plan once one does.
+ */
+public class ConcurrentGameList implements IGameList {
+    /**
+     * Order of the games: name ignoring case (what getGameNames promises), then the exact name
+     * and id so that two games only compare equal when BoardGame.equals says they are.
+     */
+    private static final Comparator<BoardGame> ORDER = Comparator
+            .comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(BoardGame::getName)
+            .thenComparingInt(BoardGame::getId);
+
+    /** the current contents. */
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+
+    /**
+     * Gets the game names, straight from the current snapshot.
+     *
+     * @return the list of game names in ascending order ignoring case
+     */
+    @Override
+    public List<String> getGameNames() {
+        return current.get().names;
+    }
+
+    /**
+     * Gets the games in a consistent snapshot, in name order. Later changes to the list do not
+     * show up in the returned list.
+     *
+     * @return read only list of the games
+     */
+    public List<BoardGame> snapshot() {
+        return current.get().gameList;
+    }
+
+    /**
+     * Removes all games in the list.
+     */
+    @Override
+    public void clear() {
+        current.set(Snapshot.EMPTY);
+    }
+
+    /**
+     * Returns the number of games in the list.
+     *
+     * @return The number of games in the list
+     */
+    @Override
+    public int count() {
+        return current.get().games.length;
+    }
+
+    /**
+     * Saves a snapshot of the list to a file.
+     *
+     * @param filename The name of the file to save the list to
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    @Override
+    public void saveGame(String filename) {
+        try {
+            AsyncListWriter.writeAtomically(Path.of(filename), getGameNames());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error saving game list " + filename, e);
+        }
+    }
+
+    /**
+     * Hands a snapshot of the list to the shared background writer.
+     *
+     * @param filename The name of the file to save the list to
+     * @return a future completed once the file is written
+     */
+    @Override
+    public CompletableFuture<Void> saveGameAsync(String filename) {
+        return AsyncListWriter.getDefault().submit(Path.of(filename), getGameNames());
+    }
+
+    /**
+     * Loads a saved list and adds its games in one update.
+     *
+     * @param filename the file to load
+     * @param catalog the catalog to resolve the entries against
+     * @return the entries that did not match a game, in file order
+     */
+    @Override
+    public List<String> loadGame(String filename, GameCatalog catalog) {
+        GameCatalog.Resolved resolved;
+        try {
+            resolved = GameListFiles.resolve(Path.of(filename), catalog);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error loading game list " + filename, e);
+        }
+        update(snapshot -> snapshot.plus(resolved.getGames()));
+        return resolved.getUnknown();
+    }
+
+    /**
+     * Adds a game or games to the list based on the provided string.
+     *
+     * @param str The string to parse and add games to the list
+     * @param filtered The filtered list to use as a basis for adding
+     * @throws IllegalArgumentException if the string is not valid
+     */
+    @Override
+    public void addToList(String str, Stream<BoardGame> filtered) throws IllegalArgumentException {
+        addToList(str, FilterResult.of(filtered));
+    }
+
+    /**
+     * Adds a game or games to the list, indexing directly into the filter result.
+     *
+     * @param str The string to parse and add games to the list
+     * @param filtered The filter result, in the order it was displayed
+     * @throws IllegalArgumentException if the string is not valid
+     */
+    @Override
+    public void addToList(String str, FilterResult filtered) throws IllegalArgumentException {
+        List<BoardGame> toAdd = GameList.select(str, filtered.asList());
+        update(snapshot -> snapshot.plus(toAdd));
+    }
+
+    /**
+     * Removes a game or games from the list based on the provided string.
+     *
+     * @param str The string to parse and remove games from the list
+     * @throws IllegalArgumentException if the string is not valid
+     */
+    @Override
+    public void removeFromList(String str) throws IllegalArgumentException {
+        if (str != null && str.trim().equalsIgnoreCase(ADD_ALL)) {
+            clear();
+            return;
+        }
+        update(snapshot -> snapshot.minus(GameList.select(str, snapshot.gameList)));
+    }
+
+    /**
+     * Applies a change with compare-and-set, retrying on the newer snapshot if another
+     * update won the race.
+     *
+     * @param change builds the new snapshot from the current one
+     */
+    private void update(UnaryOperator<Snapshot> change) {
+        while (true) {
+            Snapshot before = current.get();
+            Snapshot after = change.apply(before);
+            if (after == before || current.compareAndSet(before, after)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * An immutable version of the list.
+     */
+    private static final class Snapshot {
+        /** the empty list. */
+        static final Snapshot EMPTY = new Snapshot(new BoardGame[0]);
+
+        /** the games, sorted by ORDER, no duplicates. */
+        private final BoardGame[] games;
+        /** read only view of games. */
+        private final List<BoardGame> gameList;
+        /** the names of games, in the same order. */
+        private final List<String> names;
+
+        /**
+         * Wraps a sorted, duplicate free array.
+         *
+         * @param games the games, not copied
+         */
+        Snapshot(BoardGame[] games) {
+            this.games = games;
+            this.gameList = Collections.unmodifiableList(Arrays.asList(games));
+            String[] nameArr = new String[games.length];
+            for (int i = 0; i < games.length; i++) {
+                nameArr[i] = games[i].getName();
+            }
+            this.names = Collections.unmodifiableList(Arrays.asList(nameArr));
+        }
+
+        /**
+         * Builds a snapshot with the games added.
+         *
+         * @param toAdd the games to add, any order, may contain duplicates
+         * @return the new snapshot, or this if nothing changed
+         */
+        Snapshot plus(Collection<BoardGame> toAdd) {
+            BoardGame[] sorted = toAdd.toArray(new BoardGame[0]);
+            Arrays.sort(sorted, ORDER);
+            List<BoardGame> merged = new ArrayList<>(games.length + sorted.length);
+            int i = 0;
+            int j = 0;
+            while (i < games.length || j < sorted.length) {
+                int cmp = i == games.length ? 1
+                        : j == sorted.length ? -1 : ORDER.compare(games[i], sorted[j]);
+                if (cmp < 0) {
+                    merged.add(games[i++]);
+                } else {
+                    if (cmp == 0) {
+                        i++; // already in the list, keep one
+                    }
+                    BoardGame next = sorted[j++];
+                    if (merged.isEmpty() || ORDER.compare(merged.get(merged.size() - 1), next) != 0) {
+                        merged.add(next);
+                    }
+                }
+            }
+            return merged.size() == games.length ? this
+                    : new Snapshot(merged.toArray(new BoardGame[0]));
+        }
+
+        /**
+         * Builds a snapshot with the games removed.
+         *
+         * @param toRemove the games to remove
+         * @return the new snapshot, or this if nothing changed
+         */
+        Snapshot minus(Collection<BoardGame> toRemove) {
+            boolean[] removed = new boolean[games.length];
+            int count = 0;
+            for (BoardGame game : toRemove) {
+                int index = Arrays.binarySearch(games, game, ORDER);
+                if (index >= 0 && !removed[index]) {
+                    removed[index] = true;
+                    count++;
+                }
+            }
+            if (count == 0) {
+                return this;
+            }
+            BoardGame[] kept = new BoardGame[games.length - count];
+            int k = 0;
+            for (int i = 0; i < games.length; i++) {
+                if (!removed[i]) {
+                    kept[k++] = games[i];
+                }
+            }
+            return new Snapshot(kept);
+        }
+    }
+}
@@ -1,11 +1,23 @@
 package student;
 
-import java.util.Collections;
+import student.metrics.Metrics;
+import student.trace.CommandTrace;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 import java.util.Scanner;
 import java.util.stream.Stream;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -15,10 +27,11 @@ import java.util.Random;
  * and for a client to build a list of games they want to play, and
  * save out that list. Most of the features are focused on
  * providing a progressive filter to find games, and then add them to the list.
+ * 
+ * It can also run a script of commands without a person at the keyboard
+ * (see {@link #runScript(PrintWriter)}), which is how nightly jobs drive it.
  */
 public class ConsoleApp {
-    /** Interaction with the system terminal/command line. */
-    private static final Scanner IN = new Scanner(System.in);
     /** Default name to save the game list to. */
     private static final String DEFAULT_FILENAME = "games_list.txt";
     /** random number generator only needs to be built once. */
@@ -29,6 +42,32 @@ public class ConsoleApp {
     private final IGameList gameList;
     /** The planner to help filter games. */
     private final IPlanner planner;
+    /** The full catalog, pinned per command to resolve lists. Null if loading is not available. */
+    private final CatalogStore store;
+    /** named lists kept this session, null if there is no catalog. */
+    private final NamedLists namedLists;
+    /** saves handed to the background writer that may not be on disk yet. */
+    private final List<CompletableFuture<Void>> pendingSaves = new ArrayList<>();
+    /** true if list save waits for the file to be written. */
+    private boolean syncSaves;
+    /** true if list save and list load are limited to fileDirectory. */
+    private boolean restrictFiles;
+    /** the directory list files must be in, null if file commands are off. */
+    private Path fileDirectory;
+    /** where commands are read from. */
+    private final BufferedReader in;
+    /** where output is written to. */
+    private final PrintWriter out;
+    /** number of commands that failed, saves can fail on the writer thread. */
+    private final AtomicInteger errors = new AtomicInteger();
+    /** errors printed by commands themselves, on the thread running them. */
+    private int commandErrors;
+    /** renders filter results into out, reused between commands. */
+    private final ResultRenderer renderer;
+    /** where commands are recorded, null when not tracing. */
+    private CommandTrace trace;
+    /** this console's session id in the trace. */
+    private int traceSession;
 
     /**
      * Constructor for the console app.
@@ -37,9 +76,68 @@ public class ConsoleApp {
      * @param planner  the planner to help filter games.
      */
     public ConsoleApp(IGameList gameList, IPlanner planner) {
+        this(gameList, planner, (CatalogStore) null);
+    }
+
+    /**
+     * Constructor for the console app, with the catalog for loading saved lists.
+     * 
+     * @param gameList the game list to manage.
+     * @param planner  the planner to help filter games.
+     * @param catalog  the full game catalog, or null to disable list load.
+     */
+    public ConsoleApp(IGameList gameList, IPlanner planner, GameCatalog catalog) {
+        this(gameList, planner, catalog, new BufferedReader(new InputStreamReader(System.in)),
+                new PrintWriter(System.out, true));
+    }
+
+    /**
+     * Constructor for the console app, over a catalog that may be reloaded.
+     * 
+     * @param gameList the game list to manage.
+     * @param planner  the planner to help filter games.
+     * @param store    the full game catalog, or null to disable list load.
+     */
+    public ConsoleApp(IGameList gameList, IPlanner planner, CatalogStore store) {
+        this(gameList, planner, store, new BufferedReader(new InputStreamReader(System.in)),
+                new PrintWriter(System.out, true));
+    }
+
+    /**
+     * Constructor for the console app reading and writing somewhere other than the terminal.
+     * 
+     * @param gameList the game list to manage.
+     * @param planner  the planner to help filter games.
+     * @param catalog  the full game catalog, or null to disable list load.
+     * @param in       where to read commands from.
+     * @param out      where to write output to, flushed when input is needed and at the end.
+     */
+    public ConsoleApp(IGameList gameList, IPlanner planner, GameCatalog catalog,
+            BufferedReader in, PrintWriter out) {
+        this(gameList, planner, catalog == null ? null : new CatalogStore(catalog), in, out);
+    }
+
+    /**
+     * Constructor for the console app over a catalog that may be reloaded. Each command that
+     * needs the catalog uses the version current when it starts, and the named lists move
+     * to that version first.
+     * 
+     * @param gameList the game list to manage.
+     * @param planner  the planner to help filter games.
+     * @param store    the full game catalog, or null to disable list load.
+     * @param in       where to read commands from.
+     * @param out      where to write output to, flushed when input is needed and at the end.
+     */
+    public ConsoleApp(IGameList gameList, IPlanner planner, CatalogStore store,
+            BufferedReader in, PrintWriter out) {
         this.gameList = gameList;
         this.planner = planner;
-    }    
+        this.store = store;
+        this.namedLists = store == null ? null : new NamedLists(store.current());
+        this.in = in;
+        this.out = out;
+        this.renderer = new ResultRenderer(out);
+    }
 
     /**
      * Start the console application.
@@ -48,42 +146,214 @@ public class ConsoleApp {
      */
     public void start() {
         printOutput("%s%n", ConsoleText.WELCOME);
-        ConsoleText ct = nextCommand();
-        while (ct != ConsoleText.CMD_EXIT) {
-            switch (ct) {
-                case CMD_QUESTION: // same as help
-                case CMD_HELP:
-                    processHelp();
-                    break;
-                case CMD_FILTER:
-                    processFilter();
-                    break;
-                case CMD_LIST:
-                    processListCommands();
-                    break;
-                case CMD_EASTER_EGG:
-                    randomNumber();
-                    break;
-                case INVALID:
-                default:
-                    printOutput("%s%n", ConsoleText.INVALID);
+        String line = getInput("%s", ConsoleText.PROMPT);
+        while (line != null && execute(line)) {
+            line = getInput("%s", ConsoleText.PROMPT);
+        }
+
+        waitForSaves();
+        printOutput("%s%n", ConsoleText.GOODBYE);
+        out.flush();
+    }
+
+    /**
+     * Runs every command from the input as a script.
+     * 
+     * The whole script is read up front, there is no welcome, prompt or goodbye
+     * text, and output is only flushed when the writer's buffer fills or the
+     * script ends. Blank lines and lines starting with # are skipped, and exit
+     * stops the script early. list save waits for the file, so a failed save is
+     * reported where it is in the script. Once done, the time each command took
+     * is written to the timing report.
+     * 
+     * @param timing where to write the per command timing report.
+     * @return 0 if every command succeeded, 1 if any failed.
+     * @throws UncheckedIOException if the script cannot be read.
+     */
+    public int runScript(PrintWriter timing) {
+        syncSaves = true;
+        List<String> commands = in.lines()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .toList();
+        long[] nanos = new long[commands.size()];
+        int run = 0;
+        long total = System.nanoTime();
+        while (run < commands.size()) {
+            long start = System.nanoTime();
+            boolean more = execute(commands.get(run));
+            nanos[run++] = System.nanoTime() - start;
+            if (!more) {
+                break;
             }
+        }
+        waitForSaves();
+        out.flush();
+        total = System.nanoTime() - total;
+
+        for (int i = 0; i < run; i++) {
+            timing.printf("%10.3f ms  %s%n", nanos[i] / 1e6, commands.get(i));
+        }
+        timing.printf("%d commands, %d errors, %.3f ms total%n", run, errors.get(), total / 1e6);
+        timing.flush();
+        return errors.get() == 0 ? 0 : 1;
+    }
+
+    /**
+     * Records every command run from now on in a trace, see {@link CommandTrace}. A traced
+     * console waits for list save, so a failed save is recorded on the save and not on
+     * whichever command runs when the writer gets to it.
+     * 
+     * @param trace   the trace, or null to stop tracing.
+     * @param session this console's session id in the trace.
+     */
+    public void setTrace(CommandTrace trace, int session) {
+        this.trace = trace;
+        this.traceSession = session;
+        if (trace != null) {
+            syncSaves = true;
+        }
+    }
+
+    /**
+     * Makes list save wait until the file is written and report a failure on the save
+     * itself, instead of saving in the background. Sessions whose commands must each get
+     * their own result, such as a server's, need this.
+     * 
+     * @param sync true to wait for saves.
+     */
+    public void setSynchronousSaves(boolean sync) {
+        this.syncSaves = sync;
+    }
+
+    /**
+     * Limits list save and list load to files inside a directory, for sessions run for
+     * someone else such as a server's. File names are taken relative to the directory, and
+     * ones that lead out of it are refused.
+     * 
+     * @param directory the directory, or null to turn the file commands off.
+     */
+    public void setFileDirectory(Path directory) {
+        this.restrictFiles = true;
+        this.fileDirectory = directory == null ? null : directory.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Runs a single command line.
+     * 
+     * @param line the command and its options.
+     * @return false if the command was exit, true otherwise.
+     */
+    public boolean execute(String line) {
+        if (trace == null || line.isBlank()) {
+            return run(line);
+        }
+        long start = System.nanoTime();
+        int before = commandErrors;
+        boolean ok = false;
+        try {
+            boolean more = run(line);
+            ok = commandErrors == before;
+            return more;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            out.flush(); // the answer is out before the digest is taken
+            trace.record(traceSession, start, nanos, ok, line.trim(), CommandTrace.digest(planner, gameList));
+        }
+    }
 
-            // clean up scanner.
+    /**
+     * Runs a single command line, without tracing.
+     * 
+     * @param line the command and its options.
+     * @return false if the command was exit, true otherwise.
+     */
+    private boolean run(String line) {
+        current = new Scanner(line.trim()); // now split up the line
+        if (!current.hasNext()) {
             current.close();
             current = null;
-            // get the next prompt
-            ct = nextCommand();
+            return true; // nothing entered
+        }
+        ConsoleText ct = nextCommand();
+        switch (ct) {
+            case CMD_EXIT:
+                break;
+            case CMD_QUESTION: // same as help
+            case CMD_HELP:
+                processHelp();
+                break;
+            case CMD_FILTER:
+                processFilter();
+                break;
+            case CMD_LIST:
+                processListCommands();
+                break;
+            case CMD_LISTS:
+                processNamedLists();
+                break;
+            case CMD_METRICS:
+                processMetrics();
+                break;
+            case CMD_EASTER_EGG:
+                randomNumber();
+                break;
+            case INVALID:
+            default:
+                printError("%s%n", ConsoleText.INVALID);
         }
 
-        printOutput("%s%n", ConsoleText.GOODBYE);
+        // clean up scanner.
+        current.close();
+        current = null;
+        return ct != ConsoleText.CMD_EXIT;
+    }
+
+    /**
+     * Gets the number of errors printed so far, including failed background saves.
+     *
+     * @return the error count.
+     */
+    public int getErrorCount() {
+        return errors.get();
+    }
+
+    /**
+     * Waits for the background saves, so the lists are on disk before exiting.
+     * Failures were already reported when they happened.
+     */
+    private void waitForSaves() {
+        for (CompletableFuture<Void> save : pendingSaves) {
+            try {
+                save.join();
+            } catch (CompletionException e) {
+                // reported by the save itself
+            }
+        }
+        pendingSaves.clear();
+    }
+
+    /**
+     * Process the metrics command, showing the timings or clearing them.
+     */
+    private void processMetrics() {
+        if (!Metrics.ENABLED) {
+            printOutput("%s%n", ConsoleText.METRICS_OFF);
+        } else if (!current.hasNext()) {
+            printOutput("%s", Metrics.report());
+        } else if (nextCommand() == ConsoleText.CMD_CLEAR) {
+            Metrics.reset();
+            printOutput("%s%n", ConsoleText.METRICS_CLEARED);
+        } else {
+            printError("%s%n", ConsoleText.INVALID);
+        }
     }
 
     /**
      * Generate a random number based on the current filter.
      */
     private void randomNumber() {
-        int max = (int) planner.filter("").count();
+        int max = planner.getCurrentResult().size();
         if (max > 0) {
             int random = RND.nextInt(max) + 1; // random is 0-(max-1) so add 1.
             printOutput("%s %d%n", ConsoleText.EASTER_EGG, random);
@@ -106,6 +376,9 @@ public class ConsoleApp {
             case CMD_LIST:
                 printOutput("%s%n", ConsoleText.LIST_HELP);
                 break;
+            case CMD_LISTS:
+                printOutput("%s%n", ConsoleText.LISTS_HELP);
+                break;
             default:
                 printOutput("%s%n", ConsoleText.HELP);
         }
@@ -151,7 +424,7 @@ public class ConsoleApp {
                     try {
                         sortON = GameData.fromString(sort);
                     } catch (IllegalArgumentException e) {
-                        printOutput("%s%n", ConsoleText.INVALID);
+                        printError("%s%n", ConsoleText.INVALID);
                         return; // leave early.
                     }
                 }
@@ -174,12 +447,13 @@ public class ConsoleApp {
      * @param sortON also is the column used for 'extra info' based on the sort
      *               type.
      */
-    private static void printFilterStream(Stream<BoardGame> games, GameData sortON) {
-        int counter = 1;
-        List<BoardGame> gameList = games != null ? games.toList() : Collections.emptyList();
-        for (BoardGame game : gameList) {
-            printOutput("%d: %s%n", counter++, game.toStringWithInfo(sortON));
+    private void printFilterStream(Stream<BoardGame> games, GameData sortON) {
+        if (games == null) {
+            return;
         }
+        int[] counter = {1};
+        games.forEachOrdered(game -> renderer.row(counter[0]++, game, sortON));
+        renderer.flush();
     }
 
     /**
@@ -203,9 +477,10 @@ public class ConsoleApp {
                         break;
                     }
                     try {
-                        gameList.addToList(toAdd, planner.filter(""));
+                        // index into what was displayed, not a fresh name sort
+                        gameList.addToList(toAdd, planner.getCurrentResult());
                     } catch (IllegalArgumentException e) {
-                        printOutput("%s %s%n", ConsoleText.INVALID_LIST, toAdd);
+                        printError("%s %s%n", ConsoleText.INVALID_LIST, toAdd);
                     }
                     break;
                 case CMD_REMOVE:
@@ -216,23 +491,27 @@ public class ConsoleApp {
                     try {
                         gameList.removeFromList(remove);
                     } catch (IllegalArgumentException e) {
-                        printOutput("%s %s%n", ConsoleText.INVALID_LIST, remove);
+                        printError("%s %s%n", ConsoleText.INVALID_LIST, remove);
                     }
                     break;
                 case CMD_SAVE:
-                    String filename = remainder().trim();
-                    if (filename.isEmpty()) {
-                        filename = DEFAULT_FILENAME;
-                        break;
+                    String filename = file(remainder().trim());
+                    if (filename != null) {
+                        saveList(filename);
+                    }
+                    break;
+                case CMD_LOAD:
+                    String toLoad = file(remainder().trim());
+                    if (toLoad != null) {
+                        loadList(toLoad);
                     }
-                    gameList.saveGame(filename);
                     break;
                 case CMD_QUESTION:
                 case CMD_HELP:
                     printOutput("%s%n", ConsoleText.LIST_HELP);
                     break;
                 default:
-                    printOutput("%s%n", ConsoleText.INVALID);
+                    printError("%s%n", ConsoleText.INVALID);
                     printOutput("%s%n", ConsoleText.LIST_HELP);
             }
         } else {
@@ -240,6 +519,188 @@ public class ConsoleApp {
         }
     }
 
+    /**
+     * Works out the file a list save or load uses, keeping it inside the file directory
+     * if there is one.
+     * 
+     * @param filename the name given, empty for the default.
+     * @return the file, or null after printing an error if it is not allowed.
+     */
+    private String file(String filename) {
+        if (filename.isEmpty()) {
+            filename = DEFAULT_FILENAME;
+        }
+        if (!restrictFiles) {
+            return filename;
+        }
+        if (fileDirectory == null) {
+            printError("%s%n", ConsoleText.FILES_OFF);
+            return null;
+        }
+        Path file = fileDirectory.resolve(filename).normalize();
+        if (!file.startsWith(fileDirectory) || file.equals(fileDirectory)) {
+            printError("%s %s%n", ConsoleText.FILE_OUTSIDE, filename);
+            return null;
+        }
+        return file.toString();
+    }
+
+    /**
+     * Loads a saved list into the game list, reporting every unknown entry at once.
+     * 
+     * @param filename the file to load.
+     */
+    private void loadList(String filename) {
+        if (store == null) {
+            printError("%s %s%n", ConsoleText.INVALID_LIST, filename);
+            return;
+        }
+        int before = gameList.count();
+        List<String> unknown;
+        try (CatalogStore.Pin pin = store.pin()) {
+            unknown = gameList.loadGame(filename, pin.catalog());
+        } catch (UncheckedIOException e) {
+            printError("%s %s (%s)%n", ConsoleText.LOAD_ERROR, filename, e.getCause().getMessage());
+            return;
+        }
+        printOutput("%s %d%n", ConsoleText.LOADED, gameList.count() - before);
+        if (!unknown.isEmpty()) {
+            printOutput("%s %s%n", ConsoleText.UNKNOWN_GAMES, String.join(", ", unknown));
+        }
+    }
+
+    /**
+     * Saves the game list. Unless saves are synchronous, the save is handed to the
+     * background writer without blocking the console, and a failure is reported as soon
+     * as the writer hits it.
+     * 
+     * @param filename the file to save to.
+     */
+    private void saveList(String filename) {
+        CompletableFuture<Void> save = gameList.saveGameAsync(filename);
+        if (syncSaves) {
+            try {
+                save.join();
+            } catch (CompletionException e) {
+                printError("%s %s (%s)%n", ConsoleText.SAVE_ERROR, filename, e.getCause().getMessage());
+            }
+            return;
+        }
+        pendingSaves.removeIf(CompletableFuture::isDone);
+        pendingSaves.add(save.whenComplete((ignored, error) -> {
+            if (error != null) {
+                // on the writer thread: counted, but not against the command running now
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                errors.incrementAndGet();
+                printOutput("%s %s (%s)%n", ConsoleText.SAVE_ERROR, filename, cause.getMessage());
+            }
+        }));
+    }
+
+    /**
+     * Process the named list commands.
+     * 
+     * lists, lists show|use|remove name, lists save name,
+     * lists and|or|minus first second target, lists filter name target.
+     */
+    private void processNamedLists() {
+        if (namedLists == null) {
+            printError("%s%n", ConsoleText.INVALID);
+            return;
+        }
+        if (!current.hasNext()) {
+            printNamedLists();
+            return;
+        }
+        ConsoleText ct = nextCommand();
+        String rest = remainder();
+        String[] args = rest.isEmpty() ? new String[0] : rest.split("\\s+");
+        try (CatalogStore.Pin pin = store.pin()) {
+            List<String> dropped = namedLists.moveTo(pin.catalog());
+            if (!dropped.isEmpty()) {
+                printOutput("%s %s%n", ConsoleText.DROPPED_GAMES, String.join(", ", dropped));
+            }
+            switch (ct) {
+                case CMD_SHOW:
+                    requireArgs(args, 1);
+                    int counter = 1;
+                    for (BoardGame game : namedLists.games(args[0])) {
+                        printOutput("%d: %s%n", counter++, game.getName());
+                    }
+                    break;
+                case CMD_SAVE:
+                    requireArgs(args, 1);
+                    GameCatalog.Resolved resolved = pin.catalog().resolveNames(gameList.getGameNames().stream());
+                    namedLists.put(args[0], resolved.getGames().stream());
+                    if (!resolved.getUnknown().isEmpty()) {
+                        printOutput("%s %s%n", ConsoleText.UNKNOWN_GAMES, String.join(", ", resolved.getUnknown()));
+                    }
+                    break;
+                case CMD_USE:
+                    requireArgs(args, 1);
+                    List<BoardGame> games = namedLists.games(args[0]);
+                    gameList.clear();
+                    gameList.addToList(IGameList.ADD_ALL, FilterResult.of(games.stream()));
+                    break;
+                case CMD_REMOVE:
+                    requireArgs(args, 1);
+                    namedLists.remove(args[0]);
+                    break;
+                case CMD_AND:
+                    requireArgs(args, 3);
+                    namedLists.intersect(args[0], args[1], args[2]);
+                    break;
+                case CMD_OR:
+                    requireArgs(args, 3);
+                    namedLists.union(args[0], args[1], args[2]);
+                    break;
+                case CMD_MINUS:
+                    requireArgs(args, 3);
+                    namedLists.difference(args[0], args[1], args[2]);
+                    break;
+                case CMD_FILTER:
+                    requireArgs(args, 2);
+                    namedLists.intersectFilter(args[0], planner.getCurrentResult(), args[1]);
+                    break;
+                case CMD_QUESTION:
+                case CMD_HELP:
+                    printOutput("%s%n", ConsoleText.LISTS_HELP);
+                    break;
+                default:
+                    printError("%s%n", ConsoleText.INVALID);
+                    printOutput("%s%n", ConsoleText.LISTS_HELP);
+            }
+        } catch (IllegalArgumentException e) {
+            printError("%s %s%n", ConsoleText.INVALID_NAMED_LIST, e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that a named list command has enough arguments.
+     * 
+     * @param args the arguments after the command.
+     * @param needed how many are needed.
+     * @throws IllegalArgumentException if there are not enough.
+     */
+    private static void requireArgs(String[] args, int needed) {
+        if (args.length < needed) {
+            throw new IllegalArgumentException(String.join(" ", args));
+        }
+    }
+
+    /**
+     * Print the named lists and how many games are in each.
+     */
+    private void printNamedLists() {
+        if (namedLists.names().isEmpty()) {
+            printOutput("%s%n", ConsoleText.NO_NAMED_LISTS);
+            return;
+        }
+        for (String name : namedLists.names()) {
+            printOutput("%s: %d%n", name, namedLists.count(name));
+        }
+    }
+
     /**
      * Print the current list of games.
      */
@@ -261,10 +722,6 @@ public class ConsoleApp {
      * @return the next command.
      */
     private ConsoleText nextCommand() {
-        if (current == null || !current.hasNext()) {
-            String line = getInput("%s", ConsoleText.PROMPT);
-            current = new Scanner(line.trim()); // now split up the line
-        }
         return ConsoleText.fromString(current.next()); // get the command
     }
 
@@ -283,17 +740,17 @@ public class ConsoleApp {
      * @param format the format string to print.
      * @param args   the arguments to the format string.
      * 
-     * @return the input from the client as a string, one line at a time.
+     * @return the input from the client as a string, one line at a time, or null
+     *         when there is no more input.
      */
-    private static String getInput(String format, Object... args) {
-        System.out.printf(format, args);
-        if (IN == null) {
-            return "";
-        }
-        if (!IN.hasNextLine()) {
-            return "";
+    private String getInput(String format, Object... args) {
+        printOutput(format, args);
+        out.flush();
+        try {
+            return in.readLine();
+        } catch (IOException e) {
+            return null;
         }
-        return IN.nextLine();
     }
 
 
@@ -307,8 +764,20 @@ public class ConsoleApp {
      * @param format the format string to print.
      * @param output the output to print (array to match the format).
      */
-    private static void printOutput(String format, Object... output) {
-        System.out.printf(format, output);
+    private void printOutput(String format, Object... output) {
+        out.printf(format, output);
+    }
+
+    /**
+     * Prints an error to the client, and counts it so a script run can fail.
+     * 
+     * @param format the format string to print.
+     * @param output the output to print (array to match the format).
+     */
+    private void printError(String format, Object... output) {
+        errors.incrementAndGet();
+        commandErrors++;
+        printOutput(format, output);
     }
 
     /**
@@ -328,11 +797,18 @@ public class ConsoleApp {
         /** various commands and text. */
         WELCOME, HELP, INVALID, GOODBYE, PROMPT, NO_FILTER, NO_GAMES_LIST, FILTERED_CLEAR, LIST_HELP, FILTER_HELP,
         /** commands continued. */
-        INVALID_LIST, EASTER_EGG, CMD_EASTER_EGG,
+        INVALID_LIST, SAVE_ERROR, LOAD_ERROR, LOADED, UNKNOWN_GAMES, EASTER_EGG, CMD_EASTER_EGG,
+        /** file commands text. */
+        FILES_OFF, FILE_OUTSIDE,
+        /** named lists text. */
+        LISTS_HELP, NO_NAMED_LISTS, INVALID_NAMED_LIST, DROPPED_GAMES,
+        /** metrics text. */
+        METRICS_OFF, METRICS_CLEARED,
         /** commands general. */
-        CMD_EXIT, CMD_HELP, CMD_QUESTION, CMD_FILTER, CMD_LIST,
+        CMD_EXIT, CMD_HELP, CMD_QUESTION, CMD_FILTER, CMD_LIST, CMD_LISTS, CMD_METRICS,
         /** commands specific to lists and filters. */
-        CMD_SHOW, CMD_ADD, CMD_REMOVE, CMD_CLEAR, CMD_SAVE,
+        CMD_SHOW, CMD_ADD, CMD_REMOVE, CMD_CLEAR, CMD_SAVE, CMD_LOAD, CMD_USE, CMD_AND, CMD_OR,
+        CMD_MINUS,
         /** more options on commands. */
         CMD_OPTION_ALL, CMD_SORT_OPTION, CMD_SORT_OPTION_DIRECTION_ASC, CMD_SORT_OPTION_DIRECTION_DESC;
 
@@ -0,0 +1,521 @@
+package student;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The columns of one loaded csv file that BoardGame does not hold, read only once a filter
+ * or sort asks for them.
+ *
+ * While loading, the loader notes the line each game's row starts on; nothing of the extra
+ * columns is kept. The first time an extra column is used, the file is read again from the
+ * top, taking just that column from the noted lines, into an int array (MISSING where a cell
+ * is empty or not a number), an array of {@link PlayerCounts} masks, or, for text, an array of
+ * codes into a dictionary of the distinct values. After that a lookup is an array index.
+ *
+ * A file may change after it was loaded, such as a watched catalog. If its size or modified
+ * time no longer match, the rows are found again by (name, id) in the file as it is now; a
+ * game whose row changed was reloaded as a new game anyway (see {@link CatalogDiff}), so
+ * the ones still pointing here read the same values either way.
+ *
+ * A watched catalog instead moves its columns along with each reload (see
+ * {@link #follow(ExtraColumns, CatalogDiff)}): the games of every version share one copy,
+ * which notes where their rows are in the file as it is now. Only the games a reload adds
+ * take new rows, so a reload that changes nothing costs nothing here, and the changed file
+ * is never searched once per copy.
+ */
+final class ExtraColumns {
+    /** the file, null if loaded from a resource. */
+    private final Path file;
+    /** the resource, null if loaded from a file. */
+    private final String resource;
+    /** the file's size when loaded, -1 for a resource. */
+    private long size;
+    /** the file's modified time when loaded, -1 for a resource. */
+    private long modified;
+    /** where each extra column is in the file; set from the header. */
+    private Map<GameData, Integer> columns = new EnumMap<>(GameData.class);
+    /** the line each row starts on, the header being line 1; 0 once its game is gone. */
+    private int[] lines = new int[1024];
+    /** each row's (id, name hash), to find it again in a changed file. */
+    private long[] keys = new long[1024];
+    /** rows added. */
+    private int rows;
+    /** columns read so far: int[] or Dictionary. */
+    private volatile Map<GameData, Object> materialized = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the extra columns of a source.
+     *
+     * @param file     the file, or null
+     * @param resource the resource, or null
+     * @param size     the file's size, or -1
+     * @param modified the file's modified time, or -1
+     */
+    private ExtraColumns(Path file, String resource, long size, long modified) {
+        this.file = file;
+        this.resource = resource;
+        this.size = size;
+        this.modified = modified;
+    }
+
+    /**
+     * Creates the extra columns of a file, noting its size and modified time.
+     *
+     * @param file the file
+     * @return the columns, or null if the file cannot be looked at
+     */
+    static ExtraColumns of(Path file) {
+        try {
+            return new ExtraColumns(file, null, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates the extra columns of a resource, which never changes.
+     *
+     * @param resource the resource name
+     * @return the columns
+     */
+    static ExtraColumns ofResource(String resource) {
+        return new ExtraColumns(null, resource, -1, -1);
+    }
+
+    /**
+     * Checks if these are the columns of a file.
+     *
+     * @param other the file
+     * @return true if they were loaded from it
+     */
+    boolean isOf(Path other) {
+        return file != null && file.toAbsolutePath().normalize().equals(other.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Moves these columns to a newer load of the same file. The rows of games still in the
+     * file are pointed at their lines in it now, an updated game takes the row of the game
+     * it replaces, and an added game takes a new row; the newer games are moved here, so
+     * the newer columns are not kept. A row whose game is gone reads as empty.
+     *
+     * @param newer the columns the newer load noted its rows in
+     * @param diff  what the newer load changed, not yet published
+     */
+    synchronized void follow(ExtraColumns newer, CatalogDiff diff) {
+        Map<Long, Integer> newerRow = new HashMap<>();
+        for (int row = 0; row < newer.rows; row++) {
+            newerRow.put(newer.keys[row], row);
+        }
+        int[] rowOf = new int[newer.rows];
+        Arrays.fill(rowOf, -1);
+        int total = rows + diff.getAdded().size() + diff.getUpdated().size();
+        int[] nextLines = Arrays.copyOf(lines, Math.max(total, 1));
+        long[] nextKeys = Arrays.copyOf(keys, nextLines.length);
+        for (int row = 0; row < rows; row++) {
+            Integer at = newerRow.get(keys[row]);
+            nextLines[row] = at == null ? 0 : newer.lines[at];
+            if (at != null) {
+                rowOf[at] = row;
+            }
+        }
+        int next = rows;
+        List<BoardGame> moved = new ArrayList<>(diff.getAdded());
+        moved.addAll(diff.getUpdated());
+        for (BoardGame game : moved) {
+            int at = newerRow.get(key(game));
+            if (rowOf[at] < 0) {
+                nextLines[next] = newer.lines[at];
+                nextKeys[next] = newer.keys[at];
+                rowOf[at] = next++;
+            }
+            game.moveExtras(this, rowOf[at]);
+        }
+        size = newer.size;
+        modified = newer.modified;
+        columns = newer.columns;
+        lines = nextLines;
+        keys = nextKeys;
+        rows = next;
+        materialized = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Notes where the extra columns are, from the header.
+     *
+     * @param columnMap the map of columns to index
+     */
+    void setHeader(Map<GameData, Integer> columnMap) {
+        for (Map.Entry<GameData, Integer> entry : columnMap.entrySet()) {
+            if (entry.getKey().isExtra()) {
+                columns.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Gets the row number the next game added will have.
+     *
+     * @return the row
+     */
+    int nextRow() {
+        return rows;
+    }
+
+    /**
+     * Adds a row, in file order.
+     *
+     * @param line the line its record starts on
+     * @param game the game loaded from it
+     */
+    void add(int line, BoardGame game) {
+        if (rows == lines.length) {
+            lines = Arrays.copyOf(lines, rows * 2);
+            keys = Arrays.copyOf(keys, rows * 2);
+        }
+        lines[rows] = line;
+        keys[rows] = key(game);
+        rows++;
+    }
+
+    /**
+     * Gets an int column's value for a row.
+     *
+     * @param column the column
+     * @param row    the row
+     * @return the value, or {@link BoardGame#MISSING}
+     */
+    int intValue(GameData column, int row) {
+        int[] values = (int[]) column(column, row);
+        return row < values.length ? values[row] : BoardGame.MISSING;
+    }
+
+    /**
+     * Gets a text column's value for a row.
+     *
+     * @param column the column
+     * @param row    the row
+     * @param lower  true for the value in lower case
+     * @return the value, empty if there is none
+     */
+    String text(GameData column, int row, boolean lower) {
+        Dictionary values = (Dictionary) column(column, row);
+        if (row >= values.codes.length) {
+            return "";
+        }
+        return (lower ? values.lower : values.values)[values.codes[row]];
+    }
+
+    /**
+     * Gets a player count column's mask for a row.
+     *
+     * @param column the column
+     * @param row    the row
+     * @return the {@link PlayerCounts} mask, 0 if there is none
+     */
+    int playerMask(GameData column, int row) {
+        int[] masks = (int[]) column(column, row);
+        return row < masks.length ? masks[row] : 0;
+    }
+
+    /**
+     * Checks if a column holds text rather than ints.
+     *
+     * @param column the column
+     * @return true for text
+     */
+    static boolean isText(GameData column) {
+        return column == GameData.LANGUAGE_DEPENDENCE;
+    }
+
+    /**
+     * Checks if a column holds lists of player counts.
+     *
+     * @param column the column
+     * @return true for player counts
+     */
+    static boolean isPlayers(GameData column) {
+        return column == GameData.BEST || column == GameData.REC;
+    }
+
+    /**
+     * Gets a column, reading it from the file if it has not been, or if rows were added
+     * since.
+     *
+     * @param column the column
+     * @param row    a row that must be covered
+     * @return the int[] or Dictionary
+     */
+    private Object column(GameData column, int row) {
+        Object values = materialized.get(column);
+        if (values == null || length(values) <= row && row < rows) {
+            synchronized (this) {
+                Map<GameData, Object> current = materialized;
+                values = current.get(column);
+                if (values == null || length(values) <= row && row < rows) {
+                    values = read(column);
+                    current.put(column, values);
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Gets the number of rows a column covers.
+     *
+     * @param values an int[] or Dictionary
+     * @return the rows
+     */
+    private static int length(Object values) {
+        return values instanceof int[] ? ((int[]) values).length : ((Dictionary) values).codes.length;
+    }
+
+    /**
+     * Reads a column for every row added so far. If reading fails the error is printed and
+     * the column is left without values.
+     *
+     * @param column the column
+     * @return the int[] or Dictionary
+     */
+    private Object read(GameData column) {
+        String[] cells = new String[rows];
+        Integer index = columns.get(column);
+        try {
+            if (index != null && changed()) {
+                readChanged(column, cells);
+            } else if (index != null) {
+                readRows(index, cells);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error reading column " + column.getColumnName() + ": " + e.getMessage());
+            Arrays.fill(cells, null);
+        }
+        if (isText(column)) {
+            return new Dictionary(cells);
+        }
+        return isPlayers(column) ? parseMasks(cells) : parseInts(cells);
+    }
+
+    /**
+     * Takes one column's cells out of the noted lines of the unchanged file. Rows moved by
+     * {@link #follow} are not in file order, so they are visited by line.
+     *
+     * @param index the column's index in the file
+     * @param cells gets each row's cell, null for a row whose game is gone
+     * @throws IOException if reading fails
+     */
+    private void readRows(int index, String[] cells) throws IOException {
+        long[] byLine = new long[cells.length];
+        int count = 0;
+        for (int row = 0; row < cells.length; row++) {
+            if (lines[row] > 0) {
+                byLine[count++] = (long) lines[row] << 32 | row;
+            }
+        }
+        Arrays.sort(byLine, 0, count);
+        try (LineNumberReader reader = new LineNumberReader(
+                new InputStreamReader(CatalogInput.open(openRaw()), StandardCharsets.UTF_8))) {
+            reader.readLine(); // header
+            String line;
+            int next = 0;
+            while (next < count && (line = reader.readLine()) != null) {
+                int number = reader.getLineNumber();
+                if (number == (int) (byLine[next] >>> 32)) {
+                    String cell = GamesLoader.cell(GamesLoader.wholeRecord(line, reader), index);
+                    while (next < count && number == (int) (byLine[next] >>> 32)) {
+                        cells[(int) byLine[next++]] = cell;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the rows by (name, id) in the file as it is now and takes the column's cells,
+     * reading the file once. Columns are found by the file's header as it is now.
+     *
+     * @param column the column
+     * @param cells  gets each row's cell, null for a row no longer in the file
+     * @throws IOException if reading fails
+     */
+    private void readChanged(GameData column, String[] cells) throws IOException {
+        Map<Long, Integer> rowOf = new HashMap<>();
+        for (int row = 0; row < cells.length; row++) {
+            rowOf.put(keys[row], row);
+        }
+        try (LineNumberReader reader = new LineNumberReader(
+                new InputStreamReader(CatalogInput.open(openRaw()), StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            Map<GameData, Integer> now = header == null ? Map.of() : GamesLoader.processHeader(header);
+            Integer name = now.get(GameData.NAME);
+            Integer id = now.get(GameData.ID);
+            Integer index = now.get(column);
+            if (name == null || id == null || index == null) {
+                return;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String record = GamesLoader.wholeRecord(line, reader);
+                Integer row = rowOf.get(key(GamesLoader.cell(record, id), GamesLoader.cell(record, name)));
+                if (row != null) {
+                    cells[row] = GamesLoader.cell(record, index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if the file is not the one loaded.
+     *
+     * @return true if its size or modified time changed, or it is gone
+     */
+    private boolean changed() {
+        if (file == null) {
+            return false;
+        }
+        try {
+            return Files.size(file) != size || Files.getLastModifiedTime(file).toMillis() != modified;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Opens the source as stored.
+     *
+     * @return the input
+     * @throws IOException if it cannot be opened
+     */
+    private InputStream openRaw() throws IOException {
+        if (file != null) {
+            return Files.newInputStream(file);
+        }
+        InputStream in = GamesLoader.class.getResourceAsStream(resource);
+        if (in == null) {
+            throw new FileNotFoundException(resource);
+        }
+        return in;
+    }
+
+    /**
+     * Parses cells as ints.
+     *
+     * @param cells the cells, null where there are none
+     * @return the values, MISSING where a cell is empty or not a whole number
+     */
+    private static int[] parseInts(String[] cells) {
+        int[] values = new int[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            values[i] = BoardGame.MISSING;
+            if (cells[i] != null && !cells[i].isBlank()) {
+                try {
+                    values[i] = Integer.parseInt(cells[i].trim());
+                } catch (NumberFormatException e) {
+                    // left missing
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Parses cells as lists of player counts.
+     *
+     * @param cells the cells, null where there are none
+     * @return the masks, 0 where a cell is empty
+     */
+    private static int[] parseMasks(String[] cells) {
+        int[] masks = new int[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            masks[i] = cells[i] == null ? 0 : PlayerCounts.parse(cells[i]);
+        }
+        return masks;
+    }
+
+    /**
+     * Gets the key a game is found by in a changed file.
+     *
+     * @param game the game
+     * @return its id and name hash
+     */
+    private static long key(BoardGame game) {
+        return key(game.getId(), game.getName());
+    }
+
+    /**
+     * Gets the key of a row read from the file.
+     *
+     * @param id   the id cell, may be null
+     * @param name the name cell, may be null
+     * @return its id and name hash, or -1 if the cells are not a game
+     */
+    private static long key(String id, String name) {
+        if (id == null || name == null) {
+            return -1;
+        }
+        try {
+            return key(Integer.parseInt(id), name);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Puts an id and a name hash together.
+     *
+     * @param id   the id
+     * @param name the name
+     * @return the key
+     */
+    private static long key(int id, String name) {
+        return (long) id << 32 | (name.hashCode() & 0xffffffffL);
+    }
+
+    /**
+     * A text column, as a code per row into the distinct values.
+     */
+    private static final class Dictionary {
+        /** each row's code. */
+        private final int[] codes;
+        /** the distinct values, code 0 is the empty value. */
+        private final String[] values;
+        /** the same values in lower case. */
+        private final String[] lower;
+
+        /**
+         * Encodes cells.
+         *
+         * @param cells the cells, null where there are none
+         */
+        Dictionary(String[] cells) {
+            Map<String, Integer> codeOf = new LinkedHashMap<>();
+            codeOf.put("", 0);
+            this.codes = new int[cells.length];
+            for (int i = 0; i < cells.length; i++) {
+                String cell = cells[i] == null ? "" : cells[i];
+                Integer code = codeOf.putIfAbsent(cell, codeOf.size());
+                codes[i] = code == null ? codeOf.size() - 1 : code;
+            }
+            this.values = codeOf.keySet().toArray(new String[0]);
+            this.lower = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                lower[i] = values[i].toLowerCase();
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package student;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * An ordered, immutable handle on the result of a filter.
+ *
+ * The planner builds one of these each time it sorts the filtered games, and keeps
+ * it until the filter or the sort changes. The order is exactly the order the games
+ * were handed out (and shown to the client), so position 1 in the handle is the
+ * game numbered 1 on screen. The game list indexes into it directly instead of
+ * collecting and re-sorting the stream again.
+ */
+public final class FilterResult {
+    /** the games, in display order. */
+    private final List<BoardGame> games;
+    /** the column the games are sorted on, null if the order came from a stream. */
+    private final GameData sortOn;
+    /** the sort direction. */
+    private final boolean ascending;
+
+    /**
+     * Private constructor, use one of the factory methods.
+     *
+     * @param games     the games, already in display order
+     * @param sortOn    the column the games are sorted on, or null
+     * @param ascending the sort direction
+     */
+    private FilterResult(BoardGame[] games, GameData sortOn, boolean ascending) {
+        this.games = Collections.unmodifiableList(Arrays.asList(games));
+        this.sortOn = sortOn;
+        this.ascending = ascending;
+    }
+
+    /**
+     * Sorts the games once and wraps them as a result.
+     *
+     * @param games     the games to sort
+     * @param sortOn    the column to sort on
+     * @param ascending whether to sort ascending or descending
+     * @return the sorted result
+     */
+    public static FilterResult sorted(Collection<BoardGame> games, GameData sortOn,
+            boolean ascending) {
+        BoardGame[] arr = games.toArray(new BoardGame[0]);
+        Arrays.sort(arr, GameComparator.createComparator(sortOn, ascending));
+        return new FilterResult(arr, sortOn, ascending);
+    }
+
+    /**
+     * Wraps a stream as a result, keeping the stream's encounter order.
+     *
+     * @param games the stream of games
+     * @return the result in the same order as the stream
+     */
+    public static FilterResult of(Stream<BoardGame> games) {
+        return new FilterResult(games.toArray(BoardGame[]::new), null, true);
+    }
+
+    /**
+     * Gets the number of games in the result.
+     *
+     * @return the number of games
+     */
+    public int size() {
+        return games.size();
+    }
+
+    /**
+     * Checks if the result is empty.
+     *
+     * @return true if there are no games in the result
+     */
+    public boolean isEmpty() {
+        return games.isEmpty();
+    }
+
+    /**
+     * Gets a game by its zero based position.
+     *
+     * @param index the position of the game
+     * @return the game at that position
+     */
+    public BoardGame get(int index) {
+        return games.get(index);
+    }
+
+    /**
+     * Gets the games as a read only list in display order.
+     *
+     * @return the games in display order
+     */
+    public List<BoardGame> asList() {
+        return games;
+    }
+
+    /**
+     * Streams the games in display order.
+     *
+     * @return a stream of the games
+     */
+    public Stream<BoardGame> stream() {
+        return games.stream();
+    }
+
+    /**
+     * Gets the column the result is sorted on.
+     *
+     * @return the sort column, or null if the order came from a stream
+     */
+    public GameData getSortOn() {
+        return sortOn;
+    }
+
+    /**
+     * Gets the sort direction.
+     *
+     * @return true if sorted ascending
+     */
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * Checks if the result is already sorted the way requested, so it can be reused.
+     *
+     * @param column the requested sort column
+     * @param asc    the requested direction
+     * @return true if no re-sort is needed
+     */
+    public boolean isSortedOn(GameData column, boolean asc) {
+        return sortOn == column && ascending == asc;
+    }
+}
@@ -0,0 +1,356 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Finds the games that fit a session: that support a number of players and take no longer
+ * than a number of minutes, as {@link IPlanner#fits(int, int)}.
+ *
+ * It is a segment tree over player counts. Each game's [minPlayers, maxPlayers] range is
+ * stored at the few nodes that together cover it exactly, and each node keeps its games
+ * sorted by max play time. A query walks from the root to the leaf holding the player
+ * count; at each node on the way the games short enough are a prefix, found by binary
+ * search. No game is stored at two nodes on one path, so nothing is found twice, and the
+ * cost is the depth times a binary search plus the games found. The depth is the log of the
+ * number of distinct player counts, which is small.
+ *
+ * A catalog reload makes the next index with {@link #apply}, which copies only the nodes
+ * holding the games that changed and shares the rest.
+ */
+final class FitIndex {
+    /** orders games by max play time. */
+    private static final Comparator<BoardGame> BY_TIME = Comparator.comparingInt(BoardGame::getMaxPlayTime);
+
+    /** where the leaves start: leaf i holds the player counts from bounds[i] up to bounds[i + 1]. */
+    private final int[] bounds;
+    /** the number of leaves. */
+    private final int leaves;
+    /** per node, the games stored there, by max play time. */
+    private final BoardGame[][] games;
+    /** per node, the max play time of each game in games. */
+    private final int[][] times;
+
+    /**
+     * Builds the index.
+     *
+     * @param all the games
+     */
+    FitIndex(Collection<BoardGame> all) {
+        TreeSet<Integer> ends = new TreeSet<>();
+        for (BoardGame game : all) {
+            if (supportsAny(game)) {
+                ends.add(game.getMinPlayers());
+                ends.add(end(game));
+            }
+        }
+        this.bounds = ends.stream().mapToInt(Integer::intValue).toArray();
+        this.leaves = Math.max(0, bounds.length - 1);
+        List<List<BoardGame>> stored = new ArrayList<>();
+        for (int node = 0; node < 4 * leaves; node++) {
+            stored.add(new ArrayList<>());
+        }
+        for (BoardGame game : all) {
+            if (supportsAny(game)) {
+                insert(stored::get, 1, 0, leaves, Arrays.binarySearch(bounds, game.getMinPlayers()),
+                        Arrays.binarySearch(bounds, end(game)), game);
+            }
+        }
+        this.games = new BoardGame[stored.size()][];
+        this.times = new int[stored.size()][];
+        for (int node = 0; node < stored.size(); node++) {
+            BoardGame[] here = stored.get(node).toArray(new BoardGame[0]);
+            Arrays.sort(here, BY_TIME);
+            fill(node, here);
+        }
+    }
+
+    /**
+     * Creates an index from the parts of another.
+     *
+     * @param bounds the leaf bounds
+     * @param games  per node, the games stored there
+     * @param times  per node, their max play times
+     */
+    private FitIndex(int[] bounds, BoardGame[][] games, int[][] times) {
+        this.bounds = bounds;
+        this.leaves = Math.max(0, bounds.length - 1);
+        this.games = games;
+        this.times = times;
+    }
+
+    /**
+     * Makes the index for the next catalog version. Only the nodes holding a game going or
+     * coming are copied, a block at a time; the rest are shared with this index, which is
+     * left as it was.
+     *
+     * @param gone   the games to take out, as this index holds them
+     * @param coming the games to put in
+     * @return the new index, or null if a game coming has a player count this index has no
+     *         leaf bound for, and the index must be built again
+     */
+    FitIndex apply(Collection<BoardGame> gone, Collection<BoardGame> coming) {
+        Map<Integer, List<BoardGame>> out = new HashMap<>();
+        Map<Integer, List<BoardGame>> in = new HashMap<>();
+        for (BoardGame game : coming) {
+            if (supportsAny(game) && !place(in, game)) {
+                return null;
+            }
+        }
+        for (BoardGame game : gone) {
+            if (supportsAny(game)) {
+                place(out, game);
+            }
+        }
+        FitIndex next = new FitIndex(bounds, games.clone(), times.clone());
+        Set<Integer> touched = new HashSet<>(out.keySet());
+        touched.addAll(in.keySet());
+        for (int node : touched) {
+            spliceNode(next, node, out.getOrDefault(node, List.of()), in.getOrDefault(node, List.of()));
+        }
+        return next;
+    }
+
+    /**
+     * Makes a node's games in the next index: block copies of this node's games and times
+     * around the games going, with the games coming put in at their times.
+     *
+     * @param next   the next index
+     * @param node   the node
+     * @param gone   the games going, as this node holds them
+     * @param coming the games coming
+     */
+    private void spliceNode(FitIndex next, int node, List<BoardGame> gone, List<BoardGame> coming) {
+        BoardGame[] old = games[node];
+        int[] oldTimes = times[node];
+        int[] cuts = new int[gone.size()];
+        int cutCount = 0;
+        for (BoardGame game : gone) {
+            int time = game.getMaxPlayTime();
+            for (int i = shorterThan(oldTimes, time - 1); i < old.length && oldTimes[i] == time; i++) {
+                if (old[i].equals(game)) {
+                    cuts[cutCount++] = i;
+                    break;
+                }
+            }
+        }
+        Arrays.sort(cuts, 0, cutCount);
+        BoardGame[] inserts = coming.toArray(new BoardGame[0]);
+        Arrays.sort(inserts, BY_TIME);
+
+        BoardGame[] here = new BoardGame[old.length - cutCount + inserts.length];
+        int[] hereTimes = new int[here.length];
+        int src = 0;
+        int dst = 0;
+        int cut = 0;
+        int insert = 0;
+        while (src < old.length || insert < inserts.length) {
+            int nextCut = cut < cutCount ? cuts[cut] : old.length;
+            int nextInsert = insert < inserts.length
+                    ? shorterThan(oldTimes, inserts[insert].getMaxPlayTime()) : old.length;
+            int stop = Math.min(nextCut, nextInsert);
+            System.arraycopy(old, src, here, dst, stop - src);
+            System.arraycopy(oldTimes, src, hereTimes, dst, stop - src);
+            dst += stop - src;
+            src = stop;
+            if (insert < inserts.length && nextInsert == src) {
+                here[dst] = inserts[insert];
+                hereTimes[dst++] = inserts[insert++].getMaxPlayTime();
+            } else if (cut < cutCount && cuts[cut] == src) {
+                src++;
+                cut++;
+            }
+        }
+        next.games[node] = here;
+        next.times[node] = hereTimes;
+    }
+
+    /**
+     * Adds a game to the nodes covering its leaves, in a map of node to games.
+     *
+     * @param byNode the games per node
+     * @param game   the game
+     * @return false if a bound of the game's range is not a leaf bound
+     */
+    private boolean place(Map<Integer, List<BoardGame>> byNode, BoardGame game) {
+        int lo = Arrays.binarySearch(bounds, game.getMinPlayers());
+        int hi = Arrays.binarySearch(bounds, end(game));
+        if (lo < 0 || hi < 0) {
+            return false;
+        }
+        insert(node -> byNode.computeIfAbsent(node, n -> new ArrayList<>()), 1, 0, leaves, lo, hi, game);
+        return true;
+    }
+
+    /**
+     * Stores the games of a node and their max play times.
+     *
+     * @param node   the node
+     * @param sorted the games stored there, by max play time
+     */
+    private void fill(int node, BoardGame[] sorted) {
+        games[node] = sorted;
+        times[node] = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            times[node][i] = sorted[i].getMaxPlayTime();
+        }
+    }
+
+    /**
+     * Checks if a game supports any player count at all.
+     *
+     * @param game the game
+     * @return false if its max players is below its min players
+     */
+    private static boolean supportsAny(BoardGame game) {
+        return game.getMinPlayers() <= game.getMaxPlayers() && game.getMaxPlayers() < Integer.MAX_VALUE;
+    }
+
+    /**
+     * Gets the player count just past a game's range.
+     *
+     * @param game the game
+     * @return max players plus one
+     */
+    private static int end(BoardGame game) {
+        return game.getMaxPlayers() + 1;
+    }
+
+    /**
+     * Stores a game at the nodes covering its leaves.
+     *
+     * @param stored gets the games stored at a node
+     * @param node   the node
+     * @param from   the node's first leaf
+     * @param to     just past the node's last leaf
+     * @param lo     the game's first leaf
+     * @param hi     just past the game's last leaf
+     * @param game   the game
+     */
+    private static void insert(IntFunction<List<BoardGame>> stored, int node, int from, int to, int lo, int hi,
+            BoardGame game) {
+        if (hi <= from || to <= lo) {
+            return;
+        }
+        if (lo <= from && to <= hi) {
+            stored.apply(node).add(game);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        insert(stored, 2 * node, from, mid, lo, hi, game);
+        insert(stored, 2 * node + 1, mid, to, lo, hi, game);
+    }
+
+    /**
+     * Finds the games that support a player count and take at most some minutes.
+     *
+     * @param players the player count
+     * @param minutes the most minutes, compared with max play time
+     * @return the games, in no particular order
+     */
+    List<BoardGame> fits(int players, int minutes) {
+        List<BoardGame> found = new ArrayList<>();
+        if (leaves == 0 || players < bounds[0] || players >= bounds[leaves]) {
+            return found;
+        }
+        int leaf = Arrays.binarySearch(bounds, players);
+        leaf = leaf >= 0 ? leaf : -leaf - 2;
+        int node = 1;
+        int from = 0;
+        int to = leaves;
+        while (true) {
+            int count = shorterThan(times[node], minutes);
+            for (int i = 0; i < count; i++) {
+                found.add(games[node][i]);
+            }
+            if (to - from == 1) {
+                return found;
+            }
+            int mid = (from + to) >>> 1;
+            if (leaf < mid) {
+                node = 2 * node;
+                to = mid;
+            } else {
+                node = 2 * node + 1;
+                from = mid;
+            }
+        }
+    }
+
+    /**
+     * Counts the sorted times that are at most a limit.
+     *
+     * @param sorted the times, ascending
+     * @param limit  the limit
+     * @return how many of the first times are at most limit
+     */
+    private static int shorterThan(int[] sorted, int limit) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= limit) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * The test {@link IPlanner#fits(int, int)} applies to each game, which a planner
+     * answers from an index instead when it can.
+     */
+    static final class Fits implements Predicate<BoardGame> {
+        /** the player count. */
+        private final int players;
+        /** the most minutes. */
+        private final int minutes;
+
+        /**
+         * Creates the test.
+         *
+         * @param players the player count
+         * @param minutes the most minutes
+         */
+        Fits(int players, int minutes) {
+            this.players = players;
+            this.minutes = minutes;
+        }
+
+        /**
+         * Gets the player count.
+         *
+         * @return the player count
+         */
+        int getPlayers() {
+            return players;
+        }
+
+        /**
+         * Gets the most minutes.
+         *
+         * @return the most minutes
+         */
+        int getMinutes() {
+            return minutes;
+        }
+
+        @Override
+        public boolean test(BoardGame game) {
+            return game.getMinPlayers() <= players && players <= game.getMaxPlayers()
+                    && game.getMaxPlayTime() <= minutes;
+        }
+    }
+}
@@ -0,0 +1,521 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * The full collection of games, with every game given a fixed row ordinal.
+ *
+ * Rows are ordered by name (ignoring case) and then id, so walking the ordinals walks the
+ * games in the same order the game lists print them. The catalog also keeps a name index and
+ * an id index, so saved lists can be resolved in one pass instead of searching the collection
+ * for every entry.
+ *
+ * A catalog never changes. A reload makes a new version with {@link #apply(CatalogDiff)},
+ * which shares everything it can with the old one: the indexes are persistent maps, so only
+ * the changed keys cost anything, and the rows are block copies of the old rows around the
+ * changes. Whoever still holds the old version, such as a query running or a list loaded
+ * against it, keeps seeing it as it was.
+ *
+ * For the player count columns each version also builds, on first use, one bitmap of row
+ * ordinals per player count, so "best with exactly 3" is found from one bitmap instead of
+ * testing every game, and an index of player and play time ranges for {@link #fits(int, int)}.
+ * Once built they are carried to the next version with the diff rather than built again:
+ * the bitmaps are spliced a word at a time along with the rows, and the index changes only
+ * at the nodes holding the changed games.
+ */
+public final class GameCatalog {
+    /** order of the rows. */
+    private static final Comparator<BoardGame> ROW_ORDER = Comparator
+            .comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER)
+            .thenComparingInt(BoardGame::getId);
+
+    /** the version, 1 for a catalog built from scratch and one more for each diff applied. */
+    private final long version;
+    /** the games, indexed by ordinal. */
+    private final BoardGame[] rows;
+    /** read only view of rows. */
+    private final List<BoardGame> rowList;
+    /** lower case name to the games with that name, in row order. */
+    private final HashTrie<String, BoardGame[]> byName;
+    /** id to game. */
+    private final HashTrie<Integer, BoardGame> byId;
+    /** the games as a set, made when first asked for. */
+    private volatile Set<BoardGame> gameSet;
+    /** the index for {@link #fits(int, int)}, made when first asked for. */
+    private volatile FitIndex fitIndex;
+    /** per player count column, the rows with each count; made when first asked for. */
+    private final Map<GameData, BitSet[]> playerRows = new ConcurrentHashMap<>();
+
+    /**
+     * Builds the catalog and its indexes.
+     *
+     * @param games all the games
+     */
+    public GameCatalog(Collection<BoardGame> games) {
+        this.version = 1;
+        this.rows = games.toArray(new BoardGame[0]);
+        Arrays.sort(rows, ROW_ORDER);
+        this.rowList = Collections.unmodifiableList(Arrays.asList(rows));
+        this.byName = new HashTrie<>();
+        this.byId = new HashTrie<>();
+        for (BoardGame game : rows) {
+            String name = game.getLowerName();
+            byName.putInPlace(name, withGame(byName.get(name), game));
+            byId.putInPlace(game.getId(), game);
+        }
+    }
+
+    /**
+     * Creates a new version from its parts.
+     *
+     * @param version the version
+     * @param rows    the games in row order
+     * @param byName  the name index
+     * @param byId    the id index
+     */
+    private GameCatalog(long version, BoardGame[] rows, HashTrie<String, BoardGame[]> byName,
+            HashTrie<Integer, BoardGame> byId) {
+        this.version = version;
+        this.rows = rows;
+        this.rowList = Collections.unmodifiableList(Arrays.asList(rows));
+        this.byName = byName;
+        this.byId = byId;
+    }
+
+    /**
+     * Makes the next version of the catalog, with a diff applied. This version is left as
+     * it was.
+     *
+     * The indexes change only at the games in the diff. The rows have to move to make room,
+     * but that is done with one block copy per change rather than sorting again.
+     *
+     * @param diff the changes, as made by {@link CatalogDiff#between}
+     * @return the new version, or this one if the diff is empty
+     */
+    public GameCatalog apply(CatalogDiff diff) {
+        if (diff.isEmpty()) {
+            return this;
+        }
+        HashTrie<String, BoardGame[]> names = byName;
+        HashTrie<Integer, BoardGame> ids = byId;
+        List<BoardGame> gone = new ArrayList<>(diff.getRemoved());
+        gone.addAll(diff.getUpdated());
+        for (BoardGame game : gone) {
+            BoardGame old = ids.get(game.getId());
+            if (game.equals(old)) {
+                ids = ids.with(game.getId(), null);
+            }
+            BoardGame[] same = withoutGame(names.get(game.getLowerName()), game);
+            names = names.with(game.getLowerName(), same.length == 0 ? null : same);
+        }
+        List<BoardGame> coming = new ArrayList<>(diff.getAdded());
+        coming.addAll(diff.getUpdated());
+        for (BoardGame game : coming) {
+            ids = ids.with(game.getId(), game);
+            names = names.with(game.getLowerName(), withGame(names.get(game.getLowerName()), game));
+        }
+        List<int[]> moves = new ArrayList<>();
+        GameCatalog next = new GameCatalog(version + 1, spliceRows(gone, coming, moves), names, ids);
+        FitIndex index = fitIndex;
+        if (index != null) {
+            List<BoardGame> held = new ArrayList<>(gone.size());
+            for (BoardGame game : gone) {
+                int ordinal = ordinalOf(game);
+                if (ordinal >= 0) {
+                    held.add(rows[ordinal]);
+                }
+            }
+            next.fitIndex = index.apply(held, coming);
+        }
+        for (Map.Entry<GameData, BitSet[]> built : playerRows.entrySet()) {
+            next.playerRows.put(built.getKey(), next.moveBitmaps(built.getKey(), built.getValue(), moves, coming));
+        }
+        return next;
+    }
+
+    /**
+     * Makes the rows of the next version: these rows without the games going, with the
+     * games coming put in order.
+     *
+     * @param gone   games to take out, by equality
+     * @param coming games to put in
+     * @param moves  where to add each block of rows kept, as {from, to, length}
+     * @return the new rows
+     */
+    private BoardGame[] spliceRows(List<BoardGame> gone, List<BoardGame> coming, List<int[]> moves) {
+        int[] cuts = new int[gone.size()];
+        int cutCount = 0;
+        for (BoardGame game : gone) {
+            int ordinal = ordinalOf(game);
+            if (ordinal >= 0) {
+                cuts[cutCount++] = ordinal;
+            }
+        }
+        Arrays.sort(cuts, 0, cutCount);
+        BoardGame[] inserts = coming.toArray(new BoardGame[0]);
+        Arrays.sort(inserts, ROW_ORDER);
+        int[] at = new int[inserts.length];
+        for (int i = 0; i < inserts.length; i++) {
+            int found = Arrays.binarySearch(rows, inserts[i], ROW_ORDER);
+            at[i] = found >= 0 ? found : -found - 1;
+        }
+
+        BoardGame[] out = new BoardGame[rows.length - cutCount + inserts.length];
+        int src = 0;
+        int dst = 0;
+        int cut = 0;
+        int insert = 0;
+        while (src < rows.length || insert < inserts.length) {
+            int nextCut = cut < cutCount ? cuts[cut] : rows.length;
+            int nextInsert = insert < inserts.length ? at[insert] : rows.length;
+            int stop = Math.min(nextCut, nextInsert);
+            if (stop > src) {
+                moves.add(new int[] {src, dst, stop - src});
+            }
+            System.arraycopy(rows, src, out, dst, stop - src);
+            dst += stop - src;
+            src = stop;
+            if (insert < inserts.length && at[insert] == src) {
+                out[dst++] = inserts[insert++];
+            } else if (cut < cutCount && cuts[cut] == src) {
+                src++;
+                cut++;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Adds a game to the games sharing a name, keeping row order.
+     *
+     * @param games the games with the name, or null for none
+     * @param game  the game to add
+     * @return a new array with the game
+     */
+    private static BoardGame[] withGame(BoardGame[] games, BoardGame game) {
+        if (games == null) {
+            return new BoardGame[] {game};
+        }
+        int found = Arrays.binarySearch(games, game, ROW_ORDER);
+        int at = found >= 0 ? found : -found - 1;
+        BoardGame[] result = new BoardGame[games.length + 1];
+        System.arraycopy(games, 0, result, 0, at);
+        result[at] = game;
+        System.arraycopy(games, at, result, at + 1, games.length - at);
+        return result;
+    }
+
+    /**
+     * Takes a game out of the games sharing a name.
+     *
+     * @param games the games with the name, or null for none
+     * @param game  the game to take out, by equality
+     * @return a new array without the game, possibly empty
+     */
+    private static BoardGame[] withoutGame(BoardGame[] games, BoardGame game) {
+        if (games == null) {
+            return new BoardGame[0];
+        }
+        List<BoardGame> kept = new ArrayList<>(games.length);
+        for (BoardGame other : games) {
+            if (!other.equals(game)) {
+                kept.add(other);
+            }
+        }
+        return kept.toArray(new BoardGame[0]);
+    }
+
+    /**
+     * Gets the version of the catalog.
+     *
+     * @return 1 for a catalog built from scratch, one more for each diff applied since
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the number of games in the catalog.
+     *
+     * @return the number of rows
+     */
+    public int size() {
+        return rows.length;
+    }
+
+    /**
+     * Gets the game at a row ordinal.
+     *
+     * @param ordinal the row
+     * @return the game in that row
+     */
+    public BoardGame get(int ordinal) {
+        return rows[ordinal];
+    }
+
+    /**
+     * Gets every game in row order.
+     *
+     * @return read only list of the games
+     */
+    public List<BoardGame> games() {
+        return rowList;
+    }
+
+    /**
+     * Gets every game as a set, such as for starting a planner. Made once per version.
+     *
+     * @return read only set of the games
+     */
+    public Set<BoardGame> gameSet() {
+        Set<BoardGame> set = gameSet;
+        if (set == null) {
+            set = Set.copyOf(rowList);
+            gameSet = set;
+        }
+        return set;
+    }
+
+    /**
+     * Gets the games with any of some player counts, from the bitmaps of the rows with each
+     * count. The bitmaps are made for the whole version the first time a column is asked for.
+     *
+     * @param column {@link GameData#BEST} or {@link GameData#REC}
+     * @param counts the {@link PlayerCounts} mask of the counts wanted
+     * @return the games, in row order
+     */
+    public List<BoardGame> withPlayers(GameData column, int counts) {
+        BitSet[] byCount = playerRows.computeIfAbsent(column, this::playerBitmaps);
+        BitSet matching = new BitSet(rows.length);
+        for (int count = 1; count <= PlayerCounts.MAX; count++) {
+            if ((counts & 1 << count) != 0) {
+                matching.or(byCount[count]);
+            }
+        }
+        List<BoardGame> games = new ArrayList<>(matching.cardinality());
+        for (int ordinal = matching.nextSetBit(0); ordinal >= 0; ordinal = matching.nextSetBit(ordinal + 1)) {
+            games.add(rows[ordinal]);
+        }
+        return games;
+    }
+
+    /**
+     * Gets the games that support a number of players and take at most a number of minutes,
+     * from an index made for the whole version the first time it is asked.
+     *
+     * @param players the player count, within min players to max players
+     * @param minutes the most minutes, compared with max play time
+     * @return the games, in no particular order
+     */
+    public List<BoardGame> fits(int players, int minutes) {
+        FitIndex index = fitIndex;
+        if (index == null) {
+            index = new FitIndex(rowList);
+            fitIndex = index;
+        }
+        return index.fits(players, minutes);
+    }
+
+    /**
+     * Builds one bitmap of rows per player count from the games' masks.
+     *
+     * @param column the player count column
+     * @return the bitmaps, indexed by count
+     */
+    private BitSet[] playerBitmaps(GameData column) {
+        BitSet[] byCount = new BitSet[PlayerCounts.MAX + 1];
+        for (int count = 0; count < byCount.length; count++) {
+            byCount[count] = new BitSet();
+        }
+        for (int ordinal = 0; ordinal < rows.length; ordinal++) {
+            int mask = rows[ordinal].getPlayerMask(column);
+            while (mask != 0) {
+                byCount[Integer.numberOfTrailingZeros(mask)].set(ordinal);
+                mask &= mask - 1;
+            }
+        }
+        return byCount;
+    }
+
+    /**
+     * Makes this version's bitmaps for a column from the previous version's: the bits of the
+     * rows kept move with their rows, and only the games coming have their counts read.
+     *
+     * @param column   the player count column
+     * @param previous the previous version's bitmaps, indexed by count
+     * @param moves    the blocks of rows kept, as {from, to, length}
+     * @param coming   the games put in
+     * @return the bitmaps, indexed by count
+     */
+    private BitSet[] moveBitmaps(GameData column, BitSet[] previous, List<int[]> moves, List<BoardGame> coming) {
+        BitSet[] byCount = new BitSet[previous.length];
+        for (int count = 0; count < byCount.length; count++) {
+            long[] from = previous[count].toLongArray();
+            long[] to = new long[(rows.length + 63) >>> 6];
+            for (int[] move : moves) {
+                copyBits(from, move[0], to, move[1], move[2]);
+            }
+            byCount[count] = BitSet.valueOf(to);
+        }
+        for (BoardGame game : coming) {
+            int ordinal = ordinalOf(game);
+            int mask = game.getPlayerMask(column);
+            while (mask != 0) {
+                byCount[Integer.numberOfTrailingZeros(mask)].set(ordinal);
+                mask &= mask - 1;
+            }
+        }
+        return byCount;
+    }
+
+    /**
+     * Copies a run of bits between bitmap words, up to a word at a time. The bits copied to
+     * must be clear.
+     *
+     * @param from   the words to copy from, bits past the end are clear
+     * @param src    the first bit to copy
+     * @param to     the words to copy to
+     * @param dst    where the first bit goes
+     * @param length the number of bits
+     */
+    private static void copyBits(long[] from, int src, long[] to, int dst, int length) {
+        int end = Math.min(src + length, from.length << 6);
+        while (src < end) {
+            int count = Math.min(end - src, Math.min(64 - (src & 63), 64 - (dst & 63)));
+            long bits = from[src >>> 6] >>> (src & 63);
+            if (count < 64) {
+                bits &= (1L << count) - 1;
+            }
+            to[dst >>> 6] |= bits << (dst & 63);
+            src += count;
+            dst += count;
+        }
+    }
+
+    /**
+     * Gets the row ordinal of a game.
+     *
+     * @param game the game to look up
+     * @return its ordinal, or -1 if it is not in the catalog
+     */
+    public int ordinalOf(BoardGame game) {
+        int ordinal = Arrays.binarySearch(rows, game, ROW_ORDER);
+        return ordinal >= 0 && rows[ordinal].equals(game) ? ordinal : -1;
+    }
+
+    /**
+     * Finds a game by name, ignoring case.
+     *
+     * @param name the game name
+     * @return the game, or null if no game has that name
+     */
+    public BoardGame findByName(String name) {
+        BoardGame[] games = byName.get(name.toLowerCase());
+        return games == null ? null : games[0];
+    }
+
+    /**
+     * Finds a game by its id.
+     *
+     * @param id the game id
+     * @return the game, or null if no game has that id
+     */
+    public BoardGame findById(int id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Resolves a batch of names against the name index in a single pass.
+     *
+     * Blank names are skipped, names are trimmed and matched ignoring case.
+     *
+     * @param names the names to resolve
+     * @return the games found, and the names that did not match, both in input order
+     */
+    public Resolved resolveNames(Stream<String> names) {
+        Resolved resolved = new Resolved();
+        names.map(String::trim).filter(name -> !name.isEmpty()).forEach(name -> {
+            BoardGame game = findByName(name);
+            if (game != null) {
+                resolved.games.add(game);
+            } else {
+                resolved.unknown.add(name);
+            }
+        });
+        return resolved;
+    }
+
+    /**
+     * Resolves a batch of ids against the id index in a single pass.
+     *
+     * @param ids the ids to resolve
+     * @return the games found, and the ids that did not match (as #id), both in input order
+     */
+    public Resolved resolveIds(int[] ids) {
+        Resolved resolved = new Resolved();
+        for (int id : ids) {
+            BoardGame game = findById(id);
+            if (game != null) {
+                resolved.games.add(game);
+            } else {
+                resolved.unknown.add("#" + id);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * The result of resolving a batch of entries.
+     */
+    public static final class Resolved {
+        /** entries that matched a game. */
+        private final List<BoardGame> games = new ArrayList<>();
+        /** entries that did not match. */
+        private final List<String> unknown = new ArrayList<>();
+
+        /**
+         * Creates an empty result, filled in by the catalog.
+         */
+        private Resolved() {
+        }
+
+        /**
+         * Creates a result from entries resolved elsewhere, such as a replayed journal.
+         *
+         * @param games   the games found
+         * @param unknown the entries that did not match
+         */
+        Resolved(List<BoardGame> games, List<String> unknown) {
+            this.games.addAll(games);
+            this.unknown.addAll(unknown);
+        }
+
+        /**
+         * Gets the games that were found.
+         *
+         * @return the games, in input order
+         */
+        public List<BoardGame> getGames() {
+            return games;
+        }
+
+        /**
+         * Gets the entries that did not match a game.
+         *
+         * @return the unknown entries, in input order
+         */
+        public List<String> getUnknown() {
+            return unknown;
+        }
+    }
+}
@@ -1,16 +1,42 @@
 package student;
 
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Factory class for creating comparators to sort BoardGame objects.
  * Provides comparators for different columns and sorting directions.
+ * Games that tie on the column are ordered by name and then id, so a sort
+ * gives the same order whatever order the games came in.
+ * 
+ * Numeric columns compare primitives (no boxing per comparison), and every
+ * comparator is built once and shared. Games without a value in an extra int
+ * column sort first, as {@link BoardGame#MISSING} is the lowest int.
  */
 public final class GameComparator {
+    /** breaks ties on the sort column, the same way in either direction. */
+    private static final Comparator<BoardGame> TIE_BREAK = Comparator
+            .comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(BoardGame::getName)
+            .thenComparingInt(BoardGame::getId);
+    /** ascending comparator per column. */
+    private static final Map<GameData, Comparator<BoardGame>> ASCENDING = new EnumMap<>(GameData.class);
+    /** descending comparator per column. */
+    private static final Map<GameData, Comparator<BoardGame>> DESCENDING = new EnumMap<>(GameData.class);
+
+    static {
+        for (GameData column : GameData.values()) {
+            Comparator<BoardGame> comparator = column(column);
+            ASCENDING.put(column, comparator.thenComparing(TIE_BREAK));
+            DESCENDING.put(column, comparator.reversed().thenComparing(TIE_BREAK));
+        }
+    }
 
     private GameComparator() {
         throw new AssertionError("Cannot instantiate GameComparator");
     }
+
     /**
      * Creates a comparator for BoardGame objects based on the specified column and sort direction.
      * 
@@ -19,42 +45,46 @@ public final class GameComparator {
      * @return A comparator for BoardGame objects
      */
     public static Comparator<BoardGame> createComparator(GameData column, boolean ascending) {
-        Comparator<BoardGame> comparator;
-        
+        return (ascending ? ASCENDING : DESCENDING).get(column);
+    }
+
+    /**
+     * Compares on a single column, ascending.
+     * 
+     * @param column The column to sort on
+     * @return A comparator for BoardGame objects
+     */
+    private static Comparator<BoardGame> column(GameData column) {
         switch (column) {
-            case NAME:
-                comparator = Comparator.comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER);
-                break;
             case RATING:
-                comparator = Comparator.comparing(BoardGame::getRating);
-                break;
+                return Comparator.comparingDouble(BoardGame::getRating);
             case DIFFICULTY:
-                comparator = Comparator.comparing(BoardGame::getDifficulty);
-                break;
+                return Comparator.comparingDouble(BoardGame::getDifficulty);
             case RANK:
-                comparator = Comparator.comparing(BoardGame::getRank);
-                break;
+                return Comparator.comparingInt(BoardGame::getRank);
             case MIN_PLAYERS:
-                comparator = Comparator.comparing(BoardGame::getMinPlayers);
-                break;
+                return Comparator.comparingInt(BoardGame::getMinPlayers);
             case MAX_PLAYERS:
-                comparator = Comparator.comparing(BoardGame::getMaxPlayers);
-                break;
+                return Comparator.comparingInt(BoardGame::getMaxPlayers);
             case MIN_TIME:
-                comparator = Comparator.comparing(BoardGame::getMinPlayTime);
-                break;
+                return Comparator.comparingInt(BoardGame::getMinPlayTime);
             case MAX_TIME:
-                comparator = Comparator.comparing(BoardGame::getMaxPlayTime);
-                break;
+                return Comparator.comparingInt(BoardGame::getMaxPlayTime);
             case YEAR:
-                comparator = Comparator.comparing(BoardGame::getYearPublished);
-                break;
+                return Comparator.comparingInt(BoardGame::getYearPublished);
+            case NUM_OWNED:
+            case PLAYING_TIME:
+                return Comparator.comparingInt(game -> game.getExtraInt(column));
+            case BEST:
+            case REC:
+                // fewest players first, games without counts last
+                return Comparator.comparingInt(game -> Integer.numberOfTrailingZeros(game.getPlayerMask(column)));
+            case LANGUAGE_DEPENDENCE:
+                return Comparator.comparing(game -> game.getExtraText(column), String.CASE_INSENSITIVE_ORDER);
+            case NAME:
             default:
                 // Default to sorting by name
-                comparator = Comparator.comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER);
+                return Comparator.comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER);
         }
-        
-        // Reverse the comparator if descending order is requested
-        return ascending ? comparator : comparator.reversed();
     }
 }
@@ -22,10 +22,18 @@ public enum GameData {
     /** Enums based on whole int values in the csv file. */
     RANK("rank"), MIN_PLAYERS("minplayers"), MAX_PLAYERS("maxplayers"),
     /** More int based columns. */
-    MIN_TIME("minplaytime"), MAX_TIME("maxplaytime"), YEAR("yearpublished");
+    MIN_TIME("minplaytime"), MAX_TIME("maxplaytime"), YEAR("yearpublished"),
+    /** Extra int columns, only read from the file once a filter or sort uses them. */
+    NUM_OWNED("numowned", true), PLAYING_TIME("playingtime", true),
+    /** Extra player count columns, read the same way and kept as {@link PlayerCounts} masks. */
+    BEST("bggbestplayers", true), REC("bggrecplayers", true),
+    /** Extra text columns, read the same way and kept dictionary encoded. */
+    LANGUAGE_DEPENDENCE("bgglanguagedependence", true);
 
     /** stores the original csv name in the enum. */
     private final String columnName;
+    /** true for a column not held in BoardGame, see {@link BoardGame#getExtraInt}. */
+    private final boolean extra;
 
     /**
      * Constructor for the enum.
@@ -33,7 +41,27 @@ public enum GameData {
      * @param columnName the name of the column in the CSV file.
      */
     GameData(String columnName) {
+        this(columnName, false);
+    }
+
+    /**
+     * Constructor for the enum.
+     * 
+     * @param columnName the name of the column in the CSV file.
+     * @param extra true if the column is only read when first used
+     */
+    GameData(String columnName, boolean extra) {
         this.columnName = columnName;
+        this.extra = extra;
+    }
+
+    /**
+     * Checks if the column is an extra one, read from the file the first time it is used.
+     * 
+     * @return true for an extra column
+     */
+    public boolean isExtra() {
+        return extra;
     }
 
     /**
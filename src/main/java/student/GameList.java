@@ -1,9 +1,13 @@
 package student;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import student.metrics.ListEvent;
+import student.metrics.Metrics;
+
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -12,8 +16,13 @@ import java.util.stream.Stream;
  * that a user wants to play.
  */
 public class GameList implements IGameList {
+    /** list order, built once. */
+    private static final Comparator<BoardGame> BY_NAME =
+            Comparator.comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER);
     /** recording the games. */
     private final Set<BoardGame> games;
+    /** journal of changes, null if the list is not journaled. */
+    private final GameListJournal journal;
     
     /**
      * Constructor for the GameList.
@@ -21,6 +30,25 @@ public class GameList implements IGameList {
      */
     public GameList() {
         this.games = new HashSet<>();
+        this.journal = null;
+    }
+
+    /**
+     * Constructor for a journaled GameList.
+     * 
+     * Replays the journal to get back the list from the last run, and from then on
+     * records every change in the journal. Saving to the journal's snapshot file only
+     * syncs the journal.
+     * 
+     * @param journal the journal to replay and record changes in
+     * @param catalog all the games, used to resolve the journal entries
+     */
+    public GameList(GameListJournal journal, GameCatalog catalog) {
+        this.games = new HashSet<>(journal.replay(catalog));
+        this.journal = journal;
+        if (journal.needsCompaction()) {
+            journal.compact(getGameNames());
+        }
     }
 
     /**
@@ -41,7 +69,17 @@ public class GameList implements IGameList {
      */
     @Override
     public void clear() {
+        ListEvent event = new ListEvent();
+        event.begin();
+        long start = Metrics.start();
+        int before = games.size();
+        Metrics.add(Metrics.Counter.LIST_CHANGES, before);
         games.clear();
+        if (journal != null) {
+            journal.cleared();
+        }
+        Metrics.stop(Metrics.Stage.LIST, start);
+        commit(event, "clear", null, before);
     }
 
     /**
@@ -58,126 +96,259 @@ public class GameList implements IGameList {
      * Saves the list of games to a file.
      * Each game name is written on a new line.
      * 
+     * If the list is journaled and the file is the journal's snapshot, only the
+     * changes since the last save are synced, and the snapshot is rewritten once
+     * the journal is long enough to compact. Loading the file replays the journal on
+     * top of the snapshot, so it reads what was saved.
+     * 
      * @param filename The name of the file to save the list to
      */
     @Override
     public void saveGame(String filename) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-            List<String> gameNames = getGameNames();
-            for (String name : gameNames) {
-                writer.write(name);
-                writer.newLine();
+        if (journal != null && journal.isSnapshot(filename)) {
+            journal.commit();
+            if (journal.needsCompaction()) {
+                journal.compact(getGameNames());
             }
+            return;
+        }
+        try {
+            AsyncListWriter.writeAtomically(Path.of(filename), getGameNames());
         } catch (IOException e) {
-            System.out.println("Error saving game List" + e.getMessage());
+            throw new UncheckedIOException("Error saving game list " + filename, e);
         }
     }
 
+    /**
+     * Hands the current list to the shared background writer.
+     * 
+     * @param filename The name of the file to save the list to
+     * @return a future completed once the file is written
+     */
+    @Override
+    public CompletableFuture<Void> saveGameAsync(String filename) {
+        if (journal != null && journal.isSnapshot(filename)) {
+            try {
+                saveGame(filename);
+                return CompletableFuture.completedFuture(null);
+            } catch (UncheckedIOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return AsyncListWriter.getDefault().submit(Path.of(filename), getGameNames());
+    }
+
     /**
      * Adds a game or games to the list based on the provided string.
      * 
+     * Numbers refer to the encounter order of the stream.
+     * 
      * @param str The string to parse and add games to the list
      * @param filtered The filtered list to use as a basis for adding
      * @throws IllegalArgumentException if the string is not valid
      */
     @Override
     public void addToList(String str, Stream<BoardGame> filtered) throws IllegalArgumentException {
-        if (str == null || str.trim().isEmpty()) {
-            throw new IllegalArgumentException("Input string cannot be empty!");
-        }
+        addToList(str, FilterResult.of(filtered));
+    }
 
-        str = str.trim().toLowerCase();
-        if (str.equals(ADD_ALL)) {
-            filtered.forEach(games::add);
+    /**
+     * Adds a game or games to the list, indexing directly into the filter result.
+     * 
+     * @param str The string to parse and add games to the list
+     * @param filtered The filter result, in the order it was displayed
+     * @throws IllegalArgumentException if the string is not valid
+     */
+    @Override
+    public void addToList(String str, FilterResult filtered) throws IllegalArgumentException {
+        ListEvent event = new ListEvent();
+        event.begin();
+        long start = Metrics.start();
+        int before = games.size();
+        select(str, filtered.asList()).forEach(this::add);
+        Metrics.stop(Metrics.Stage.LIST, start);
+        commit(event, "add", str, before);
+    }
+
+    /**
+     * Removes a game or games from the list based on the provided string.
+     * 
+     * @param str The string to parse and remove games from the list
+     * @throws IllegalArgumentException if the string is not valid
+     */
+    @Override
+    public void removeFromList(String str) throws IllegalArgumentException {
+        if (str != null && str.trim().equalsIgnoreCase(ADD_ALL)) {
+            clear();
             return;
         }
+        ListEvent event = new ListEvent();
+        event.begin();
+        long start = Metrics.start();
+        int before = games.size();
+        List<BoardGame> gameList = new ArrayList<>(games);
+        gameList.sort(BY_NAME);
+        select(str, gameList).forEach(this::remove);
+        Metrics.stop(Metrics.Stage.LIST, start);
+        commit(event, "remove", str, before);
+    }
 
-        List<BoardGame> filteredList = new ArrayList<>(filtered.collect(Collectors.toList()));
-        filteredList.sort(Comparator.comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER));
+    /**
+     * Loads a saved list and adds its games to this list.
+     * 
+     * Works with both the text format from saveGame and the binary id format
+     * (see {@link GameListFiles}). The file is streamed and resolved against the
+     * catalog indexes in one pass.
+     * 
+     * @param filename the file to load
+     * @param catalog the catalog to resolve the entries against
+     * @return the entries that did not match a game, in file order
+     */
+    @Override
+    public List<String> loadGame(String filename, GameCatalog catalog) {
+        ListEvent event = new ListEvent();
+        event.begin();
+        int before = games.size();
+        GameCatalog.Resolved resolved;
+        try {
+            resolved = GameListFiles.resolve(Path.of(filename), catalog);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error loading game list " + filename, e);
+        }
+        resolved.getGames().forEach(this::add);
+        commit(event, "load", filename, before);
+        return resolved.getUnknown();
+    }
 
-        if (str.matches("\\d+")) {
-            int index = Integer.parseInt(str) - 1;
-            if (index < 0 || index >= filteredList.size()) {
-                throw new IllegalArgumentException("Index out of bounds! " + str);
-            }
-            games.add(filteredList.get(index));
-        } else if (str.matches("\\d+-\\d+")) {
-            String[] parts = str.split("-");
-            int start = Integer.parseInt(parts[0]) - 1;
-            int end = Integer.parseInt(parts[1]) - 1;
+    /**
+     * Saves the list as a binary list of game ids, in the same order as getGameNames.
+     * 
+     * @param filename The name of the file to save the list to
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public void saveGameIds(String filename) {
+        int[] ids = games.stream()
+                .sorted(BY_NAME)
+                .mapToInt(BoardGame::getId).toArray();
+        try {
+            GameListFiles.writeIds(Path.of(filename), ids);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error saving game list " + filename, e);
+        }
+    }
 
-            if (start < 0 || start > end || end >= filteredList.size()) {
-                throw new IllegalArgumentException("Index range! " + str);
+    /**
+     * Adds a game, recording it in the journal if it was not already there.
+     * 
+     * @param game the game to add
+     */
+    private void add(BoardGame game) {
+        if (games.add(game)) {
+            Metrics.add(Metrics.Counter.LIST_CHANGES, 1);
+            if (journal != null) {
+                journal.added(game);
             }
+        }
+    }
 
-            for (int i = start; i <= end; i++) {
-                games.add(filteredList.get(i));
-            }
-        } else {
-            boolean found = false;
-            for (BoardGame game : filteredList) {
-                if (game.getName().toLowerCase().equals(str)) {
-                    games.add(game);
-                    found = true;
-                    break;
-                }
-            }
-            if (!found) {
-                throw new IllegalArgumentException("Game not found! " + str);
+    /**
+     * Removes a game, recording it in the journal if it was there.
+     * 
+     * @param game the game to remove
+     */
+    private void remove(BoardGame game) {
+        if (games.remove(game)) {
+            Metrics.add(Metrics.Counter.LIST_CHANGES, 1);
+            if (journal != null) {
+                journal.removed(game);
             }
         }
     }
 
     /**
-     * Removes a game or games from the list based on the provided string.
+     * Fills in and commits a list event, if flight recording wants it.
      * 
-     * @param str The string to parse and remove games from the list
+     * @param event the event started when the change began
+     * @param operation add, remove, clear or load
+     * @param argument what the client asked for, may be null
+     * @param before games in the list before the change
+     */
+    private void commit(ListEvent event, String operation, String argument, int before) {
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.argument = argument;
+            event.changed = Math.abs(games.size() - before);
+            event.size = games.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Picks the games a list command refers to out of an ordered list.
+     * 
+     * Handles "all", a single 1 based number, a range of numbers (#-#), or a
+     * game name (case insensitive). Ranges are returned as views of the ordered
+     * list, so nothing is copied.
+     * 
+     * @param str the string to parse
+     * @param ordered the games, in the order the client sees them
+     * @return the games the string refers to
      * @throws IllegalArgumentException if the string is not valid
      */
-    @Override
-    public void removeFromList(String str) throws IllegalArgumentException {
+    static List<BoardGame> select(String str, List<BoardGame> ordered)
+            throws IllegalArgumentException {
         if (str == null || str.trim().isEmpty()) {
             throw new IllegalArgumentException("Input string cannot be empty!");
         }
 
         str = str.trim().toLowerCase();
         if (str.equals(ADD_ALL)) {
-            games.clear();
-            return;
+            return ordered;
         }
 
-        List<BoardGame> gameList = new ArrayList<>(games);
-        gameList.sort(Comparator.comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER));
-
-        if (str.matches("\\d+")) {
+        int dash = str.indexOf('-');
+        if (isDigits(str, 0, str.length())) {
             int index = Integer.parseInt(str) - 1;
-            if (index < 0 || index >= gameList.size()) {
+            if (index < 0 || index >= ordered.size()) {
                 throw new IllegalArgumentException("Index out of bounds! " + str);
             }
-            games.remove(gameList.get(index));
-        } else if (str.matches("\\d+-\\d+")) {
-            String[] parts = str.split("-");
-            int start = Integer.parseInt(parts[0]) - 1;
-            int end = Integer.parseInt(parts[1]) - 1;
-            if (start < 0 || start > end || end >= gameList.size()) {
+            return ordered.subList(index, index + 1);
+        } else if (isDigits(str, 0, dash) && isDigits(str, dash + 1, str.length())) {
+            int start = Integer.parseInt(str, 0, dash, 10) - 1;
+            int end = Integer.parseInt(str, dash + 1, str.length(), 10) - 1;
+
+            if (start < 0 || start > end || end >= ordered.size()) {
                 throw new IllegalArgumentException("Index range! " + str);
             }
+            return ordered.subList(start, end + 1);
+        }
 
-            for (int i = start; i <= end; i++) {
-                games.remove(gameList.get(i));
-            }
-        } else {
-            boolean found = false;
-            for (BoardGame game : new ArrayList<>(gameList)) {
-                if (game.getName().toLowerCase().equals(str)) {
-                    games.remove(game);
-                    found = true;
-                    break;
-                }
+        for (BoardGame game : ordered) {
+            if (game.getName().equalsIgnoreCase(str)) {
+                return List.of(game);
             }
-            if (!found) {
-                throw new IllegalArgumentException("Game not found! " + str);
+        }
+        throw new IllegalArgumentException("Game not found! " + str);
+    }
+
+    /**
+     * Checks if part of a string is one or more ASCII digits, without a regular expression.
+     * 
+     * @param str the string
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @return true if the part is not empty and all digits
+     */
+    private static boolean isDigits(String str, int from, int to) {
+        if (from < 0 || from >= to) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
             }
         }
+        return true;
     }
 }
@@ -0,0 +1,129 @@
+package student;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Reading and writing saved game list files.
+ *
+ * A list is either the text format written by {@link IGameList#saveGame(String)} (one game
+ * name per line) or a compact binary format of catalog ids:
+ *
+ * <pre>
+ * 'B' 'G' 'L' '1'    magic
+ * int count          number of ids, big endian
+ * int id * count     the game ids
+ * </pre>
+ *
+ * The two are told apart by the magic bytes, so either can be loaded from any file name.
+ * A text list with a {@link GameListJournal} next to it is read with the journal applied.
+ */
+public final class GameListFiles {
+    /** first bytes of a binary id list. */
+    private static final byte[] MAGIC = {'B', 'G', 'L', '1'};
+    /** bytes before the ids: the magic and the count. */
+    private static final int HEADER = MAGIC.length + Integer.BYTES;
+
+    /** private constructor to prevent instantiation. */
+    private GameListFiles() {
+    }
+
+    /**
+     * Checks if the file is a binary id list.
+     *
+     * @param file the file to check
+     * @return true if the file starts with the binary magic
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isIdList(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return Arrays.equals(MAGIC, in.readNBytes(MAGIC.length));
+        }
+    }
+
+    /**
+     * Reads a list in either format and resolves it against the catalog in one pass. A
+     * journaled list is read as of its last journal record, not its last compaction.
+     *
+     * @param file    the file to read
+     * @param catalog the catalog to resolve names or ids against
+     * @return the games found and the entries that did not match
+     * @throws IOException if the file cannot be read
+     */
+    public static GameCatalog.Resolved resolve(Path file, GameCatalog catalog) throws IOException {
+        if (Files.exists(GameListJournal.journalOf(file))) {
+            return GameListJournal.read(file, catalog);
+        }
+        if (isIdList(file)) {
+            return catalog.resolveIds(readIds(file));
+        }
+        try (Stream<String> names = readNames(file)) {
+            return catalog.resolveNames(names);
+        }
+    }
+
+    /**
+     * Streams the names in a text list. The stream must be closed to release the file.
+     *
+     * @param file the file to read
+     * @return the lines of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static Stream<String> readNames(Path file) throws IOException {
+        return Files.lines(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the ids in a binary list.
+     *
+     * @param file the file to read
+     * @return the ids, in file order
+     * @throws IOException if the file cannot be read, is not a binary list, or its count
+     *                     is more than the file holds
+     */
+    public static int[] readIds(Path file) throws IOException {
+        long size = Files.size(file);
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (!Arrays.equals(MAGIC, in.readNBytes(MAGIC.length))) {
+                throw new IOException("Not a binary game list: " + file);
+            }
+            int count = in.readInt();
+            if (count < 0 || count > (size - HEADER) / Integer.BYTES) {
+                throw new IOException("Corrupt binary game list: " + file);
+            }
+            int[] ids = new int[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = in.readInt();
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * Writes the ids as a binary list.
+     *
+     * @param file the file to write
+     * @param ids  the game ids
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeIds(Path file, int[] ids) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.write(MAGIC);
+            out.writeInt(ids.length);
+            for (int id : ids) {
+                out.writeInt(id);
+            }
+        }
+    }
+}
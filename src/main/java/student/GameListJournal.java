@@ -0,0 +1,348 @@
+package student;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Write-ahead journal for a game list.
+ *
+ * The list lives in two files: a snapshot (the normal games list file, one name per line)
+ * and a journal next to it (same name plus {@value #SUFFIX}) with every add, remove and clear
+ * since the snapshot was written. Each change appends one short line, so saving costs
+ * O(changes) instead of rewriting the whole list. The journal is forced to disk in batches
+ * of {@value #SYNC_EVERY} records, and always on {@link #commit()}.
+ *
+ * On startup {@link #replay(GameCatalog)} reads the snapshot and applies the journal to get
+ * the list back. Once the journal grows past {@value #COMPACT_AFTER} records it is folded
+ * into a new snapshot and truncated.
+ *
+ * Journal lines look like:
+ *
+ * <pre>
+ * +174430	Gloomhaven
+ * -13	Catan
+ * !
+ * </pre>
+ *
+ * A line that was only partly written when the process died has no newline and is ignored.
+ * Replaying the journal on top of a newer snapshot gives the same list, so a crash between
+ * writing the snapshot and truncating the journal is safe.
+ */
+public final class GameListJournal implements Closeable {
+    /** added to the snapshot file name to get the journal file name. */
+    public static final String SUFFIX = ".journal";
+    /** number of records written before the journal is forced to disk. */
+    static final int SYNC_EVERY = 64;
+    /** number of records in the journal before it is compacted into the snapshot. */
+    static final int COMPACT_AFTER = 1024;
+
+    /** marks an add record. */
+    private static final char ADD = '+';
+    /** marks a remove record. */
+    private static final char REMOVE = '-';
+    /** marks a clear record. */
+    private static final char CLEAR = '!';
+
+    /** the snapshot file. */
+    private final Path snapshot;
+    /** the journal file. */
+    private final Path journal;
+    /** open channel on the journal, appending. */
+    private final FileChannel channel;
+    /** records written since the last force. */
+    private int unsynced;
+    /** records in the journal since the last compaction. */
+    private int records;
+
+    /**
+     * Opens (or creates) the journal for the given snapshot file.
+     *
+     * @param snapshot the games list file the journal belongs to
+     * @throws UncheckedIOException if the journal cannot be opened
+     */
+    public GameListJournal(Path snapshot) {
+        this.snapshot = snapshot.toAbsolutePath().normalize();
+        this.journal = journalOf(this.snapshot);
+        try {
+            this.channel = FileChannel.open(journal, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open journal " + journal, e);
+        }
+    }
+
+    /**
+     * Gets the journal file that goes with a snapshot.
+     *
+     * @param snapshot the games list file
+     * @return the file next to it, named with {@value #SUFFIX} added
+     */
+    public static Path journalOf(Path snapshot) {
+        return snapshot.resolveSibling(snapshot.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Reads a journaled list without taking over its journal, such as for list load of a
+     * file another list keeps. The snapshot alone is behind by every change since it was
+     * last compacted, so the journal is applied on top of it. A torn last record is left
+     * for the journal's owner.
+     *
+     * @param snapshot the games list file
+     * @param catalog  all the games that can be in the list
+     * @return the games in the list, and the snapshot names that did not match
+     * @throws IOException if the files cannot be read
+     */
+    public static GameCatalog.Resolved read(Path snapshot, GameCatalog catalog) throws IOException {
+        GameCatalog.Resolved fromSnapshot;
+        if (Files.exists(snapshot)) {
+            try (Stream<String> names = GameListFiles.readNames(snapshot)) {
+                fromSnapshot = catalog.resolveNames(names);
+            }
+        } else {
+            fromSnapshot = new GameCatalog.Resolved(List.of(), List.of());
+        }
+        Set<BoardGame> games = new LinkedHashSet<>(fromSnapshot.getGames());
+        byte[] bytes = Files.readAllBytes(journalOf(snapshot));
+        applyRecords(new String(bytes, 0, completeLength(bytes), StandardCharsets.UTF_8), games, catalog);
+        return new GameCatalog.Resolved(new ArrayList<>(games), fromSnapshot.getUnknown());
+    }
+
+    /**
+     * Checks if a file name refers to this journal's snapshot.
+     *
+     * @param filename the file name to check
+     * @return true if saving to that file can go through the journal
+     */
+    public boolean isSnapshot(String filename) {
+        return snapshot.equals(Path.of(filename).toAbsolutePath().normalize());
+    }
+
+    /**
+     * Rebuilds the list from the snapshot and the journal.
+     *
+     * Journal records are resolved by id, snapshot lines by name (ignoring case). Entries
+     * that are no longer in the catalog are dropped.
+     *
+     * @param catalog all the games that can be in the list
+     * @return the games in the list, as of the last record on disk
+     * @throws UncheckedIOException if the files cannot be read
+     */
+    public Set<BoardGame> replay(GameCatalog catalog) {
+        Set<BoardGame> games = new LinkedHashSet<>();
+        try {
+            if (Files.exists(snapshot)) {
+                try (Stream<String> names = GameListFiles.readNames(snapshot)) {
+                    games.addAll(catalog.resolveNames(names).getGames());
+                }
+            }
+            byte[] bytes = Files.readAllBytes(journal);
+            int end = completeLength(bytes);
+            if (end < bytes.length) {
+                // drop a torn record so the next append starts on a fresh line
+                channel.truncate(end);
+            }
+            records = applyRecords(new String(bytes, 0, end, StandardCharsets.UTF_8), games, catalog);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to replay journal " + journal, e);
+        }
+        return games;
+    }
+
+    /**
+     * Gets the length of the complete records in journal bytes.
+     *
+     * @param bytes the journal
+     * @return the length up to and including the last newline
+     */
+    private static int completeLength(byte[] bytes) {
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] != '\n') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Applies the journal records to the games read from the snapshot.
+     *
+     * @param content the complete journal records
+     * @param games   the games so far, updated in place
+     * @param catalog the catalog to resolve records against
+     * @return the number of records
+     */
+    private static int applyRecords(String content, Set<BoardGame> games, GameCatalog catalog) {
+        int records = 0;
+        for (String line : content.split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            records++;
+            if (line.charAt(0) == CLEAR) {
+                games.clear();
+                continue;
+            }
+            BoardGame game = resolve(line, catalog);
+            if (game == null) {
+                continue;
+            }
+            if (line.charAt(0) == ADD) {
+                games.add(game);
+            } else if (line.charAt(0) == REMOVE) {
+                games.remove(game);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Finds the game an add or remove record refers to, by id and then by name.
+     *
+     * @param line    the record
+     * @param catalog the catalog to resolve against
+     * @return the game, or null if it is not in the catalog
+     */
+    private static BoardGame resolve(String line, GameCatalog catalog) {
+        int tab = line.indexOf('\t');
+        if (tab < 0) {
+            return null;
+        }
+        try {
+            BoardGame game = catalog.findById(Integer.parseInt(line.substring(1, tab)));
+            if (game != null) {
+                return game;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to the name
+        }
+        return catalog.findByName(line.substring(tab + 1));
+    }
+
+    /**
+     * Records that a game was added.
+     *
+     * @param game the game added
+     */
+    public void added(BoardGame game) {
+        append(ADD + Integer.toString(game.getId()) + '\t' + clean(game.getName()) + '\n');
+    }
+
+    /**
+     * Records that a game was removed.
+     *
+     * @param game the game removed
+     */
+    public void removed(BoardGame game) {
+        append(REMOVE + Integer.toString(game.getId()) + '\t' + clean(game.getName()) + '\n');
+    }
+
+    /**
+     * Records that the list was cleared.
+     */
+    public void cleared() {
+        append(CLEAR + "\n");
+    }
+
+    /**
+     * Forces every record written so far to disk.
+     *
+     * @throws UncheckedIOException if the journal cannot be synced
+     */
+    public void commit() {
+        if (unsynced == 0) {
+            return;
+        }
+        try {
+            channel.force(false);
+            unsynced = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to sync journal " + journal, e);
+        }
+    }
+
+    /**
+     * Checks if the journal has grown enough that it should be compacted.
+     *
+     * @return true if {@link #compact(List)} should be called
+     */
+    public boolean needsCompaction() {
+        return records >= COMPACT_AFTER;
+    }
+
+    /**
+     * Writes the current list as the new snapshot and empties the journal.
+     *
+     * The snapshot is written to a temporary file and moved over the old one (see
+     * {@link AsyncListWriter#writeAtomically}), so the snapshot on disk is always complete.
+     *
+     * @param names the game names currently in the list, in save order
+     * @throws UncheckedIOException if the snapshot cannot be written
+     */
+    public void compact(List<String> names) {
+        try {
+            AsyncListWriter.writeAtomically(snapshot, names);
+            channel.truncate(0);
+            channel.force(true);
+            records = 0;
+            unsynced = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to compact journal " + journal, e);
+        }
+    }
+
+    /**
+     * Commits anything outstanding and closes the journal.
+     *
+     * @throws IOException if the journal cannot be synced or closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            commit();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Appends a record, forcing the journal to disk once a batch is full.
+     *
+     * @param record the record, ending in a newline
+     * @throws UncheckedIOException if the record cannot be written
+     */
+    private void append(String record) {
+        ByteBuffer buf = StandardCharsets.UTF_8.encode(record);
+        try {
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write journal " + journal, e);
+        }
+        records++;
+        if (++unsynced >= SYNC_EVERY) {
+            commit();
+        }
+    }
+
+    /**
+     * Keeps names on one line.
+     *
+     * @param name the game name
+     * @return the name without line breaks
+     */
+    private static String clean(String name) {
+        return name.replace('\n', ' ').replace('\r', ' ');
+    }
+}
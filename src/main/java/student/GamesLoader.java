@@ -1,28 +1,69 @@
 package student;
 
-import java.io.BufferedReader;
+import student.metrics.LoadEvent;
+import student.metrics.Metrics;
+
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Loads the games from the csv file into a set of BoardGame objects.
  * This file is stored in the resources folder, and while it is
  * passed in - often tends to be more fixed.
  * 
- * It assumes there are no comma's in the data (and does not handle errors if
- * there are extra commas like in the name).
+ * Fields follow RFC 4180: a field may be quoted, and a quoted field may hold commas, line
+ * breaks and quotes written twice (""). Lines without a quote, which is nearly all of them,
+ * are cut up in place without copying; only quoted lines go through the quote aware parser.
+ * Lines that still do not parse are skipped, counted, and reported.
+ * 
+ * For exports too big to hold twice, {@link #stream(Path, Progress)} parses the file one
+ * line at a time as the stream is pulled, so the loader itself only ever holds one line;
+ * what is kept is up to the consumer.
+ * 
+ * Input may be gzip or zlib compressed (such as collection.csv.gz); it is recognised by its
+ * first bytes and decompressed on a separate thread as it is parsed.
+ * 
+ * Of the other columns, only where each row starts is noted while loading a file or
+ * resource; an extra column such as numowned is read from the file the first time it is
+ * used (see {@link ExtraColumns}).
  * 
  */
 public final class GamesLoader {
     /** Standard csv delim. */
-    private static final String DELIMITER = ",";
+    private static final char DELIMITER = ',';
+    /** csv quote. */
+    private static final char QUOTE = '"';
+    /** most lines one quoted record may span. */
+    private static final int MAX_RECORD_LINES = 16;
+    /** most characters read ahead looking for the end of a quoted record. */
+    private static final int MAX_RECORD_CHARS = 1 << 16;
+    /** the columns a BoardGame is built from, in constructor order. */
+    private static final GameData[] FIELDS = {
+        GameData.NAME, GameData.ID, GameData.MIN_PLAYERS, GameData.MAX_PLAYERS, GameData.MIN_TIME,
+        GameData.MAX_TIME, GameData.DIFFICULTY, GameData.RANK, GameData.RATING, GameData.YEAR,
+    };
+
+    /** rows between progress reports. */
+    private static final int PROGRESS_EVERY = 1 << 16;
 
     /** private constructor to prevent instantiation. */
     private GamesLoader() {
@@ -31,68 +72,540 @@ public final class GamesLoader {
     /**
      * Loads the games from the csv file into a set of BoardGame objects.
      * 
+     * The file is looked up in the resources first, then as a path on disk.
+     * 
      * @param filename the name of the file to load
      * @return a set of BoardGame objects
      */
     public static Set<BoardGame> loadGamesFile(String filename) {
+        LoadEvent event = new LoadEvent();
+        event.begin();
+        long start = Metrics.start();
+        long[] rejected = {0};
+        Set<BoardGame> games = readGames(filename, rejected);
+        Metrics.stop(Metrics.Stage.LOAD, start);
+        Metrics.add(Metrics.Counter.GAMES_LOADED, games.size());
+        if (rejected[0] > 0) {
+            System.err.println("Skipped " + rejected[0] + " rows of " + filename + " that did not parse");
+        }
+        if (event.shouldCommit()) {
+            event.file = filename;
+            event.games = games.size();
+            event.rejected = rejected[0];
+            event.commit();
+        }
+        return games;
+    }
+
+    /**
+     * Reads and converts every line of the csv file, one line at a time.
+     * 
+     * @param filename the name of the file to load
+     * @param rejected gets the number of rows that did not parse
+     * @return a set of BoardGame objects
+     */
+    private static Set<BoardGame> readGames(String filename, long[] rejected) {
 
         Set<BoardGame> games = new HashSet<>();
 
-        List<String> lines;
+        // this is so we can store the files in the resources folder
+        InputStream is = GamesLoader.class.getResourceAsStream(filename);
+        ExtraColumns extras = ExtraColumns.ofResource(filename);
         try {
-            // this is so we can store the files in the resources folder
-            InputStream is = GamesLoader.class.getResourceAsStream(filename);
-            InputStreamReader isr = new InputStreamReader(is, StandardCharsets.UTF_8);
-            BufferedReader reader = new BufferedReader(isr);
-            lines = reader.lines().collect(Collectors.toList());
+            if (is == null && Files.isRegularFile(Path.of(filename))) {
+                // not a resource, such as a generated catalog for scale testing
+                extras = ExtraColumns.of(Path.of(filename));
+                is = Files.newInputStream(Path.of(filename));
+            }
+            if (is == null) {
+                throw new FileNotFoundException(filename);
+            }
+            try (Stream<BoardGame> stream = stream(CatalogInput.open(is),
+                    (read, skipped, bytes, done) -> rejected[0] = skipped, extras)) {
+                stream.forEach(games::add);
+            }
         } catch (Exception e) {
             System.err.println("Error reading file: " + e.getMessage());
-            return games;
         }
-        if (lines == null || lines.isEmpty()) {
-            return games;
+        return games;
+
+    }
+
+    /**
+     * Streams the games of a csv file, parsing each line only when the stream asks for the
+     * next game. Rows that are short, badly quoted or have a bad number are skipped and
+     * counted as rejected. Close the stream to close the file.
+     * 
+     * @param file     the csv file, plain, gzip or zlib
+     * @param progress told every 65536 lines and at the end, or null
+     * @return the games, in file order
+     * @throws UncheckedIOException if the file cannot be opened
+     */
+    public static Stream<BoardGame> stream(Path file, Progress progress) {
+        return stream(file, progress, ExtraColumns.of(file));
+    }
+
+    /**
+     * Streams the games of a csv file, noting their rows in extras.
+     * 
+     * @param file     the csv file, plain, gzip or zlib
+     * @param progress told every 65536 lines and at the end, or null
+     * @param extras   the file's extra columns, or null
+     * @return the games, in file order
+     * @throws UncheckedIOException if the file cannot be opened
+     */
+    static Stream<BoardGame> stream(Path file, Progress progress, ExtraColumns extras) {
+        try {
+            return stream(CatalogInput.open(Files.newInputStream(file)), progress, extras);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
+
+    /**
+     * Streams the games of plain csv input. Closing the stream closes the input. As the
+     * input cannot be read again, the games have no extra columns.
+     * 
+     * @param in       the csv input
+     * @param progress told every 65536 lines and at the end, or null
+     * @return the games, in input order
+     */
+    public static Stream<BoardGame> stream(InputStream in, Progress progress) {
+        return stream(in, progress, null);
+    }
 
-        Map<GameData, Integer> columnMap = processHeader(lines.remove(0));
+    /**
+     * Streams the games of plain csv input, noting their rows in extras.
+     * 
+     * @param in       the csv input
+     * @param progress told every 65536 lines and at the end, or null
+     * @param extras   the extra columns of where the input came from, or null
+     * @return the games, in input order
+     */
+    private static Stream<BoardGame> stream(InputStream in, Progress progress, ExtraColumns extras) {
+        GameSpliterator games = new GameSpliterator(in, progress, extras);
+        return StreamSupport.stream(games, false).onClose(games::close);
+    }
+
+    /**
+     * Told how far a stream of games has got.
+     */
+    @FunctionalInterface
+    public interface Progress {
+        /**
+         * Reports progress.
+         * 
+         * @param games    games read so far
+         * @param rejected lines skipped so far because they did not parse
+         * @param bytes    bytes of csv read so far (after decompressing), counted in buffer
+         *                 sized steps
+         * @param done     true for the last report, once the input is used up
+         */
+        void update(long games, long rejected, long bytes, boolean done);
+    }
 
-        games = lines.stream().map(line -> toBoardGame(line, columnMap))
-                .filter(game -> game != null).collect(Collectors.toSet());
+    /**
+     * Parses games out of csv input one line per advance.
+     */
+    private static final class GameSpliterator extends Spliterators.AbstractSpliterator<BoardGame> {
+        /** counts the bytes read. */
+        private final CountingInputStream counter;
+        /** the lines. */
+        private final LineNumberReader reader;
+        /** told how far the reading has got, or null. */
+        private final Progress progress;
+        /** gets where each game's row starts, or null. */
+        private final ExtraColumns extras;
+        /** for each column, which field it holds, or -1; null before the header is read. */
+        private int[] fields;
+        /** scratch space for where each field starts. */
+        private final int[] starts = new int[FIELDS.length];
+        /** scratch space for where each field ends. */
+        private final int[] ends = new int[FIELDS.length];
+        /** games read. */
+        private long games;
+        /** lines skipped. */
+        private long rejected;
+        /** set once the input is used up. */
+        private boolean done;
 
-        return games;
+        /**
+         * Creates the spliterator; nothing is read until the first advance.
+         * 
+         * @param in       the csv input
+         * @param progress told how far the reading has got, or null
+         * @param extras   gets where each game's row starts, or null
+         */
+        GameSpliterator(InputStream in, Progress progress, ExtraColumns extras) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.counter = new CountingInputStream(in);
+            this.reader = new LineNumberReader(new InputStreamReader(counter, StandardCharsets.UTF_8));
+            this.progress = progress;
+            this.extras = extras;
+        }
 
+        @Override
+        public boolean tryAdvance(Consumer<? super BoardGame> action) {
+            try {
+                if (fields == null && !done) {
+                    String header = reader.readLine();
+                    Map<GameData, Integer> columnMap = header == null ? Map.of() : processHeader(header);
+                    fields = fieldColumns(columnMap);
+                    if (fields == null) {
+                        finish();
+                    } else if (extras != null) {
+                        extras.setHeader(columnMap);
+                    }
+                }
+                String line;
+                while (!done && (line = reader.readLine()) != null) {
+                    int start = reader.getLineNumber();
+                    line = wholeRecord(line, reader);
+                    BoardGame game = toBoardGame(line, fields, starts, ends, extras);
+                    if (game == null) {
+                        rejected++;
+                        continue;
+                    }
+                    if (extras != null) {
+                        extras.add(start, game);
+                    }
+                    games++;
+                    if (progress != null && (games + rejected) % PROGRESS_EVERY == 0) {
+                        progress.update(games, rejected, counter.count, false);
+                    }
+                    action.accept(game);
+                    return true;
+                }
+                finish();
+                return false;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Marks the input used up, giving the last progress report once.
+         */
+        private void finish() {
+            if (!done) {
+                done = true;
+                Metrics.add(Metrics.Counter.ROWS_REJECTED, rejected);
+                if (progress != null) {
+                    progress.update(games, rejected, counter.count, true);
+                }
+            }
+        }
+
+        /**
+         * Closes the input.
+         */
+        void close() {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
     }
 
     /**
-     * Converts a line from the csv file into a BoardGame object.
+     * Counts the bytes read through it.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        /** bytes read so far. */
+        private long count;
+
+        /**
+         * Wraps a stream.
+         * 
+         * @param in the stream
+         */
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Finds the column of each field in {@link #FIELDS}.
      * 
-     * @param line      the line to convert
      * @param columnMap the map of columns to index
-     * @return a BoardGame object
+     * @return for each column of the file, which field it holds, or -1; null if a field is missing
+     */
+    private static int[] fieldColumns(Map<GameData, Integer> columnMap) {
+        int last = -1;
+        for (GameData field : FIELDS) {
+            Integer column = columnMap.get(field);
+            if (column == null) {
+                return null;
+            }
+            last = Math.max(last, column);
+        }
+        int[] fields = new int[last + 1];
+        Arrays.fill(fields, -1);
+        for (int i = 0; i < FIELDS.length; i++) {
+            fields[columnMap.get(FIELDS[i])] = i;
+        }
+        return fields;
+    }
+
+    /**
+     * Joins the lines of a record whose quoted field holds line breaks. A quote that is still
+     * open after {@link #MAX_RECORD_LINES} lines, {@link #MAX_RECORD_CHARS} characters or the
+     * end of the input is taken as a mistake: the line is returned alone, to be rejected, and
+     * reading goes on after it. The lines after it are read a character at a time, so a
+     * single line longer than the read-ahead stops the search instead of losing the place
+     * to go back to.
+     * 
+     * @param line   the first line of the record
+     * @param reader where the rest of the lines come from
+     * @return the whole record, line breaks as \n
+     * @throws IOException if reading fails
      */
-    private static BoardGame toBoardGame(String line, Map<GameData, Integer> columnMap) {
-        String[] columns = line.split(DELIMITER);
-        if (columns.length < columnMap.values().stream().max(Integer::compareTo).get()) {
+    static String wholeRecord(String line, LineNumberReader reader) throws IOException {
+        if (line.indexOf(QUOTE) < 0 || !openQuote(line)) {
+            return line;
+        }
+        reader.mark(MAX_RECORD_CHARS);
+        StringBuilder record = new StringBuilder(line);
+        int chars = 0;
+        int c = 0;
+        for (int lines = 1; lines < MAX_RECORD_LINES && c >= 0; lines++) {
+            record.append('\n');
+            int start = record.length();
+            while (chars < MAX_RECORD_CHARS && (c = reader.read()) >= 0 && c != '\n') {
+                record.append((char) c);
+                chars++;
+            }
+            chars++;
+            if (chars > MAX_RECORD_CHARS) {
+                break; // too long to go back from
+            }
+            if (openQuote(record.subSequence(start, record.length()))) {
+                return record.toString(); // an odd number of quotes closes it
+            }
+        }
+        reader.reset();
+        return line;
+    }
+
+    /**
+     * Checks if text ends inside a quoted field: an odd number of quotes, as an escaped quote
+     * is two.
+     * 
+     * @param text the text so far
+     * @return true if a quote is open
+     */
+    private static boolean openQuote(CharSequence text) {
+        boolean open = false;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == QUOTE) {
+                open = !open;
+            }
+        }
+        return open;
+    }
+
+    /**
+     * Converts a line from the csv file into a BoardGame object.
+     * 
+     * Only the columns that are needed are cut out of the line: the numbers are parsed in
+     * place, so the name and the two decimals are the only strings made per line. A line
+     * with a quote goes through {@link #toBoardGameQuoted} instead.
+     * 
+     * @param line   the line to convert
+     * @param fields for each column, which field it holds, or -1
+     * @param starts scratch space for where each field starts
+     * @param ends   scratch space for where each field ends
+     * @param extras the extra columns the game's row goes in, or null
+     * @return a BoardGame object, or null if the line is short or a number is bad
+     */
+    private static BoardGame toBoardGame(String line, int[] fields, int[] starts, int[] ends,
+            ExtraColumns extras) {
+        if (line.indexOf(QUOTE) >= 0) {
+            return toBoardGameQuoted(line, fields, starts, ends, extras);
+        }
+        int from = 0;
+        for (int column = 0; column < fields.length; column++) {
+            if (from > line.length()) {
+                return null; // fewer columns than needed
+            }
+            int to = line.indexOf(DELIMITER, from);
+            if (to < 0) {
+                to = line.length();
+            }
+            int field = fields[column];
+            if (field >= 0) {
+                starts[field] = from;
+                ends[field] = to;
+            }
+            from = to + 1;
+        }
+        return newGame(line, starts, ends, extras, extras == null ? 0 : line.hashCode());
+    }
+
+    /**
+     * Converts a line with quoted fields. The needed fields are unquoted into one string
+     * one after the other, then parsed from there like an unquoted line.
+     * 
+     * @param line   the line to convert, possibly several lines joined
+     * @param fields for each column, which field it holds, or -1
+     * @param starts scratch space for where each field starts
+     * @param ends   scratch space for where each field ends
+     * @param extras the extra columns the game's row goes in, or null
+     * @return a BoardGame object, or null if the line is short, badly quoted or a number is bad
+     */
+    private static BoardGame toBoardGameQuoted(String line, int[] fields, int[] starts, int[] ends,
+            ExtraColumns extras) {
+        List<String> values = splitQuoted(line);
+        if (values == null || values.size() < fields.length) {
             return null;
         }
+        StringBuilder text = new StringBuilder(line.length());
+        for (int column = 0; column < fields.length; column++) {
+            int field = fields[column];
+            if (field >= 0) {
+                starts[field] = text.length();
+                text.append(values.get(column));
+                ends[field] = text.length();
+            }
+        }
+        return newGame(text.toString(), starts, ends, extras, extras == null ? 0 : line.hashCode());
+    }
+
+    /**
+     * Splits a csv record into its field values, following RFC 4180: a quoted field runs to
+     * the next lone quote, and "" inside it is one quote.
+     * 
+     * @param line the record
+     * @return the values, unquoted, or null if a quoted field is not closed or has text
+     *         after its closing quote
+     */
+    static List<String> splitQuoted(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        int i = 0;
+        while (true) {
+            if (i < line.length() && line.charAt(i) == QUOTE) {
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        return null; // not closed
+                    }
+                    char c = line.charAt(i++);
+                    if (c != QUOTE) {
+                        value.append(c);
+                    } else if (i < line.length() && line.charAt(i) == QUOTE) {
+                        value.append(QUOTE);
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < line.length() && line.charAt(i) != DELIMITER) {
+                    return null; // text after the closing quote
+                }
+            } else {
+                int to = line.indexOf(DELIMITER, i);
+                to = to < 0 ? line.length() : to;
+                value.append(line, i, to);
+                i = to;
+            }
+            values.add(value.toString());
+            value.setLength(0);
+            if (i >= line.length()) {
+                return values;
+            }
+            i++; // the delimiter
+        }
+    }
+
+    /**
+     * Gets one field of a csv record.
+     * 
+     * @param line   the record
+     * @param column the field's column
+     * @return the value, unquoted, or null if the record is short or badly quoted
+     */
+    static String cell(String line, int column) {
+        if (line.indexOf(QUOTE) >= 0) {
+            List<String> values = splitQuoted(line);
+            return values == null || values.size() <= column ? null : values.get(column);
+        }
+        int from = 0;
+        for (int i = 0; i < column; i++) {
+            from = line.indexOf(DELIMITER, from) + 1;
+            if (from == 0) {
+                return null;
+            }
+        }
+        int to = line.indexOf(DELIMITER, from);
+        return line.substring(from, to < 0 ? line.length() : to);
+    }
 
+    /**
+     * Builds a game from the fields cut out of a line.
+     * 
+     * @param text    the line, or the unquoted fields
+     * @param starts  where each field starts
+     * @param ends    where each field ends
+     * @param extras  the extra columns the game's row goes in, or null
+     * @param rowHash hash of the whole record, 0 without extras
+     * @return a BoardGame object, or null if a number is bad
+     */
+    private static BoardGame newGame(String text, int[] starts, int[] ends, ExtraColumns extras,
+            int rowHash) {
         try {
-            BoardGame game = new BoardGame(columns[columnMap.get(GameData.NAME)],
-                    Integer.parseInt(columns[columnMap.get(GameData.ID)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.MIN_PLAYERS)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.MAX_PLAYERS)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.MIN_TIME)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.MAX_TIME)]),
-                    Double.parseDouble(columns[columnMap.get(GameData.DIFFICULTY)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.RANK)]),
-                    Double.parseDouble(columns[columnMap.get(GameData.RATING)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.YEAR)]));
-            return game;
+            return new BoardGame(text.substring(starts[0], ends[0]),
+                    parseInt(text, starts[1], ends[1]),
+                    parseInt(text, starts[2], ends[2]),
+                    parseInt(text, starts[3], ends[3]),
+                    parseInt(text, starts[4], ends[4]),
+                    parseInt(text, starts[5], ends[5]),
+                    Double.parseDouble(text.substring(starts[6], ends[6])),
+                    parseInt(text, starts[7], ends[7]),
+                    Double.parseDouble(text.substring(starts[8], ends[8])),
+                    parseInt(text, starts[9], ends[9]),
+                    extras, extras == null ? 0 : extras.nextRow(), rowHash);
         } catch (NumberFormatException e) {
             // skip if there is an issue
             return null;
         }
     }
 
+    /**
+     * Parses an int out of part of a line without cutting it out first.
+     * 
+     * @param line the line
+     * @param from start of the number, inclusive
+     * @param to   end of the number, exclusive
+     * @return the number
+     * @throws NumberFormatException if it is not a number
+     */
+    private static int parseInt(String line, int from, int to) {
+        if (from == to) {
+            throw new NumberFormatException("empty column");
+        }
+        return Integer.parseInt(line, from, to, 10);
+    }
+
     /**
      * Processes the header line to determine the column mapping.
      * 
@@ -103,15 +616,20 @@ public final class GamesLoader {
      * @param header the header line
      * @return a map of column to index
      */
-    private static Map<GameData, Integer> processHeader(String header) {
+    static Map<GameData, Integer> processHeader(String header) {
         Map<GameData, Integer> columnMap = new HashMap<>();
-        String[] columns = header.split(DELIMITER);
-        for (int i = 0; i < columns.length; i++) {
+        List<String> columns = header.indexOf(QUOTE) < 0
+                ? Arrays.asList(header.split(String.valueOf(DELIMITER)))
+                : splitQuoted(header);
+        if (columns == null) {
+            return columnMap;
+        }
+        for (int i = 0; i < columns.size(); i++) {
             try {
-                GameData col = GameData.fromColumnName(columns[i]);
+                GameData col = GameData.fromColumnName(columns.get(i));
                 columnMap.put(col, i);
             } catch (IllegalArgumentException e) {
-                // System.out.println("Ignoring column: " + columns[i]);
+                // System.out.println("Ignoring column: " + columns.get(i));
             }
         }
         return columnMap;
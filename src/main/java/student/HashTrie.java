@@ -0,0 +1,269 @@
+package student;
+
+/**
+ * A persistent hash map: updates return a new map and leave the old one untouched, sharing
+ * everything but the path to the changed key.
+ *
+ * Keys are spread over a 32 way trie, five hash bits per level, so a lookup reads at most
+ * seven small arrays and an update copies at most seven of them, whatever the size of the
+ * map. Keys with the same hash share a slot as a short chain. The catalog keeps its indexes
+ * in these so a new catalog version costs time in proportion to what changed.
+ *
+ * A map being built from scratch can be filled in place with {@link #putInPlace}, which
+ * skips the copies; it must not be shared until it is built.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+final class HashTrie<K, V> {
+    /** hash bits used per level. */
+    private static final int BITS = 5;
+    /** slots per node. */
+    private static final int WIDTH = 1 << BITS;
+    /** mask for one level's bits. */
+    private static final int MASK = WIDTH - 1;
+
+    /** the root node, slots hold null, a Leaf or an Object[] child node. */
+    private final Object[] root;
+    /** number of keys. */
+    private int size;
+
+    /**
+     * Creates an empty map.
+     */
+    HashTrie() {
+        this(new Object[WIDTH], 0);
+    }
+
+    /**
+     * Creates a map over a root.
+     *
+     * @param root the root node
+     * @param size number of keys
+     */
+    private HashTrie(Object[] root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Gets the number of keys.
+     *
+     * @return the size
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key the key
+     * @return the value, or null if the key is not there
+     */
+    V get(K key) {
+        int hash = spread(key.hashCode());
+        Object[] node = root;
+        for (int shift = 0; ; shift += BITS) {
+            Object slot = node[(hash >>> shift) & MASK];
+            if (slot instanceof Object[]) {
+                node = (Object[]) slot;
+            } else {
+                @SuppressWarnings("unchecked")
+                Leaf<K, V> leaf = (Leaf<K, V>) slot;
+                for (; leaf != null; leaf = leaf.next) {
+                    if (leaf.hash == hash && leaf.key.equals(key)) {
+                        return leaf.value;
+                    }
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Gets a map with a key set or removed, leaving this one as it was.
+     *
+     * @param key   the key
+     * @param value the new value, or null to remove the key
+     * @return the new map, or this map if nothing changed
+     */
+    HashTrie<K, V> with(K key, V value) {
+        int[] delta = {0};
+        Object[] newRoot = put(root, 0, spread(key.hashCode()), key, value, false, delta);
+        return newRoot == root && delta[0] == 0 ? this : new HashTrie<>(newRoot, size + delta[0]);
+    }
+
+    /**
+     * Sets or removes a key in this map itself. Only for a map nobody else can see yet.
+     *
+     * @param key   the key
+     * @param value the new value, or null to remove the key
+     */
+    void putInPlace(K key, V value) {
+        int[] delta = {0};
+        put(root, 0, spread(key.hashCode()), key, value, true, delta);
+        size += delta[0];
+    }
+
+    /**
+     * Spreads the high bits of a hash code down, so keys that differ only in high bits
+     * part at the first levels.
+     *
+     * @param h the hash code
+     * @return the spread hash
+     */
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Sets or removes a key below a node.
+     *
+     * @param node    the node
+     * @param shift   the hash bits this node uses
+     * @param hash    the key's hash
+     * @param key     the key
+     * @param value   the value, or null to remove
+     * @param inPlace true to change the node itself instead of a copy
+     * @param delta   gets +1 if a key was added, -1 if one was removed
+     * @param <K>     the key type
+     * @param <V>     the value type
+     * @return the node to use in place of node, node itself if nothing changed
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> Object[] put(Object[] node, int shift, int hash, K key, V value, boolean inPlace,
+            int[] delta) {
+        int i = (hash >>> shift) & MASK;
+        Object slot = node[i];
+        Object replacement;
+        if (slot == null) {
+            if (value == null) {
+                return node;
+            }
+            replacement = new Leaf<>(hash, key, value, null);
+            delta[0] = 1;
+        } else if (slot instanceof Object[]) {
+            Object[] child = put((Object[]) slot, shift + BITS, hash, key, value, inPlace, delta);
+            if (child == slot && !inPlace) {
+                return node;
+            }
+            replacement = isEmpty(child) ? null : child;
+        } else {
+            Leaf<K, V> leaf = (Leaf<K, V>) slot;
+            if (leaf.hash == hash) {
+                replacement = Leaf.with(leaf, hash, key, value, delta);
+                if (replacement == leaf) {
+                    return node;
+                }
+            } else if (value == null) {
+                return node;
+            } else {
+                replacement = split(leaf, new Leaf<>(hash, key, value, null), shift + BITS);
+                delta[0] = 1;
+            }
+        }
+        Object[] result = inPlace ? node : node.clone();
+        result[i] = replacement;
+        return result;
+    }
+
+    /**
+     * Makes a node holding two leaves whose hashes differ, as deep as their hashes agree.
+     *
+     * @param a     the first leaf
+     * @param b     the second leaf
+     * @param shift the hash bits the new node uses
+     * @return the node
+     */
+    private static Object[] split(Leaf<?, ?> a, Leaf<?, ?> b, int shift) {
+        Object[] node = new Object[WIDTH];
+        int ia = (a.hash >>> shift) & MASK;
+        int ib = (b.hash >>> shift) & MASK;
+        if (ia == ib) {
+            node[ia] = split(a, b, shift + BITS);
+        } else {
+            node[ia] = a;
+            node[ib] = b;
+        }
+        return node;
+    }
+
+    /**
+     * Checks if a node has no keys left.
+     *
+     * @param node the node
+     * @return true if every slot is empty
+     */
+    private static boolean isEmpty(Object[] node) {
+        for (Object slot : node) {
+            if (slot != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A key and value, with the other keys that have the same hash.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    private static final class Leaf<K, V> {
+        /** the spread hash. */
+        private final int hash;
+        /** the key. */
+        private final K key;
+        /** the value. */
+        private final V value;
+        /** the next key with the same hash, or null. */
+        private final Leaf<K, V> next;
+
+        /**
+         * Creates a leaf.
+         *
+         * @param hash  the spread hash
+         * @param key   the key
+         * @param value the value
+         * @param next  the next key with the same hash, or null
+         */
+        Leaf(int hash, K key, V value, Leaf<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        /**
+         * Sets or removes a key in a chain of leaves with the same hash.
+         *
+         * @param chain the chain
+         * @param hash  the hash
+         * @param key   the key
+         * @param value the value, or null to remove
+         * @param delta gets +1 if a key was added, -1 if one was removed
+         * @param <K>   the key type
+         * @param <V>   the value type
+         * @return the new chain, null if it is empty, or chain itself if nothing changed
+         */
+        static <K, V> Leaf<K, V> with(Leaf<K, V> chain, int hash, K key, V value, int[] delta) {
+            if (chain == null) {
+                if (value == null) {
+                    return null;
+                }
+                delta[0] = 1;
+                return new Leaf<>(hash, key, value, null);
+            }
+            if (chain.key.equals(key)) {
+                if (value == null) {
+                    delta[0] = -1;
+                    return chain.next;
+                }
+                return chain.value == value ? chain : new Leaf<>(hash, key, value, chain.next);
+            }
+            Leaf<K, V> rest = with(chain.next, hash, key, value, delta);
+            return rest == chain.next ? chain : new Leaf<>(chain.hash, chain.key, chain.value, rest);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package student;
 
 import java.util.stream.Stream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Interface for a list of games. DO NOT MODIFY THIS FILE.
@@ -56,9 +57,39 @@ public interface IGameList {
      * Saves them in the same order as getGameNames.
      * 
      * @param filename The name of the file to save the list to.
+     * @throws java.io.UncheckedIOException if the file cannot be written.
      */
     void saveGame(String filename);
 
+    /**
+     * Saves the list of games to a file without waiting for the write.
+     * 
+     * The contents are taken when this is called, in the same format as
+     * saveGame. Saving the same file again before it is written only writes
+     * the newest contents.
+     * 
+     * @param filename The name of the file to save the list to.
+     * @return a future completed once the file is written, or completed
+     *         exceptionally with the error if it could not be.
+     */
+    CompletableFuture<Void> saveGameAsync(String filename);
+
+    /**
+     * Loads a saved list file and adds its games to the list.
+     * 
+     * The file can be the text format written by saveGame (one name per line)
+     * or the binary list of catalog ids described in {@link GameListFiles}.
+     * Names are matched ignoring case. Entries that do not match a game in the
+     * catalog are skipped and returned, so they can all be reported at once.
+     * 
+     * @param filename the file to load.
+     * @param catalog  the catalog to resolve names and ids against.
+     * @return the entries that did not match a game, in file order (empty if all
+     *         matched).
+     * @throws java.io.UncheckedIOException if the file cannot be read.
+     */
+    List<String> loadGame(String filename, GameCatalog catalog);
+
     /**
      * Adds a game or games to the list.
      * 
@@ -82,12 +113,30 @@ public interface IGameList {
      * thrown. Such as
      * ranges being out of range.
      * 
+     * Numbers refer to the encounter order of the stream, so the stream should
+     * be in the same order the games were shown to the client.
+     * 
      * @param str      the string to parse and add games to the list.
      * @param filtered the filtered list to use as a basis for adding.
      * @throws IllegalArgumentException if the string is not valid.
+     * @see #addToList(String, FilterResult)
      */
     void addToList(String str, Stream<BoardGame> filtered) throws IllegalArgumentException;
 
+    /**
+     * Adds a game or games to the list from a filter result handle.
+     * 
+     * Same rules as {@link #addToList(String, Stream)}, but numbers and ranges
+     * index straight into the handle, which is in the order the planner
+     * displayed it (see {@link IPlanner#getCurrentResult()}). The handle is
+     * not copied or re-sorted.
+     * 
+     * @param str      the string to parse and add games to the list.
+     * @param filtered the filter result to use as a basis for adding.
+     * @throws IllegalArgumentException if the string is not valid.
+     */
+    void addToList(String str, FilterResult filtered) throws IllegalArgumentException;
+
     /**
      * Removes a game or games from the list.
      * 
@@ -115,6 +115,31 @@ public interface IPlanner {
      */
     Stream<BoardGame> filter(String filter, GameData sortOn, boolean ascending);
 
+    /**
+     * Filters the board games to those that fit a session: they support the number of
+     * players (minPlayers to maxPlayers) and take at most the minutes (maxPlayTime). The
+     * same as filtering on minPlayers<=players,maxPlayers>=players,maxPlayTime<=minutes, and
+     * progressive in the same way, but answered from an index of the ranges rather than by
+     * testing every game. Results are sorted by name in ascending order.
+     * 
+     * @param players The number of players.
+     * @param minutes The most minutes the session has.
+     * @return A stream of board games that fit.
+     */
+    Stream<BoardGame> fits(int players, int minutes);
+
+    /**
+     * Gets the current filter result as a positional handle.
+     * 
+     * The handle keeps the order of the last stream returned by filter (including its sort
+     * column and direction), so the n-th game in the handle is the n-th game the client was
+     * shown. If nothing has been filtered yet, or after a reset, it is the current collection
+     * sorted by name in ascending order.
+     * 
+     * @return the current filter result in display order.
+     */
+    FilterResult getCurrentResult();
+
     /**
      * Resets the collection to have no filters applied.
      */
@@ -0,0 +1,259 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * A set of named game lists (weekend, two-player, to-learn, ...) kept as bitsets.
+ *
+ * Each list is a {@link BitSet} over the catalog row ordinals, so one game costs one bit,
+ * and intersect, union and difference run a 64 bit word at a time. Because catalog rows are
+ * in name order, reading a list back walks the set bits and gives the games already sorted
+ * the way the game lists print them.
+ *
+ * Ordinals are only good for one catalog version. When the catalog is reloaded,
+ * {@link #moveTo(GameCatalog)} carries every list over to the new version by game id, and
+ * tells which games it no longer has.
+ */
+public final class NamedLists {
+    /** the catalog the ordinals refer to. */
+    private GameCatalog catalog;
+    /** the lists, by name, sorted by name. */
+    private final TreeMap<String, BitSet> lists = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * Creates an empty set of named lists over a catalog.
+     *
+     * @param catalog the catalog the lists hold games from
+     */
+    public NamedLists(GameCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Gets the names of the lists.
+     *
+     * @return the list names, sorted ignoring case
+     */
+    public Set<String> names() {
+        return Collections.unmodifiableSet(lists.keySet());
+    }
+
+    /**
+     * Checks if a list exists.
+     *
+     * @param name the list name
+     * @return true if there is a list with that name
+     */
+    public boolean contains(String name) {
+        return lists.containsKey(name);
+    }
+
+    /**
+     * Moves every list to a newer version of the catalog. Games are matched by id, so a game
+     * whose details changed stays in its lists; games the new version does not have are
+     * taken out.
+     *
+     * @param next the catalog version to move to
+     * @return the names of the games taken out, in name order, empty if nothing was
+     */
+    public List<String> moveTo(GameCatalog next) {
+        if (next == catalog) {
+            return List.of();
+        }
+        BitSet held = new BitSet(catalog.size());
+        for (BitSet bits : lists.values()) {
+            held.or(bits);
+        }
+        int[] remap = new int[held.length()];
+        List<String> dropped = new ArrayList<>();
+        held.stream().forEach(ordinal -> {
+            BoardGame game = catalog.get(ordinal);
+            remap[ordinal] = ordinalIn(next, game);
+            if (remap[ordinal] < 0) {
+                dropped.add(game.getName());
+            }
+        });
+        for (Map.Entry<String, BitSet> entry : lists.entrySet()) {
+            BitSet moved = new BitSet(next.size());
+            entry.getValue().stream().map(ordinal -> remap[ordinal]).filter(ordinal -> ordinal >= 0)
+                    .forEach(moved::set);
+            entry.setValue(moved);
+        }
+        catalog = next;
+        return dropped;
+    }
+
+    /**
+     * Creates or replaces a list. Games not in the catalog are left out.
+     *
+     * @param name  the list name
+     * @param games the games in the list
+     * @return the names of the games left out, empty if all were in the catalog
+     */
+    public List<String> put(String name, Stream<BoardGame> games) {
+        List<String> missing = new ArrayList<>();
+        lists.put(name, toBits(games, missing));
+        return missing;
+    }
+
+    /**
+     * Deletes a list.
+     *
+     * @param name the list name
+     * @throws IllegalArgumentException if there is no list with that name
+     */
+    public void remove(String name) {
+        if (lists.remove(name) == null) {
+            throw new IllegalArgumentException("No list named " + name);
+        }
+    }
+
+    /**
+     * Counts the games in a list.
+     *
+     * @param name the list name
+     * @return the number of games
+     * @throws IllegalArgumentException if there is no list with that name
+     */
+    public int count(String name) {
+        return bits(name).cardinality();
+    }
+
+    /**
+     * Gets the games in a list.
+     *
+     * @param name the list name
+     * @return the games, in name order
+     * @throws IllegalArgumentException if there is no list with that name
+     */
+    public List<BoardGame> games(String name) {
+        BitSet bits = bits(name);
+        return bits.stream().mapToObj(catalog::get).toList();
+    }
+
+    /**
+     * Stores the games in both lists as target.
+     *
+     * @param first  the first list
+     * @param second the second list
+     * @param target the list to create or replace, may be one of the inputs
+     * @throws IllegalArgumentException if an input list does not exist
+     */
+    public void intersect(String first, String second, String target) {
+        BitSet result = copy(first);
+        result.and(bits(second));
+        lists.put(target, result);
+    }
+
+    /**
+     * Stores the games in either list as target.
+     *
+     * @param first  the first list
+     * @param second the second list
+     * @param target the list to create or replace, may be one of the inputs
+     * @throws IllegalArgumentException if an input list does not exist
+     */
+    public void union(String first, String second, String target) {
+        BitSet result = copy(first);
+        result.or(bits(second));
+        lists.put(target, result);
+    }
+
+    /**
+     * Stores the games in the first list but not the second as target.
+     *
+     * @param first  the first list
+     * @param second the list of games to take out
+     * @param target the list to create or replace, may be one of the inputs
+     * @throws IllegalArgumentException if an input list does not exist
+     */
+    public void difference(String first, String second, String target) {
+        BitSet result = copy(first);
+        result.andNot(bits(second));
+        lists.put(target, result);
+    }
+
+    /**
+     * Stores the games in the list that also pass the planner's current filter as target.
+     *
+     * @param name    the list
+     * @param current the planner's current filter result
+     * @param target  the list to create or replace, may be the input
+     * @throws IllegalArgumentException if the input list does not exist
+     */
+    public void intersectFilter(String name, FilterResult current, String target) {
+        BitSet result = copy(name);
+        result.and(toBits(current.stream(), new ArrayList<>()));
+        lists.put(target, result);
+    }
+
+    /**
+     * Gets the bits of a list.
+     *
+     * @param name the list name
+     * @return the list's bitset, not a copy
+     * @throws IllegalArgumentException if there is no list with that name
+     */
+    private BitSet bits(String name) {
+        BitSet bits = lists.get(name);
+        if (bits == null) {
+            throw new IllegalArgumentException("No list named " + name);
+        }
+        return bits;
+    }
+
+    /**
+     * Gets a copy of the bits of a list.
+     *
+     * @param name the list name
+     * @return a copy of the list's bitset
+     * @throws IllegalArgumentException if there is no list with that name
+     */
+    private BitSet copy(String name) {
+        return (BitSet) bits(name).clone();
+    }
+
+    /**
+     * Sets the bit for each game's ordinal. Games are matched by id, so a game from an older
+     * catalog version is found even if its details changed since.
+     *
+     * @param games   the games
+     * @param missing where to add the names of the games not in the catalog
+     * @return a bitset with the ordinals of the games in the catalog
+     */
+    private BitSet toBits(Stream<BoardGame> games, List<String> missing) {
+        BitSet bits = new BitSet(catalog.size());
+        games.forEach(game -> {
+            int ordinal = ordinalIn(catalog, game);
+            if (ordinal >= 0) {
+                bits.set(ordinal);
+            } else {
+                missing.add(game.getName());
+            }
+        });
+        return bits;
+    }
+
+    /**
+     * Gets the ordinal of a game in a catalog, matching by id.
+     *
+     * @param catalog the catalog
+     * @param game    the game, perhaps from another version of the catalog
+     * @return the ordinal of the catalog's game with that id, or -1 if it has none
+     */
+    private static int ordinalIn(GameCatalog catalog, BoardGame game) {
+        int ordinal = catalog.ordinalOf(game);
+        if (ordinal >= 0) {
+            return ordinal;
+        }
+        BoardGame current = catalog.findById(game.getId());
+        return current == null ? -1 : catalog.ordinalOf(current);
+    }
+}
@@ -1,10 +1,17 @@
 package student;
 
 import student.filter.Filter;
+import student.filter.PlayerCountFilter;
+import student.metrics.FilterEvent;
+import student.metrics.Metrics;
+import student.metrics.SortEvent;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -12,12 +19,29 @@ import java.util.stream.Stream;
 /**
  * Implementation of the IPlanner interface that provides filtering and sorting
  * functionality for BoardGame objects.
+ *
+ * A planner made over a {@link CatalogStore} follows catalog reloads. Each filter pins the
+ * current epoch for as long as it runs, so it sees one version of the catalog throughout;
+ * if a reload came in since the last call, the filtered games catch up first by applying the
+ * reload's diffs to them, testing only the added and updated games against the filters
+ * already applied. The current result, which list add ranges refer to, stays as it was shown
+ * until the next filter.
  */
 public class Planner implements IPlanner {
-    /** set for all games. */
-    private final Set<BoardGame> allGames;
-    /** set for games after filter. */
-    private Set<BoardGame> filteredGames;
+    /** the catalog this planner follows, null for a fixed set of games. */
+    private final CatalogStore store;
+    /** the epoch allGames is from, null for a fixed set of games. */
+    private CatalogStore.Epoch epoch;
+    /** the filters applied since the last reset, by filter text, to test games a reload adds. */
+    private final Map<String, List<Predicate<BoardGame>>> applied = new LinkedHashMap<>();
+    /** all games, the version's own rows when following a store. Never changed in place. */
+    private Collection<BoardGame> allGames;
+    /** games after filter: all games, or what the last filter kept. Never changed in place. */
+    private Collection<BoardGame> filteredGames;
+    /** the filtered games in the order last handed out, null until first needed. */
+    private FilterResult current;
+    /** the fits index over allGames for a fixed set of games, null until first needed. */
+    private FitIndex fitIndex;
 
     /**
      * Constructor for the Planner class.
@@ -25,8 +49,23 @@ public class Planner implements IPlanner {
      * @param games The set of all available board games
      */
     public Planner(Set<BoardGame> games) {
+        this.store = null;
         this.allGames = new HashSet<BoardGame>(games);
-        this.filteredGames = new HashSet<BoardGame>(games);
+        this.filteredGames = allGames;
+    }
+
+    /**
+     * Creates a planner over a catalog that may be reloaded, starting on its current version.
+     *
+     * @param store the catalog
+     */
+    public Planner(CatalogStore store) {
+        this.store = store;
+        try (CatalogStore.Pin pin = store.pin()) {
+            this.epoch = pin.epoch();
+            this.allGames = pin.catalog().games();
+        }
+        this.filteredGames = allGames;
     }
 
     /**
@@ -65,26 +104,109 @@ public class Planner implements IPlanner {
      */
     @Override
     public Stream<BoardGame> filter(String filter, GameData sortOn, boolean ascending) {
+        if (store == null) {
+            return filterGames(filter, sortOn, ascending, null);
+        }
+        try (CatalogStore.Pin pin = store.pin()) {
+            catchUp(pin);
+            return filterGames(filter, sortOn, ascending, pin.catalog());
+        }
+    }
+
+    /**
+     * Filters and sorts the games, on one version of the catalog.
+     * 
+     * @param filter The filter to apply to the board games
+     * @param sortOn The column to sort the results on
+     * @param ascending Whether to sort in ascending order
+     * @param catalog the catalog all games are from, or null for a fixed set of games
+     * @return A stream of board games that match the filter
+     */
+    private Stream<BoardGame> filterGames(String filter, GameData sortOn, boolean ascending,
+            GameCatalog catalog) {
+        FilterEvent event = new FilterEvent();
+        event.begin();
+        int rowsIn = filteredGames.size();
         if (filter == null || filter.trim().isEmpty()) {
-            return filteredGames.stream()
-                    .sorted(GameComparator.createComparator(sortOn, ascending));
+            FilterResult result = sortCurrent(sortOn, ascending);
+            commit(event, "", sortOn, ascending, rowsIn);
+            return result.stream();
         }
 
         // don't remove space inside string
         filter = filter.trim().toLowerCase();
 
+        long start = Metrics.start();
         List<Predicate<BoardGame>> predicates = parseFilters(filter);
+        Metrics.stop(Metrics.Stage.PARSE, start);
 
-        Set<BoardGame> workingSet = new HashSet<>(filteredGames);
-        for (Predicate<BoardGame> predicate : predicates) {
-            workingSet = workingSet.stream()
-                    .filter(predicate)
-                    .collect(HashSet::new, HashSet::add, HashSet::addAll);
+        if (predicates.isEmpty()) {
+            FilterResult result = sortCurrent(sortOn, ascending);
+            commit(event, filter, sortOn, ascending, rowsIn);
+            return result.stream();
         }
-        filteredGames = workingSet;
+        return applyFilters(event, filter, predicates, sortOn, ascending, catalog);
+    }
 
-        return workingSet.stream()
-                .sorted(GameComparator.createComparator(sortOn, ascending));
+    /**
+     * Filters the games down to those that fit a session, starting from an index of the
+     * player and play time ranges when nothing is filtered yet.
+     * 
+     * @param players The number of players
+     * @param minutes The most minutes
+     * @return A stream of board games that fit, sorted by name
+     */
+    @Override
+    public Stream<BoardGame> fits(int players, int minutes) {
+        String filter = "minplayers<=" + players + ",maxplayers>=" + players + ",maxplaytime<=" + minutes;
+        List<Predicate<BoardGame>> predicates = List.of(new FitIndex.Fits(players, minutes));
+        FilterEvent event = new FilterEvent();
+        event.begin();
+        if (store == null) {
+            return applyFilters(event, filter, predicates, GameData.NAME, true, null);
+        }
+        try (CatalogStore.Pin pin = store.pin()) {
+            catchUp(pin);
+            return applyFilters(event, filter, predicates, GameData.NAME, true, pin.catalog());
+        }
+    }
+
+    /**
+     * Narrows the filtered games by parsed filters and sorts the result.
+     * 
+     * @param event the event started when the call began
+     * @param filter the filter text
+     * @param predicates the filters
+     * @param sortOn The column to sort the results on
+     * @param ascending Whether to sort in ascending order
+     * @param catalog the catalog all games are from, or null for a fixed set of games
+     * @return A stream of board games that match the filters
+     */
+    private Stream<BoardGame> applyFilters(FilterEvent event, String filter, List<Predicate<BoardGame>> predicates,
+            GameData sortOn, boolean ascending, GameCatalog catalog) {
+        int rowsIn = filteredGames.size();
+        long start = Metrics.start();
+        filteredGames = narrow(candidates(predicates, catalog), predicates);
+        if (store != null) {
+            applied.putIfAbsent(filter, predicates);
+        }
+        Metrics.add(Metrics.Counter.ROWS_MATCHED, filteredGames.size());
+        Metrics.stop(Metrics.Stage.FILTER, start);
+
+        current = sort(filteredGames, sortOn, ascending);
+        commit(event, filter, sortOn, ascending, rowsIn);
+
+        return current.stream();
+    }
+
+    /**
+     * Gets the filtered games in the order they were last handed out.
+     * 
+     * @return the current filter result
+     */
+    @Override
+    public FilterResult getCurrentResult() {
+        return current != null ? current : sortCurrent(GameData.NAME, true);
     }
 
     /**
@@ -92,7 +214,183 @@ public class Planner implements IPlanner {
      */
     @Override
     public void reset() {
-        filteredGames = new HashSet<>(allGames);
+        if (store != null) {
+            try (CatalogStore.Pin pin = store.pin()) {
+                epoch = pin.epoch();
+                allGames = pin.catalog().games();
+            }
+        }
+        filteredGames = allGames;
+        applied.clear();
+        current = null;
+    }
+
+    /**
+     * Brings the games up to a newer epoch by its diffs, so a reload costs this planner in
+     * proportion to what changed and what it has kept, not the whole catalog.
+     *
+     * @param pin the epoch the query runs on
+     */
+    private void catchUp(CatalogStore.Pin pin) {
+        if (pin.epoch() == epoch) {
+            return;
+        }
+        boolean unfiltered = filteredGames == allGames;
+        List<CatalogDiff> diffs = epoch.diffsTo(pin.epoch());
+        allGames = pin.catalog().games();
+        if (unfiltered) {
+            filteredGames = allGames;
+        } else {
+            List<Predicate<BoardGame>> predicates = new ArrayList<>();
+            applied.values().forEach(predicates::addAll);
+            for (CatalogDiff diff : diffs) {
+                filteredGames = patch(filteredGames, diff, predicates);
+            }
+        }
+        epoch = pin.epoch();
+        current = null;
+    }
+
+    /**
+     * Applies one reload to filtered games: removed and updated games come out, and added
+     * and updated games go in if they pass the filters.
+     *
+     * @param games the filtered games
+     * @param diff the reload
+     * @param predicates the filters the games passed
+     * @return the filtered games after the reload
+     */
+    private static List<BoardGame> patch(Collection<BoardGame> games, CatalogDiff diff,
+            List<Predicate<BoardGame>> predicates) {
+        Set<BoardGame> gone = new HashSet<>(diff.getRemoved());
+        gone.addAll(diff.getUpdated());
+        List<BoardGame> kept = new ArrayList<>(games.size());
+        for (BoardGame game : games) {
+            if (!gone.contains(game)) {
+                kept.add(game);
+            }
+        }
+        List<BoardGame> coming = new ArrayList<>(diff.getAdded());
+        coming.addAll(diff.getUpdated());
+        kept.addAll(narrow(coming, predicates));
+        return kept;
+    }
+
+    /**
+     * Picks the games a filter has to test. When nothing is filtered yet, a fits query is
+     * answered from the fits index, and a filter on player counts, such as best==3, starts
+     * from the catalog's games with a wanted count, found from its per count bitmaps.
+     * 
+     * @param predicates the filters
+     * @param catalog the catalog all games are from, or null
+     * @return the games to test
+     */
+    private Collection<BoardGame> candidates(List<Predicate<BoardGame>> predicates, GameCatalog catalog) {
+        if (filteredGames != allGames) {
+            return filteredGames;
+        }
+        for (Predicate<BoardGame> predicate : predicates) {
+            if (predicate instanceof FitIndex.Fits) {
+                FitIndex.Fits fits = (FitIndex.Fits) predicate;
+                if (catalog != null) {
+                    return catalog.fits(fits.getPlayers(), fits.getMinutes());
+                }
+                if (fitIndex == null) {
+                    fitIndex = new FitIndex(allGames);
+                }
+                return fitIndex.fits(fits.getPlayers(), fits.getMinutes());
+            }
+            if (predicate instanceof PlayerCountFilter.Match && catalog != null) {
+                PlayerCountFilter.Match match = (PlayerCountFilter.Match) predicate;
+                if (!match.isNegated()) {
+                    return catalog.withPlayers(match.getColumn(), match.getCounts());
+                }
+            }
+        }
+        return filteredGames;
+    }
+
+    /**
+     * Keeps the games that pass every predicate, in one pass and without copying the
+     * games first. Each game stops at the first predicate it fails.
+     * 
+     * @param games the games to test
+     * @param predicates the predicates, all must pass
+     * @return the games kept
+     */
+    private static List<BoardGame> narrow(Collection<BoardGame> games, List<Predicate<BoardGame>> predicates) {
+        List<BoardGame> kept = new ArrayList<>();
+        long tested = 0;
+        for (BoardGame game : games) {
+            boolean keep = true;
+            for (int i = 0; keep && i < predicates.size(); i++) {
+                tested++;
+                keep = predicates.get(i).test(game);
+            }
+            if (keep) {
+                kept.add(game);
+            }
+        }
+        Metrics.add(Metrics.Counter.ROWS_SCANNED, tested);
+        return kept;
+    }
+
+    /**
+     * Makes sure the current result is sorted on the given column, only sorting
+     * again if the column or direction changed since the last call.
+     * 
+     * @param sortOn The column to sort the results on
+     * @param ascending Whether to sort in ascending order
+     * @return the current result, sorted as requested
+     */
+    private FilterResult sortCurrent(GameData sortOn, boolean ascending) {
+        if (current == null || !current.isSortedOn(sortOn, ascending)) {
+            current = sort(filteredGames, sortOn, ascending);
+        }
+        return current;
+    }
+
+    /**
+     * Sorts games into a filter result, timing it and recording a flight recorder event.
+     * 
+     * @param games the games to sort
+     * @param sortOn The column to sort the results on
+     * @param ascending Whether to sort in ascending order
+     * @return the sorted result
+     */
+    private static FilterResult sort(Collection<BoardGame> games, GameData sortOn, boolean ascending) {
+        SortEvent event = new SortEvent();
+        event.begin();
+        long start = Metrics.start();
+        FilterResult result = FilterResult.sorted(games, sortOn, ascending);
+        Metrics.stop(Metrics.Stage.SORT, start);
+        if (event.shouldCommit()) {
+            event.column = sortOn.name();
+            event.ascending = ascending;
+            event.rows = result.size();
+            event.commit();
+        }
+        return result;
+    }
+
+    /**
+     * Fills in and commits a filter event, if flight recording wants it.
+     * 
+     * @param event the event started when the filter call began
+     * @param filter the filter text
+     * @param sortOn the sort column
+     * @param ascending the sort direction
+     * @param rowsIn games before the filter
+     */
+    private void commit(FilterEvent event, String filter, GameData sortOn, boolean ascending, int rowsIn) {
+        if (event.shouldCommit()) {
+            event.filter = filter;
+            event.sortColumn = sortOn.name();
+            event.ascending = ascending;
+            event.rowsIn = rowsIn;
+            event.rowsOut = filteredGames.size();
+            event.commit();
+        }
     }
 
     /**
@@ -0,0 +1,95 @@
+package student;
+
+/**
+ * Player counts as a bitmask: bit n is set for n players.
+ *
+ * The bggrecplayers and bggbestplayers columns hold lists such as "3", "2,3,4", "2-4" or
+ * "6+". Kept as a mask, "is it best with exactly 3" is one AND instead of parsing text. Counts
+ * go up to {@link #MAX}; a larger count, or the top of an open ended "N+", is taken as MAX.
+ */
+public final class PlayerCounts {
+    /** the largest player count a mask tells apart. */
+    public static final int MAX = 30;
+
+    /** private constructor to prevent instantiation. */
+    private PlayerCounts() {
+    }
+
+    /**
+     * Gets the mask for a range of counts.
+     *
+     * @param from the first count, inclusive
+     * @param to   the last count, inclusive
+     * @return the mask, 0 if the range holds no count from 1 to MAX
+     */
+    public static int range(int from, int to) {
+        from = Math.max(1, Math.min(MAX, from));
+        to = Math.min(MAX, to);
+        if (from > to) {
+            return 0;
+        }
+        return (int) (((1L << (to + 1)) - 1) & -(1L << from));
+    }
+
+    /**
+     * Parses a list of counts such as "2,3,4", "2-4" (or with an en dash) or "6+". Parts that
+     * are not counts are skipped.
+     *
+     * @param text the list, may be empty
+     * @return the mask
+     */
+    public static int parse(String text) {
+        int mask = 0;
+        for (String part : text.split("[,;\\s]+")) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            try {
+                if (part.endsWith("+")) {
+                    mask |= range(Integer.parseInt(part.substring(0, part.length() - 1)), MAX);
+                    continue;
+                }
+                int dash = Math.max(part.indexOf('-', 1), part.indexOf('–', 1));
+                if (dash > 0) {
+                    mask |= range(Integer.parseInt(part.substring(0, dash)),
+                            Integer.parseInt(part.substring(dash + 1)));
+                } else {
+                    int count = Integer.parseInt(part);
+                    mask |= range(count, count);
+                }
+            } catch (NumberFormatException e) {
+                // not a count, skipped
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Writes a mask as a list, runs as ranges and a run up to MAX as "N+".
+     *
+     * @param mask the mask
+     * @return such as "2-4,6,8+", empty for 0
+     */
+    public static String format(int mask) {
+        StringBuilder sb = new StringBuilder();
+        int count = Integer.numberOfTrailingZeros(mask);
+        while (count <= MAX) {
+            int end = count;
+            while (end < MAX && (mask & 1 << (end + 1)) != 0) {
+                end++;
+            }
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(count);
+            if (end == MAX && count != MAX) {
+                sb.append('+');
+            } else if (end > count) {
+                sb.append('-').append(end);
+            }
+            int rest = mask & -(1 << end << 1);
+            count = end == MAX || rest == 0 ? MAX + 1 : Integer.numberOfTrailingZeros(rest);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,190 @@
+package student;
+
+import java.io.PrintWriter;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Writes numbered filter results ("1: name (info)") without String.format.
+ *
+ * Rows are appended to one reusable buffer that is handed to the writer in large blocks.
+ * Whole numbers and the two decimal place values are formatted by hand, and the output is
+ * byte for byte what "%d" and "%.2f" would give:
+ *
+ * <ul>
+ * <li>doubles are rounded half up on their shortest decimal form, like Formatter does. Values
+ * too close to a rounding tie to be sure, and very large values, fall back to
+ * String.format.</li>
+ * <li>if the default format locale does not use ASCII digits, '.' and '-', everything falls
+ * back to String.format.</li>
+ * </ul>
+ */
+public final class ResultRenderer {
+    /** buffer size at which rows are handed to the writer. */
+    private static final int FLUSH_AT = 1 << 16;
+    /** largest value formatted by hand, so value * 100 stays well inside double precision. */
+    private static final double MAX_FAST = 1e6;
+    /** how close to a rounding tie the hand formatting still trusts its result. */
+    private static final double TIE_MARGIN = 1e-6;
+
+    /** locale the plain check was last made for. */
+    private static volatile Locale checkedLocale;
+    /** whether checkedLocale formats numbers with plain ASCII. */
+    private static volatile boolean checkedPlain;
+
+    /** where the rows go. */
+    private final PrintWriter out;
+    /** rows waiting to be written. */
+    private final StringBuilder buffer = new StringBuilder(FLUSH_AT + 256);
+    /** copy of the buffer for the writer, reused between flushes. */
+    private char[] chars = new char[FLUSH_AT + 256];
+    /** the line separator, what %n writes. */
+    private final String newline = System.lineSeparator();
+
+    /**
+     * Creates a renderer writing to out.
+     *
+     * @param out where to write the rows
+     */
+    public ResultRenderer(PrintWriter out) {
+        this.out = out;
+    }
+
+    /**
+     * Appends one numbered row, flushing to the writer if the buffer is full.
+     *
+     * @param number the row number shown to the client
+     * @param game   the game
+     * @param col    the column whose value is shown after the name
+     */
+    public void row(int number, BoardGame game, GameData col) {
+        appendInt(buffer, number).append(": ");
+        appendInfo(buffer, game, col).append(newline);
+        if (buffer.length() >= FLUSH_AT) {
+            flush();
+        }
+    }
+
+    /**
+     * Hands everything buffered to the writer.
+     */
+    public void flush() {
+        int length = buffer.length();
+        if (length == 0) {
+            return;
+        }
+        if (chars.length < length) {
+            chars = new char[length];
+        }
+        buffer.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+        buffer.setLength(0);
+    }
+
+    /**
+     * Appends the same text as {@link BoardGame#toStringWithInfo(GameData)}.
+     *
+     * @param sb   where to append
+     * @param game the game
+     * @param col  the column whose value is shown after the name
+     * @return sb
+     */
+    public static StringBuilder appendInfo(StringBuilder sb, BoardGame game, GameData col) {
+        sb.append(game.getName());
+        switch (col) {
+            case RATING:
+                return appendFixed2(sb.append(" ("), game.getRating()).append(')');
+            case DIFFICULTY:
+                return appendFixed2(sb.append(" ("), game.getDifficulty()).append(')');
+            case RANK:
+                return appendInt(sb.append(" ("), game.getRank()).append(')');
+            case MIN_PLAYERS:
+                return appendInt(sb.append(" ("), game.getMinPlayers()).append(')');
+            case MAX_PLAYERS:
+                return appendInt(sb.append(" ("), game.getMaxPlayers()).append(')');
+            case MIN_TIME:
+                return appendInt(sb.append(" ("), game.getMinPlayTime()).append(')');
+            case MAX_TIME:
+                return appendInt(sb.append(" ("), game.getMaxPlayTime()).append(')');
+            case YEAR:
+                return appendInt(sb.append(" ("), game.getYearPublished()).append(')');
+            case NUM_OWNED:
+            case PLAYING_TIME:
+                int value = game.getExtraInt(col);
+                return value == BoardGame.MISSING ? sb : appendInt(sb.append(" ("), value).append(')');
+            case BEST:
+            case REC:
+                int mask = game.getPlayerMask(col);
+                return mask == 0 ? sb : sb.append(" (").append(PlayerCounts.format(mask)).append(')');
+            case LANGUAGE_DEPENDENCE:
+                String text = game.getExtraText(col);
+                return text.isEmpty() ? sb : sb.append(" (").append(text).append(')');
+            default:
+                return sb;
+        }
+    }
+
+    /**
+     * Appends a whole number the way "%d" does.
+     *
+     * @param sb    where to append
+     * @param value the number
+     * @return sb
+     */
+    public static StringBuilder appendInt(StringBuilder sb, int value) {
+        if (!plainLocale()) {
+            return sb.append(String.format("%d", value));
+        }
+        return sb.append(value);
+    }
+
+    /**
+     * Appends a number with two decimal places the way "%.2f" does.
+     *
+     * @param sb    where to append
+     * @param value the number
+     * @return sb
+     */
+    public static StringBuilder appendFixed2(StringBuilder sb, double value) {
+        double abs = Math.abs(value);
+        if (!(abs < MAX_FAST) || !plainLocale()) { // also catches NaN
+            return sb.append(String.format("%.2f", value));
+        }
+        double scaled = abs * 100;
+        long cents = (long) scaled;
+        double fraction = scaled - cents;
+        if (Math.abs(fraction - 0.5) < TIE_MARGIN) {
+            // too close to call from the binary value, let Formatter round it
+            return sb.append(String.format("%.2f", value));
+        }
+        if (fraction > 0.5) {
+            cents++;
+        }
+        if (Double.compare(value, 0.0) < 0) {
+            sb.append('-'); // includes -0.0, like Formatter
+        }
+        long whole = cents / 100;
+        int part = (int) (cents % 100);
+        sb.append(whole).append('.');
+        if (part < 10) {
+            sb.append('0');
+        }
+        return sb.append(part);
+    }
+
+    /**
+     * Checks if the default format locale writes numbers with ASCII digits, '.' and '-'.
+     *
+     * @return true if hand formatting matches Formatter in this locale
+     */
+    private static boolean plainLocale() {
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        if (locale != checkedLocale) {
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+            checkedPlain = symbols.getZeroDigit() == '0' && symbols.getDecimalSeparator() == '.'
+                    && symbols.getMinusSign() == '-';
+            checkedLocale = locale;
+        }
+        return checkedPlain;
+    }
+}
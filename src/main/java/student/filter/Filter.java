@@ -70,7 +70,11 @@ public abstract class Filter {
     public static Filter createFilter(GameData column, Operations operation, String value) {
         switch (column) {
             case NAME:
+            case LANGUAGE_DEPENDENCE:
                 return new StringFilter(column, operation, value);
+            case BEST:
+            case REC:
+                return new PlayerCountFilter(column, operation, value);
             case RATING:
             case DIFFICULTY:
                 return new DoubleFilter(column, operation, value);
@@ -80,6 +84,8 @@ public abstract class Filter {
             case MIN_TIME:
             case MAX_TIME:
             case YEAR:
+            case NUM_OWNED:
+            case PLAYING_TIME:
                 return new IntFilter(column, operation, value);
             default:
                 throw new IllegalArgumentException();
@@ -10,7 +10,8 @@ import static student.Operations.EQUALS;
 
 /**
  * Filter implementation for integer-based columns such as minimum players,
- * maximum players, play time, rank, and year published.
+ * maximum players, play time, rank, and year published. A game without a value in an
+ * extra column, such as numowned, matches no comparison on it.
  */
 public class IntFilter extends Filter {
     /**
@@ -56,6 +57,13 @@ public class IntFilter extends Filter {
                     case YEAR:
                         gameValue = boardGame.getYearPublished();
                         break;
+                    case NUM_OWNED:
+                    case PLAYING_TIME:
+                        gameValue = boardGame.getExtraInt(getColumn());
+                        if (gameValue == BoardGame.MISSING) {
+                            return false;
+                        }
+                        break;
                     default:
                         return true;
                 }
@@ -0,0 +1,124 @@
+package student.filter;
+
+import student.BoardGame;
+import student.GameData;
+import student.Operations;
+import student.PlayerCounts;
+
+import java.util.function.Predicate;
+
+/**
+ * Filter implementation for the player count columns, best and rec, such as best==3 or
+ * rec>=5.
+ *
+ * A game matches if any of its counts passes the comparison, so best>=5 is "best with 5 or
+ * more players at some count"; best!=3 matches games with counts that do not include 3.
+ * The comparison is turned into a mask of the counts that pass once, and each game is then
+ * one AND with its own mask. A game without counts matches nothing.
+ */
+public class PlayerCountFilter extends Filter {
+    /**
+     * Constructor for PlayerCountFilter.
+     *
+     * @param column The column to filter on
+     * @param operation The operation to apply
+     * @param value The value to compare against
+     */
+    public PlayerCountFilter(GameData column, Operations operation, String value) {
+        super(column, operation, value);
+    }
+
+    /**
+     * Creates a predicate that filters BoardGame objects on their player counts.
+     * If the value cannot be parsed as an integer, the predicate will return true for all games.
+     *
+     * @return A {@link Match} for filtering BoardGame objects
+     */
+    @Override
+    public Predicate<BoardGame> createPredicate() {
+        int count;
+        try {
+            count = Integer.parseInt(getValue());
+        } catch (NumberFormatException e) {
+            return game -> true;
+        }
+        // past either end every count compares the same, and count + 1 or - 1 cannot overflow
+        count = Math.max(0, Math.min(PlayerCounts.MAX + 1, count));
+        switch (getOperation()) {
+            case EQUALS:
+            case CONTAINS:
+                return new Match(getColumn(), PlayerCounts.range(count, count), false);
+            case NOT_EQUALS:
+                return new Match(getColumn(), PlayerCounts.range(count, count), true);
+            case GREATER_THAN:
+                return new Match(getColumn(), PlayerCounts.range(count + 1, PlayerCounts.MAX), false);
+            case LESS_THAN:
+                return new Match(getColumn(), PlayerCounts.range(1, count - 1), false);
+            case GREATER_THAN_EQUALS:
+                return new Match(getColumn(), PlayerCounts.range(count, PlayerCounts.MAX), false);
+            case LESS_THAN_EQUALS:
+                return new Match(getColumn(), PlayerCounts.range(1, count), false);
+            default:
+                return game -> true;
+        }
+    }
+
+    /**
+     * Tests a game's player counts against a mask. The planner can also answer one from the
+     * catalog's per count bitmaps instead of testing every game.
+     */
+    public static final class Match implements Predicate<BoardGame> {
+        /** the column, best or rec. */
+        private final GameData column;
+        /** the counts that pass. */
+        private final int counts;
+        /** true if a game passes by having none of counts. */
+        private final boolean negated;
+
+        /**
+         * Creates a match.
+         *
+         * @param column the column, best or rec
+         * @param counts the counts that pass
+         * @param negated true if a game passes by having none of counts
+         */
+        Match(GameData column, int counts, boolean negated) {
+            this.column = column;
+            this.counts = counts;
+            this.negated = negated;
+        }
+
+        /**
+         * Gets the column.
+         *
+         * @return best or rec
+         */
+        public GameData getColumn() {
+            return column;
+        }
+
+        /**
+         * Gets the counts that pass.
+         *
+         * @return the {@link PlayerCounts} mask
+         */
+        public int getCounts() {
+            return counts;
+        }
+
+        /**
+         * Checks if a game passes by having none of the counts, as for !=.
+         *
+         * @return true if negated
+         */
+        public boolean isNegated() {
+            return negated;
+        }
+
+        @Override
+        public boolean test(BoardGame game) {
+            int mask = game.getPlayerMask(column);
+            return negated ? mask != 0 && (mask & counts) == 0 : (mask & counts) != 0;
+        }
+    }
+}
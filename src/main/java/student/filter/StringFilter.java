@@ -4,10 +4,12 @@ import student.BoardGame;
 import student.GameData;
 import student.Operations;
 
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 /**
- * Filter implementation for string-based columns like game names.
+ * Filter implementation for string-based columns like game names, and extra text
+ * columns such as bgglanguagedependence.
  * Supports operations such as equals, not equals, and contains.
  */
 public class StringFilter extends Filter {
@@ -24,39 +26,52 @@ public class StringFilter extends Filter {
 
     /**
      * Creates a predicate that filters BoardGame objects based on string comparison.
-     * All string comparisons are case-insensitive.
+     * All string comparisons are case-insensitive. The value is lower cased once here and
+     * compared with the game's stored lower case text, so testing a game allocates nothing.
      * 
      * @return A predicate for filtering BoardGame objects
      */
     @Override
     public Predicate<BoardGame> createPredicate() {
-        return game -> {
-            String gameValue = "";
-            if (getColumn() == GameData.NAME) {
-                gameValue = game.getName();
-            }
-
-            gameValue = gameValue.toLowerCase();
-            String compareValue = getValue().toLowerCase();
+        Function<BoardGame, String> text = lowerText(getColumn());
+        if (text == null) {
+            return game -> true;
+        }
+        String compareValue = getValue().toLowerCase();
+        switch (getOperation()) {
+            case EQUALS:
+                return game -> text.apply(game).equals(compareValue);
+            case NOT_EQUALS:
+                return game -> !text.apply(game).equals(compareValue);
+            case CONTAINS:
+                return game -> text.apply(game).contains(compareValue);
+            case GREATER_THAN:
+                return game -> text.apply(game).compareTo(compareValue) > 0;
+            case LESS_THAN:
+                return game -> text.apply(game).compareTo(compareValue) < 0;
+            case GREATER_THAN_EQUALS:
+                return game -> text.apply(game).compareTo(compareValue) >= 0;
+            case LESS_THAN_EQUALS:
+                return game -> text.apply(game).compareTo(compareValue) <= 0;
+            default:
+                return game -> true;
+        }
+    }
 
-            switch (getOperation()) {
-                case EQUALS:
-                    return gameValue.equals(compareValue);
-                case NOT_EQUALS:
-                    return !gameValue.equals(compareValue);
-                case CONTAINS:
-                    return gameValue.contains(compareValue);
-                case GREATER_THAN:
-                    return gameValue.compareTo(compareValue) > 0;
-                case LESS_THAN:
-                    return gameValue.compareTo(compareValue) < 0;
-                case GREATER_THAN_EQUALS:
-                    return gameValue.compareTo(compareValue) >= 0;
-                case LESS_THAN_EQUALS:
-                    return gameValue.compareTo(compareValue) <= 0;
-                default:
-                    return true;
-            }
-        };
+    /**
+     * Gets a text column in lower case.
+     * 
+     * @param column the column
+     * @return the column's lower case text for a game, or null if the column is not text
+     */
+    private static Function<BoardGame, String> lowerText(GameData column) {
+        switch (column) {
+            case NAME:
+                return BoardGame::getLowerName;
+            case LANGUAGE_DEPENDENCE:
+                return game -> game.getLowerExtraText(column);
+            default:
+                return null;
+        }
     }
 }
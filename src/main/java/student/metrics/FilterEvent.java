@@ -0,0 +1,36 @@
+package student.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for one Planner.filter call, including its sort.
+ */
+@Name("student.Filter")
+@Label("Filter")
+@Category("BG Arena Planner")
+@Description("A filter query: parsing, predicates and sorting")
+public final class FilterEvent extends Event {
+    /** the filter text, empty to just sort the current result. */
+    @Label("Filter")
+    public String filter;
+
+    /** the sort column. */
+    @Label("Sort Column")
+    public String sortColumn;
+
+    /** the sort direction. */
+    @Label("Ascending")
+    public boolean ascending;
+
+    /** games before the filter. */
+    @Label("Rows In")
+    public int rowsIn;
+
+    /** games after the filter. */
+    @Label("Rows Out")
+    public int rowsOut;
+}
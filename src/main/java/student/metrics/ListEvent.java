@@ -0,0 +1,32 @@
+package student.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a change to a game list.
+ */
+@Name("student.GameListChange")
+@Label("Game List Change")
+@Category("BG Arena Planner")
+@Description("Adding, removing, clearing or loading games in a game list")
+public final class ListEvent extends Event {
+    /** add, remove, clear or load. */
+    @Label("Operation")
+    public String operation;
+
+    /** what the client asked for: a name, number, range or file. */
+    @Label("Argument")
+    public String argument;
+
+    /** games added or removed. */
+    @Label("Changed")
+    public int changed;
+
+    /** games in the list afterwards. */
+    @Label("Size")
+    public int size;
+}
@@ -0,0 +1,28 @@
+package student.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for reading the games file.
+ */
+@Name("student.Load")
+@Label("Load Games")
+@Category("BG Arena Planner")
+@Description("Reading and parsing the games file")
+public final class LoadEvent extends Event {
+    /** the file that was read. */
+    @Label("File")
+    public String file;
+
+    /** games read from the file. */
+    @Label("Games")
+    public int games;
+
+    /** rows skipped because they did not parse. */
+    @Label("Rejected")
+    public long rejected;
+}
@@ -0,0 +1,241 @@
+package student.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Where the planner's time goes: a latency histogram per stage of work and a few counters,
+ * shared by the whole process.
+ *
+ * Code times a stage with
+ *
+ * <pre>
+ * long start = Metrics.start();
+ * ...
+ * Metrics.stop(Metrics.Stage.SORT, start);
+ * </pre>
+ *
+ * which costs two System.nanoTime calls and a lock free histogram update, once per operation
+ * (never per game). Starting the JVM with -Dbgarena.metrics.off=true turns everything off:
+ * {@link #ENABLED} is a constant, so the JIT drops the timing calls completely.
+ *
+ * The numbers can be read with the console's metrics command, or over JMX as the
+ * {@value #OBJECT_NAME} MXBean once {@link #registerMBean()} was called.
+ */
+public final class Metrics {
+    /** false when the JVM was started with -Dbgarena.metrics.off=true. */
+    public static final boolean ENABLED = !Boolean.getBoolean("bgarena.metrics.off");
+    /** JMX name of the metrics MXBean. */
+    public static final String OBJECT_NAME = "student:type=Metrics";
+
+    /**
+     * The stages of work that are timed.
+     */
+    public enum Stage {
+        /** reading the games file. */
+        LOAD,
+        /** turning filter text into predicates. */
+        PARSE,
+        /** running the predicates over the games. */
+        FILTER,
+        /** sorting a filter result. */
+        SORT,
+        /** changing a game list. */
+        LIST
+    }
+
+    /**
+     * The things that are counted.
+     */
+    public enum Counter {
+        /** games read from the games file. */
+        GAMES_LOADED,
+        /** rows of a games file skipped because they did not parse. */
+        ROWS_REJECTED,
+        /** games a predicate was tested against. */
+        ROWS_SCANNED,
+        /** games left after filtering. */
+        ROWS_MATCHED,
+        /** games added to or removed from game lists. */
+        LIST_CHANGES
+    }
+
+    /** histogram per stage. */
+    private static final Map<Stage, LatencyHistogram> STAGES = new EnumMap<>(Stage.class);
+    /** adder per counter. */
+    private static final Map<Counter, LongAdder> COUNTERS = new EnumMap<>(Counter.class);
+
+    static {
+        for (Stage stage : Stage.values()) {
+            STAGES.put(stage, new LatencyHistogram());
+        }
+        for (Counter counter : Counter.values()) {
+            COUNTERS.put(counter, new LongAdder());
+        }
+    }
+
+    /** private constructor to prevent instantiation. */
+    private Metrics() {
+    }
+
+    /**
+     * Starts timing a stage.
+     *
+     * @return the start time to pass to {@link #stop(Stage, long)}
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records the time since start against a stage.
+     *
+     * @param stage the stage
+     * @param start what {@link #start()} returned
+     */
+    public static void stop(Stage stage, long start) {
+        if (ENABLED) {
+            STAGES.get(stage).record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Adds to a counter.
+     *
+     * @param counter the counter
+     * @param amount  how much to add
+     */
+    public static void add(Counter counter, long amount) {
+        if (ENABLED) {
+            COUNTERS.get(counter).add(amount);
+        }
+    }
+
+    /**
+     * Gets the histogram of a stage.
+     *
+     * @param stage the stage
+     * @return its histogram
+     */
+    public static LatencyHistogram histogram(Stage stage) {
+        return STAGES.get(stage);
+    }
+
+    /**
+     * Gets the value of a counter.
+     *
+     * @param counter the counter
+     * @return its value
+     */
+    public static long count(Counter counter) {
+        return COUNTERS.get(counter).sum();
+    }
+
+    /**
+     * Clears every histogram and counter.
+     */
+    public static void reset() {
+        STAGES.values().forEach(LatencyHistogram::reset);
+        COUNTERS.values().forEach(LongAdder::reset);
+    }
+
+    /**
+     * A table of every stage (times in microseconds) and every counter, for the console.
+     *
+     * @return the report, one line per stage or counter
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-8s %10s %10s %10s %10s %10s %10s%n",
+                "stage", "count", "mean us", "p50 us", "p90 us", "p99 us", "max us"));
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram h = STAGES.get(stage);
+            sb.append(String.format("%-8s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    stage.name().toLowerCase(), h.getCount(), h.getMean() / 1e3,
+                    h.getValueAtPercentile(50) / 1e3, h.getValueAtPercentile(90) / 1e3,
+                    h.getValueAtPercentile(99) / 1e3, h.getMax() / 1e3));
+        }
+        for (Counter counter : Counter.values()) {
+            sb.append(String.format("%-13s %d%n", counter.name().toLowerCase(), count(counter)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Registers the MXBean with the platform MBean server, if it is not already there.
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // registered earlier
+        } catch (JMException e) {
+            System.err.println("Error registering metrics MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Maps every stage to a value of its histogram.
+     *
+     * @param value what to read from the histogram
+     * @return lower case stage name to value
+     */
+    private static Map<String, Long> perStage(ToLongFunction<LatencyHistogram> value) {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            map.put(stage.name().toLowerCase(), value.applyAsLong(STAGES.get(stage)));
+        }
+        return map;
+    }
+
+    /**
+     * The JMX view of the metrics.
+     */
+    private static final class Bean implements MetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return ENABLED;
+        }
+
+        @Override
+        public Map<String, Long> getStageCounts() {
+            return perStage(LatencyHistogram::getCount);
+        }
+
+        @Override
+        public Map<String, Long> getStageP50Micros() {
+            return perStage(h -> h.getValueAtPercentile(50) / 1000);
+        }
+
+        @Override
+        public Map<String, Long> getStageP99Micros() {
+            return perStage(h -> h.getValueAtPercentile(99) / 1000);
+        }
+
+        @Override
+        public Map<String, Long> getStageMaxMicros() {
+            return perStage(h -> h.getMax() / 1000);
+        }
+
+        @Override
+        public Map<String, Long> getCounters() {
+            Map<String, Long> map = new LinkedHashMap<>();
+            for (Counter counter : Counter.values()) {
+                map.put(counter.name().toLowerCase(), count(counter));
+            }
+            return map;
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
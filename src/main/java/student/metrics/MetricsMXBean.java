@@ -0,0 +1,55 @@
+package student.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link Metrics}. Maps are keyed by the lower case stage or counter name.
+ */
+public interface MetricsMXBean {
+    /**
+     * Checks if metrics are being recorded.
+     *
+     * @return false if the JVM was started with -Dbgarena.metrics.off=true
+     */
+    boolean isEnabled();
+
+    /**
+     * Gets how many times each stage ran.
+     *
+     * @return stage to count
+     */
+    Map<String, Long> getStageCounts();
+
+    /**
+     * Gets the median time of each stage.
+     *
+     * @return stage to microseconds
+     */
+    Map<String, Long> getStageP50Micros();
+
+    /**
+     * Gets the 99th percentile time of each stage.
+     *
+     * @return stage to microseconds
+     */
+    Map<String, Long> getStageP99Micros();
+
+    /**
+     * Gets the longest time of each stage.
+     *
+     * @return stage to microseconds
+     */
+    Map<String, Long> getStageMaxMicros();
+
+    /**
+     * Gets every counter.
+     *
+     * @return counter to value
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Clears every histogram and counter.
+     */
+    void reset();
+}
@@ -0,0 +1,28 @@
+package student.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for sorting a filter result.
+ */
+@Name("student.Sort")
+@Label("Sort")
+@Category("BG Arena Planner")
+@Description("Sorting the games of a filter result")
+public final class SortEvent extends Event {
+    /** the sort column. */
+    @Label("Column")
+    public String column;
+
+    /** the sort direction. */
+    @Label("Ascending")
+    public boolean ascending;
+
+    /** games sorted. */
+    @Label("Rows")
+    public int rows;
+}
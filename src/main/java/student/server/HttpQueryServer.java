@@ -0,0 +1,709 @@
+package student.server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import student.BoardGame;
+import student.CatalogStore;
+import student.FilterResult;
+import student.GameCatalog;
+import student.GameData;
+import student.GameList;
+import student.IGameList;
+import student.IPlanner;
+import student.Planner;
+import student.metrics.LatencyHistogram;
+import student.trace.CommandTrace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.DoubleSummaryStatistics;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A local HTTP server answering planner queries with JSON, built on the JDK's own HTTP server
+ * so it needs nothing outside the JDK.
+ *
+ * Every client gets a session (the "session" cookie, or the X-Session header for clients
+ * without cookies) with its own Planner and GameList, the same state one console has. All
+ * sessions share the loaded catalog, and when it is reloaded each session moves to the new
+ * version at its next query (see {@link Planner}). Requests in one session run one at a time; different
+ * sessions run in parallel on a virtual thread per request when the JDK has them (Java 21),
+ * otherwise on a cached thread pool.
+ *
+ * <pre>
+ * GET  /games?filter=&amp;sort=&amp;order=&amp;offset=&amp;limit=  filter (narrowing, like the console), page of results
+ * GET  /stats?filter=&amp;column=                         count/min/max/mean of a column over the results
+ * POST /filter/clear                                  clear the session's filter
+ * GET  /list                                          the session's game list
+ * POST /list/add?games=  /list/remove?games=          same syntax as list add/remove
+ * POST /list/clear                                    empty the list
+ * GET  /metrics                                       latency percentiles per endpoint
+ * </pre>
+ *
+ * Bad input is a 400 with {"error": "..."}.
+ */
+public final class HttpQueryServer implements Closeable {
+    /** default page size for /games. */
+    private static final int DEFAULT_LIMIT = 50;
+    /** largest page size for /games. */
+    private static final int MAX_LIMIT = 1000;
+    /** sessions idle for longer than this are dropped. */
+    private static final long SESSION_IDLE_NANOS = TimeUnit.MINUTES.toNanos(30);
+    /** name of the session cookie and the header alternative. */
+    private static final String SESSION_COOKIE = "session";
+    /** header for clients that do not keep cookies. */
+    private static final String SESSION_HEADER = "X-Session";
+
+    /** the catalog, shared by every session. */
+    private final CatalogStore store;
+    /** the running server. */
+    private final HttpServer server;
+    /** runs the requests. */
+    private final ExecutorService executor;
+    /** sessions by id. */
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    /** latency per endpoint, in registration order. */
+    private final Map<String, LatencyHistogram> latency = new LinkedHashMap<>();
+    /** where session requests are recorded, null when not tracing. */
+    private volatile CommandTrace trace;
+
+    /**
+     * Creates the server bound to an address. Call {@link #start()} to start answering.
+     *
+     * @param catalog the games to serve
+     * @param address where to listen, port 0 picks a free port
+     * @throws IOException if the address cannot be bound
+     */
+    public HttpQueryServer(GameCatalog catalog, InetSocketAddress address) throws IOException {
+        this(new CatalogStore(catalog), address);
+    }
+
+    /**
+     * Creates the server over a catalog that may be reloaded.
+     *
+     * @param store   the games to serve
+     * @param address where to listen, port 0 picks a free port
+     * @throws IOException if the address cannot be bound
+     */
+    public HttpQueryServer(CatalogStore store, InetSocketAddress address) throws IOException {
+        this.store = store;
+        this.server = HttpServer.create(address, 0);
+        this.executor = newExecutor();
+        server.setExecutor(executor);
+        for (String path : new String[] {"/games", "/stats", "/list"}) {
+            route(path, "GET", sessionEndpoint(path));
+        }
+        for (String path : new String[] {"/filter/clear", "/list/add", "/list/remove", "/list/clear"}) {
+            route(path, "POST", sessionEndpoint(path));
+        }
+        route("/metrics", "GET", (session, query) -> metrics());
+    }
+
+    /**
+     * Records every session request from now on, as its path and query (see
+     * {@link #command(String, Map)}), to be replayed with {@link #replay}. /metrics is not
+     * recorded.
+     *
+     * @param trace the trace, or null to stop tracing
+     */
+    public void setTrace(CommandTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Starts answering requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Gets the latency of an endpoint.
+     *
+     * @param path the endpoint, such as /games
+     * @return the histogram, or null for an unknown endpoint
+     */
+    public LatencyHistogram getLatency(String path) {
+        return latency.get(path);
+    }
+
+    /**
+     * Stops the server, letting running requests finish for up to a second.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /**
+     * A session endpoint.
+     */
+    @FunctionalInterface
+    private interface Endpoint {
+        /**
+         * Answers one request.
+         *
+         * @param session the client's session, locked for the call
+         * @param query   the decoded query parameters
+         * @return the JSON body
+         */
+        String answer(Session session, Map<String, String> query);
+    }
+
+    /**
+     * Registers an endpoint with its method check, session lookup, error handling and
+     * latency histogram.
+     *
+     * @param path     the path
+     * @param method   the HTTP method it answers
+     * @param endpoint the endpoint
+     */
+    private void route(String path, String method, Endpoint endpoint) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        latency.put(path, histogram);
+        HttpHandler handler = exchange -> {
+            long start = System.nanoTime();
+            try (exchange) {
+                if (!exchange.getRequestURI().getPath().equals(path)) {
+                    send(exchange, 404, error("Not found"));
+                } else if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    send(exchange, 405, error("Use " + method));
+                } else {
+                    Session session = session(exchange);
+                    String body;
+                    int status = 200;
+                    boolean sent = false;
+                    synchronized (session) {
+                        Map<String, String> query = null;
+                        try {
+                            query = parseQuery(exchange.getRequestURI().getRawQuery());
+                            body = endpoint.answer(session, query);
+                        } catch (IllegalArgumentException e) {
+                            status = 400;
+                            body = error(e.getMessage());
+                        }
+                        CommandTrace recordTo = trace;
+                        String command = query == null ? null : command(path, query);
+                        if (recordTo != null && command != null) {
+                            // answered first, so the client does not wait for the digest;
+                            // still under the lock, so the digest is of this request's state
+                            long nanos = System.nanoTime() - start;
+                            send(exchange, status, body);
+                            sent = true;
+                            if (session.traceId < 0) {
+                                session.traceId = recordTo.newSession();
+                            }
+                            recordTo.record(session.traceId, start, nanos, status == 200,
+                                    command, CommandTrace.digest(session.planner, session.gameList));
+                        }
+                    }
+                    if (!sent) {
+                        send(exchange, status, body);
+                    }
+                }
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        };
+        server.createContext(path, handler);
+    }
+
+    /**
+     * Gets the endpoint for a path that works on the client's session.
+     *
+     * @param path the path
+     * @return the endpoint, or null for /metrics and unknown paths
+     */
+    private static Endpoint sessionEndpoint(String path) {
+        switch (path) {
+            case "/games":
+                return HttpQueryServer::games;
+            case "/stats":
+                return HttpQueryServer::stats;
+            case "/filter/clear":
+                return (session, query) -> {
+                    session.planner.reset();
+                    return "{\"total\":" + session.planner.getCurrentResult().size() + "}";
+                };
+            case "/list":
+                return (session, query) -> list(session);
+            case "/list/add":
+                return (session, query) -> {
+                    session.gameList.addToList(required(query, "games"), session.planner.getCurrentResult());
+                    return list(session);
+                };
+            case "/list/remove":
+                return (session, query) -> {
+                    session.gameList.removeFromList(required(query, "games"));
+                    return list(session);
+                };
+            case "/list/clear":
+                return (session, query) -> {
+                    session.gameList.clear();
+                    return list(session);
+                };
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Gets what a request is traced as: its path and its parameters, encoded again in name
+     * order. Console syntax would not do, as the console drops the spaces in a filter.
+     *
+     * @param path  the endpoint
+     * @param query the decoded query parameters
+     * @return such as /games?filter=name~%3Dle+petit&amp;sort=rating, or null for requests that
+     *         do not use the session
+     */
+    static String command(String path, Map<String, String> query) {
+        if (sessionEndpoint(path) == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(path);
+        char separator = '?';
+        for (Map.Entry<String, String> entry : new TreeMap<>(query).entrySet()) {
+            sb.append(separator).append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8))
+                    .append('=').append(URLEncoder.encode(entry.getValue(), StandardCharsets.UTF_8));
+            separator = '&';
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Checks if a traced command is a request recorded by this server.
+     *
+     * @param command the command
+     * @return true if it is a path and query, not a console command
+     */
+    public static boolean isRequest(String command) {
+        return command.startsWith("/");
+    }
+
+    /**
+     * Runs a traced request again on a planner and game list, through the same endpoint code
+     * the server answered it with.
+     *
+     * @param command  the request, as recorded
+     * @param planner  the session's planner
+     * @param gameList the session's game list
+     * @return true if it was answered with 200, false for a 400
+     * @throws IllegalArgumentException if the command is not a session request
+     */
+    public static boolean replay(String command, IPlanner planner, IGameList gameList) {
+        int mark = command.indexOf('?');
+        Endpoint endpoint = sessionEndpoint(mark < 0 ? command : command.substring(0, mark));
+        if (endpoint == null) {
+            throw new IllegalArgumentException("Not a session request: " + command);
+        }
+        try {
+            endpoint.answer(new Session(planner, gameList), parseQuery(mark < 0 ? null : command.substring(mark + 1)));
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Filters, sorts and pages the session's games.
+     *
+     * @param session the session
+     * @param query   filter, sort, order, offset and limit
+     * @return the page as JSON
+     */
+    private static String games(Session session, Map<String, String> query) {
+        FilterResult result = applyFilter(session, query);
+        int offset = intParam(query, "offset", 0);
+        int limit = Math.min(intParam(query, "limit", DEFAULT_LIMIT), MAX_LIMIT);
+        int end = (int) Math.min((long) offset + limit, result.size());
+        StringBuilder sb = new StringBuilder(64 + 160 * Math.max(0, end - offset));
+        sb.append("{\"total\":").append(result.size()).append(",\"offset\":").append(offset)
+                .append(",\"games\":[");
+        for (int i = offset; i < end; i++) {
+            if (i > offset) {
+                sb.append(',');
+            }
+            appendGame(sb, result.get(i));
+        }
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * Aggregates a numeric column over the session's games.
+     *
+     * @param session the session
+     * @param query   filter and column
+     * @return count, min, max and mean as JSON
+     */
+    private static String stats(Session session, Map<String, String> query) {
+        FilterResult result = applyFilter(session, query);
+        GameData column = GameData.fromString(query.getOrDefault("column", GameData.RATING.name()));
+        ToDoubleFunction<BoardGame> value = numeric(column);
+        DoubleSummaryStatistics stats = result.stream().mapToDouble(value).summaryStatistics();
+        StringBuilder sb = new StringBuilder("{\"column\":");
+        quote(sb, column.name().toLowerCase()).append(",\"count\":").append(stats.getCount());
+        if (stats.getCount() > 0) {
+            sb.append(",\"min\":").append(stats.getMin()).append(",\"max\":").append(stats.getMax())
+                    .append(",\"mean\":").append(stats.getAverage());
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Applies the filter and sort parameters to the session's planner.
+     *
+     * @param session the session
+     * @param query   the parameters
+     * @return the session's current result
+     */
+    private static FilterResult applyFilter(Session session, Map<String, String> query) {
+        GameData sort = GameData.fromString(query.getOrDefault("sort", GameData.NAME.name()));
+        String order = query.getOrDefault("order", "asc");
+        if (!order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc")) {
+            throw new IllegalArgumentException("order must be asc or desc: " + order);
+        }
+        session.planner.filter(query.getOrDefault("filter", ""), sort, order.equalsIgnoreCase("asc"));
+        return session.planner.getCurrentResult();
+    }
+
+    /**
+     * The session's game list as JSON.
+     *
+     * @param session the session
+     * @return count and names
+     */
+    private static String list(Session session) {
+        List<String> names = session.gameList.getGameNames();
+        StringBuilder sb = new StringBuilder("{\"count\":").append(names.size()).append(",\"games\":[");
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            quote(sb, names.get(i));
+        }
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * Latency percentiles of every endpoint, in microseconds.
+     *
+     * @return the metrics as JSON
+     */
+    private String metrics() {
+        StringBuilder sb = new StringBuilder("{\"sessions\":").append(sessions.size())
+                .append(",\"endpoints\":{");
+        boolean first = true;
+        for (Map.Entry<String, LatencyHistogram> entry : latency.entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            quote(sb, entry.getKey()).append(":{\"count\":").append(h.getCount())
+                    .append(",\"p50Micros\":").append(h.getValueAtPercentile(50) / 1000)
+                    .append(",\"p90Micros\":").append(h.getValueAtPercentile(90) / 1000)
+                    .append(",\"p99Micros\":").append(h.getValueAtPercentile(99) / 1000)
+                    .append(",\"p999Micros\":").append(h.getValueAtPercentile(99.9) / 1000)
+                    .append(",\"maxMicros\":").append(h.getMax() / 1000).append('}');
+        }
+        return sb.append("}}").toString();
+    }
+
+    /**
+     * Finds the client's session, or starts a new one and tells the client its id.
+     *
+     * @param exchange the request
+     * @return the session
+     */
+    private Session session(HttpExchange exchange) {
+        Headers headers = exchange.getRequestHeaders();
+        String id = headers.getFirst(SESSION_HEADER);
+        if (id == null) {
+            id = cookie(headers, SESSION_COOKIE);
+        }
+        long now = System.nanoTime();
+        Session session = id == null ? null : sessions.get(id);
+        if (session == null) {
+            sessions.values().removeIf(s -> now - s.lastUsed > SESSION_IDLE_NANOS);
+            id = UUID.randomUUID().toString();
+            session = new Session(new Planner(store), new GameList());
+            sessions.put(id, session);
+            exchange.getResponseHeaders().add("Set-Cookie", SESSION_COOKIE + "=" + id + "; Path=/; HttpOnly");
+        }
+        exchange.getResponseHeaders().set(SESSION_HEADER, id);
+        session.lastUsed = now;
+        return session;
+    }
+
+    /**
+     * Reads one cookie from the request.
+     *
+     * @param headers the request headers
+     * @param name    the cookie name
+     * @return the value, or null if it is not there
+     */
+    private static String cookie(Headers headers, String name) {
+        List<String> cookies = headers.get("Cookie");
+        if (cookies == null) {
+            return null;
+        }
+        for (String header : cookies) {
+            for (String part : header.split(";")) {
+                int eq = part.indexOf('=');
+                if (eq > 0 && part.substring(0, eq).trim().equals(name)) {
+                    return part.substring(eq + 1).trim();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decodes a query string.
+     *
+     * @param rawQuery the raw query, may be null
+     * @return name to value, the last value wins
+     */
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    /**
+     * Gets a parameter that must be there.
+     *
+     * @param query the parameters
+     * @param name  the parameter
+     * @return its value
+     * @throws IllegalArgumentException if it is missing or blank
+     */
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing parameter " + name);
+        }
+        return value;
+    }
+
+    /**
+     * Gets a whole number parameter that is 0 or more.
+     *
+     * @param query the parameters
+     * @param name  the parameter
+     * @param def   the value if it is missing
+     * @return its value
+     * @throws IllegalArgumentException if it is not a number or is negative
+     */
+    private static int intParam(Map<String, String> query, String name, int def) {
+        String value = query.get(name);
+        if (value == null) {
+            return def;
+        }
+        try {
+            int n = Integer.parseInt(value.trim());
+            if (n < 0) {
+                throw new IllegalArgumentException(name + " must not be negative: " + value);
+            }
+            return n;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number: " + value);
+        }
+    }
+
+    /**
+     * Gets a numeric column as a function.
+     *
+     * @param column the column
+     * @return the value of the column for a game
+     * @throws IllegalArgumentException if the column is not numeric
+     */
+    private static ToDoubleFunction<BoardGame> numeric(GameData column) {
+        switch (column) {
+            case RATING:
+                return BoardGame::getRating;
+            case DIFFICULTY:
+                return BoardGame::getDifficulty;
+            case RANK:
+                return BoardGame::getRank;
+            case MIN_PLAYERS:
+                return BoardGame::getMinPlayers;
+            case MAX_PLAYERS:
+                return BoardGame::getMaxPlayers;
+            case MIN_TIME:
+                return BoardGame::getMinPlayTime;
+            case MAX_TIME:
+                return BoardGame::getMaxPlayTime;
+            case YEAR:
+                return BoardGame::getYearPublished;
+            default:
+                throw new IllegalArgumentException("Not a numeric column: " + column.name().toLowerCase());
+        }
+    }
+
+    /**
+     * Appends a game as a JSON object.
+     *
+     * @param sb   where to append
+     * @param game the game
+     */
+    private static void appendGame(StringBuilder sb, BoardGame game) {
+        sb.append("{\"id\":").append(game.getId()).append(",\"name\":");
+        quote(sb, game.getName());
+        sb.append(",\"rating\":").append(game.getRating())
+                .append(",\"difficulty\":").append(game.getDifficulty())
+                .append(",\"rank\":").append(game.getRank())
+                .append(",\"minPlayers\":").append(game.getMinPlayers())
+                .append(",\"maxPlayers\":").append(game.getMaxPlayers())
+                .append(",\"minTime\":").append(game.getMinPlayTime())
+                .append(",\"maxTime\":").append(game.getMaxPlayTime())
+                .append(",\"year\":").append(game.getYearPublished()).append('}');
+    }
+
+    /**
+     * Appends a JSON string.
+     *
+     * @param sb    where to append
+     * @param value the string
+     * @return sb
+     */
+    static StringBuilder quote(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"');
+    }
+
+    /**
+     * An error body.
+     *
+     * @param message the message
+     * @return {"error": message}
+     */
+    private static String error(String message) {
+        return quote(new StringBuilder("{\"error\":"), String.valueOf(message)).append('}').toString();
+    }
+
+    /**
+     * Sends a JSON response.
+     *
+     * @param exchange the request
+     * @param status   the status code
+     * @param body     the JSON body
+     * @throws IOException if the client went away
+     */
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    /**
+     * Gets an executor running each request on a virtual thread, or, before Java 21, a cached
+     * pool of daemon threads.
+     *
+     * @return the executor
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "http-query");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * One client's planner and game list.
+     */
+    private static final class Session {
+        /** the client's filter state. */
+        private final IPlanner planner;
+        /** the client's game list. */
+        private final IGameList gameList;
+        /** System.nanoTime of the last request. */
+        private volatile long lastUsed;
+        /** the session's id in the command trace, -1 until it is first traced. */
+        private int traceId = -1;
+
+        /**
+         * Creates a session.
+         *
+         * @param planner  the planner
+         * @param gameList the game list
+         */
+        Session(IPlanner planner, IGameList gameList) {
+            this.planner = planner;
+            this.gameList = gameList;
+        }
+    }
+}
@@ -0,0 +1,509 @@
+package student.server;
+
+import student.CatalogStore;
+import student.ConsoleApp;
+import student.GameCatalog;
+import student.GameList;
+import student.Planner;
+import student.trace.CommandTrace;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A text line protocol over TCP for bots, using the console's command grammar.
+ *
+ * Each connection is a session with its own Planner and GameList, run through a ConsoleApp
+ * exactly as if typed at the console. A client sends one command per line ("\n" or "\r\n")
+ * and may send as many as it likes without waiting for answers (pipelining). Commands on one
+ * connection run in order on a worker pool, and every command gets one response, in the same
+ * order:
+ *
+ * <pre>
+ * +OK             or -ERR if the command printed an error
+ * output lines    any line starting with '.' gets an extra '.' in front
+ * .               end of the response
+ * </pre>
+ *
+ * exit answers +OK and then closes the connection. list save is written before its response,
+ * so a failed save is reported as that command's -ERR. list save and list load only use files
+ * in the directory given to {@link #setFileDirectory(Path)}, and are turned off without one.
+ *
+ * The sockets are driven by one selector thread, and the responses that are waiting for a
+ * connection go out in one gathering write. A connection that gets too far ahead (too many
+ * commands waiting, or too much output not yet read by the client) is not read from until it
+ * catches up.
+ */
+public final class LineProtocolServer implements Closeable {
+    /** longest command line accepted, in bytes. */
+    private static final int MAX_LINE = 8192;
+    /** commands waiting on one connection before it stops being read. */
+    private static final int MAX_PENDING = 256;
+    /** bytes of responses waiting on one connection before it stops being read. */
+    private static final int MAX_OUTPUT = 1 << 20;
+    /** stands in for a line that was too long, compared by identity. */
+    private static final String TOO_LONG = new String("line too long");
+
+    /** the catalog, shared by every session. */
+    private final CatalogStore store;
+    /** the selector for every socket. */
+    private final Selector selector;
+    /** the listening socket. */
+    private final ServerSocketChannel server;
+    /** runs the commands. */
+    private final ExecutorService workers;
+    /** connections whose interest ops need updating on the selector thread. */
+    private final ConcurrentLinkedQueue<Connection> changed = new ConcurrentLinkedQueue<>();
+    /** the selector thread. */
+    private final Thread loop;
+    /** cleared by close. */
+    private volatile boolean running = true;
+    /** where commands are recorded, null when not tracing. */
+    private volatile CommandTrace trace;
+    /** the directory list save and list load may use, null if they are off. */
+    private volatile Path fileDirectory;
+
+    /**
+     * Creates the server bound to an address. Call {@link #start()} to start answering.
+     *
+     * @param catalog the games to serve
+     * @param address where to listen, port 0 picks a free port
+     * @throws IOException if the address cannot be bound
+     */
+    public LineProtocolServer(GameCatalog catalog, InetSocketAddress address) throws IOException {
+        this(new CatalogStore(catalog), address);
+    }
+
+    /**
+     * Creates the server over a catalog that may be reloaded. Each connection's planner moves
+     * to a new version at its next query, and its list loads and named lists at their next
+     * command.
+     *
+     * @param store   the games to serve
+     * @param address where to listen, port 0 picks a free port
+     * @throws IOException if the address cannot be bound
+     */
+    public LineProtocolServer(CatalogStore store, InetSocketAddress address) throws IOException {
+        this.store = store;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+            Thread thread = new Thread(task, "line-protocol-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.loop = new Thread(this::run, "line-protocol-selector");
+    }
+
+    /**
+     * Records the commands of every connection made from now on, each as its own session.
+     *
+     * @param trace the trace, or null to stop tracing new connections
+     */
+    public void setTrace(CommandTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Lets list save and list load use files in a directory, for connections made from now
+     * on. Names are taken relative to it, and ones leading out of it are refused.
+     *
+     * @param directory the directory, or null to turn the file commands off (the default)
+     */
+    public void setFileDirectory(Path directory) {
+        this.fileDirectory = directory;
+    }
+
+    /**
+     * Starts answering connections.
+     */
+    public void start() {
+        loop.start();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Stops the server and closes every connection.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            loop.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdown();
+    }
+
+    /**
+     * The selector loop.
+     */
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Connection connection;
+                while ((connection = changed.poll()) != null) {
+                    connection.updateInterest();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        try {
+                            accept();
+                        } catch (IOException e) {
+                            System.err.println("Error accepting connection: " + e.getMessage());
+                        }
+                        continue;
+                    }
+                    connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.write();
+                        }
+                        if (key.isValid()) {
+                            connection.updateInterest();
+                        }
+                    } catch (IOException e) {
+                        connection.close();
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            System.err.println("Line protocol server stopped: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            closeQuietly(selector);
+        }
+    }
+
+    /**
+     * Accepts a waiting connection and starts its session.
+     *
+     * @throws IOException if the connection cannot be set up
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    /**
+     * Frames a command's output as a response.
+     *
+     * @param ok     false if the command printed an error
+     * @param output what the command printed
+     * @return the response bytes
+     */
+    private static ByteBuffer frame(boolean ok, CharSequence output) {
+        StringBuilder sb = new StringBuilder(output.length() + 16);
+        sb.append(ok ? "+OK\n" : "-ERR\n");
+        int start = 0;
+        int length = output.length();
+        while (start < length) {
+            int end = start;
+            while (end < length && output.charAt(end) != '\n') {
+                end++;
+            }
+            int lineEnd = end > start && output.charAt(end - 1) == '\r' ? end - 1 : end;
+            if (output.charAt(start) == '.') {
+                sb.append('.');
+            }
+            sb.append(output, start, lineEnd).append('\n');
+            start = end + 1;
+        }
+        sb.append(".\n");
+        return ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Closes something while shutting down, ignoring failures.
+     *
+     * @param closeable the thing to close
+     */
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // shutting down anyway
+        }
+    }
+
+    /**
+     * One client connection and its session.
+     *
+     * The socket and line buffer are only used by the selector thread. The command and
+     * response queues are shared with the worker running the commands and guarded by the
+     * connection's lock.
+     */
+    private final class Connection {
+        /** the socket. */
+        private final SocketChannel channel;
+        /** the selector registration. */
+        private SelectionKey key;
+        /** bytes read from the socket, not yet split into lines. */
+        private final ByteBuffer input = ByteBuffer.allocate(MAX_LINE);
+        /** the line being read. */
+        private byte[] line = new byte[256];
+        /** length of the line being read. */
+        private int lineLength;
+        /** true while skipping the rest of a line that was too long. */
+        private boolean skipping;
+
+        /** the session's console, only used by the worker running the commands. */
+        private final ConsoleApp console;
+        /** what the console printed for the running command. */
+        private final StringWriter printed = new StringWriter();
+        /** writer around printed. */
+        private final PrintWriter printer = new PrintWriter(printed);
+
+        /** commands waiting to run. */
+        private final ArrayDeque<String> commands = new ArrayDeque<>();
+        /** responses waiting to be sent. */
+        private final ArrayDeque<ByteBuffer> responses = new ArrayDeque<>();
+        /** bytes left to send in responses. */
+        private long responseBytes;
+        /** true while a worker is running commands. */
+        private boolean busy;
+        /** true once exit was run, or the client stopped sending. */
+        private boolean closing;
+        /** true while the connection is queued for an interest update. */
+        private boolean signalled;
+
+        /**
+         * Starts a session for a socket.
+         *
+         * @param channel the socket
+         */
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.console = new ConsoleApp(new GameList(), new Planner(store), store,
+                    new BufferedReader(new StringReader("")), printer);
+            console.setSynchronousSaves(true);
+            console.setFileDirectory(fileDirectory);
+            CommandTrace recordTo = trace;
+            if (recordTo != null) {
+                console.setTrace(recordTo, recordTo.newSession());
+            }
+        }
+
+        /**
+         * Reads what the client sent and queues the complete lines. Selector thread only.
+         *
+         * @throws IOException if the socket fails
+         */
+        void read() throws IOException {
+            int read = channel.read(input);
+            if (read < 0) {
+                synchronized (this) {
+                    closing = true; // answer what was sent, then close
+                }
+                return;
+            }
+            input.flip();
+            boolean queued = false;
+            while (input.hasRemaining()) {
+                byte b = input.get();
+                if (b == '\n') {
+                    String command = skipping ? TOO_LONG : decodeLine();
+                    skipping = false;
+                    lineLength = 0;
+                    synchronized (this) {
+                        if (!closing) { // nothing runs after exit
+                            commands.add(command);
+                            queued = true;
+                        }
+                    }
+                } else if (!skipping) {
+                    if (lineLength == MAX_LINE) {
+                        skipping = true;
+                    } else {
+                        if (lineLength == line.length) {
+                            line = Arrays.copyOf(line, Math.min(MAX_LINE, line.length * 2));
+                        }
+                        line[lineLength++] = b;
+                    }
+                }
+            }
+            input.clear();
+            if (queued) {
+                synchronized (this) {
+                    if (!busy) {
+                        busy = true;
+                        workers.execute(this::runCommands);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Decodes the line read so far, without a trailing '\r'.
+         *
+         * @return the line
+         */
+        private String decodeLine() {
+            int length = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+            return new String(line, 0, length, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Runs queued commands in order until there are none left. Worker thread only.
+         */
+        private void runCommands() {
+            while (true) {
+                String command;
+                synchronized (this) {
+                    command = commands.poll();
+                    if (command == null) {
+                        busy = false;
+                        signal();
+                        return;
+                    }
+                }
+                ByteBuffer response;
+                boolean more = true;
+                if (command == TOO_LONG) {
+                    response = frame(false, "Line longer than " + MAX_LINE + " bytes\n");
+                } else {
+                    int errors = console.getErrorCount();
+                    try {
+                        more = console.execute(command);
+                    } catch (RuntimeException e) {
+                        printer.println(e.getMessage());
+                        errors = -1;
+                    }
+                    printer.flush();
+                    response = frame(errors == console.getErrorCount(), printed.getBuffer());
+                    printed.getBuffer().setLength(0);
+                }
+                synchronized (this) {
+                    responses.add(response);
+                    responseBytes += response.remaining();
+                    if (!more) {
+                        closing = true;
+                        commands.clear();
+                    }
+                    signal();
+                }
+            }
+        }
+
+        /**
+         * Asks the selector thread to update this connection, once per batch. Call while
+         * holding the connection's lock.
+         */
+        private void signal() {
+            if (!signalled) {
+                signalled = true;
+                changed.add(this);
+                selector.wakeup();
+            }
+        }
+
+        /**
+         * Sends as many waiting responses as the socket takes, in one gathering write.
+         * Selector thread only.
+         *
+         * @throws IOException if the socket fails
+         */
+        void write() throws IOException {
+            ByteBuffer[] pending;
+            synchronized (this) {
+                pending = responses.toArray(new ByteBuffer[0]);
+            }
+            long written = channel.write(pending);
+            synchronized (this) {
+                responseBytes -= written;
+                while (!responses.isEmpty() && !responses.peek().hasRemaining()) {
+                    responses.poll();
+                }
+            }
+        }
+
+        /**
+         * Sets what the selector waits for: reading while the connection is not too far
+         * ahead, writing while responses are waiting. Closes the connection once it is
+         * closing and everything has been sent. Selector thread only.
+         */
+        void updateInterest() {
+            if (!key.isValid()) {
+                return;
+            }
+            int ops = 0;
+            boolean done;
+            synchronized (this) {
+                signalled = false;
+                if (!closing && commands.size() < MAX_PENDING && responseBytes < MAX_OUTPUT) {
+                    ops |= SelectionKey.OP_READ;
+                }
+                if (!responses.isEmpty()) {
+                    ops |= SelectionKey.OP_WRITE;
+                }
+                done = closing && !busy && commands.isEmpty() && responses.isEmpty();
+            }
+            if (done) {
+                close();
+            } else {
+                key.interestOps(ops);
+            }
+        }
+
+        /**
+         * Closes the socket. Selector thread only.
+         */
+        void close() {
+            key.cancel();
+            closeQuietly(channel);
+        }
+    }
+}
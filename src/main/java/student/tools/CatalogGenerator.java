@@ -0,0 +1,414 @@
+package student.tools;
+
+import student.BoardGame;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Builds synthetic game catalogs in the same 48 column format as the bundled collection.csv,
+ * for scale testing.
+ *
+ * Every row is worked out from the seed and its row number alone, so the same seed always
+ * gives the same catalog (and any row can be built without building the ones before it). The
+ * columns follow the shape of real collections:
+ *
+ * <ul>
+ * <li>names are two or three words from English, German, French and Japanese word lists, so
+ * some have accents or are not Latin at all. Once the two word names are used up, names get a
+ * subtitle ("Lost Harbors: The Frozen Crown"), and once those are used up a number, so in any
+ * catalog every name is different, as nearly all are in real ones. Names never contain commas
+ * or quotes.</li>
+ * <li>ranks are unique, with about 1 game in 8 unranked (0). Better ranked games have higher
+ * ratings and many more owners.</li>
+ * <li>years crowd into the last twenty years with a long tail back to 1900.</li>
+ * <li>most games start at 2 players and go up to 4, playing times have a long tail.</li>
+ * <li>recommended player counts are a range such as 2-4 inside the box counts, with one best
+ * count, both left empty for games with few owners to vote.</li>
+ * </ul>
+ *
+ * Run from the command line with: rows [seed] [file] (default seed 1, default file
+ * collection-ROWS.csv).
+ */
+public final class CatalogGenerator {
+    /** the header, exactly as in collection.csv. */
+    public static final String HEADER = "objectname,objectid,rating,numplays,weight,own,fortrade,"
+            + "want,wanttobuy,wanttoplay,prevowned,preordered,wishlist,wishlistpriority,"
+            + "wishlistcomment,comment,conditiontext,haspartslist,wantpartslist,collid,baverage,"
+            + "average,avgweight,rank,numowned,objecttype,originalname,minplayers,maxplayers,"
+            + "playingtime,maxplaytime,minplaytime,yearpublished,bggrecplayers,bggbestplayers,"
+            + "bggrecagerange,bgglanguagedependence,publisherid,imageid,year,language,other,"
+            + "itemtype,barcode,version_publishers,version_languages,version_yearpublished,"
+            + "version_nickname";
+
+    /** the most recent year a game is published. */
+    private static final int LATEST_YEAR = 2024;
+    /** share of games without a rank. */
+    private static final double UNRANKED = 0.12;
+
+    /** first words of names. */
+    private static final String[] FIRST = {
+        "Ancient", "Lost", "Little", "Great", "Hidden", "Golden", "Wild", "Dark", "Tiny",
+        "Royal", "Crystal", "Iron", "Burning", "Silent", "Secret", "Sky", "Deep", "Red",
+        "Verlorene", "Kleine", "Große", "Grüne", "Schöne", "Le Petit", "La Grande", "Les Châteaux",
+        "Élan", "Mystère", "Rêve", "Trésor", "小さな", "黄金の", "秘密の", "桜", "ドラゴン", "Ōkami",
+    };
+    /** middle and last words of names. */
+    private static final String[] SECOND = {
+        "Kingdoms", "Empires", "Islands", "Gardens", "Dragons", "Castles", "Rivers", "Cards",
+        "Dice", "Merchants", "Explorers", "Heroes", "Towers", "Forests", "Stars", "Harbors",
+        "Wizards", "Trains", "Cities", "Farms", "Burgen", "Händler", "Städte", "Würfel",
+        "Königreich", "Forêts", "Marchés", "Châteaux", "Étoiles", "Jardins", "王国", "冒険",
+        "カード", "の森", "Café", "Fjörd", "Zürich", "Smørrebrød", "Piñata", "Señor",
+    };
+    /** optional last words of names. */
+    private static final String[] THIRD = {
+        "Legacy", "Deluxe", "Duel", "Origins", "Big Box", "Second Edition", "Junior", "Classic",
+        "Reloaded", "Revised", "Anniversary", "Unlimited", "2", "II", "Express", "Das Spiel",
+    };
+    /** first words of subtitles. */
+    private static final String[] SUBTITLE_FIRST = {
+        "The Frozen", "The Last", "The Sunken", "The Forgotten", "The Endless", "The Shattered",
+        "The Northern", "The Eastern", "A Distant", "A Hidden", "Rise of the", "Fall of the",
+        "Return to the", "Beyond the", "Shadows of the", "Die Letzte", "Der Goldene", "La Nuit des",
+        "Le Retour des", "L'Île aux", "Das Erbe der", "忘れられた", "最後の", "星の",
+    };
+    /** last words of subtitles. */
+    private static final String[] SUBTITLE_SECOND = {
+        "Crown", "Frontier", "Expedition", "Alliance", "Valley", "Citadel", "Harvest", "Voyage",
+        "Archipelago", "Dynasty", "Sands", "Tides", "Peaks", "Colonies", "Guilds", "Ruins",
+        "Wächter", "Nebel", "Lumières", "Rois", "Étoiles", "Sakura", "侍", "迷宮",
+    };
+    /** the language dependence values seen in the bundled data, most common first. */
+    private static final String[] LANGUAGE = {
+        "No necessary in-game text",
+        "Some necessary text - easily memorized or small crib sheet",
+        "Moderate in-game text - needs crib sheet or paste ups",
+        "Extensive use of text - massive conversion needed to be playable",
+        "Unplayable in another language",
+        "",
+    };
+    /** running total of the language weights, in the same order. */
+    private static final double[] LANGUAGE_WEIGHTS = {0.64, 0.78, 0.85, 0.88, 0.885, 1.0};
+    /** recommended age values. */
+    private static final String[] AGES = {"8+", "10+", "12+", "14+", "6+", "", "16+"};
+
+    /** the seed. */
+    private final long seed;
+
+    /**
+     * Creates a generator.
+     *
+     * @param seed the seed, the same seed gives the same catalog
+     */
+    public CatalogGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Builds the CSV line for a row.
+     *
+     * @param rows  the number of rows in the catalog, ranks depend on it
+     * @param index the row, from 0
+     * @return the line, without a line break
+     */
+    public String row(int rows, int index) {
+        return new Row(rows, index).toCsv();
+    }
+
+    /**
+     * Builds the game a row describes, as GamesLoader would load it.
+     *
+     * @param rows  the number of rows in the catalog, ranks depend on it
+     * @param index the row, from 0
+     * @return the game
+     */
+    public BoardGame game(int rows, int index) {
+        return new Row(rows, index).toGame();
+    }
+
+    /**
+     * Builds a whole catalog of games in memory.
+     *
+     * @param rows the number of rows
+     * @return the games, in row order
+     */
+    public List<BoardGame> games(int rows) {
+        List<BoardGame> games = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            games.add(game(rows, i));
+        }
+        return games;
+    }
+
+    /**
+     * Writes a catalog, header first.
+     *
+     * @param rows the number of rows
+     * @param out  where to write, not closed
+     * @throws IOException if writing fails
+     */
+    public void write(int rows, Writer out) throws IOException {
+        out.write(HEADER);
+        out.write('\n');
+        for (int i = 0; i < rows; i++) {
+            out.write(row(rows, i));
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Writes a catalog to a file in UTF-8.
+     *
+     * @param rows the number of rows
+     * @param file the file, replaced if it exists
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public void write(int rows, Path file) {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(rows, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing catalog " + file, e);
+        }
+    }
+
+    /**
+     * Writes a catalog from the command line.
+     *
+     * @param args rows [seed] [file]
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: CatalogGenerator rows [seed] [file]");
+            System.exit(2);
+        }
+        int rows = Integer.parseInt(args[0]);
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        Path file = Path.of(args.length > 2 ? args[2] : "collection-" + rows + ".csv");
+        long start = System.nanoTime();
+        new CatalogGenerator(seed).write(rows, file);
+        System.out.printf("Wrote %d games to %s in %.1f s%n", rows, file, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Puts the row numbers in a shuffled order, so that rank does not follow row order.
+     * Stepping through the rows by about 0.618 of their count (golden ratio) spreads
+     * neighbouring rows far apart, and a step that shares no factor with the count visits
+     * every row exactly once.
+     *
+     * @param rows  the number of rows
+     * @param index the row
+     * @return a different row, unique for each index
+     */
+    private long shuffle(int rows, int index) {
+        return shuffle(rows, index, 0.6180339887, 31);
+    }
+
+    /**
+     * Puts the row numbers in a shuffled order by stepping through them by a share of their
+     * count, as {@link #shuffle(int, int)}. Different shares give orders that do not follow
+     * each other.
+     *
+     * @param rows  the number of rows
+     * @param index the row
+     * @param share the step, as a share of the rows
+     * @param salt  mixed with the seed for where the steps start
+     * @return a different row, unique for each index
+     */
+    private long shuffle(int rows, int index, double share, int salt) {
+        long step = (long) (rows * share) + Math.floorMod(seed, 1024) + 1;
+        while (gcd(step % rows, rows) != 1) {
+            step++;
+        }
+        return (step * index + Math.floorMod(seed * salt, (long) rows)) % rows;
+    }
+
+    /**
+     * Builds the name for a slot. Every slot below the number of rows gets a different name:
+     * the slot picks the two words, then what is left of it the subtitle, then the number.
+     *
+     * @param slot   the row's place in name order
+     * @param suffix an optional last word, empty for none
+     * @return the name
+     */
+    private static String name(long slot, String suffix) {
+        String words = FIRST[(int) (slot % FIRST.length)] + " "
+                + SECOND[(int) (slot / FIRST.length % SECOND.length)] + suffix;
+        long rest = slot / FIRST.length / SECOND.length;
+        if (rest == 0) {
+            return words;
+        }
+        rest--;
+        String subtitle = SUBTITLE_FIRST[(int) (rest % SUBTITLE_FIRST.length)] + " "
+                + SUBTITLE_SECOND[(int) (rest / SUBTITLE_FIRST.length % SUBTITLE_SECOND.length)];
+        long number = rest / SUBTITLE_FIRST.length / SUBTITLE_SECOND.length;
+        return words + ": " + subtitle + (number == 0 ? "" : " " + (number + 1));
+    }
+
+    /**
+     * Greatest common divisor.
+     *
+     * @param a a number
+     * @param b another number
+     * @return the largest number dividing both
+     */
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * Picks from a list by running total of weights.
+     *
+     * @param totals running totals, ending in 1
+     * @param u      a uniform number in [0, 1)
+     * @return the index picked
+     */
+    private static int pick(double[] totals, double u) {
+        int i = 0;
+        while (i < totals.length - 1 && u >= totals[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * The values of one row.
+     */
+    private final class Row {
+        /** the name. */
+        private final String name;
+        /** the id. */
+        private final int id;
+        /** 0 for unranked. */
+        private final int rank;
+        /** average rating. */
+        private final double average;
+        /** bayes average, pulled towards 5.5 for games with few ratings. */
+        private final double bayesAverage;
+        /** weight, 1 to 5. */
+        private final double weight;
+        /** number of owners. */
+        private final int owned;
+        /** minimum players. */
+        private final int minPlayers;
+        /** maximum players. */
+        private final int maxPlayers;
+        /** typical playing time. */
+        private final int playTime;
+        /** minimum playing time. */
+        private final int minTime;
+        /** year published. */
+        private final int year;
+        /** collection id. */
+        private final long collectionId;
+        /** recommended age. */
+        private final String age;
+        /** language dependence. */
+        private final String language;
+        /** recommended player counts. */
+        private final String recPlayers;
+        /** best player count. */
+        private final String bestPlayers;
+
+        /**
+         * Works out a row.
+         *
+         * @param rows  the number of rows
+         * @param index the row
+         */
+        Row(int rows, int index) {
+            SplittableRandom rnd = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + index);
+            String suffix = rnd.nextDouble() < 0.25 ? " " + THIRD[rnd.nextInt(THIRD.length)] : "";
+            this.name = name(shuffle(rows, index, 0.7548776662, 17), suffix);
+            this.id = index + 1;
+
+            // position in popularity, 0 is the best
+            long slot = shuffle(rows, index);
+            double position = (slot + rnd.nextDouble()) / rows;
+            this.rank = position >= 1 - UNRANKED ? 0 : (int) slot + 1;
+            this.average = clamp(8.6 - 2.8 * Math.sqrt(position) + rnd.nextGaussian() * 0.35, 1, 10);
+            this.owned = (int) Math.min(250_000, 40 / Math.pow(position + 0.0002, 1.1) * (0.5 + rnd.nextDouble()));
+            double votes = owned / 4.0;
+            this.bayesAverage = (average * votes + 5.5 * 100) / (votes + 100);
+            this.weight = clamp(1 + 4 * Math.pow(rnd.nextDouble(), 1.6) + rnd.nextGaussian() * 0.1, 1, 5);
+
+            this.minPlayers = new int[] {1, 2, 2, 2, 2, 2, 2, 2, 3, 4}[rnd.nextInt(10)];
+            int max = new int[] {2, 4, 4, 4, 5, 5, 6, 6, 8, 10, 12, 20}[rnd.nextInt(12)];
+            this.maxPlayers = Math.max(minPlayers, max);
+            double minutes = Math.exp(Math.log(40) + rnd.nextGaussian() * 0.75 + weight * 0.15);
+            this.playTime = (int) Math.min(3000, Math.max(5, Math.round(minutes / 5) * 5));
+            this.minTime = (int) Math.max(5, Math.round(playTime * (0.5 + rnd.nextDouble() / 2) / 5) * 5);
+
+            this.year = rnd.nextDouble() < 0.85
+                    ? (int) Math.max(1950, LATEST_YEAR - Math.floor(-Math.log(1 - rnd.nextDouble()) * 7))
+                    : 1900 + rnd.nextInt(100);
+            this.collectionId = 80_000_000L + rnd.nextInt(40_000_000);
+            this.age = AGES[Math.min(AGES.length - 1, (int) (Math.abs(rnd.nextGaussian()) * 2))];
+            this.language = LANGUAGE[pick(LANGUAGE_WEIGHTS, rnd.nextDouble())];
+            int recMax = Math.min(maxPlayers, minPlayers + 1 + rnd.nextInt(3));
+            int best = minPlayers + rnd.nextInt(recMax - minPlayers + 1);
+            boolean voted = owned >= 50;
+            this.recPlayers = !voted ? "" : recMax == minPlayers ? Integer.toString(recMax) : minPlayers + "-" + recMax;
+            this.bestPlayers = voted ? Integer.toString(best) : "";
+        }
+
+        /**
+         * Writes the row in the collection.csv column order.
+         *
+         * @return the line
+         */
+        String toCsv() {
+            StringBuilder sb = new StringBuilder(160 + name.length() * 2);
+            sb.append(name).append(',').append(id).append(",0,0,0,1,0,0,0,0,0,0,0,3,,,,,,")
+                    .append(collectionId).append(',').append(round(bayesAverage)).append(',')
+                    .append(round(average)).append(',').append(round(weight)).append(',')
+                    .append(rank).append(',').append(owned).append(",thing,").append(name).append(',')
+                    .append(minPlayers).append(',').append(maxPlayers).append(',')
+                    .append(playTime).append(',').append(playTime).append(',').append(minTime).append(',')
+                    .append(year).append(',').append(recPlayers).append(',')
+                    .append(bestPlayers).append(',').append(age).append(',').append(language)
+                    .append(",,,,,,standalone,,,,,");
+            return sb.toString();
+        }
+
+        /**
+         * Builds the game GamesLoader would load from the line.
+         *
+         * @return the game
+         */
+        BoardGame toGame() {
+            return new BoardGame(name, id, minPlayers, maxPlayers, minTime, playTime,
+                    Double.parseDouble(round(weight)), rank, Double.parseDouble(round(average)), year);
+        }
+    }
+
+    /**
+     * Keeps a value inside a range.
+     *
+     * @param value the value
+     * @param min   the lowest allowed
+     * @param max   the highest allowed
+     * @return the value, moved into the range
+     */
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Formats a value with at most five decimals, like the bundled data.
+     *
+     * @param value the value
+     * @return the text
+     */
+    private static String round(double value) {
+        return Double.toString(Math.round(value * 100_000) / 100_000.0);
+    }
+}
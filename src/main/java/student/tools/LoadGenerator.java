@@ -0,0 +1,757 @@
+package student.tools;
+
+import student.BoardGame;
+import student.CatalogStore;
+import student.GameCatalog;
+import student.GameData;
+import student.GameList;
+import student.GamesLoader;
+import student.IGameList;
+import student.IPlanner;
+import student.Planner;
+import student.metrics.LatencyHistogram;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Simulates many planning sessions at once and reports throughput and latency, to find how
+ * many sessions a node can take.
+ *
+ * Every simulated user has its own session and, without pausing (unless a think time is
+ * set), picks operations from a weighted mix:
+ *
+ * <ul>
+ * <li>filter - narrow the current result with one more filter from a pool, progressively,
+ * like a person drilling down</li>
+ * <li>sort - sort the current result on a random column</li>
+ * <li>reset - clear the filters</li>
+ * <li>add, remove - add the first game of the result to the list, or remove the first game
+ * of the list</li>
+ * </ul>
+ *
+ * Sessions run in process (a Planner and GameList per user over one shared catalog), or
+ * against a running server: the TCP line protocol (one connection per user) or the HTTP
+ * server (one cookie session per user). After a warm up, every operation is timed into a
+ * histogram per operation type.
+ *
+ * Command line options, all optional:
+ *
+ * <pre>
+ * --users N             simulated users (default 8)
+ * --seconds N           measured time (default 10)
+ * --warmup N            warm up time, not measured (default 3)
+ * --mix filter=40,sort=25,reset=10,add=15,remove=10
+ * --think MS            pause between operations per user (default 0)
+ * --rows N              generated catalog size for in process runs (default: bundled file)
+ * --seed N              seed for the users and generated catalog (default 1)
+ * --target inprocess | tcp:host:port | http:host:port
+ * </pre>
+ */
+public final class LoadGenerator {
+    /**
+     * The kinds of operation.
+     */
+    public enum Op {
+        /** add a filter. */
+        FILTER,
+        /** sort the result. */
+        SORT,
+        /** clear the filters. */
+        RESET,
+        /** add a game to the list. */
+        ADD,
+        /** remove a game from the list. */
+        REMOVE
+    }
+
+    /** filters users pick from, each narrows the result a bit. */
+    private static final String[] FILTERS = {
+        "minplayers>=2", "maxplayers>=4", "rating>6", "rating>7", "difficulty<3",
+        "maxplaytime<=90", "minplaytime>=20", "year>=2010", "year<2020", "name~=a", "name~=the",
+    };
+    /** columns users sort on. */
+    private static final GameData[] SORTS = {
+        GameData.NAME, GameData.RATING, GameData.DIFFICULTY, GameData.RANK, GameData.YEAR,
+        GameData.MAX_TIME,
+    };
+
+    /** simulated users. */
+    private final int users;
+    /** the operation mix, as running totals of the weights. */
+    private final int[] mix;
+    /** opens a session for a user. */
+    private final SessionFactory sessions;
+    /** seed for the users' choices. */
+    private final long seed;
+    /** pause between operations, in milliseconds. */
+    private final long thinkMillis;
+
+    /**
+     * Opens sessions for simulated users.
+     */
+    @FunctionalInterface
+    public interface SessionFactory {
+        /**
+         * Opens a session.
+         *
+         * @return a new session
+         * @throws IOException if the session cannot be opened
+         */
+        Session open() throws IOException;
+    }
+
+    /**
+     * One user's session, in process or remote.
+     */
+    public interface Session extends Closeable {
+        /**
+         * Adds a filter and sorts the result.
+         *
+         * @param filter    the filter
+         * @param sort      the sort column
+         * @param ascending the sort direction
+         * @throws IOException if a remote call fails
+         */
+        void filter(String filter, GameData sort, boolean ascending) throws IOException;
+
+        /**
+         * Clears the filters.
+         *
+         * @throws IOException if a remote call fails
+         */
+        void reset() throws IOException;
+
+        /**
+         * Runs a list add or remove.
+         *
+         * @param add   true to add, false to remove
+         * @param games what to add or remove, in list command syntax
+         * @throws IOException if a remote call fails
+         */
+        void list(boolean add, String games) throws IOException;
+    }
+
+    /**
+     * Creates a load generator.
+     *
+     * @param users       simulated users
+     * @param mix         weight of each operation, in Op order
+     * @param sessions    opens a session for each user
+     * @param seed        seed for the users' choices
+     * @param thinkMillis pause between operations, 0 for none
+     * @throws IllegalArgumentException if there are no users or the weights are wrong
+     */
+    public LoadGenerator(int users, int[] mix, SessionFactory sessions, long seed, long thinkMillis) {
+        if (users < 1) {
+            throw new IllegalArgumentException("Need at least one user: " + users);
+        }
+        if (mix.length != Op.values().length) {
+            throw new IllegalArgumentException("Need a weight for each of " + List.of(Op.values()));
+        }
+        this.users = users;
+        this.mix = new int[mix.length];
+        int total = 0;
+        for (int i = 0; i < mix.length; i++) {
+            if (mix[i] < 0) {
+                throw new IllegalArgumentException("Weights must not be negative");
+            }
+            total += mix[i];
+            this.mix[i] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("At least one weight must be positive");
+        }
+        this.sessions = sessions;
+        this.seed = seed;
+        this.thinkMillis = thinkMillis;
+    }
+
+    /**
+     * Parses a mix such as "filter=40,sort=25,reset=10,add=15,remove=10". Operations not
+     * named get weight 0.
+     *
+     * @param text the mix
+     * @return the weights, in Op order
+     * @throws IllegalArgumentException if the text is not a valid mix
+     */
+    public static int[] parseMix(String text) {
+        int[] weights = new int[Op.values().length];
+        for (String part : text.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Mix entries look like filter=40: " + part);
+            }
+            try {
+                weights[Op.valueOf(pair[0].trim().toUpperCase()).ordinal()] = Integer.parseInt(pair[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a weight: " + part);
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Runs the users for a warm up and then a measured time.
+     *
+     * @param warmupMillis  time before measuring starts
+     * @param measureMillis measured time
+     * @return the report for the measured time
+     * @throws IOException if a session cannot be opened
+     * @throws InterruptedException if interrupted while waiting for the users
+     */
+    public Report run(long warmupMillis, long measureMillis) throws IOException, InterruptedException {
+        List<Session> opened = new ArrayList<>();
+        try {
+            for (int i = 0; i < users; i++) {
+                opened.add(sessions.open());
+            }
+            Report report = new Report(users);
+            long measureFrom = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+            long end = measureFrom + TimeUnit.MILLISECONDS.toNanos(measureMillis);
+            ExecutorService pool = Executors.newFixedThreadPool(users);
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < users; i++) {
+                User user = new User(opened.get(i), new SplittableRandom(seed * 1_000_003 + i));
+                running.add(pool.submit(() -> user.run(report, measureFrom, end)));
+            }
+            for (Future<?> f : running) {
+                try {
+                    f.get();
+                } catch (java.util.concurrent.ExecutionException e) {
+                    report.errors.increment();
+                }
+            }
+            pool.shutdown();
+            report.elapsedNanos = Math.max(1, Math.min(System.nanoTime(), end) - measureFrom);
+            return report;
+        } finally {
+            for (Session session : opened) {
+                try {
+                    session.close();
+                } catch (IOException e) {
+                    // done with it anyway
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs from the command line, printing the report.
+     *
+     * @param args see the class comment
+     * @throws Exception if the run cannot start
+     */
+    public static void main(String[] args) throws Exception {
+        int users = 8;
+        long seconds = 10;
+        long warmup = 3;
+        int[] mix = parseMix("filter=40,sort=25,reset=10,add=15,remove=10");
+        long think = 0;
+        int rows = 0;
+        long seed = 1;
+        String target = "inprocess";
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--users":
+                    users = Integer.parseInt(value);
+                    break;
+                case "--seconds":
+                    seconds = Long.parseLong(value);
+                    break;
+                case "--warmup":
+                    warmup = Long.parseLong(value);
+                    break;
+                case "--mix":
+                    mix = parseMix(value);
+                    break;
+                case "--think":
+                    think = Long.parseLong(value);
+                    break;
+                case "--rows":
+                    rows = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--target":
+                    target = value;
+                    break;
+                default:
+                    System.err.println("Ignoring unknown option: " + args[i]);
+            }
+        }
+        SessionFactory factory;
+        if (target.equals("inprocess")) {
+            Set<BoardGame> games = rows > 0 ? new HashSet<>(new CatalogGenerator(seed).games(rows))
+                    : GamesLoader.loadGamesFile("/collection.csv");
+            factory = inProcess(games);
+        } else if (target.startsWith("tcp:")) {
+            factory = lineProtocol(host(target), port(target));
+        } else if (target.startsWith("http:")) {
+            factory = http(host(target), port(target));
+        } else {
+            throw new IllegalArgumentException("Unknown target: " + target);
+        }
+        System.out.printf("%d users against %s for %d s after %d s warm up%n", users, target, seconds, warmup);
+        Report report = new LoadGenerator(users, mix, factory, seed, think)
+                .run(TimeUnit.SECONDS.toMillis(warmup), TimeUnit.SECONDS.toMillis(seconds));
+        report.print(System.out);
+    }
+
+    /**
+     * Gets the host of a tcp:host:port or http:host:port target.
+     *
+     * @param target the target
+     * @return the host
+     */
+    private static String host(String target) {
+        return target.substring(target.indexOf(':') + 1, target.lastIndexOf(':'));
+    }
+
+    /**
+     * Gets the port of a tcp:host:port or http:host:port target.
+     *
+     * @param target the target
+     * @return the port
+     */
+    private static int port(String target) {
+        return Integer.parseInt(target.substring(target.lastIndexOf(':') + 1));
+    }
+
+    /**
+     * Sessions with their own Planner and GameList over a shared catalog, in this process.
+     * The catalog is built once and every planner starts on it, as the servers' sessions do.
+     *
+     * @param games the catalog
+     * @return the session factory
+     */
+    public static SessionFactory inProcess(Set<BoardGame> games) {
+        CatalogStore store = new CatalogStore(new GameCatalog(games));
+        return () -> new Session() {
+            /** the user's planner. */
+            private final IPlanner planner = new Planner(store);
+            /** the user's list. */
+            private final IGameList list = new GameList();
+
+            @Override
+            public void filter(String filter, GameData sort, boolean ascending) {
+                planner.filter(filter, sort, ascending);
+            }
+
+            @Override
+            public void reset() {
+                planner.reset();
+            }
+
+            @Override
+            public void list(boolean add, String games) {
+                if (add) {
+                    list.addToList(games, planner.getCurrentResult());
+                } else {
+                    list.removeFromList(games);
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Sessions on the TCP line protocol server, one connection each.
+     *
+     * @param host the server host
+     * @param port the server port
+     * @return the session factory
+     */
+    public static SessionFactory lineProtocol(String host, int port) {
+        return () -> new Session() {
+            /** the connection. */
+            private final Socket socket = new Socket(host, port);
+            /** the requests. */
+            private final OutputStream out = socket.getOutputStream();
+            /** the responses. */
+            private final BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+            @Override
+            public void filter(String filter, GameData sort, boolean ascending) throws IOException {
+                command("filter " + filter + " sort:" + sort.name().toLowerCase() + (ascending ? " asc" : " desc"));
+            }
+
+            @Override
+            public void reset() throws IOException {
+                command("filter clear");
+            }
+
+            @Override
+            public void list(boolean add, String games) throws IOException {
+                command("list " + (add ? "add " : "remove ") + games);
+            }
+
+            /**
+             * Sends a command and reads its whole response.
+             *
+             * @param line the command
+             * @throws IOException if the connection fails or the command failed
+             */
+            private void command(String line) throws IOException {
+                out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                String status = in.readLine();
+                String body = in.readLine();
+                while (body != null && !body.equals(".")) {
+                    body = in.readLine();
+                }
+                if (body == null) {
+                    throw new IOException("Connection closed");
+                }
+                if (!"+OK".equals(status)) {
+                    throw new IllegalArgumentException(line);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                socket.close();
+            }
+        };
+    }
+
+    /**
+     * Sessions on the HTTP server, one cookie session each.
+     *
+     * @param host the server host
+     * @param port the server port
+     * @return the session factory
+     */
+    public static SessionFactory http(String host, int port) {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://" + host + ":" + port;
+        return () -> new Session() {
+            /** the server's id for this session. */
+            private String id;
+
+            @Override
+            public void filter(String filter, GameData sort, boolean ascending) throws IOException {
+                send("GET", "/games?limit=50&filter=" + encode(filter) + "&sort=" + sort.name()
+                        + "&order=" + (ascending ? "asc" : "desc"));
+            }
+
+            @Override
+            public void reset() throws IOException {
+                send("POST", "/filter/clear");
+            }
+
+            @Override
+            public void list(boolean add, String games) throws IOException {
+                send("POST", (add ? "/list/add" : "/list/remove") + "?games=" + encode(games));
+            }
+
+            /**
+             * Sends a request in this session.
+             *
+             * @param method the HTTP method
+             * @param path   the path and query
+             * @throws IOException if the request fails or was rejected
+             */
+            private void send(String method, String path) throws IOException {
+                HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path))
+                        .method(method, HttpRequest.BodyPublishers.noBody());
+                if (id != null) {
+                    request.header("X-Session", id);
+                }
+                HttpResponse<String> response;
+                try {
+                    response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted", e);
+                }
+                id = response.headers().firstValue("X-Session").orElse(id);
+                if (response.statusCode() != 200) {
+                    throw new IllegalArgumentException(path + ": " + response.body());
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * URL encodes a query value.
+     *
+     * @param value the value
+     * @return the encoded value
+     */
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One simulated user.
+     */
+    private final class User {
+        /** the user's session. */
+        private final Session session;
+        /** the user's choices. */
+        private final SplittableRandom rnd;
+        /** filters applied since the last reset. */
+        private int filters;
+        /** roughly how many games the user has listed. */
+        private int listed;
+
+        /**
+         * Creates a user.
+         *
+         * @param session the session
+         * @param rnd     the user's choices
+         */
+        User(Session session, SplittableRandom rnd) {
+            this.session = session;
+            this.rnd = rnd;
+        }
+
+        /**
+         * Runs operations until the end time.
+         *
+         * @param report      where to record the measured operations
+         * @param measureFrom when measuring starts
+         * @param end         when to stop
+         * @return null
+         * @throws Exception if interrupted while thinking
+         */
+        Void run(Report report, long measureFrom, long end) throws Exception {
+            while (System.nanoTime() < end) {
+                Op op = next();
+                long start = System.nanoTime();
+                boolean ok = true;
+                try {
+                    perform(op);
+                } catch (IllegalArgumentException e) {
+                    ok = false; // rejected, such as adding from an empty result
+                } catch (IOException e) {
+                    report.errors.increment();
+                    return null;
+                }
+                long done = System.nanoTime();
+                if (start >= measureFrom && done <= end) {
+                    report.record(op, done - start, ok);
+                }
+                if (thinkMillis > 0) {
+                    Thread.sleep(thinkMillis);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Picks the next operation from the mix, keeping the session sensible: reset after
+         * several filters, and add instead of remove while the list is empty.
+         *
+         * @return the operation
+         */
+        private Op next() {
+            int pick = rnd.nextInt(mix[mix.length - 1]);
+            int i = 0;
+            while (pick >= mix[i]) {
+                i++;
+            }
+            Op op = Op.values()[i];
+            if (op == Op.FILTER && filters >= 4) {
+                return Op.RESET;
+            }
+            if (op == Op.REMOVE && listed == 0) {
+                return Op.ADD;
+            }
+            return op;
+        }
+
+        /**
+         * Runs one operation.
+         *
+         * @param op the operation
+         * @throws IOException if a remote call fails
+         */
+        private void perform(Op op) throws IOException {
+            GameData sort = SORTS[rnd.nextInt(SORTS.length)];
+            switch (op) {
+                case FILTER:
+                    filters++;
+                    session.filter(FILTERS[rnd.nextInt(FILTERS.length)], sort, rnd.nextBoolean());
+                    break;
+                case SORT:
+                    session.filter("", sort, rnd.nextBoolean());
+                    break;
+                case RESET:
+                    filters = 0;
+                    session.reset();
+                    break;
+                case ADD:
+                    session.list(true, "1");
+                    listed++;
+                    break;
+                case REMOVE:
+                default:
+                    session.list(false, "1");
+                    listed--;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Throughput and latency of a run.
+     */
+    public static final class Report {
+        /** simulated users. */
+        private final int users;
+        /** latency per operation. */
+        private final Map<Op, LatencyHistogram> latency = new EnumMap<>(Op.class);
+        /** latency of every operation. */
+        private final LatencyHistogram all = new LatencyHistogram();
+        /** operations the session rejected, per operation. */
+        private final Map<Op, LongAdder> rejected = new EnumMap<>(Op.class);
+        /** sessions that failed and stopped. */
+        private final LongAdder errors = new LongAdder();
+        /** length of the measured time. */
+        private long elapsedNanos;
+
+        /**
+         * Creates an empty report.
+         *
+         * @param users simulated users
+         */
+        Report(int users) {
+            this.users = users;
+            for (Op op : Op.values()) {
+                latency.put(op, new LatencyHistogram());
+                rejected.put(op, new LongAdder());
+            }
+        }
+
+        /**
+         * Records one measured operation.
+         *
+         * @param op    the operation
+         * @param nanos how long it took
+         * @param ok    false if the session rejected it
+         */
+        void record(Op op, long nanos, boolean ok) {
+            latency.get(op).record(nanos);
+            all.record(nanos);
+            if (!ok) {
+                rejected.get(op).increment();
+            }
+        }
+
+        /**
+         * Gets the latency of an operation.
+         *
+         * @param op the operation
+         * @return its histogram
+         */
+        public LatencyHistogram getLatency(Op op) {
+            return latency.get(op);
+        }
+
+        /**
+         * Gets the latency of all operations together.
+         *
+         * @return the histogram
+         */
+        public LatencyHistogram getLatency() {
+            return all;
+        }
+
+        /**
+         * Gets how many operations of a kind the session rejected.
+         *
+         * @param op the operation
+         * @return the count
+         */
+        public long getRejected(Op op) {
+            return rejected.get(op).sum();
+        }
+
+        /**
+         * Gets how many sessions failed and stopped early.
+         *
+         * @return the count
+         */
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        /**
+         * Gets measured operations per second, all users together.
+         *
+         * @return the throughput
+         */
+        public double getThroughput() {
+            return all.getCount() * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Prints the report as a table, times in microseconds.
+         *
+         * @param out where to print
+         */
+        public void print(PrintStream out) {
+            out.printf("%d users, %.1f s, %.0f ops/s, %d failed sessions%n",
+                    users, elapsedNanos / 1e9, getThroughput(), getErrors());
+            out.printf("%-7s %10s %9s %10s %10s %10s %10s%n",
+                    "op", "count", "rejected", "p50 us", "p99 us", "p999 us", "max us");
+            for (Op op : Op.values()) {
+                row(out, op.name().toLowerCase(), latency.get(op), getRejected(op));
+            }
+            long totalRejected = 0;
+            for (Op op : Op.values()) {
+                totalRejected += getRejected(op);
+            }
+            row(out, "all", all, totalRejected);
+        }
+
+        /**
+         * Prints one row of the table.
+         *
+         * @param out      where to print
+         * @param name     the row name
+         * @param h        the latencies
+         * @param rejected the rejected count
+         */
+        private static void row(PrintStream out, String name, LatencyHistogram h, long rejected) {
+            out.printf("%-7s %10d %9d %10.1f %10.1f %10.1f %10.1f%n", name, h.getCount(), rejected,
+                    h.getValueAtPercentile(50) / 1e3, h.getValueAtPercentile(99) / 1e3,
+                    h.getValueAtPercentile(99.9) / 1e3, h.getMax() / 1e3);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package student.tools;
+
+import student.BoardGame;
+import student.CatalogStore;
+import student.ConsoleApp;
+import student.GameCatalog;
+import student.GameList;
+import student.GamesLoader;
+import student.IGameList;
+import student.IPlanner;
+import student.Planner;
+import student.metrics.LatencyHistogram;
+import student.server.HttpQueryServer;
+import student.trace.CommandTrace;
+import student.trace.CommandTrace.Entry;
+
+import java.io.BufferedReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a recorded {@link CommandTrace} again against a catalog, to reproduce a slowdown or
+ * to compare two builds.
+ *
+ * Every recorded session gets a fresh Planner and GameList run through a ConsoleApp, and its
+ * commands run in the recorded order; requests recorded by the HTTP server go through
+ * {@link HttpQueryServer#replay} instead, with the same parameters, so the replay is deterministic: each command should
+ * leave the session in the state it was recorded with. Commands that report a different
+ * result (a different state digest, or an error where there was none or the other way round)
+ * are flagged as divergent. Commands that write files (list save, lists save) are skipped.
+ *
+ * The replay runs on one thread, either as fast as it can or at the recorded pace (waiting
+ * until each command's recorded start time). The report compares the recorded latencies
+ * with the replayed ones per command. To compare two builds, replay the production trace on
+ * the first with --record, then replay that recording on the second.
+ *
+ * <pre>
+ * java student.tools.TraceReplay trace [--catalog file] [--speed max|original] [--record out]
+ * </pre>
+ */
+public final class TraceReplay {
+    /** the catalog every session plans over and loads lists against, built once. */
+    private final CatalogStore store;
+
+    /**
+     * Creates a replayer for a catalog.
+     *
+     * @param games the games every session starts with
+     */
+    public TraceReplay(Set<BoardGame> games) {
+        this.store = new CatalogStore(new GameCatalog(games));
+    }
+
+    /**
+     * Replays a trace.
+     *
+     * @param trace         the recorded commands
+     * @param originalSpeed true to wait for each command's recorded start, false to run flat out
+     * @param record        where to record the replay, or null
+     * @return the comparison
+     * @throws InterruptedException if interrupted while waiting at original speed
+     */
+    public Report replay(List<Entry> trace, boolean originalSpeed, CommandTrace record)
+            throws InterruptedException {
+        Map<Integer, Replayed> sessions = new HashMap<>();
+        Report report = new Report();
+        long origin = System.nanoTime();
+        for (int i = 0; i < trace.size(); i++) {
+            Entry entry = trace.get(i);
+            if (writesFiles(entry.getCommand())) {
+                report.skipped++;
+                continue;
+            }
+            if (originalSpeed) {
+                long wait = entry.getTime() - (System.nanoTime() - origin);
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            }
+            Replayed session = sessions.computeIfAbsent(entry.getSession(), id -> new Replayed());
+            int errors = session.console.getErrorCount();
+            long start = System.nanoTime();
+            boolean ok;
+            if (HttpQueryServer.isRequest(entry.getCommand())) {
+                ok = HttpQueryServer.replay(entry.getCommand(), session.planner, session.gameList);
+            } else {
+                session.console.execute(entry.getCommand());
+                ok = session.console.getErrorCount() == errors;
+            }
+            long nanos = System.nanoTime() - start;
+            int digest = CommandTrace.digest(session.planner, session.gameList);
+            report.add(verb(entry.getCommand()), entry.getLatency(), nanos);
+            if (ok != entry.isOk() || digest != entry.getDigest()) {
+                report.divergent.add(i);
+                report.divergentEntries.add(entry);
+            }
+            if (record != null) {
+                record.record(entry.getSession(), start, nanos, ok, entry.getCommand(), digest);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Checks if a command writes files, which a replay must not do.
+     *
+     * @param command the command
+     * @return true for list save and lists save
+     */
+    static boolean writesFiles(String command) {
+        String[] words = command.trim().toLowerCase(Locale.ROOT).split("\\s+");
+        return words.length >= 2 && (words[0].equals("list") || words[0].equals("lists"))
+                && words[1].equals("save");
+    }
+
+    /**
+     * Gets the name commands are grouped by in the report: the command and, for list and
+     * lists, the sub command. HTTP requests are grouped by path.
+     *
+     * @param command the command
+     * @return such as "filter", "list add" or "/games"
+     */
+    static String verb(String command) {
+        if (HttpQueryServer.isRequest(command)) {
+            int mark = command.indexOf('?');
+            return mark < 0 ? command : command.substring(0, mark);
+        }
+        String[] words = command.trim().toLowerCase(Locale.ROOT).split("\\s+");
+        if (words.length >= 2 && (words[0].equals("list") || words[0].equals("lists"))) {
+            return words[0] + " " + words[1];
+        }
+        return words[0];
+    }
+
+    /**
+     * Replays a trace file from the command line, prints the report, and exits with 1 if any
+     * command diverged.
+     *
+     * @param args the trace, then optional --catalog, --speed and --record
+     * @throws Exception if the replay cannot run
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: TraceReplay trace [--catalog file] [--speed max|original] [--record out]");
+            System.exit(2);
+        }
+        String catalogFile = "/collection.csv";
+        boolean originalSpeed = false;
+        Path recordTo = null;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--catalog":
+                    catalogFile = args[i + 1];
+                    break;
+                case "--speed":
+                    originalSpeed = args[i + 1].equalsIgnoreCase("original");
+                    break;
+                case "--record":
+                    recordTo = Path.of(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Ignoring unknown option: " + args[i]);
+            }
+        }
+        List<Entry> trace = CommandTrace.read(Path.of(args[0]));
+        TraceReplay replay = new TraceReplay(GamesLoader.loadGamesFile(catalogFile));
+        Report report;
+        CommandTrace record = recordTo == null ? null : CommandTrace.create(recordTo);
+        try {
+            report = replay.replay(trace, originalSpeed, record);
+        } finally {
+            if (record != null) {
+                record.close();
+            }
+        }
+        report.print(System.out);
+        System.exit(report.getDivergent().isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * One recorded session being replayed.
+     */
+    private final class Replayed {
+        /** the session's planner. */
+        private final IPlanner planner = new Planner(store);
+        /** the session's list. */
+        private final IGameList gameList = new GameList();
+        /** runs the commands, output thrown away. */
+        private final ConsoleApp console = new ConsoleApp(gameList, planner, store,
+                new BufferedReader(new StringReader("")), new PrintWriter(Writer.nullWriter()));
+    }
+
+    /**
+     * Recorded and replayed latencies per command, and the commands that diverged.
+     */
+    public static final class Report {
+        /** recorded latency per command verb. */
+        private final Map<String, LatencyHistogram> recorded = new TreeMap<>();
+        /** replayed latency per command verb. */
+        private final Map<String, LatencyHistogram> replayed = new TreeMap<>();
+        /** indexes into the trace of divergent commands. */
+        private final List<Integer> divergent = new ArrayList<>();
+        /** the divergent commands. */
+        private final List<Entry> divergentEntries = new ArrayList<>();
+        /** commands skipped because they write files. */
+        private int skipped;
+
+        /**
+         * Adds one replayed command.
+         *
+         * @param verb        the command verb
+         * @param recordedNs  the recorded latency
+         * @param replayedNs  the replayed latency
+         */
+        private void add(String verb, long recordedNs, long replayedNs) {
+            recorded.computeIfAbsent(verb, v -> new LatencyHistogram()).record(recordedNs);
+            replayed.computeIfAbsent(verb, v -> new LatencyHistogram()).record(replayedNs);
+        }
+
+        /**
+         * Gets the recorded latencies of a command verb.
+         *
+         * @param verb such as "filter" or "list add"
+         * @return the histogram, or null if the verb was not replayed
+         */
+        public LatencyHistogram getRecorded(String verb) {
+            return recorded.get(verb);
+        }
+
+        /**
+         * Gets the replayed latencies of a command verb.
+         *
+         * @param verb such as "filter" or "list add"
+         * @return the histogram, or null if the verb was not replayed
+         */
+        public LatencyHistogram getReplayed(String verb) {
+            return replayed.get(verb);
+        }
+
+        /**
+         * Gets the positions in the trace of the commands that diverged.
+         *
+         * @return the indexes, in order
+         */
+        public List<Integer> getDivergent() {
+            return divergent;
+        }
+
+        /**
+         * Gets how many commands were skipped because they write files.
+         *
+         * @return the count
+         */
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Prints the latency comparison, times in microseconds, then the divergent commands.
+         *
+         * @param out where to print
+         */
+        public void print(PrintStream out) {
+            out.printf("%-12s %8s %10s %10s %10s %10s %8s%n", "command", "count",
+                    "was p50", "now p50", "was p99", "now p99", "p99 x");
+            for (Map.Entry<String, LatencyHistogram> e : recorded.entrySet()) {
+                LatencyHistogram was = e.getValue();
+                LatencyHistogram now = replayed.get(e.getKey());
+                long wasP99 = was.getValueAtPercentile(99);
+                long nowP99 = now.getValueAtPercentile(99);
+                out.printf("%-12s %8d %10.1f %10.1f %10.1f %10.1f %8.2f%n", e.getKey(), was.getCount(),
+                        was.getValueAtPercentile(50) / 1e3, now.getValueAtPercentile(50) / 1e3,
+                        wasP99 / 1e3, nowP99 / 1e3, wasP99 == 0 ? 0.0 : (double) nowP99 / wasP99);
+            }
+            if (skipped > 0) {
+                out.printf("%d commands skipped (they write files)%n", skipped);
+            }
+            out.printf("%d divergent commands%n", divergent.size());
+            for (int i = 0; i < divergent.size(); i++) {
+                out.printf("  at %d: %s%n", divergent.get(i), divergentEntries.get(i));
+            }
+        }
+    }
+}
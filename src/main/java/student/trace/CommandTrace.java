@@ -0,0 +1,400 @@
+package student.trace;
+
+import student.FilterResult;
+import student.IGameList;
+import student.IPlanner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A compact binary record of the commands sessions ran, for replaying later with
+ * {@link student.tools.TraceReplay}.
+ *
+ * Each record holds when the command started (nanoseconds since the trace was opened), the
+ * session that ran it, how long it took, whether it worked, a digest of the session's state
+ * afterwards (see {@link #digest(IPlanner, IGameList)}) and the command itself, in console
+ * syntax or, for the HTTP server, as the request's path and query. Numbers are written as
+ * variable length integers, and each distinct command text is written once and then
+ * referred to by number, so a typical record is 10 to 15 bytes.
+ *
+ * File layout: the int {@link #MAGIC}, a short {@link #VERSION}, the long wall clock time
+ * the trace was opened, then records to the end of the file. A record cut short by a crash
+ * is dropped when reading.
+ *
+ * Recording is thread safe. A write failure stops the trace (reported once on standard
+ * error) instead of failing the command being traced.
+ *
+ * Tracing costs each command its digest: one pass over the current result and the list,
+ * with a name sort of the list, and of the result if nothing sorted it yet. The console
+ * and the HTTP server take it after the answer has been sent, so the caller does not wait
+ * for it, but the session's next command does. Writing the record itself is a few bytes
+ * into a buffer.
+ */
+public final class CommandTrace implements Closeable {
+    /** first four bytes of a trace file, "BGTR". */
+    public static final int MAGIC = 0x42475452;
+    /** version of the file layout. */
+    public static final short VERSION = 1;
+    /** most distinct command texts kept for reference, later new ones are written out in full. */
+    private static final int MAX_NAMES = 1 << 16;
+
+    /** where records go. */
+    private final DataOutputStream out;
+    /** System.nanoTime when the trace was opened. */
+    private final long origin = System.nanoTime();
+    /** command text to its reference number. */
+    private final Map<String, Integer> names = new HashMap<>();
+    /** hands out session ids. */
+    private final AtomicInteger sessions = new AtomicInteger();
+    /** true once a write failed, nothing more is recorded. */
+    private boolean failed;
+
+    /**
+     * Starts a trace on a stream, writing the header.
+     *
+     * @param out where to write, closed with the trace
+     * @throws UncheckedIOException if the header cannot be written
+     */
+    public CommandTrace(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        try {
+            this.out.writeInt(MAGIC);
+            this.out.writeShort(VERSION);
+            this.out.writeLong(System.currentTimeMillis());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Starts a trace in a file, replacing it if it exists.
+     *
+     * @param file the file
+     * @return the trace
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public static CommandTrace create(Path file) {
+        try {
+            return new CommandTrace(Files.newOutputStream(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets an id for a new session.
+     *
+     * @return the id, unique within this trace
+     */
+    public int newSession() {
+        return sessions.getAndIncrement();
+    }
+
+    /**
+     * Records a command.
+     *
+     * @param session      the session id
+     * @param startNanos   System.nanoTime when the command started
+     * @param latencyNanos how long it took
+     * @param ok           false if the command reported an error
+     * @param command      the command, in console syntax or as an HTTP path and query
+     * @param digest       digest of the session's state after the command
+     */
+    public synchronized void record(int session, long startNanos, long latencyNanos, boolean ok,
+            String command, int digest) {
+        if (failed) {
+            return;
+        }
+        try {
+            writeVarLong(Math.max(0, startNanos - origin));
+            writeVarLong(session);
+            writeVarLong(Math.max(0, latencyNanos));
+            out.writeByte(ok ? 1 : 0);
+            out.writeInt(digest);
+            Integer ref = names.get(command);
+            if (ref != null) {
+                writeVarLong(ref + 1L);
+            } else {
+                writeVarLong(0);
+                byte[] bytes = command.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(bytes.length);
+                out.write(bytes);
+                if (names.size() < MAX_NAMES) {
+                    names.put(command, names.size());
+                }
+            }
+        } catch (IOException e) {
+            failed = true;
+            System.err.println("Error writing command trace, tracing stopped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes buffered records out.
+     */
+    public synchronized void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            failed = true;
+        }
+    }
+
+    /**
+     * Writes buffered records out and closes the stream.
+     *
+     * @throws IOException if the stream cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        failed = true; // nothing after close
+        out.close();
+    }
+
+    /**
+     * Writes a non negative number, seven bits per byte, low bits first.
+     *
+     * @param value the number
+     * @throws IOException if the write fails
+     */
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * A digest of what a session shows and holds: the games of the current result in order,
+     * then the games in the list. Two runs of the same commands on the same catalog give the
+     * same digest unless filtering, sorting or the list behave differently.
+     *
+     * Reading the current result sorts it by name if nothing sorted it yet, which the next
+     * list add would have done anyway.
+     *
+     * @param planner  the session's planner
+     * @param gameList the session's list
+     * @return the digest
+     */
+    public static int digest(IPlanner planner, IGameList gameList) {
+        FilterResult result = planner.getCurrentResult();
+        int h = result.size();
+        for (int i = 0; i < result.size(); i++) {
+            h = 31 * h + result.get(i).getName().hashCode();
+        }
+        h = 31 * h + gameList.count();
+        for (String name : gameList.getGameNames()) {
+            h = 31 * h + name.hashCode();
+        }
+        return h;
+    }
+
+    /**
+     * Reads every record of a trace file.
+     *
+     * @param file the file
+     * @return the records, in the order they were written
+     * @throws UncheckedIOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a trace
+     */
+    public static List<Entry> read(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads every record from a stream.
+     *
+     * @param stream the trace
+     * @return the records, in the order they were written
+     * @throws IOException if the stream cannot be read
+     * @throws IllegalArgumentException if the stream is not a trace
+     */
+    public static List<Entry> read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a command trace");
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported command trace version " + version);
+            }
+            in.readLong(); // wall clock start, informational
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Not a command trace");
+        }
+        List<String> names = new ArrayList<>();
+        List<Entry> entries = new ArrayList<>();
+        while (true) {
+            int first = in.read();
+            if (first < 0) {
+                return entries;
+            }
+            try {
+                long time = readVarLong(in, first);
+                int session = (int) readVarLong(in, in.readUnsignedByte());
+                long latency = readVarLong(in, in.readUnsignedByte());
+                boolean ok = in.readByte() != 0;
+                int digest = in.readInt();
+                long ref = readVarLong(in, in.readUnsignedByte());
+                String command;
+                if (ref == 0) {
+                    byte[] bytes = new byte[(int) readVarLong(in, in.readUnsignedByte())];
+                    in.readFully(bytes);
+                    command = new String(bytes, StandardCharsets.UTF_8);
+                    if (names.size() < MAX_NAMES) {
+                        names.add(command);
+                    }
+                } else if (ref <= names.size()) {
+                    command = names.get((int) ref - 1);
+                } else {
+                    throw new IllegalArgumentException("Bad command reference " + ref);
+                }
+                entries.add(new Entry(time, session, latency, ok, digest, command));
+            } catch (EOFException e) {
+                return entries; // torn last record
+            }
+        }
+    }
+
+    /**
+     * Reads the rest of a variable length number.
+     *
+     * @param in    the stream
+     * @param first the first byte, already read
+     * @return the number
+     * @throws IOException if the stream ends or fails
+     */
+    private static long readVarLong(DataInputStream in, int first) throws IOException {
+        long value = first & 0x7F;
+        int shift = 7;
+        int b = first;
+        while ((b & 0x80) != 0) {
+            if (shift > 63) {
+                throw new IllegalArgumentException("Bad number in command trace");
+            }
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+
+    /**
+     * One recorded command.
+     */
+    public static final class Entry {
+        /** nanoseconds from the start of the trace to the start of the command. */
+        private final long time;
+        /** the session that ran it. */
+        private final int session;
+        /** how long it took, in nanoseconds. */
+        private final long latency;
+        /** false if it reported an error. */
+        private final boolean ok;
+        /** digest of the session's state afterwards. */
+        private final int digest;
+        /** the command. */
+        private final String command;
+
+        /**
+         * Creates a record.
+         *
+         * @param time    nanoseconds from the start of the trace
+         * @param session the session id
+         * @param latency how long it took, in nanoseconds
+         * @param ok      false if it reported an error
+         * @param digest  digest of the session's state afterwards
+         * @param command the command
+         */
+        public Entry(long time, int session, long latency, boolean ok, int digest, String command) {
+            this.time = time;
+            this.session = session;
+            this.latency = latency;
+            this.ok = ok;
+            this.digest = digest;
+            this.command = command;
+        }
+
+        /**
+         * Gets when the command started.
+         *
+         * @return nanoseconds from the start of the trace
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Gets the session that ran the command.
+         *
+         * @return the session id
+         */
+        public int getSession() {
+            return session;
+        }
+
+        /**
+         * Gets how long the command took.
+         *
+         * @return nanoseconds
+         */
+        public long getLatency() {
+            return latency;
+        }
+
+        /**
+         * Checks if the command worked.
+         *
+         * @return false if it reported an error
+         */
+        public boolean isOk() {
+            return ok;
+        }
+
+        /**
+         * Gets the digest of the session's state after the command.
+         *
+         * @return the digest
+         */
+        public int getDigest() {
+            return digest;
+        }
+
+        /**
+         * Gets the command.
+         *
+         * @return the command, in console syntax or as an HTTP path and query
+         */
+        public String getCommand() {
+            return command;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + session + " " + command;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package student;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import student.tools.CatalogGenerator;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Allocation budgets for the filter, sort, list, load and reload paths, measured with the JVM's per
+ * thread allocation counter. Each operation is warmed up first, then the bytes allocated over
+ * many runs are averaged. Budgets are about twice what the code needs today, so they only fail
+ * when a copy per row, boxing per comparison or a string per test comes back.
+ */
+public class TestAllocations {
+    private static final int ROWS = 10_000;
+    private static final int WARMUP = 30;
+    private static final int RUNS = 20;
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static Set<BoardGame> games;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    public static void setUpAll() {
+        games = new HashSet<>(new CatalogGenerator(42).games(ROWS));
+    }
+
+    /** Average bytes one run of the operation allocates on this thread, after warming it up. */
+    private static long allocated(Runnable op) {
+        for (int i = 0; i < WARMUP; i++) {
+            op.run();
+        }
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < RUNS; i++) {
+            op.run();
+        }
+        return (THREADS.getCurrentThreadAllocatedBytes() - before) / RUNS;
+    }
+
+    private static void assertBudget(String what, long bytes, long budget) {
+        assertTrue(bytes <= budget, what + " allocated " + bytes + " bytes, budget " + budget);
+    }
+
+    // 1.1 Filtering from all games allocates the kept games and the sorted result, no set copies
+    @Test
+    public void testFilterBudget() {
+        Planner planner = new Planner(games);
+        long bytes = allocated(() -> {
+            planner.reset();
+            planner.filter("minplayers>=2,maxplaytime<=120", GameData.RATING, false);
+        });
+        assertBudget("filter/row", bytes / ROWS, 48);
+    }
+
+    // 1.2 A name filter does not lower case a name per game
+    @Test
+    public void testNameFilterBudget() {
+        Planner planner = new Planner(games);
+        long bytes = allocated(() -> {
+            planner.reset();
+            planner.filter("name~=a");
+        });
+        assertBudget("name/row", bytes / ROWS, 48);
+    }
+
+    // 1.3 Sorting numeric columns does not box per comparison
+    @Test
+    public void testSortBudget() {
+        Planner planner = new Planner(games);
+        boolean[] flip = {false};
+        long bytes = allocated(() -> {
+            flip[0] = !flip[0];
+            planner.filter("", flip[0] ? GameData.RATING : GameData.YEAR, flip[0]);
+        });
+        assertBudget("sort/row", bytes / ROWS, 32);
+    }
+
+    // 1.4 Reset does not copy the games
+    @Test
+    public void testResetBudget() {
+        Planner planner = new Planner(games);
+        long bytes = allocated(planner::reset);
+        assertBudget("reset", bytes, 256);
+    }
+
+    // 1.5 Adding a range is a few objects, not a regular expression per call
+    @Test
+    public void testAddToListBudget() {
+        Planner planner = new Planner(games);
+        planner.filter("", GameData.RANK, true);
+        GameList list = new GameList();
+        long bytes = allocated(() -> {
+            list.addToList("1-10", planner.getCurrentResult());
+            list.addToList("3", planner.getCurrentResult());
+            list.clear();
+        });
+        assertBudget("addToList", bytes, 2048);
+    }
+
+    // 1.6 Loading cuts out only the columns it needs
+    @Test
+    public void testLoadBudget() {
+        Path file = tempDir.resolve("catalog.csv");
+        new CatalogGenerator(42).write(ROWS, file);
+        String name = file.toString();
+        assertEquals(ROWS, GamesLoader.loadGamesFile(name).size());
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        GamesLoader.loadGamesFile(name);
+        long bytes = THREADS.getCurrentThreadAllocatedBytes() - before;
+        assertBudget("load/row", bytes / ROWS, 1536);
+    }
+
+    // 1.7 Reloading ten changed games touches the indexes only at those games, plus one copy of the rows
+    @Test
+    public void testReloadBudget() {
+        GameCatalog catalog = new GameCatalog(games);
+        List<BoardGame> removed = new ArrayList<>(catalog.games().subList(100, 105));
+        List<BoardGame> added = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            added.add(new BoardGame("Reloaded " + i, 700000 + i, 2, 4, 30, 60, 2.0, 0, 6.0, 2024));
+        }
+        CatalogDiff diff = new CatalogDiff(added, removed, List.of());
+        long bytes = allocated(() -> catalog.apply(diff));
+        assertBudget("reload", bytes, 4L * ROWS + 32768);
+    }
+}
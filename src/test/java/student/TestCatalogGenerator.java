@@ -0,0 +1,111 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import student.tools.CatalogGenerator;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test for the synthetic catalog generator.
+ */
+public class TestCatalogGenerator {
+    @TempDir
+    Path tempDir;
+
+    // 1.1 Same header as the bundled file, and every row has all 48 columns
+    @Test
+    public void testFormat() throws Exception {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                GamesLoader.class.getResourceAsStream("/collection.csv"), StandardCharsets.UTF_8))) {
+            assertEquals(in.readLine(), CatalogGenerator.HEADER);
+        }
+        CatalogGenerator generator = new CatalogGenerator(7);
+        for (int i = 0; i < 1000; i++) {
+            String row = generator.row(1000, i);
+            assertEquals(48, row.split(",", -1).length, row);
+            assertFalse(row.contains("\""));
+        }
+    }
+
+    // 1.2 The same seed gives the same catalog, another seed a different one
+    @Test
+    public void testReproducible() {
+        assertEquals(new CatalogGenerator(42).games(500), new CatalogGenerator(42).games(500));
+        assertEquals(new CatalogGenerator(42).row(500, 123), new CatalogGenerator(42).row(500, 123));
+        assertNotEquals(new CatalogGenerator(42).row(500, 123), new CatalogGenerator(43).row(500, 123));
+    }
+
+    // 1.3 A written catalog loads into exactly the games the generator describes
+    @Test
+    public void testLoadsLikeGenerated() {
+        Path file = tempDir.resolve("catalog.csv");
+        CatalogGenerator generator = new CatalogGenerator(3);
+        generator.write(20000, file);
+        Set<BoardGame> loaded = GamesLoader.loadGamesFile(file.toString());
+        assertEquals(new HashSet<>(generator.games(20000)), loaded);
+    }
+
+    // 1.4 Columns have realistic shapes: unique ranks, recent years, mostly 2+ players, Unicode names
+    @Test
+    public void testDistributions() {
+        int rows = 20000;
+        List<BoardGame> games = new CatalogGenerator(11).games(rows);
+        Set<Integer> ranks = new HashSet<>();
+        int unranked = 0;
+        int recent = 0;
+        int twoPlayerStart = 0;
+        int nonAscii = 0;
+        double topRating = 0;
+        double bottomRating = 0;
+        for (BoardGame game : games) {
+            if (game.getRank() == 0) {
+                unranked++;
+            } else {
+                assertTrue(ranks.add(game.getRank()), "duplicate rank " + game.getRank());
+                if (game.getRank() <= 1000) {
+                    topRating += game.getRating();
+                } else if (game.getRank() > rows * 0.8) {
+                    bottomRating += game.getRating();
+                }
+            }
+            recent += game.getYearPublished() >= 2000 ? 1 : 0;
+            twoPlayerStart += game.getMinPlayers() == 2 ? 1 : 0;
+            nonAscii += game.getName().chars().anyMatch(c -> c > 127) ? 1 : 0;
+            assertTrue(game.getMaxPlayers() >= game.getMinPlayers());
+            assertTrue(game.getMinPlayTime() <= game.getMaxPlayTime());
+        }
+        assertEquals(0.12, unranked / (double) rows, 0.02);
+        assertTrue(recent > rows * 0.7, "recent " + recent);
+        assertTrue(twoPlayerStart > rows * 0.6, "two player " + twoPlayerStart);
+        assertTrue(nonAscii > rows * 0.2, "non ascii " + nonAscii);
+        assertTrue(topRating / 1000 > bottomRating / (rows * 0.08) + 1, "better ranks rate higher");
+    }
+
+    // 1.5 Names are nearly all different, as in real catalogs, and found again by name
+    @Test
+    public void testNamesNearlyUnique() {
+        for (int rows : new int[] {1000, 10000, 100000}) {
+            List<BoardGame> games = new CatalogGenerator(5).games(rows);
+            Set<String> names = new HashSet<>();
+            for (BoardGame game : games) {
+                names.add(game.getName().toLowerCase());
+                assertFalse(game.getName().contains(",") || game.getName().contains("\""), game.getName());
+            }
+            assertTrue(names.size() >= rows * 0.99, rows + " rows, " + names.size() + " names");
+        }
+        List<BoardGame> games = new CatalogGenerator(5).games(10000);
+        GameCatalog catalog = new GameCatalog(games);
+        for (int i = 0; i < games.size(); i += 97) {
+            assertEquals(games.get(i), catalog.findByName(games.get(i).getName()));
+        }
+    }
+}
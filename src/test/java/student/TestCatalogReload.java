@@ -0,0 +1,400 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import student.tools.CatalogGenerator;
+
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test for reloading the catalog: the diff, the new version, the file watcher, and the
+ * epochs readers pin while reloads go on.
+ */
+public class TestCatalogReload {
+    @TempDir
+    Path tempDir;
+
+    /** A copy of a game with a different rating. */
+    private static BoardGame rerated(BoardGame game, double rating) {
+        return new BoardGame(game.getName(), game.getId(), game.getMinPlayers(), game.getMaxPlayers(),
+                game.getMinPlayTime(), game.getMaxPlayTime(), game.getDifficulty(), game.getRank(),
+                rating, game.getYearPublished());
+    }
+
+    // 1.1 The persistent map agrees with a HashMap, including keys with the same hash, and old versions keep their values
+    @Test
+    public void testHashTrie() {
+        Random random = new Random(5);
+        Map<String, Integer> model = new HashMap<>();
+        HashTrie<String, Integer> trie = new HashTrie<>();
+        String[] keys = new String[3000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i % 3 == 0 ? (i % 2 == 0 ? "Aa" : "BB") + i / 6 : "key" + i;
+        }
+        HashTrie<String, Integer> before = null;
+        Map<String, Integer> beforeModel = null;
+        for (int step = 0; step < 20000; step++) {
+            String key = keys[random.nextInt(keys.length)];
+            Integer value = random.nextInt(4) == 0 ? null : step;
+            trie = trie.with(key, value);
+            if (value == null) {
+                model.remove(key);
+            } else {
+                model.put(key, value);
+            }
+            if (step == 10000) {
+                before = trie;
+                beforeModel = new HashMap<>(model);
+            }
+        }
+        assertEquals(model.size(), trie.size());
+        for (String key : keys) {
+            assertEquals(model.get(key), trie.get(key), key);
+            assertEquals(beforeModel.get(key), before.get(key), key);
+        }
+    }
+
+    // 1.2 The diff sorts games into added, removed and updated by (name, id)
+    @Test
+    public void testDiff() {
+        List<BoardGame> games = new CatalogGenerator(1).games(100);
+        GameCatalog catalog = new GameCatalog(games);
+        List<BoardGame> next = new ArrayList<>(games.subList(2, 100));
+        next.set(10, rerated(next.get(10), 1.5));
+        BoardGame added = new BoardGame("Brand New", 999999, 2, 4, 30, 60, 2.0, 0, 7.0, 2025);
+        next.add(added);
+        CatalogDiff diff = CatalogDiff.between(catalog, next);
+        assertEquals(List.of(added), diff.getAdded());
+        assertEquals(Set.of(games.get(0), games.get(1)), new HashSet<>(diff.getRemoved()));
+        assertEquals(1, diff.getUpdated().size());
+        assertEquals(1.5, diff.getUpdated().get(0).getRating());
+        assertEquals("+1 -2 ~1", diff.toString());
+        assertTrue(CatalogDiff.between(catalog, games).isEmpty());
+        assertSame(catalog, catalog.apply(CatalogDiff.between(catalog, games)));
+    }
+
+    // 1.3 Applying a diff gives the same catalog as building from scratch, and leaves the old version as it was
+    @Test
+    public void testApplyMatchesRebuild() {
+        Random random = new Random(9);
+        List<BoardGame> games = new CatalogGenerator(2).games(5000);
+        GameCatalog catalog = new GameCatalog(games);
+        List<BoardGame> oldRows = new ArrayList<>(catalog.games());
+        List<BoardGame> next = new ArrayList<>();
+        for (BoardGame game : games) {
+            int roll = random.nextInt(50);
+            if (roll == 0) {
+                continue;
+            }
+            next.add(roll == 1 ? rerated(game, 9.9) : game);
+        }
+        for (int i = 0; i < 40; i++) {
+            next.add(new BoardGame("Added " + random.nextInt(100000), 900000 + i, 2, 4, 30, 60, 2.0, 0, 6.0, 2024));
+        }
+        next.add(new BoardGame(games.get(0).getName(), 888888, 1, 2, 10, 20, 1.0, 0, 5.0, 2020));
+
+        GameCatalog applied = catalog.apply(CatalogDiff.between(catalog, next));
+        GameCatalog rebuilt = new GameCatalog(next);
+        assertEquals(2, applied.getVersion());
+        assertEquals(rebuilt.games(), applied.games());
+        for (int i = 0; i < rebuilt.size(); i++) {
+            BoardGame game = rebuilt.get(i);
+            assertEquals(9.9 == game.getRating(), 9.9 == applied.get(i).getRating());
+            assertEquals(i, applied.ordinalOf(game));
+            assertSame(rebuilt.findById(game.getId()), applied.findById(game.getId()));
+            assertEquals(rebuilt.findByName(game.getName()), applied.findByName(game.getName()));
+        }
+        assertEquals(oldRows, catalog.games());
+        for (BoardGame game : games) {
+            assertEquals(game, catalog.findById(game.getId()));
+            assertEquals(game.getRating(), catalog.findById(game.getId()).getRating());
+        }
+    }
+
+    // 1.4 Lists and named lists made against the old version still hold, a new session sees the new one
+    @Test
+    public void testOldVersionStaysValid() {
+        List<BoardGame> games = new CatalogGenerator(4).games(200);
+        CatalogStore store = new CatalogStore(new GameCatalog(games));
+        GameCatalog old = store.current();
+        BoardGame gone = old.get(0);
+        GameList list = new GameList();
+        list.addToList(gone.getName(), old.games().stream());
+        NamedLists named = new NamedLists(old);
+        named.put("mine", Stream.of(gone, old.get(1)));
+
+        List<BoardGame> next = new ArrayList<>(games);
+        next.remove(gone);
+        CatalogDiff diff = store.reload(next);
+        assertEquals(List.of(gone), diff.getRemoved());
+        assertNotSame(old, store.current());
+        assertNull(store.current().findByName(gone.getName()));
+        assertEquals(gone, old.findByName(gone.getName()));
+        assertEquals(List.of(gone.getName()), list.getGameNames().stream().toList());
+        assertEquals(List.of(gone, old.get(1)), named.games("mine"));
+        assertEquals(199, new Planner(store.current().gameSet()).filter("").count());
+    }
+
+    // 1.5 Watching the file reloads it when it is rewritten, and a file with no games is ignored
+    @Test
+    public void testWatch() throws Exception {
+        Path file = tempDir.resolve("catalog.csv");
+        CatalogGenerator generator = new CatalogGenerator(6);
+        generator.write(300, file);
+        CatalogStore store = new CatalogStore(new GameCatalog(GamesLoader.loadGamesFile(file.toString())));
+        List<GameCatalog> published = new ArrayList<>();
+        store.onPublish(catalog -> {
+            synchronized (published) {
+                published.add(catalog);
+            }
+        });
+        try {
+            store.watch(file);
+            generator.write(320, file);
+            long deadline = System.nanoTime() + 20_000_000_000L;
+            while (store.current().size() != 320 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(320, store.current().size());
+            synchronized (published) {
+                assertSame(store.current(), published.get(published.size() - 1));
+            }
+            Files.writeString(file, "");
+            assertThrows(RuntimeException.class, () -> store.reload(file));
+            assertEquals(320, store.current().size());
+        } finally {
+            store.close();
+        }
+    }
+
+    // 1.6 A planner over the store catches up at its next filter, keeping its filters for the games that came in
+    @Test
+    public void testPlannerFollowsReload() {
+        List<BoardGame> games = new CatalogGenerator(7).games(2000);
+        CatalogStore store = new CatalogStore(new GameCatalog(games));
+        Planner planner = new Planner(store);
+        planner.filter("minplayers>=3");
+        planner.filter("maxplaytime<=90");
+        List<BoardGame> shown = planner.getCurrentResult().stream().toList();
+        assertFalse(shown.isEmpty());
+
+        List<BoardGame> next = new ArrayList<>(games);
+        next.remove(shown.get(0));
+        next.set(next.indexOf(shown.get(1)), rerated(shown.get(1), 1.25));
+        next.add(new BoardGame("Fits", 600001, 3, 5, 30, 60, 2.0, 0, 7.0, 2024));
+        next.add(new BoardGame("Too Long", 600002, 3, 5, 30, 240, 2.0, 0, 7.0, 2024));
+        next.add(new BoardGame("Too Few", 600003, 1, 2, 30, 60, 2.0, 0, 7.0, 2024));
+        store.reload(next);
+        assertEquals(shown, planner.getCurrentResult().stream().toList());
+
+        List<BoardGame> now = planner.filter("").toList();
+        Planner fresh = new Planner(new HashSet<>(next));
+        fresh.filter("minplayers>=3");
+        assertEquals(fresh.filter("maxplaytime<=90").toList(), now);
+        assertTrue(now.stream().anyMatch(game -> game.getName().equals("Fits")));
+        assertEquals(1.25, now.stream().filter(shown.get(1)::equals).findFirst().get().getRating());
+
+        planner.reset();
+        assertEquals(next.size(), planner.filter("").count());
+    }
+
+    // 1.7 A pin keeps its version through reloads, and the store lets go of a version once its last pin closes
+    @Test
+    public void testPinsAndReclaim() {
+        List<BoardGame> games = new CatalogGenerator(8).games(100);
+        CatalogStore store = new CatalogStore(new GameCatalog(games));
+        CatalogStore.Pin pin = store.pin();
+        GameCatalog pinned = pin.catalog();
+        store.reload(games.subList(0, 90));
+        store.reload(games.subList(0, 80));
+        assertSame(pinned, pin.catalog());
+        assertEquals(100, pin.catalog().size());
+        assertEquals(80, store.current().size());
+        assertEquals(3, store.current().getVersion());
+        assertEquals(2, store.getRetainedVersions());
+        pin.close();
+        pin.close();
+        assertEquals(1, store.getRetainedVersions());
+    }
+
+    // 1.8 Readers pinning while a writer reloads always see one whole version and never wait on it
+    @Test
+    public void testReadersDuringReloads() throws Exception {
+        List<BoardGame> games = new CatalogGenerator(9).games(3000);
+        CatalogStore store = new CatalogStore(new GameCatalog(games.subList(0, 1000)));
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        try (CatalogStore.Pin pin = store.pin()) {
+                            GameCatalog catalog = pin.catalog();
+                            assertEquals(999 + catalog.getVersion(), catalog.size());
+                            for (int i = 0; i < catalog.size(); i += 97) {
+                                assertEquals(i, catalog.ordinalOf(catalog.get(i)));
+                                assertSame(catalog.get(i), catalog.findById(catalog.get(i).getId()));
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        for (int size = 1001; size <= 1200; size++) {
+            store.reload(games.subList(0, size));
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+        assertEquals(1, store.getRetainedVersions());
+        assertEquals(1200, store.current().size());
+    }
+
+    // 1.9 A console over the store moves its named lists to each new version and says what is gone
+    @Test
+    public void testConsoleFollowsReload() {
+        List<BoardGame> games = new CatalogGenerator(9).games(300);
+        CatalogStore store = new CatalogStore(new GameCatalog(games));
+        GameList list = new GameList();
+        StringWriter output = new StringWriter();
+        ConsoleApp console = new ConsoleApp(list, new Planner(store), store,
+                new BufferedReader(new StringReader("")), new PrintWriter(output));
+        console.execute("list add 1-3");
+        console.execute("lists save mine");
+        List<BoardGame> saved = list.getGameNames().stream().map(store.current()::findByName).toList();
+        assertEquals(3, saved.size());
+
+        List<BoardGame> next = new ArrayList<>(games);
+        next.remove(saved.get(0));
+        next.set(next.indexOf(saved.get(1)), rerated(saved.get(1), 1.25));
+        next.add(new BoardGame("!First", 600001, 2, 4, 30, 60, 2.0, 0, 7.0, 2024));
+        store.reload(next);
+        output.getBuffer().setLength(0);
+        console.execute("lists show mine");
+        String nl = System.lineSeparator();
+        assertEquals("No longer in the collection, taken out of the named lists: " + saved.get(0).getName() + nl
+                + "1: " + saved.get(1).getName() + nl + "2: " + saved.get(2).getName() + nl, output.toString());
+
+        output.getBuffer().setLength(0);
+        console.execute("lists save again");
+        assertEquals("Not in the collection, skipped: " + saved.get(0).getName() + nl, output.toString());
+        assertEquals(0, console.getErrorCount());
+
+        NamedLists named = new NamedLists(new GameCatalog(games));
+        assertEquals(List.of(), named.put("all", saved.stream()));
+        assertEquals(List.of(saved.get(0).getName()), named.moveTo(store.current()));
+        assertEquals(1.25, named.games("all").get(0).getRating());
+        assertEquals(List.of("Elsewhere"), named.put("other",
+                Stream.of(saved.get(2), new BoardGame("Elsewhere", 700001, 2, 4, 30, 60, 2.0, 0, 7.0, 2024))));
+    }
+
+    // 1.10 The fits index and player count bitmaps carried through reloads answer as ones built from scratch
+    @Test
+    public void testIndexesCarriedThroughReloads() {
+        Path file = tempDir.resolve("catalog.csv");
+        new CatalogGenerator(12).write(3000, file);
+        List<BoardGame> games = new ArrayList<>(GamesLoader.loadGamesFile(file.toString()));
+        GameCatalog catalog = new GameCatalog(games);
+        catalog.fits(3, 60);
+        catalog.withPlayers(GameData.BEST, PlayerCounts.range(3, 3));
+        catalog.withPlayers(GameData.REC, PlayerCounts.range(3, 3));
+        Random random = new Random(12);
+        for (int round = 0; round < 8; round++) {
+            List<BoardGame> next = new ArrayList<>(games);
+            for (int i = 0; i < 40; i++) {
+                next.remove(random.nextInt(next.size()));
+                int at = random.nextInt(next.size());
+                next.set(at, rerated(next.get(at), random.nextInt(100) / 10.0));
+            }
+            int players = round % 2 == 0 ? 2 : 40 + round;
+            next.add(new BoardGame("Added " + round, 800000 + round, players, players + 2, 30,
+                    20 + random.nextInt(200), 2.0, 0, 7.0, 2024));
+            catalog = catalog.apply(CatalogDiff.between(catalog, next));
+            games = next;
+            GameCatalog fresh = new GameCatalog(games);
+            assertEquals(fresh.games(), catalog.games());
+            for (int count = 1; count <= 50; count++) {
+                for (int minutes : new int[] {30, 60, 120, 100000}) {
+                    assertEquals(new HashSet<>(fresh.fits(count, minutes)), new HashSet<>(catalog.fits(count, minutes)),
+                            "round " + round + ", " + count + " players, " + minutes + " minutes");
+                }
+            }
+            for (GameData column : new GameData[] {GameData.BEST, GameData.REC}) {
+                for (int count = 1; count <= PlayerCounts.MAX; count++) {
+                    assertEquals(fresh.withPlayers(column, PlayerCounts.range(count, count)),
+                            catalog.withPlayers(column, PlayerCounts.range(count, count)),
+                            "round " + round + ", " + column + " " + count);
+                }
+                assertEquals(fresh.withPlayers(column, PlayerCounts.range(2, 5)),
+                        catalog.withPlayers(column, PlayerCounts.range(2, 5)));
+            }
+        }
+    }
+
+    // 1.11 The games of every version read their extra columns from one copy moved along with each
+    // reload, which takes new rows only for the games added and agrees with the file as it is now
+    @Test
+    public void testExtraColumnsFollowReloads() throws Exception {
+        Path file = tempDir.resolve("catalog.csv");
+        CatalogGenerator generator = new CatalogGenerator(13);
+        StringWriter csv = new StringWriter();
+        generator.write(2000, csv);
+        List<String> lines = new ArrayList<>(List.of(csv.toString().split("\n")));
+        String header = lines.remove(0);
+        int owned = List.of(header.split(",")).indexOf("numowned");
+        Files.writeString(file, header + "\n" + String.join("\n", lines) + "\n");
+        CatalogStore store = new CatalogStore(new GameCatalog(GamesLoader.loadGamesFile(file.toString())));
+        ExtraColumns extras = store.current().get(0).getExtras();
+        int rows = extras.nextRow();
+        Random random = new Random(13);
+        for (int round = 0; round < 6; round++) {
+            Collections.shuffle(lines, random);
+            lines.remove(0);
+            lines.add(generator.row(2000, 2000 + round));
+            String[] cells = lines.get(1).split(",");
+            cells[owned] = String.valueOf(Integer.parseInt(cells[owned]) + 1);
+            lines.set(1, String.join(",", cells));
+            Files.writeString(file, header + "\n" + String.join("\n", lines) + "\n");
+            CatalogDiff diff = store.reload(file);
+            assertEquals(1, diff.getAdded().size());
+            assertEquals(1, diff.getUpdated().size());
+
+            Map<String, Integer> expected = new HashMap<>();
+            for (String line : lines) {
+                String[] row = line.split(",");
+                expected.put(row[0] + "#" + row[1], Integer.parseInt(row[owned]));
+            }
+            for (BoardGame game : store.current().games()) {
+                assertSame(extras, game.getExtras(), "round " + round + ": " + game.getName());
+                assertEquals((int) expected.get(game.getName() + "#" + game.getId()),
+                        game.getExtraInt(GameData.NUM_OWNED), "round " + round + ": " + game.getName());
+            }
+            assertEquals(rows + round + 1, extras.nextRow());
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+import student.server.HttpQueryServer;
+import student.server.LineProtocolServer;
+import student.tools.CatalogGenerator;
+import student.tools.TraceReplay;
+import student.trace.CommandTrace;
+import student.trace.CommandTrace.Entry;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test for command traces and their replay.
+ */
+public class TestCommandTrace {
+    private static final Set<BoardGame> GAMES = new HashSet<>(new CatalogGenerator(41).games(300));
+
+    private static List<Entry> runConsole(Set<BoardGame> games, String... commands) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (CommandTrace trace = new CommandTrace(bytes)) {
+            ConsoleApp app = new ConsoleApp(new GameList(), new Planner(games), new GameCatalog(games),
+                    new BufferedReader(new StringReader(String.join("\n", commands))),
+                    new PrintWriter(new StringWriter()));
+            app.setTrace(trace, trace.newSession());
+            app.runScript(new PrintWriter(new StringWriter()));
+        }
+        return CommandTrace.read(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    // 1.1 Records read back as written, repeated commands are stored once, a torn tail is dropped
+    @Test
+    public void testRoundTrip() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (CommandTrace trace = new CommandTrace(bytes)) {
+            long now = System.nanoTime();
+            trace.record(0, now, 1500, true, "filter rating>7", 42);
+            trace.record(7, now + 10, 300_000_000_000L, false, "filter rating>7", -1);
+            trace.record(1, now + 20, 0, true, "list add Ø 1", 0);
+        }
+        byte[] data = bytes.toByteArray();
+        List<Entry> entries = CommandTrace.read(new ByteArrayInputStream(data));
+        assertEquals(3, entries.size());
+        assertEquals("filter rating>7", entries.get(1).getCommand());
+        assertEquals(7, entries.get(1).getSession());
+        assertEquals(300_000_000_000L, entries.get(1).getLatency());
+        assertFalse(entries.get(1).isOk());
+        assertEquals(-1, entries.get(1).getDigest());
+        assertEquals(42, entries.get(0).getDigest());
+        assertEquals("list add Ø 1", entries.get(2).getCommand());
+        assertTrue(entries.get(0).getTime() <= entries.get(2).getTime());
+        assertTrue(data.length < 100, "length " + data.length);
+
+        List<Entry> torn = CommandTrace.read(new ByteArrayInputStream(Arrays.copyOf(data, data.length - 3)));
+        assertEquals(2, torn.size());
+        assertThrows(IllegalArgumentException.class,
+                () -> CommandTrace.read(new ByteArrayInputStream("not a trace".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    // 1.2 A console trace replays without divergence on the same catalog, and diverges on another
+    @Test
+    public void testConsoleReplay() throws Exception {
+        List<Entry> trace = runConsole(GAMES, "filter minplayers>=2", "filter sort:rating desc",
+                "list add 1-3", "list remove 2", "list save nowhere/list.txt", "nonsense", "filter clear",
+                "list add 1");
+        assertEquals(8, trace.size());
+        assertFalse(trace.get(4).isOk()); // the failed save, not whatever ran when it failed
+        assertFalse(trace.get(5).isOk());
+        assertEquals(6, trace.stream().filter(Entry::isOk).count());
+
+        TraceReplay.Report same = new TraceReplay(GAMES).replay(trace, false, null);
+        assertEquals(List.of(), same.getDivergent());
+        assertEquals(1, same.getSkipped());
+        assertEquals(2, same.getReplayed("list add").getCount());
+        assertEquals(3, same.getRecorded("filter").getCount());
+
+        Set<BoardGame> fewer = new HashSet<>(new CatalogGenerator(41).games(200));
+        TraceReplay.Report other = new TraceReplay(fewer).replay(trace, false, null);
+        assertTrue(other.getDivergent().contains(0), other.getDivergent().toString());
+    }
+
+    // 1.3 Both servers trace each connection or client as its own session, and replay cleanly
+    @Test
+    public void testServerTraces() throws Exception {
+        GameCatalog catalog = new GameCatalog(GAMES);
+        InetSocketAddress any = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (CommandTrace trace = new CommandTrace(bytes)) {
+            try (LineProtocolServer tcp = new LineProtocolServer(catalog, any);
+                    HttpQueryServer http = new HttpQueryServer(catalog, any)) {
+                tcp.setTrace(trace);
+                http.setTrace(trace);
+                tcp.start();
+                http.start();
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), tcp.getPort())) {
+                    OutputStream out = socket.getOutputStream();
+                    out.write("filter year>=2000 sort:year asc\nlist add 1-2\nexit\n".getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                            StandardCharsets.UTF_8));
+                    while (in.readLine() != null) {
+                        // read until the server closes after exit
+                    }
+                }
+                String spaced = GAMES.stream().map(BoardGame::getName).filter(n -> n.contains(" "))
+                        .sorted().findFirst().orElseThrow().toLowerCase();
+                HttpClient client = HttpClient.newHttpClient();
+                String base = "http://localhost:" + http.getPort();
+                String session = null;
+                for (String request : List.of("200 GET /games?filter=rating%3E6&sort=rating&order=desc&limit=1",
+                        "200 POST /list/add?games=1-4", "200 POST /list/remove?games=2", "200 GET /metrics",
+                        "200 POST /filter/clear", "200 GET /stats?column=year",
+                        "200 GET /games?filter=" + URLEncoder.encode("name~=" + spaced, StandardCharsets.UTF_8),
+                        "400 GET /stats?filter=year%3E%3D2000&column=name")) {
+                    String[] parts = request.split(" ");
+                    HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(base + parts[2]))
+                            .method(parts[1], HttpRequest.BodyPublishers.noBody());
+                    if (session != null) {
+                        builder.header("X-Session", session);
+                    }
+                    HttpResponse<String> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+                    assertEquals(Integer.parseInt(parts[0]), response.statusCode(), response.body());
+                    assertFalse(response.body().contains("\"total\":0"), request + " " + response.body());
+                    session = response.headers().firstValue("X-Session").orElseThrow();
+                }
+            }
+        }
+        List<Entry> trace = CommandTrace.read(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(10, trace.size(), trace.toString()); // 3 tcp, 7 http, /metrics not traced
+        assertEquals(2, trace.stream().mapToInt(Entry::getSession).distinct().count());
+        assertTrue(trace.stream().anyMatch(e -> e.getCommand().equals(
+                "/games?filter=rating%3E6&limit=1&order=desc&sort=rating")), trace.toString());
+        assertFalse(trace.get(trace.size() - 1).isOk()); // the bad column, recorded as such
+        assertEquals(List.of(), new TraceReplay(GAMES).replay(trace, false, null).getDivergent());
+    }
+}
@@ -0,0 +1,186 @@
+package student;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test for the ConcurrentGameList class.
+ * Checks it behaves like GameList, and stays consistent when many threads edit it.
+ */
+public class TestConcurrentGameList {
+    private ConcurrentGameList gameList;
+    private List<BoardGame> catalog;
+
+    @BeforeEach
+    public void setUp() {
+        gameList = new ConcurrentGameList();
+        catalog = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            catalog.add(new BoardGame("Game " + i, i, 2, 4, 30, 60, 2.0, i, 7.0, 2000));
+        }
+    }
+
+    // 1.1 Same add/remove behaviour as GameList
+    @Test
+    public void testAddRemoveLikeGameList() {
+        FilterResult result = FilterResult.sorted(catalog, GameData.NAME, true);
+        gameList.addToList("1-3", result);
+        gameList.addToList("game 1", result);
+        gameList.addToList("game 42", result);
+        assertEquals(List.of("Game 0", "Game 1", "Game 10", "Game 42"), gameList.getGameNames());
+        assertEquals(4, gameList.count());
+
+        gameList.removeFromList("2");
+        assertEquals(List.of("Game 0", "Game 10", "Game 42"), gameList.getGameNames());
+        gameList.removeFromList("game 42");
+        assertEquals(2, gameList.count());
+        assertThrows(IllegalArgumentException.class, () -> gameList.removeFromList("9"));
+
+        gameList.removeFromList("all");
+        assertEquals(0, gameList.count());
+    }
+
+    // 1.2 A snapshot does not change when the list does
+    @Test
+    public void testSnapshotIteration() {
+        gameList.addToList("all", catalog.stream());
+        List<BoardGame> snapshot = gameList.snapshot();
+        gameList.clear();
+        assertEquals(200, snapshot.size());
+        assertEquals(0, gameList.count());
+    }
+
+    // 1.3 Many threads adding and removing leave the list consistent
+    @Test
+    public void testConcurrentEditsStayConsistent() throws Exception {
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            futures.add(pool.submit(() -> {
+                Random rnd = new Random(seed);
+                start.await();
+                for (int i = 0; i < 2000; i++) {
+                    BoardGame game = catalog.get(rnd.nextInt(catalog.size()));
+                    if (rnd.nextBoolean()) {
+                        gameList.addToList(game.getName(), catalog.stream());
+                    } else {
+                        try {
+                            gameList.removeFromList(game.getName());
+                        } catch (IllegalArgumentException e) {
+                            // not in the list right now
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        pool.shutdown();
+
+        List<String> names = gameList.getGameNames();
+        assertEquals(names.size(), gameList.count());
+        assertEquals(names.size(), new HashSet<>(names).size());
+        List<String> sorted = new ArrayList<>(names);
+        sorted.sort(String.CASE_INSENSITIVE_ORDER);
+        assertEquals(sorted, names);
+    }
+
+    // 1.4 A read heavy mix with real writes loses no update, and does not slow down as threads are
+    // added: with 4 or more cpus 4 threads get at least as much done as 1, with fewer they share the
+    // cpus without collapsing
+    @Test
+    public void testThroughputWithThreadCount() throws Exception {
+        throughput(1); // warm up
+        long one = 0;
+        long four = 0;
+        for (int run = 0; run < 3; run++) {
+            one = Math.max(one, throughput(1));
+            four = Math.max(four, throughput(4));
+        }
+        int cpus = Runtime.getRuntime().availableProcessors();
+        double least = cpus >= 4 ? 1.0 : 0.5;
+        assertTrue(four >= one * least,
+                "4 threads " + four + " ops/s, 1 thread " + one + " ops/s, " + cpus + " cpus");
+    }
+
+    /**
+     * Runs the read heavy mix for 300ms on a list holding half the catalog. One operation in
+     * ten is a write: each thread owns the games whose id is its number modulo the thread
+     * count, and adds one it owns that is out or removes one that is in, so every write
+     * changes the list and has to win a compare-and-set against the other threads. At the
+     * end the list must hold exactly what the threads' own records say.
+     *
+     * @param threads the threads to run it on
+     * @return operations per second, over all threads
+     */
+    private long throughput(int threads) throws Exception {
+        gameList.clear();
+        gameList.addToList("all", catalog.subList(0, catalog.size() / 2).stream());
+        AtomicLong ops = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+        List<Future<Set<String>>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int owner = t;
+            futures.add(pool.submit(() -> {
+                Random rnd = new Random(owner);
+                List<BoardGame> mine = new ArrayList<>();
+                for (BoardGame game : catalog) {
+                    if (game.getId() % threads == owner) {
+                        mine.add(game);
+                    }
+                }
+                Set<String> in = new HashSet<>();
+                for (BoardGame game : mine) {
+                    if (game.getId() < catalog.size() / 2) {
+                        in.add(game.getName());
+                    }
+                }
+                long done = 0;
+                while (System.nanoTime() < end) {
+                    if (rnd.nextInt(10) == 0) {
+                        BoardGame game = mine.get(rnd.nextInt(mine.size()));
+                        if (in.remove(game.getName())) {
+                            gameList.removeFromList(game.getName());
+                        } else {
+                            gameList.addToList(game.getName(), catalog.stream());
+                            in.add(game.getName());
+                        }
+                    } else if (gameList.getGameNames().isEmpty()) {
+                        fail("list should never look empty");
+                    }
+                    done++;
+                }
+                ops.addAndGet(done);
+                return in;
+            }));
+        }
+        Set<String> expected = new HashSet<>();
+        for (Future<Set<String>> f : futures) {
+            expected.addAll(f.get());
+        }
+        pool.shutdown();
+        assertEquals(expected, new HashSet<>(gameList.getGameNames()), threads + " threads lost an update");
+        return ops.get() * 1000 / 300;
+    }
+}
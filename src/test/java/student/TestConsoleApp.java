@@ -0,0 +1,131 @@
+package student;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test for running the ConsoleApp as a script, and for the result renderer.
+ */
+public class TestConsoleApp {
+    private Set<BoardGame> games;
+    private StringWriter output;
+    private StringWriter timing;
+
+    @BeforeEach
+    public void setUp() {
+        games = new HashSet<>();
+        games.add(new BoardGame("Chess", 7, 2, 2, 10, 20, 10.0, 700, 10.0, 2006));
+        games.add(new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000));
+        games.add(new BoardGame("Monopoly", 8, 6, 10, 20, 1000, 1.0, 800, 5.0, 2007));
+        output = new StringWriter();
+        timing = new StringWriter();
+    }
+
+    private int run(String script) {
+        ConsoleApp app = new ConsoleApp(new GameList(), new Planner(games), new GameCatalog(games),
+                new BufferedReader(new StringReader(script)), new PrintWriter(output));
+        return app.runScript(new PrintWriter(timing));
+    }
+
+    // 1.1 Script output has no welcome, prompt or goodbye, and times each command
+    @Test
+    public void testScriptOutput() {
+        int code = run("# comment\nfilter sort:rating desc\n\nlist add 2\nlist show\n");
+        String nl = System.lineSeparator();
+        assertEquals(0, code);
+        assertEquals("1: Chess (10.00)" + nl + "2: Go (7.50)" + nl + "3: Monopoly (5.00)" + nl
+                + "1: Go" + nl, output.toString());
+        assertTrue(timing.toString().contains("3 commands, 0 errors"));
+    }
+
+    // 1.2 A failed command makes the script exit with 1, exit stops it early
+    @Test
+    public void testScriptErrorsAndExit() {
+        int code = run("list add 9\nexit\nfilter\n");
+        assertEquals(1, code);
+        assertTrue(timing.toString().contains("2 commands, 1 errors"));
+        assertFalse(output.toString().contains("Chess"));
+    }
+
+    // 1.3 Hand formatted numbers match String.format, including rounding ties and odd values
+    @Test
+    public void testRendererMatchesFormat() {
+        double[] edges = {0.0, -0.0, 0.005, 0.015, 0.125, 1.005, 2.675, 7.995, 9.999, -1.005,
+            -0.001, 1e6, 123456789.125, Double.NaN, Double.POSITIVE_INFINITY, Double.MIN_VALUE};
+        for (double v : edges) {
+            assertEquals(String.format("%.2f", v), ResultRenderer.appendFixed2(new StringBuilder(), v).toString());
+        }
+        Random rnd = new Random(33);
+        for (int i = 0; i < 100000; i++) {
+            double v = i % 2 == 0 ? rnd.nextDouble() * 10 : Math.round(rnd.nextDouble() * 100000) / 10000.0;
+            assertEquals(String.format("%.2f", v), ResultRenderer.appendFixed2(new StringBuilder(), v).toString());
+            int n = rnd.nextInt() >> rnd.nextInt(32);
+            assertEquals(String.format("%d", n), ResultRenderer.appendInt(new StringBuilder(), n).toString());
+        }
+    }
+
+    // 1.4 Rendered rows are byte identical to the old String.format rows, in any locale
+    @Test
+    public void testRendererRows() {
+        Locale before = Locale.getDefault(Locale.Category.FORMAT);
+        try {
+            for (Locale locale : new Locale[] {Locale.US, Locale.GERMANY, Locale.forLanguageTag("ar-EG")}) {
+                Locale.setDefault(Locale.Category.FORMAT, locale);
+                StringWriter rendered = new StringWriter();
+                ResultRenderer renderer = new ResultRenderer(new PrintWriter(rendered));
+                StringBuilder expected = new StringBuilder();
+                int row = 1;
+                for (int i = 0; i < 5000; i++) {
+                    BoardGame game = new BoardGame("Game " + i, i, 2, 4, 30, 60, i / 997.0, i, i / 513.0, 2000);
+                    for (GameData col : GameData.values()) {
+                        renderer.row(row, game, col);
+                        expected.append(String.format("%d: %s%n", row, oldInfo(game, col)));
+                        assertEquals(oldInfo(game, col), game.toStringWithInfo(col));
+                        row++;
+                    }
+                }
+                renderer.flush();
+                assertEquals(expected.toString(), rendered.toString());
+            }
+        } finally {
+            Locale.setDefault(Locale.Category.FORMAT, before);
+        }
+    }
+
+    /**
+     * What BoardGame.toStringWithInfo printed before the renderer.
+     */
+    private static String oldInfo(BoardGame game, GameData col) {
+        switch (col) {
+            case RATING:
+                return String.format("%s (%.2f)", game.getName(), game.getRating());
+            case DIFFICULTY:
+                return String.format("%s (%.2f)", game.getName(), game.getDifficulty());
+            case RANK:
+                return String.format("%s (%d)", game.getName(), game.getRank());
+            case MIN_PLAYERS:
+                return String.format("%s (%d)", game.getName(), game.getMinPlayers());
+            case MAX_PLAYERS:
+                return String.format("%s (%d)", game.getName(), game.getMaxPlayers());
+            case MIN_TIME:
+                return String.format("%s (%d)", game.getName(), game.getMinPlayTime());
+            case MAX_TIME:
+                return String.format("%s (%d)", game.getName(), game.getMaxPlayTime());
+            case YEAR:
+                return String.format("%s (%d)", game.getName(), game.getYearPublished());
+            default:
+                return game.getName();
+        }
+    }
+}
@@ -5,12 +5,20 @@ import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Stream;
 
 /**
@@ -213,4 +221,227 @@ public class TestGameList {
             gameList.removeFromList("");
         });
     }
-} 
\ No newline at end of file
+
+    // 1.16 通过结果句柄添加游戏：索引按显示顺序，不按名称重新排序
+    @Test
+    public void testAddByIndexFromFilterResult() {
+        FilterResult byRating = FilterResult.sorted(testGames, GameData.RATING, false);
+        gameList.addToList("1", byRating);
+        gameList.addToList("3", byRating);
+
+        List<String> names = gameList.getGameNames();
+        assertEquals(2, names.size());
+        assertTrue(names.contains("Catan"));    // rating 4.5
+        assertTrue(names.contains("Pandemic")); // rating 4.0
+    }
+
+    // 1.17 通过流添加游戏：索引按流的顺序
+    @Test
+    public void testAddByIndexKeepsStreamOrder() {
+        Stream<BoardGame> filtered = Stream.of(ticket, pandemic, catan);
+        gameList.addToList("1", filtered);
+
+        assertEquals(List.of("Ticket to Ride"), gameList.getGameNames());
+    }
+
+    // 1.18 日志：重启后恢复列表
+    @Test
+    public void testJournalReplayAfterRestart() throws Exception {
+        Path snapshot = Files.createTempFile("journal_list", ".txt");
+        Files.delete(snapshot);
+        try (GameListJournal journal = new GameListJournal(snapshot)) {
+            GameList journaled = new GameList(journal, new GameCatalog(testGames));
+            journaled.addToList("all", testGames.stream());
+            journaled.removeFromList("pandemic");
+            journaled.saveGame(snapshot.toString());
+        }
+        assertFalse(Files.exists(snapshot)); // only the journal was written
+
+        try (GameListJournal journal = new GameListJournal(snapshot)) {
+            GameList restarted = new GameList(journal, new GameCatalog(testGames));
+            assertEquals(List.of("Catan", "Ticket to Ride"), restarted.getGameNames());
+        }
+        Files.deleteIfExists(Paths.get(snapshot + GameListJournal.SUFFIX));
+    }
+
+    // 1.19 日志：忽略写了一半的记录，并在日志过长时压缩成快照
+    @Test
+    public void testJournalTornRecordAndCompaction() throws Exception {
+        Path snapshot = Files.createTempFile("journal_list", ".txt");
+        Path journalFile = Paths.get(snapshot + GameListJournal.SUFFIX);
+        Files.write(journalFile, "+1\tCatan\n+2\tPand".getBytes());
+        try (GameListJournal journal = new GameListJournal(snapshot)) {
+            GameList journaled = new GameList(journal, new GameCatalog(testGames));
+            assertEquals(List.of("Catan"), journaled.getGameNames());
+
+            for (int i = 0; i < GameListJournal.COMPACT_AFTER / 2; i++) {
+                journaled.addToList("pandemic", testGames.stream());
+                journaled.removeFromList("pandemic");
+            }
+            journaled.addToList("ticket to ride", testGames.stream());
+            journaled.saveGame(snapshot.toString());
+        }
+        assertEquals(List.of("Catan", "Ticket to Ride"), Files.readAllLines(snapshot));
+        assertEquals(0, Files.size(journalFile));
+        Files.delete(snapshot);
+        Files.delete(journalFile);
+    }
+
+    // 1.20 异步保存：等待 future 后文件已写入
+    @Test
+    public void testSaveGameAsync() throws Exception {
+        gameList.addToList("all", testGames.stream());
+        Path file = Files.createTempFile("async_list", ".txt");
+        gameList.saveGameAsync(file.toString()).join();
+
+        assertEquals(gameList.getGameNames(), Files.readAllLines(file));
+        Files.delete(file);
+    }
+
+    // 1.21 异步保存：同一文件的多次保存合并，最后的内容胜出
+    @Test
+    public void testAsyncSavesCoalesce() throws Exception {
+        Path file = Files.createTempFile("async_list", ".txt");
+        try (AsyncListWriter writer = new AsyncListWriter(1)) {
+            CompletableFuture<Void> first = null;
+            for (int i = 0; i < 50; i++) {
+                CompletableFuture<Void> save = writer.submit(file, List.of("save " + i));
+                first = first == null ? save : first;
+            }
+            first.join();
+            writer.submit(file, List.of("last")).join();
+        }
+        assertEquals(List.of("last"), Files.readAllLines(file));
+        Files.delete(file);
+    }
+
+    // 1.22 保存失败时把错误交给调用者
+    @Test
+    public void testSaveFailureSurfaces() {
+        String missing = Paths.get("no_such_dir", "list.txt").toString();
+        assertThrows(UncheckedIOException.class, () -> gameList.saveGame(missing));
+        assertThrows(CompletionException.class, () -> gameList.saveGameAsync(missing).join());
+    }
+
+    // 1.23 读取保存的文本列表，一次报告所有未知条目
+    @Test
+    public void testLoadGameReportsUnknown() throws Exception {
+        Path file = Files.createTempFile("load_list", ".txt");
+        Files.write(file, List.of("catan", "Not A Game", "", "TICKET TO RIDE", "Also Missing"));
+
+        List<String> unknown = gameList.loadGame(file.toString(), new GameCatalog(testGames));
+        assertEquals(List.of("Catan", "Ticket to Ride"), gameList.getGameNames());
+        assertEquals(List.of("Not A Game", "Also Missing"), unknown);
+        Files.delete(file);
+    }
+
+    // 1.24 二进制 id 列表保存后可以读回
+    @Test
+    public void testLoadBinaryIdList() throws Exception {
+        gameList.addToList("all", testGames.stream());
+        Path file = Files.createTempFile("load_list", ".bgl");
+        gameList.saveGameIds(file.toString());
+        assertTrue(GameListFiles.isIdList(file));
+
+        GameList loaded = new GameList();
+        assertTrue(loaded.loadGame(file.toString(), new GameCatalog(testGames)).isEmpty());
+        assertEquals(gameList.getGameNames(), loaded.getGameNames());
+
+        List<String> unknown = new GameList().loadGame(file.toString(),
+                new GameCatalog(List.of(catan)));
+        assertEquals(List.of("#2", "#3"), unknown);
+        Files.delete(file);
+    }
+
+    // 1.25 命名列表：交集、并集、差集，结果按名称排序
+    @Test
+    public void testNamedListSetOperations() {
+        NamedLists lists = new NamedLists(new GameCatalog(testGames));
+        lists.put("weekend", Stream.of(ticket, catan));
+        lists.put("two", Stream.of(pandemic, ticket));
+
+        lists.intersect("weekend", "two", "both");
+        lists.union("weekend", "two", "either");
+        lists.difference("weekend", "two", "weekendOnly");
+
+        assertEquals(List.of(ticket), lists.games("both"));
+        assertEquals(List.of(catan, pandemic, ticket), lists.games("either"));
+        assertEquals(List.of(catan), lists.games("weekendOnly"));
+        assertEquals(3, lists.count("either"));
+        assertThrows(IllegalArgumentException.class, () -> lists.games("missing"));
+    }
+
+    // 1.26 命名列表与当前过滤结果求交集
+    @Test
+    public void testNamedListIntersectFilter() {
+        NamedLists lists = new NamedLists(new GameCatalog(testGames));
+        lists.put("all", testGames.stream());
+        IPlanner planner = new Planner(testGames);
+        planner.filter("maxPlayers > 4");
+
+        lists.intersectFilter("all", planner.getCurrentResult(), "big");
+        assertEquals(List.of(ticket), lists.games("big"));
+    }
+
+    // 1.27 日志：保存只同步日志，快照可能过期，但加载该文件会重放日志，读到保存时的列表
+    @Test
+    public void testJournalLoadReadsSavedList() throws Exception {
+        Path snapshot = Files.createTempFile("journal_list", ".txt");
+        Files.write(snapshot, List.of("Catan"));
+        Path journalFile = Paths.get(snapshot + GameListJournal.SUFFIX);
+        try (GameListJournal journal = new GameListJournal(snapshot)) {
+            GameList journaled = new GameList(journal, new GameCatalog(testGames));
+            journaled.addToList("pandemic", testGames.stream());
+            journaled.removeFromList("catan");
+            journaled.saveGame(snapshot.toString());
+
+            assertEquals(List.of("Catan"), Files.readAllLines(snapshot)); // not rewritten
+            GameList other = new GameList();
+            assertTrue(other.loadGame(snapshot.toString(), new GameCatalog(testGames)).isEmpty());
+            assertEquals(List.of("Pandemic"), other.getGameNames());
+        }
+        Files.delete(snapshot);
+        Files.delete(journalFile);
+    }
+
+    // 1.28 二进制 id 列表：头部的数量超过文件大小时拒绝，而不是先分配数组
+    @Test
+    public void testBinaryIdListCountChecked() throws Exception {
+        Path file = Files.createTempFile("load_list", ".bgl");
+        Files.write(file, new byte[] {'B', 'G', 'L', '1', 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0, 0, 0, 1});
+        IOException error = assertThrows(IOException.class, () -> GameListFiles.readIds(file));
+        assertTrue(error.getMessage().startsWith("Corrupt binary game list"));
+        assertThrows(UncheckedIOException.class,
+                () -> new GameList().loadGame(file.toString(), new GameCatalog(testGames)));
+
+        Files.write(file, new byte[] {'B', 'G', 'L', '1', 0, 0, 0, 1, 0, 0, 0, 2});
+        assertArrayEquals(new int[] {2}, GameListFiles.readIds(file));
+        Files.delete(file);
+    }
+
+    // 1.29 原子保存：新文件使用默认权限，覆盖已有文件时保留它的权限
+    @Test
+    public void testAtomicSaveKeepsPermissions() throws Exception {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return; // 没有 POSIX 权限可比较
+        }
+        Path dir = Files.createTempDirectory("atomic_list");
+        Path plain = dir.resolve("plain.txt");
+        Files.write(plain, List.of("x"));
+        Path file = dir.resolve("list.txt");
+        AsyncListWriter.writeAtomically(file, List.of("a"));
+        assertEquals(Files.getPosixFilePermissions(plain), Files.getPosixFilePermissions(file));
+
+        Set<PosixFilePermission> shared = PosixFilePermissions.fromString("rw-rw-r--");
+        Files.setPosixFilePermissions(file, shared);
+        AsyncListWriter.writeAtomically(file, List.of("b"));
+        assertEquals(shared, Files.getPosixFilePermissions(file));
+        assertEquals(List.of("b"), Files.readAllLines(file));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(2, files.count());
+        }
+        Files.delete(file);
+        Files.delete(plain);
+        Files.delete(dir);
+    }
+}
@@ -0,0 +1,319 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import student.tools.CatalogGenerator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test for streaming games out of a csv file, plain or compressed.
+ */
+public class TestGamesLoader {
+    @TempDir
+    Path tempDir;
+
+    // 1.1 Streaming a file gives the games loading it does, in file order
+    @Test
+    public void testStreamMatchesLoad() {
+        Path file = tempDir.resolve("catalog.csv");
+        CatalogGenerator generator = new CatalogGenerator(12);
+        generator.write(5000, file);
+        try (Stream<BoardGame> games = GamesLoader.stream(file, null)) {
+            List<BoardGame> streamed = games.collect(Collectors.toList());
+            assertEquals(generator.games(5000), streamed);
+            assertEquals(GamesLoader.loadGamesFile(file.toString()), new HashSet<>(streamed));
+        }
+    }
+
+    // 1.2 Bad lines are skipped and counted, and progress ends with one done report
+    @Test
+    public void testRejectedAndProgress() throws Exception {
+        StringWriter csv = new StringWriter();
+        new CatalogGenerator(13).write(70000, csv);
+        String text = csv.toString().replaceFirst("\n", "\nbroken,line\n") + "short\n";
+        Path file = tempDir.resolve("catalog.csv");
+        Files.writeString(file, text);
+        List<long[]> reports = new ArrayList<>();
+        long count;
+        try (Stream<BoardGame> games = GamesLoader.stream(file,
+                (read, rejected, bytes, done) -> reports.add(new long[] {read, rejected, bytes, done ? 1 : 0}))) {
+            count = games.count();
+        }
+        assertEquals(70000, count);
+        assertEquals(2, reports.size());
+        assertEquals(65536, reports.get(0)[0] + reports.get(0)[1]);
+        assertEquals(0, reports.get(0)[3]);
+        long[] last = reports.get(1);
+        assertArrayEquals(new long[] {70000, 2, Files.size(file), 1}, last);
+    }
+
+    // 1.3 The stream only reads as far as it is pulled
+    @Test
+    public void testLazy() throws Exception {
+        StringWriter csv = new StringWriter();
+        new CatalogGenerator(14).write(20000, csv);
+        ByteArrayInputStream in = new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+        int size = in.available();
+        assertEquals(10, GamesLoader.stream(in, null).limit(10).count());
+        assertTrue(in.available() > size * 9 / 10, "read " + (size - in.available()) + " of " + size);
+    }
+
+    // 1.4 A reload diff worked out from the stream matches the one from a loaded set
+    @Test
+    public void testStreamingDiff() {
+        Path file = tempDir.resolve("catalog.csv");
+        new CatalogGenerator(15).write(3000, file);
+        GameCatalog catalog = new GameCatalog(new CatalogGenerator(15).games(2900));
+        CatalogDiff loaded = CatalogDiff.between(catalog, GamesLoader.loadGamesFile(file.toString()));
+        CatalogDiff streamed;
+        try (Stream<BoardGame> games = GamesLoader.stream(file, null)) {
+            streamed = CatalogDiff.between(catalog, games);
+        }
+        assertEquals(new HashSet<>(loaded.getAdded()), new HashSet<>(streamed.getAdded()));
+        assertEquals(loaded.getRemoved(), streamed.getRemoved());
+        assertEquals(new HashSet<>(loaded.getUpdated()), new HashSet<>(streamed.getUpdated()));
+        assertEquals(catalog.apply(loaded).games(), catalog.apply(streamed).games());
+    }
+
+    /** Writes a catalog compressed with gzip, or with zlib if gzip is false. */
+    private static byte[] compressed(String csv, boolean gzip) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = gzip ? new GZIPOutputStream(bytes) : new DeflaterOutputStream(bytes)) {
+            out.write(csv.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    // 1.5 gzip and zlib files are recognised by their first bytes and load the same games as plain ones
+    @Test
+    public void testCompressed() throws Exception {
+        StringWriter csv = new StringWriter();
+        CatalogGenerator generator = new CatalogGenerator(16);
+        generator.write(30000, csv);
+        Set<BoardGame> expected = new HashSet<>(generator.games(30000));
+        for (boolean gzip : new boolean[] {true, false}) {
+            Path file = tempDir.resolve(gzip ? "catalog.csv.gz" : "catalog.bin");
+            Files.write(file, compressed(csv.toString(), gzip));
+            assertEquals(expected, GamesLoader.loadGamesFile(file.toString()), "gzip " + gzip);
+            long[] bytes = {0};
+            try (Stream<BoardGame> games = GamesLoader.stream(file, (read, rejected, at, done) -> bytes[0] = at)) {
+                assertEquals(30000, games.count());
+            }
+            assertEquals(csv.toString().getBytes(StandardCharsets.UTF_8).length, bytes[0]);
+        }
+    }
+
+    // 1.6 Closing a compressed stream part way stops its decompressing thread
+    @Test
+    public void testCloseStopsInflater() throws Exception {
+        StringWriter csv = new StringWriter();
+        new CatalogGenerator(17).write(30000, csv);
+        Path file = tempDir.resolve("catalog.csv.gz");
+        Files.write(file, compressed(csv.toString(), true));
+        try (Stream<BoardGame> games = GamesLoader.stream(file, null)) {
+            assertEquals(5, games.limit(5).count());
+            assertTrue(inflaters() > 0);
+        }
+        assertEquals(0, inflaters());
+    }
+
+    /** Live decompressing threads. */
+    private static long inflaters() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("catalog-inflate") && thread.isAlive()).count();
+    }
+
+    // 1.7 A truncated gzip file fails the stream instead of ending it quietly
+    @Test
+    public void testTruncatedGzip() throws Exception {
+        StringWriter csv = new StringWriter();
+        new CatalogGenerator(18).write(5000, csv);
+        byte[] gzip = compressed(csv.toString(), true);
+        Path file = tempDir.resolve("catalog.csv.gz");
+        Files.write(file, Arrays.copyOf(gzip, gzip.length / 2));
+        try (Stream<BoardGame> games = GamesLoader.stream(file, null)) {
+            assertThrows(UncheckedIOException.class, games::count);
+        }
+    }
+
+    // 1.8 Quoted fields may hold commas, doubled quotes and line breaks; badly quoted rows are counted, not run on
+    @Test
+    public void testQuotedFields() throws Exception {
+        StringWriter csv = new StringWriter();
+        new CatalogGenerator(19).write(3, csv);
+        String[] lines = csv.toString().split("\n");
+        String row = lines[1];
+        int comma = row.indexOf(',');
+        String rest = row.substring(comma);
+        String text = lines[0] + "\n"
+                + "\"Twilight, Imperium\"" + rest.replaceFirst(",(\\d+),", ",\"$1\",") + "\n"
+                + "\"The \"\"Game\"\"\"" + rest + "\r\n"
+                + "\"Two\nLines\"" + rest + "\n"
+                + "\"Unclosed" + rest + "\n"
+                + "\"Closed\"junk" + rest + "\n"
+                + lines[2] + "\n";
+        List<long[]> reports = new ArrayList<>();
+        List<String> names;
+        ByteArrayInputStream in = new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+        try (Stream<BoardGame> games = GamesLoader.stream(in,
+                (read, rejected, bytes, done) -> reports.add(new long[] {read, rejected}))) {
+            names = games.map(BoardGame::getName).collect(Collectors.toList());
+        }
+        assertEquals(List.of("Twilight, Imperium", "The \"Game\"", "Two\nLines",
+                lines[2].substring(0, lines[2].indexOf(','))), names);
+        assertEquals(1, reports.size());
+        assertArrayEquals(new long[] {4, 2}, reports.get(0));
+    }
+
+    // 1.9 The quote aware split follows RFC 4180
+    @Test
+    public void testSplitQuoted() {
+        assertEquals(List.of("a", "b,c", "", "d\"e", ""), GamesLoader.splitQuoted("a,\"b,c\",,\"d\"\"e\","));
+        assertEquals(List.of(""), GamesLoader.splitQuoted(""));
+        assertEquals(List.of("", ""), GamesLoader.splitQuoted("\"\","));
+        assertNull(GamesLoader.splitQuoted("\"open"));
+        assertNull(GamesLoader.splitQuoted("\"a\"b,c"));
+    }
+
+    // 1.10 Extra columns are read on first use, and agree with the file, quoted and multi-line rows included
+    @Test
+    public void testExtraColumns() throws Exception {
+        StringWriter csv = new StringWriter();
+        new CatalogGenerator(20).write(2000, csv);
+        String[] lines = csv.toString().split("\n");
+        lines[5] = "\"Two\nLines\"" + lines[5].substring(lines[5].indexOf(','));
+        lines[9] = "short";
+        Path file = tempDir.resolve("catalog.csv");
+        Files.writeString(file, String.join("\n", lines) + "\n");
+
+        Map<String, String[]> rows = new HashMap<>();
+        List<String> header = Arrays.asList(lines[0].split(","));
+        for (int i = 1; i < lines.length; i++) {
+            List<String> cells = GamesLoader.splitQuoted(lines[i]);
+            if (cells.size() == header.size()) {
+                rows.put(cells.get(0) + "#" + cells.get(1), cells.toArray(new String[0]));
+            }
+        }
+        Set<BoardGame> games = GamesLoader.loadGamesFile(file.toString());
+        assertEquals(1999, games.size());
+        int owned = header.indexOf("numowned");
+        int time = header.indexOf("playingtime");
+        int language = header.indexOf("bgglanguagedependence");
+        int best = header.indexOf("bggbestplayers");
+        for (BoardGame game : games) {
+            String[] cells = rows.get(game.getName() + "#" + game.getId());
+            assertEquals(Integer.parseInt(cells[owned]), game.getExtraInt(GameData.NUM_OWNED));
+            assertEquals(Integer.parseInt(cells[time]), game.getExtraInt(GameData.PLAYING_TIME));
+            assertEquals(cells[language], game.getExtraText(GameData.LANGUAGE_DEPENDENCE));
+            assertEquals(PlayerCounts.parse(cells[best]), game.getPlayerMask(GameData.BEST));
+        }
+
+        Planner planner = new Planner(games);
+        List<BoardGame> popular = planner.filter("numowned>=1000,language_dependence~=no necessary",
+                GameData.PLAYING_TIME).toList();
+        assertFalse(popular.isEmpty());
+        for (int i = 0; i < popular.size(); i++) {
+            BoardGame game = popular.get(i);
+            assertTrue(game.getExtraInt(GameData.NUM_OWNED) >= 1000);
+            assertEquals("No necessary in-game text", game.getExtraText(GameData.LANGUAGE_DEPENDENCE));
+            if (i > 0) {
+                assertTrue(popular.get(i - 1).getExtraInt(GameData.PLAYING_TIME)
+                        <= game.getExtraInt(GameData.PLAYING_TIME));
+            }
+        }
+        long expected = games.stream().filter(game -> game.getExtraInt(GameData.NUM_OWNED) >= 1000
+                && game.getExtraText(GameData.LANGUAGE_DEPENDENCE).startsWith("No necessary")).count();
+        assertEquals(expected, popular.size());
+    }
+
+    // 1.11 Games still pointing at a file that has since changed find their rows again by (name, id),
+    // reading the changed file once per column however many rows there are
+    @Test
+    public void testExtraColumnsAfterChange() throws Exception {
+        Path file = tempDir.resolve("catalog.csv");
+        StringWriter csv = new StringWriter();
+        new CatalogGenerator(21).write(20000, csv);
+        Files.writeString(file, csv.toString());
+        Set<BoardGame> games = GamesLoader.loadGamesFile(file.toString());
+        Map<BoardGame, Integer> owned = new HashMap<>();
+        Map<BoardGame, String> language = new HashMap<>();
+        for (BoardGame game : GamesLoader.loadGamesFile(file.toString())) {
+            owned.put(game, game.getExtraInt(GameData.NUM_OWNED));
+            language.put(game, game.getExtraText(GameData.LANGUAGE_DEPENDENCE));
+        }
+
+        List<String> lines = new ArrayList<>(Arrays.asList(csv.toString().split("\n")));
+        String header = lines.remove(0);
+        Collections.reverse(lines);
+        lines.remove(0);
+        Files.writeString(file, header + "\n" + String.join("\n", lines) + "\n");
+
+        int missing = 0;
+        for (BoardGame game : games) {
+            int value = game.getExtraInt(GameData.NUM_OWNED);
+            if (value == BoardGame.MISSING) {
+                missing++;
+                assertEquals("", game.getExtraText(GameData.LANGUAGE_DEPENDENCE));
+            } else {
+                assertEquals((int) owned.get(game), value);
+                assertEquals(language.get(game), game.getExtraText(GameData.LANGUAGE_DEPENDENCE));
+            }
+        }
+        assertEquals(1, missing);
+    }
+
+    // 1.12 The bundled collection filters on an extra text column, and input read once has no extra columns
+    @Test
+    public void testExtraColumnsBundled() {
+        Planner planner = new Planner(GamesLoader.loadGamesFile("/collection.csv"));
+        assertEquals(480, planner.filter("bgglanguagedependence==no necessary in-game text").count());
+        ByteArrayInputStream in = new ByteArrayInputStream(
+                (CatalogGenerator.HEADER + "\n" + new CatalogGenerator(22).row(3, 0) + "\n").getBytes(StandardCharsets.UTF_8));
+        BoardGame game = GamesLoader.stream(in, null).findFirst().get();
+        assertEquals(BoardGame.MISSING, game.getExtraInt(GameData.NUM_OWNED));
+        assertEquals("", game.getExtraText(GameData.LANGUAGE_DEPENDENCE));
+    }
+
+    // 1.13 A quoted record followed by a line longer than the read-ahead is rejected alone, and the rows after it load
+    @Test
+    public void testLongLineAfterOpenQuote() throws Exception {
+        StringWriter csv = new StringWriter();
+        new CatalogGenerator(23).write(3, csv);
+        String[] lines = csv.toString().split("\n");
+        String rest = lines[1].substring(lines[1].indexOf(','));
+        String text = lines[0] + "\n"
+                + "\"Unclosed" + rest + "\n"
+                + "x".repeat(100_000) + "\n"
+                + lines[1] + "\n"
+                + lines[2] + "\n";
+        List<long[]> reports = new ArrayList<>();
+        ByteArrayInputStream in = new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+        try (Stream<BoardGame> games = GamesLoader.stream(in,
+                (read, rejected, bytes, done) -> reports.add(new long[] {read, rejected}))) {
+            assertEquals(2, games.count());
+        }
+        assertArrayEquals(new long[] {2, 2}, reports.get(reports.size() - 1));
+    }
+}
@@ -0,0 +1,132 @@
+package student;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import student.metrics.LatencyHistogram;
+import student.server.HttpQueryServer;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test for the HTTP query server, run against localhost.
+ */
+public class TestHttpQueryServer {
+    private HttpQueryServer server;
+    private List<BoardGame> games;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        games = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            games.add(new BoardGame("Game " + i, i, 1 + i % 4, 4 + i % 4, 30, 60 + i, 2.5, i + 1, i / 10.0, 2000 + i % 20));
+        }
+        server = new HttpQueryServer(new GameCatalog(games),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    private HttpResponse<String> send(HttpClient client, String method, String pathAndQuery, String session)
+            throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + server.getPort() + pathAndQuery))
+                .method(method, HttpRequest.BodyPublishers.noBody());
+        if (session != null) {
+            request.header("X-Session", session);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    // 1.1 Filter, sort and page, with the filter kept in the session
+    @Test
+    public void testGamesFilterSortPage() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> first = send(client, "GET", "/games?filter=minplayers%3E3&sort=rating&order=desc&limit=2", null);
+        assertEquals(200, first.statusCode());
+        String session = first.headers().firstValue("X-Session").orElseThrow();
+        assertTrue(first.body().startsWith("{\"total\":25,\"offset\":0,\"games\":[{\"id\":99,\"name\":\"Game 99\""),
+                first.body());
+
+        HttpResponse<String> page = send(client, "GET", "/games?sort=rating&order=desc&offset=24", session);
+        assertTrue(page.body().startsWith("{\"total\":25,\"offset\":24,\"games\":[{\"id\":3,"), page.body());
+
+        HttpResponse<String> stats = send(client, "GET", "/stats?column=minplayers", session);
+        assertTrue(stats.body().contains("\"count\":25,\"min\":4.0,\"max\":4.0"), stats.body());
+
+        send(client, "POST", "/filter/clear", session);
+        assertTrue(send(client, "GET", "/games?limit=0", session).body().startsWith("{\"total\":100,"));
+    }
+
+    // 1.2 List operations, per session, with errors as 400/404/405
+    @Test
+    public void testListAndErrors() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        String a = send(client, "GET", "/list", null).headers().firstValue("X-Session").orElseThrow();
+        String b = send(client, "GET", "/list", null).headers().firstValue("X-Session").orElseThrow();
+        assertNotEquals(a, b);
+
+        send(client, "GET", "/games?filter=name~%3Dgame%201", a);
+        HttpResponse<String> added = send(client, "POST", "/list/add?games=1-2", a);
+        assertEquals("{\"count\":2,\"games\":[\"Game 1\",\"Game 10\"]}", added.body());
+        assertEquals("{\"count\":0,\"games\":[]}", send(client, "GET", "/list", b).body());
+        assertEquals("{\"count\":1,\"games\":[\"Game 10\"]}",
+                send(client, "POST", "/list/remove?games=game%201", a).body());
+
+        assertEquals(400, send(client, "POST", "/list/add?games=500", a).statusCode());
+        assertEquals(400, send(client, "POST", "/list/add", a).statusCode());
+        assertEquals(400, send(client, "GET", "/games?sort=colour", a).statusCode());
+        assertEquals(405, send(client, "GET", "/list/add?games=1", a).statusCode());
+        assertEquals(404, send(client, "GET", "/games/extra", a).statusCode());
+    }
+
+    // 1.3 Many concurrent clients each get a session and an answer, and every request is timed with ordered percentiles
+    @Test
+    public void testLatencyUnderLoad() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        int threads = 16;
+        int perThread = 100;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                String session = null;
+                for (int i = 0; i < perThread; i++) {
+                    HttpResponse<String> response = send(client, "GET",
+                            "/games?sort=year&order=" + (i % 2 == 0 ? "asc" : "desc") + "&offset=" + i % 50, session);
+                    assertEquals(200, response.statusCode());
+                    session = response.headers().firstValue("X-Session").orElseThrow();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        pool.shutdown();
+
+        LatencyHistogram latency = server.getLatency("/games");
+        for (int wait = 0; wait < 100 && latency.getCount() < threads * perThread; wait++) {
+            Thread.sleep(10); // recorded just after the response is sent
+        }
+        assertEquals(threads * perThread, latency.getCount(), "HTTP /games " + latency);
+        assertTrue(latency.getValueAtPercentile(50) <= latency.getValueAtPercentile(99), "HTTP /games " + latency);
+        assertTrue(send(client, "GET", "/metrics", null).body().contains("\"sessions\":" + (threads + 1)));
+    }
+}
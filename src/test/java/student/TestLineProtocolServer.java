@@ -0,0 +1,144 @@
+package student;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import student.server.LineProtocolServer;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test for the TCP line protocol server, run against localhost.
+ */
+public class TestLineProtocolServer {
+    private LineProtocolServer server;
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        List<BoardGame> games = new ArrayList<>();
+        games.add(new BoardGame("Chess", 7, 2, 2, 10, 20, 10.0, 700, 10.0, 2006));
+        games.add(new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000));
+        games.add(new BoardGame("Monopoly", 8, 6, 10, 20, 1000, 1.0, 800, 5.0, 2007));
+        server = new LineProtocolServer(new GameCatalog(games),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    private Socket connect() throws Exception {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout(10000);
+        return socket;
+    }
+
+    /** Reads one response: the status line, then the body lines with dot stuffing undone. */
+    private static List<String> response(BufferedReader in) throws Exception {
+        List<String> lines = new ArrayList<>();
+        lines.add(in.readLine());
+        String line;
+        while (!(line = in.readLine()).equals(".")) {
+            lines.add(line.startsWith(".") ? line.substring(1) : line);
+        }
+        return lines;
+    }
+
+    // 1.1 Pipelined commands are answered in order, on the connection's own session
+    @Test
+    public void testPipelinedCommands() throws Exception {
+        try (Socket a = connect(); Socket b = connect()) {
+            OutputStream out = a.getOutputStream();
+            out.write("filter sort:rating desc\r\nlist add 2\nlist show\nnonsense\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            BufferedReader in = new BufferedReader(new InputStreamReader(a.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals(List.of("+OK", "1: Chess (10.00)", "2: Go (7.50)", "3: Monopoly (5.00)"), response(in));
+            assertEquals(List.of("+OK"), response(in));
+            assertEquals(List.of("+OK", "1: Go"), response(in));
+            assertEquals("-ERR", response(in).get(0));
+
+            b.getOutputStream().write("list show\n".getBytes(StandardCharsets.UTF_8));
+            BufferedReader inB = new BufferedReader(new InputStreamReader(b.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals("+OK", response(inB).get(0)); // empty list, not a's list
+        }
+    }
+
+    // 1.2 Many commands written at once all come back, and exit closes the connection
+    @Test
+    public void testManyCommandsThenExit() throws Exception {
+        try (Socket socket = connect()) {
+            int commands = 2000;
+            StringBuilder script = new StringBuilder();
+            for (int i = 0; i < commands; i++) {
+                script.append(i % 2 == 0 ? "filter sort:year\n" : "list add " + (i % 3 + 1) + "\n");
+            }
+            script.append("exit\nfilter\n");
+            Thread writer = new Thread(() -> {
+                try {
+                    socket.getOutputStream().write(script.toString().getBytes(StandardCharsets.UTF_8));
+                } catch (Exception e) {
+                    // the reader below fails the test
+                }
+            });
+            writer.start();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            for (int i = 0; i < commands; i++) {
+                List<String> response = response(in);
+                assertEquals("+OK", response.get(0));
+                assertEquals(i % 2 == 0 ? 4 : 1, response.size());
+            }
+            assertEquals(List.of("+OK"), response(in));
+            assertNull(in.readLine());
+            writer.join();
+        }
+    }
+
+    // 1.3 File commands are off by default; with a directory, saves stay inside it and a failed save
+    // is that command's -ERR, not a later one's
+    @Test
+    public void testFileCommands() throws Exception {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write("list save mine.txt\nlist load mine.txt\n".getBytes(StandardCharsets.UTF_8));
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals("-ERR", response(in).get(0));
+            assertEquals("-ERR", response(in).get(0));
+        }
+
+        server.setFileDirectory(tempDir);
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(("filter\nlist add 1-2\nlist save mine.txt\nlist save missing/mine.txt\n"
+                    + "list show\nlist save ../escape.txt\nlist clear\nlist load mine.txt\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals("+OK", response(in).get(0));
+            assertEquals(List.of("+OK"), response(in));
+            assertEquals(List.of("+OK"), response(in));
+            assertEquals(List.of("Chess", "Go"), Files.readAllLines(tempDir.resolve("mine.txt")));
+            List<String> failed = response(in);
+            assertEquals("-ERR", failed.get(0));
+            assertTrue(failed.get(1).contains("missing"), failed.toString());
+            assertEquals(List.of("+OK", "1: Chess", "2: Go"), response(in));
+            assertEquals("-ERR", response(in).get(0));
+            assertFalse(Files.exists(tempDir.resolveSibling("escape.txt")));
+            assertEquals(List.of("+OK"), response(in));
+            assertEquals("+OK", response(in).get(0));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+import student.server.HttpQueryServer;
+import student.server.LineProtocolServer;
+import student.tools.CatalogGenerator;
+import student.tools.LoadGenerator;
+import student.tools.LoadGenerator.Op;
+import student.tools.LoadGenerator.Report;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test for the load generator, in process and against both local servers.
+ */
+public class TestLoadGenerator {
+    private static final int[] MIX = LoadGenerator.parseMix("filter=40,sort=25,reset=10,add=15,remove=10");
+
+    private static List<BoardGame> catalog() {
+        return new CatalogGenerator(40).games(500);
+    }
+
+    private static void assertRan(Report report) {
+        assertEquals(0, report.getErrors());
+        assertTrue(report.getThroughput() > 0);
+        long total = 0;
+        for (Op op : Op.values()) {
+            total += report.getLatency(op).getCount();
+        }
+        assertEquals(total, report.getLatency().getCount());
+        assertTrue(report.getLatency().getValueAtPercentile(50) <= report.getLatency().getValueAtPercentile(99.9));
+    }
+
+    private static void assertEveryOpRan(Report report) {
+        assertRan(report);
+        for (Op op : Op.values()) {
+            assertTrue(report.getLatency(op).getCount() > 0, op.name());
+        }
+    }
+
+    // 1.1 Mixes parse by name, and bad mixes are rejected
+    @Test
+    public void testParseMix() {
+        assertArrayEquals(new int[] {40, 25, 10, 15, 10}, MIX);
+        assertArrayEquals(new int[] {0, 3, 0, 0, 0}, LoadGenerator.parseMix("sort=3"));
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.parseMix("filter"));
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.parseMix("jump=3"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new LoadGenerator(2, new int[5], LoadGenerator.inProcess(Set.of()), 1, 0));
+    }
+
+    // 1.2 In process users each run every kind of operation
+    @Test
+    public void testInProcess() throws Exception {
+        Set<BoardGame> games = new HashSet<>(catalog());
+        Report report = new LoadGenerator(4, MIX, LoadGenerator.inProcess(games), 1, 0).run(50, 300);
+        assertEveryOpRan(report);
+    }
+
+    // 1.3 The same run against the TCP line protocol server
+    @Test
+    public void testLineProtocol() throws Exception {
+        try (LineProtocolServer server = new LineProtocolServer(new GameCatalog(catalog()),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            server.start();
+            Report report = new LoadGenerator(3, MIX,
+                    LoadGenerator.lineProtocol("localhost", server.getPort()), 2, 0).run(0, 1000);
+            assertRan(report);
+        }
+    }
+
+    // 1.4 The same run against the HTTP server, each user keeping its own session
+    @Test
+    public void testHttp() throws Exception {
+        try (HttpQueryServer server = new HttpQueryServer(new GameCatalog(catalog()),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            server.start();
+            Report report = new LoadGenerator(3, MIX,
+                    LoadGenerator.http("localhost", server.getPort()), 3, 0).run(0, 1000);
+            assertRan(report);
+        }
+    }
+}
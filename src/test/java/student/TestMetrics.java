@@ -0,0 +1,152 @@
+package student;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import student.metrics.LatencyHistogram;
+import student.metrics.Metrics;
+
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test for the metrics registry, histograms and flight recorder events.
+ */
+public class TestMetrics {
+    private Set<BoardGame> games;
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() {
+        Metrics.reset();
+        games = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            games.add(new BoardGame("Game " + i, i, 1 + i % 4, 4, 30, 60, 2.0, i, i / 5.0, 2000));
+        }
+    }
+
+    // 1.1 Percentiles are within the bucket resolution of the real values
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 10000; i++) {
+            h.record(i * 1000L);
+        }
+        assertEquals(10000, h.getCount());
+        assertEquals(10_000_000L, h.getMax());
+        assertEquals(5_000_500.0, h.getMean(), 0.001);
+        for (double p : new double[] {50, 90, 99, 99.9}) {
+            double exact = p * 100 * 1000;
+            long value = h.getValueAtPercentile(p);
+            assertTrue(Math.abs(value - exact) <= exact * 0.07, "p" + p + " = " + value);
+        }
+        assertEquals(10_000_000L, h.getValueAtPercentile(100));
+        assertThrows(IllegalArgumentException.class, () -> h.getValueAtPercentile(101));
+        h.reset();
+        assertEquals(0, h.getValueAtPercentile(50));
+    }
+
+    // 1.2 Filtering, sorting and list changes are timed and counted
+    @Test
+    public void testStagesRecorded() {
+        Planner planner = new Planner(games);
+        planner.filter("minplayers>2,rating>4", GameData.RATING, false);
+        GameList list = new GameList();
+        list.addToList("1-3", planner.getCurrentResult());
+        list.removeFromList("1");
+
+        assertEquals(1, Metrics.histogram(Metrics.Stage.PARSE).getCount());
+        assertEquals(1, Metrics.histogram(Metrics.Stage.FILTER).getCount());
+        assertEquals(1, Metrics.histogram(Metrics.Stage.SORT).getCount());
+        assertEquals(2, Metrics.histogram(Metrics.Stage.LIST).getCount());
+        assertEquals(50 + 24, Metrics.count(Metrics.Counter.ROWS_SCANNED));
+        assertEquals(14, Metrics.count(Metrics.Counter.ROWS_MATCHED));
+        assertEquals(4, Metrics.count(Metrics.Counter.LIST_CHANGES));
+    }
+
+    // 1.3 The console and JMX show the same numbers
+    @Test
+    public void testConsoleAndMBean() throws Exception {
+        StringWriter output = new StringWriter();
+        ConsoleApp app = new ConsoleApp(new GameList(), new Planner(games), (GameCatalog) null,
+                new BufferedReader(new StringReader("")), new PrintWriter(output, true));
+        app.execute("filter rating>5");
+        app.execute("metrics");
+        assertTrue(output.toString().contains("filter            1"), output.toString());
+        assertTrue(output.toString().contains("rows_matched  24"), output.toString());
+
+        Metrics.registerMBean();
+        Metrics.registerMBean(); // twice is fine
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        assertEquals(true, server.getAttribute(name, "Enabled"));
+        TabularData counts = (TabularData) server.getAttribute(name, "StageCounts");
+        assertEquals(1L, counts.get(new Object[] {"filter"}).get("value"));
+
+        app.execute("metrics clear");
+        assertEquals(0, Metrics.histogram(Metrics.Stage.FILTER).getCount());
+        app.execute("metrics bogus");
+        assertEquals(1, app.getErrorCount());
+    }
+
+    // 1.4 A flight recording has the load, filter, sort and list events with their details
+    @Test
+    public void testFlightRecorderEvents() throws Exception {
+        Path file = tempDir.resolve("planner.jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : new String[] {"student.Load", "student.Filter", "student.Sort", "student.GameListChange"}) {
+                recording.enable(name).withoutThreshold();
+            }
+            recording.start();
+            Set<BoardGame> loaded = GamesLoader.loadGamesFile("/collection.csv");
+            Planner planner = new Planner(loaded);
+            planner.filter("minplayers>5", GameData.YEAR, false);
+            GameList list = new GameList();
+            list.addToList("1-2", planner.getCurrentResult());
+            list.clear();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent load = only(events, "student.Load");
+        assertEquals("/collection.csv", load.getString("file"));
+        assertEquals(loaded(), load.getInt("games"));
+        RecordedEvent filter = only(events, "student.Filter");
+        assertEquals("minplayers>5", filter.getString("filter"));
+        assertEquals("YEAR", filter.getString("sortColumn"));
+        assertEquals(loaded(), filter.getInt("rowsIn"));
+        assertEquals(only(events, "student.Sort").getInt("rows"), filter.getInt("rowsOut"));
+        List<RecordedEvent> changes = events.stream()
+                .filter(e -> e.getEventType().getName().equals("student.GameListChange")).toList();
+        assertEquals(2, changes.size());
+        assertEquals(2, changes.stream().filter(e -> e.getString("operation").equals("add")).findFirst().get().getInt("size"));
+        assertEquals(0, changes.stream().filter(e -> e.getString("operation").equals("clear")).findFirst().get().getInt("size"));
+    }
+
+    private static int loaded() {
+        return (int) Metrics.count(Metrics.Counter.GAMES_LOADED);
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream().filter(e -> e.getEventType().getName().equals(name)).toList();
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+}
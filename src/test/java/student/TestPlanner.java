@@ -1,7 +1,9 @@
 package student;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import student.tools.CatalogGenerator;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -187,4 +189,70 @@ public class TestPlanner {
         assertTrue(names.contains("golang"));
         assertTrue(names.contains("GoRami"));
     }
-}
\ No newline at end of file
+
+    // 5.1 Current result keeps the order of the last filter
+    @Test
+    public void testCurrentResultKeepsDisplayOrder() {
+        IPlanner planner = new Planner(games);
+        List<BoardGame> shown = planner.filter("minPlayers >= 2", GameData.RATING, false).toList();
+        FilterResult current = planner.getCurrentResult();
+        assertEquals(shown, current.asList());
+        assertEquals(GameData.RATING, current.getSortOn());
+        assertFalse(current.isAscending());
+        assertEquals("Chess", current.get(0).getName());
+    }
+
+    // 5.2 Current result defaults to name order, and is reused when the sort does not change
+    @Test
+    public void testCurrentResultDefaultAndReuse() {
+        IPlanner planner = new Planner(games);
+        FilterResult current = planner.getCurrentResult();
+        assertEquals("17 days", current.get(0).getName());
+        planner.filter("");
+        assertSame(current, planner.getCurrentResult());
+        planner.filter("", GameData.YEAR, true);
+        assertEquals(GameData.YEAR, planner.getCurrentResult().getSortOn());
+        planner.reset();
+        assertEquals(GameData.NAME, planner.getCurrentResult().getSortOn());
+    }
+
+    // 6.1 Fits keeps the games that support the players and finish in the minutes
+    @Test
+    public void testFits() {
+        IPlanner planner = new Planner(games);
+        List<String> names = planner.fits(2, 30).map(BoardGame::getName).toList();
+        assertEquals(List.of("Chess", "Go"), names);
+        assertEquals(List.of("Chess", "Go"), planner.getCurrentResult().stream().map(BoardGame::getName).toList());
+        assertEquals(List.of("Go"), planner.filter("maxplayers>2").map(BoardGame::getName).toList());
+        planner.reset();
+        assertEquals(List.of("Tucano"), planner.fits(20, 90).map(BoardGame::getName).toList());
+        planner.reset();
+        assertEquals(0, planner.fits(21, 1000).count());
+        planner.reset();
+        assertEquals(0, planner.fits(0, 1000).count());
+    }
+
+    // 6.2 Fits from the index agrees with the same range filters, on a planner over games or over the catalog
+    @Test
+    public void testFitsMatchesFilters() {
+        Set<BoardGame> many = new HashSet<>(new CatalogGenerator(40).games(5000));
+        CatalogStore store = new CatalogStore(new GameCatalog(many));
+        for (int players = 0; players <= 21; players += 3) {
+            for (int minutes : new int[] {0, 20, 45, 90, 240, 5000}) {
+                List<BoardGame> expected = new Planner(many).filter("minplayers<=" + players
+                        + ",maxplayers>=" + players + ",maxplaytime<=" + minutes).toList();
+                assertEquals(expected, new Planner(many).fits(players, minutes).toList(), players + " " + minutes);
+                assertEquals(expected, new Planner(store).fits(players, minutes).toList(), players + " " + minutes);
+            }
+        }
+        Planner planner = new Planner(store);
+        planner.fits(4, 60);
+        List<BoardGame> next = new ArrayList<>(many);
+        next.add(new BoardGame("Fits Four", 700001, 2, 4, 30, 60, 2.0, 0, 7.0, 2024));
+        next.add(new BoardGame("Too Long", 700002, 2, 4, 30, 61, 2.0, 0, 7.0, 2024));
+        store.reload(next);
+        List<String> names = planner.filter("").map(BoardGame::getName).toList();
+        assertTrue(names.contains("Fits Four"));
+        assertFalse(names.contains("Too Long"));
+    }
+}
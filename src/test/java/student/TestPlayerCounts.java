@@ -0,0 +1,93 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import student.metrics.Metrics;
+import student.tools.CatalogGenerator;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test for the best and rec player count columns: the masks, the filters on them, and
+ * the catalog bitmaps the planner answers them from.
+ */
+public class TestPlayerCounts {
+    @TempDir
+    Path tempDir;
+
+    // 1.1 Lists of counts parse to masks and write back the same way
+    @Test
+    public void testParseAndFormat() {
+        assertEquals(0b11100, PlayerCounts.parse("2,3,4"));
+        assertEquals(0b11100, PlayerCounts.parse("2-4"));
+        assertEquals(0b11100, PlayerCounts.parse("2–4"));
+        assertEquals(0b1000, PlayerCounts.parse(" 3 "));
+        assertEquals(PlayerCounts.range(6, PlayerCounts.MAX), PlayerCounts.parse("6+"));
+        assertEquals(PlayerCounts.range(PlayerCounts.MAX, PlayerCounts.MAX), PlayerCounts.parse("99"));
+        assertEquals(0, PlayerCounts.parse(""));
+        assertEquals(0b10, PlayerCounts.parse("1,none"));
+        assertEquals("2-4,6,8+", PlayerCounts.format(PlayerCounts.parse("8+,6,2,3,4")));
+        assertEquals("", PlayerCounts.format(0));
+        for (String text : new String[] {"1", "2-3", "1,3,5", "29+", "30", "1-2,4-5,28+"}) {
+            assertEquals(text, PlayerCounts.format(PlayerCounts.parse(text)));
+        }
+        assertEquals(0, PlayerCounts.range(4, 3));
+    }
+
+    // 1.2 best and rec filters match games by any of their counts, and games without counts never;
+    // counts past either end compare as the end, without overflowing
+    @Test
+    public void testFilters() {
+        Path file = tempDir.resolve("catalog.csv");
+        new CatalogGenerator(30).write(4000, file);
+        Set<BoardGame> games = GamesLoader.loadGamesFile(file.toString());
+        assertTrue(games.stream().anyMatch(game -> game.getPlayerMask(GameData.REC) == 0));
+
+        check(games, "best==3", game -> (game.getPlayerMask(GameData.BEST) & 1 << 3) != 0);
+        check(games, "rec>=5", game -> game.getPlayerMask(GameData.REC) >= 1 << 5);
+        check(games, "rec<2", game -> (game.getPlayerMask(GameData.REC) & 1 << 1) != 0);
+        check(games, "best!=2", game -> game.getPlayerMask(GameData.BEST) != 0
+                && (game.getPlayerMask(GameData.BEST) & 1 << 2) == 0);
+        check(games, "bggbestplayers==3,rec>=4", game -> (game.getPlayerMask(GameData.BEST) & 1 << 3) != 0
+                && game.getPlayerMask(GameData.REC) >= 1 << 4);
+        assertEquals(new Planner(games).filter("best>=30").collect(Collectors.toSet()),
+                new Planner(games).filter("best>2147483647").collect(Collectors.toSet()));
+        assertEquals(0, new Planner(games).filter("rec<-2147483648").count());
+    }
+
+    /** Checks a filter against a plain test of every game. */
+    private static void check(Set<BoardGame> games, String filter, Predicate<BoardGame> expected) {
+        Set<BoardGame> want = games.stream().filter(expected).collect(Collectors.toSet());
+        assertFalse(want.isEmpty(), filter);
+        assertEquals(want, new Planner(games).filter(filter).collect(Collectors.toSet()), filter);
+    }
+
+    // 1.3 A planner over the catalog starts a player count filter from the bitmaps, testing only the games they give
+    @Test
+    public void testBitmaps() {
+        Path file = tempDir.resolve("catalog.csv");
+        new CatalogGenerator(31).write(6000, file);
+        Set<BoardGame> games = GamesLoader.loadGamesFile(file.toString());
+        GameCatalog catalog = new GameCatalog(games);
+        List<BoardGame> bestWith3 = catalog.withPlayers(GameData.BEST, PlayerCounts.range(3, 3));
+        assertEquals(games.stream().filter(game -> game.getPlayerMask(GameData.BEST) == 1 << 3).count(),
+                bestWith3.size());
+        for (int i = 1; i < bestWith3.size(); i++) {
+            assertTrue(catalog.ordinalOf(bestWith3.get(i - 1)) < catalog.ordinalOf(bestWith3.get(i)));
+        }
+
+        Planner planner = new Planner(new CatalogStore(catalog));
+        Metrics.reset();
+        List<BoardGame> found = planner.filter("best==3,minplayers>=2").toList();
+        long scanned = Metrics.count(Metrics.Counter.ROWS_SCANNED);
+        assertEquals(new Planner(games).filter("best==3,minplayers>=2").toList(), found);
+        assertTrue(scanned <= bestWith3.size() * 2L, "scanned " + scanned);
+        Metrics.reset();
+    }
+}